@@ -18,6 +18,7 @@
 package org.xipki.audit;
 
 import org.xipki.util.Args;
+import org.xipki.util.metrics.MetricsRegistry;
 
 import java.util.Collections;
 import java.util.Date;
@@ -60,6 +61,8 @@ public class AuditEvent {
    */
   private long duration;
 
+  private final long startNanos;
+
   /**
    * The data array belonging to the event.
    */
@@ -69,6 +72,7 @@ public class AuditEvent {
     this.timestamp = (timestamp == null) ? new Date() : timestamp;
     this.level = AuditLevel.INFO;
     this.duration = -1;
+    this.startNanos = System.nanoTime();
   }
 
   public AuditLevel getLevel() {
@@ -161,9 +165,28 @@ public class AuditEvent {
     this.status = Args.notNull(status, "status");
   }
 
+  /**
+   * Sets the duration of the event, and records it in the histogram
+   * {@code xipki_audit_event_duration_seconds} of the {@link MetricsRegistry}, labelled by
+   * application, name, event type and status.
+   */
   public void finish() {
     this.duration = System.currentTimeMillis() - timestamp.getTime();
-  }
+
+    String eventType = "";
+    for (AuditEventData m : eventDatas) {
+      if ("event_type".equals(m.getName())) {
+        eventType = m.getValue();
+        break;
+      }
+    }
+
+    MetricsRegistry.getInstance().histogram("xipki_audit_event_duration_seconds",
+        "Duration of the audited operations",
+        "application", applicationName, "name", name, "type", eventType,
+        "status", status == null ? AuditStatus.UNDEFINED.name() : status.name())
+        .record(System.nanoTime() - startNanos);
+  } // method finish
 
   public long getDuration() {
     return duration;
@@ -54,6 +54,8 @@ public class CertificateInfo {
 
   private boolean alreadyIssued;
 
+  private int crlScope;
+
   public CertificateInfo(
       CertWithDbId cert, PrivateKeyInfo privateKey, NameId issuer,
       X509Cert issuerCert, NameId profile, NameId requestor) {
@@ -133,4 +135,16 @@ public class CertificateInfo {
     this.requestedSubject = requestedSubject;
   }
 
+  /**
+   * Returns the CRL partition covering this certificate.
+   * @return 0 if the CRL of the CA is not partitioned, otherwise the partition.
+   */
+  public int getCrlScope() {
+    return crlScope;
+  }
+
+  public void setCrlScope(int crlScope) {
+    this.crlScope = crlScope;
+  }
+
 }
@@ -18,11 +18,18 @@
 package org.xipki.ca.api.profile;
 
 import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.xipki.util.Args;
 
+import java.io.IOException;
+
 /**
  * Extension value control.
  *
+ * <p>The DER encoding of the value is computed once and cached, so that an instance
+ * shared by many certificates, e.g. a constant extension of a certificate profile,
+ * is encoded only once.
+ *
  * @author Lijun Liao
  * @since 2.0.0
  */
@@ -33,6 +40,8 @@ public class ExtensionValue {
 
   private final ASN1Encodable value;
 
+  private volatile byte[] encoded;
+
   public ExtensionValue(boolean critical, ASN1Encodable value) {
     this.critical = critical;
     this.value = Args.notNull(value, "value");
@@ -46,4 +55,20 @@ public class ExtensionValue {
     return value;
   }
 
+  /**
+   * Returns the DER encoding of the value. The returned array must not be modified.
+   * @return the DER encoding of the value.
+   * @throws IOException if the value cannot be encoded.
+   */
+  public byte[] getEncoded()
+      throws IOException {
+    byte[] result = encoded;
+    if (result == null) {
+      // computing the encoding concurrently is harmless, all threads compute the same value.
+      result = value.toASN1Primitive().getEncoded(ASN1Encoding.DER);
+      encoded = result;
+    }
+    return result;
+  }
+
 }
@@ -26,6 +26,8 @@ import org.xipki.security.X509Cert;
 import org.xipki.util.FileOrValue;
 
 import java.io.Closeable;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -105,6 +107,32 @@ public abstract class CertPublisher implements Closeable {
   public abstract boolean certificateRevoked(
       X509Cert caCert, CertWithDbId cert, String certprofile, CertRevocationInfo revInfo);
 
+  /**
+   * Publishes the revocation of several certificates with the same certificate profile and
+   * revocation information. Publishers which can publish several certificates more efficiently
+   * than one by one should overwrite this method.
+   *
+   * @param caCert
+   *          CA certificate. Must not be {@code null}.
+   * @param certs
+   *          Target certificates. Must not be {@code null}.
+   * @param certprofile
+   *          Certificate profile. Could be {@code null}.
+   * @param revInfo
+   *          Revocation information. Must not be {@code null}.
+   * @return the certificates whose revocation is not published.
+   */
+  public List<CertWithDbId> certificatesRevoked(
+      X509Cert caCert, List<CertWithDbId> certs, String certprofile, CertRevocationInfo revInfo) {
+    List<CertWithDbId> failedCerts = new LinkedList<>();
+    for (CertWithDbId cert : certs) {
+      if (!certificateRevoked(caCert, cert, certprofile, revInfo)) {
+        failedCerts.add(cert);
+      }
+    }
+    return failedCerts;
+  } // method certificatesRevoked
+
   /**
    * Publishes the unrevocation of a certificate.
    *
@@ -127,6 +155,26 @@ public abstract class CertPublisher implements Closeable {
    */
   public abstract boolean certificateRemoved(X509Cert caCert, CertWithDbId cert);
 
+  /**
+   * Publishes the remove of several certificates. Publishers which can publish several
+   * certificates more efficiently than one by one should overwrite this method.
+   *
+   * @param caCert
+   *          CA certificate. Must not be {@code null}.
+   * @param certs
+   *          Target certificates. Must not be {@code null}.
+   * @return the certificates whose remove is not published.
+   */
+  public List<CertWithDbId> certificatesRemoved(X509Cert caCert, List<CertWithDbId> certs) {
+    List<CertWithDbId> failedCerts = new LinkedList<>();
+    for (CertWithDbId cert : certs) {
+      if (!certificateRemoved(caCert, cert)) {
+        failedCerts.add(cert);
+      }
+    }
+    return failedCerts;
+  } // method certificatesRemoved
+
   /**
    * Publishes a CRL.
    *
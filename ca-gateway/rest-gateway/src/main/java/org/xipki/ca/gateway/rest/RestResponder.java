@@ -792,7 +792,19 @@ public class RestResponder {
       }
     }
 
-    byte[] respBytes = sdk.currentCrl(caName, crlNumber, null, null);
+    String strPartition = httpRetriever.getParameter(RestAPIConstants.PARAM_crl_partition);
+    Integer partition = null;
+    if (StringUtil.isNotBlank(strPartition)) {
+      try {
+        partition = Integer.parseInt(strPartition.trim());
+      } catch (NumberFormatException ex) {
+        String message = "invalid partition '" + strPartition + "'";
+        LOG.warn(message);
+        throw new HttpRespAuditException(BAD_REQUEST, message, AuditLevel.INFO, AuditStatus.FAILED);
+      }
+    }
+
+    byte[] respBytes = sdk.currentCrl(caName, crlNumber, null, null, partition);
     if (respBytes == null) {
       String message = "could not get CRL";
       LOG.warn(message);
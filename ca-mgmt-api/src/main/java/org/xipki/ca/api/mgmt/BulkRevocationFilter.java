@@ -0,0 +1,108 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.api.mgmt;
+
+import org.xipki.util.StringUtil;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Filter of the certificates to be revoked in a bulk revocation. Only the unrevoked
+ * certificates matching all specified criteria are revoked, at least one criterion
+ * must be specified.
+ *
+ * @author Lijun Liao
+ */
+
+public class BulkRevocationFilter {
+
+  /**
+   * Serial numbers of the certificates.
+   */
+  private List<BigInteger> serialNumbers;
+
+  /**
+   * Name of the certprofile.
+   */
+  private String certprofile;
+
+  /**
+   * Name of the requestor.
+   */
+  private String requestor;
+
+  /**
+   * Only certificates with notBefore not before this time.
+   */
+  private Date notBeforeFrom;
+
+  /**
+   * Only certificates with notBefore before this time.
+   */
+  private Date notBeforeTo;
+
+  public List<BigInteger> getSerialNumbers() {
+    return serialNumbers;
+  }
+
+  public void setSerialNumbers(List<BigInteger> serialNumbers) {
+    this.serialNumbers = serialNumbers;
+  }
+
+  public String getCertprofile() {
+    return certprofile;
+  }
+
+  public void setCertprofile(String certprofile) {
+    this.certprofile = certprofile;
+  }
+
+  public String getRequestor() {
+    return requestor;
+  }
+
+  public void setRequestor(String requestor) {
+    this.requestor = requestor;
+  }
+
+  public Date getNotBeforeFrom() {
+    return notBeforeFrom;
+  }
+
+  public void setNotBeforeFrom(Date notBeforeFrom) {
+    this.notBeforeFrom = notBeforeFrom;
+  }
+
+  public Date getNotBeforeTo() {
+    return notBeforeTo;
+  }
+
+  public void setNotBeforeTo(Date notBeforeTo) {
+    this.notBeforeTo = notBeforeTo;
+  }
+
+  @Override
+  public String toString() {
+    return StringUtil.concatObjects("serialNumbers: ", (serialNumbers == null ? "-" : serialNumbers.size()),
+        ", certprofile: ", certprofile, ", requestor: ", requestor,
+        ", notBeforeFrom: ", notBeforeFrom, ", notBeforeTo: ", notBeforeTo);
+  }
+
+}
@@ -20,6 +20,7 @@ package org.xipki.ca.api.mgmt;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.xipki.ca.api.mgmt.entry.*;
+import org.xipki.datasource.DataSourceStats;
 import org.xipki.security.*;
 
 import java.io.IOException;
@@ -74,6 +75,15 @@ public interface CaManager {
   Map<String, String> getDbSchemas()
           throws CaMgmtException;
 
+  /**
+   * Gets the statistics of the CA database, including the statistics per SQL statement.
+   * @return the statistics of the datasources with enabled metrics.
+   * @throws CaMgmtException
+   *          if error occurs.
+   */
+  List<DataSourceStats> getDataSourceStats()
+      throws CaMgmtException;
+
   /**
    * Republishes certificates of the CA {@code caName} to the publishers {@code publisherNames}.
    *
@@ -234,6 +244,17 @@ public interface CaManager {
   CaEntry getCa(String caName)
       throws CaMgmtException;
 
+  /**
+   * Gets the statistics of the certificates issued by the CA named {@code caName}.
+   * @param caName
+   *          CA name. Must not be {@code null}.
+   * @return the statistics of the CA, with the statistics per certprofile.
+   * @throws CaMgmtException
+   *          if error occurs.
+   */
+  CertStatistics getCertStatistics(String caName)
+      throws CaMgmtException;
+
   /**
    * Changes a CA.
    *
@@ -617,6 +638,29 @@ public interface CaManager {
   void revokeCertificate(String caName, BigInteger serialNumber, CrlReason reason, Date invalidityTime)
       throws CaMgmtException;
 
+  /**
+   * Revokes all unrevoked certificates issued by the CA {@code caName} and matching the
+   * {@code filter}. The certificates are revoked and published in batches.
+   * @param caName
+   *          CA name. Must not be {@code null}.
+   * @param filter
+   *          Filter of the certificates. Must not be {@code null} and must specify at least
+   *          one criterion.
+   * @param reason
+   *          Revocation reason. Must not be {@code null}.
+   * @param invalidityTime
+   *          Invalidity time. Could be {@code null}.
+   * @param generateCrl
+   *          Whether to generate a CRL after the revocation, a delta CRL if configured, and
+   *          a full CRL otherwise.
+   * @return number of revoked certificates.
+   * @throws CaMgmtException
+   *          if error occurs.
+   */
+  int revokeCertificates(String caName, BulkRevocationFilter filter, CrlReason reason, Date invalidityTime,
+      boolean generateCrl)
+      throws CaMgmtException;
+
   /**
    * Unrevokes a certificate with the serial number {@code serialNumber}, and
    * issued by the CA {@code caName}.
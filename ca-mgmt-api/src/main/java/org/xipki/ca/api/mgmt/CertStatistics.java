@@ -0,0 +1,113 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.api.mgmt;
+
+import java.util.Map;
+
+/**
+ * Statistics of the certificates of a CA or of a certprofile.
+ *
+ * <p>The numbers are maintained in memory and reconciled with the database periodically, they
+ * may differ slightly from the exact numbers in the database.
+ *
+ * @author Lijun Liao
+ */
+
+public class CertStatistics {
+
+  /**
+   * Number of certificates in the database, including the revoked ones.
+   */
+  private long issued;
+
+  /**
+   * Number of revoked certificates, without the suspended ones.
+   */
+  private long revoked;
+
+  /**
+   * Number of suspended certificates (revoked with reason certificateHold).
+   */
+  private long suspended;
+
+  /**
+   * Number of expired certificates, as of the last reconciliation.
+   */
+  private long expired;
+
+  /**
+   * Statistics per certprofile, only set for the statistics of a CA.
+   */
+  private Map<String, CertStatistics> certprofiles;
+
+  public CertStatistics() {
+  }
+
+  public CertStatistics(long issued, long revoked, long suspended, long expired) {
+    this.issued = issued;
+    this.revoked = revoked;
+    this.suspended = suspended;
+    this.expired = expired;
+  }
+
+  public long getIssued() {
+    return issued;
+  }
+
+  public void setIssued(long issued) {
+    this.issued = issued;
+  }
+
+  public long getRevoked() {
+    return revoked;
+  }
+
+  public void setRevoked(long revoked) {
+    this.revoked = revoked;
+  }
+
+  public long getSuspended() {
+    return suspended;
+  }
+
+  public void setSuspended(long suspended) {
+    this.suspended = suspended;
+  }
+
+  public long getExpired() {
+    return expired;
+  }
+
+  public void setExpired(long expired) {
+    this.expired = expired;
+  }
+
+  public Map<String, CertStatistics> getCertprofiles() {
+    return certprofiles;
+  }
+
+  public void setCertprofiles(Map<String, CertStatistics> certprofiles) {
+    this.certprofiles = certprofiles;
+  }
+
+  @Override
+  public String toString() {
+    return "issued=" + issued + ", revoked=" + revoked + ", suspended=" + suspended + ", expired=" + expired;
+  }
+
+}
@@ -35,6 +35,8 @@ public class CertWithRevocationInfo {
 
   private String certprofile;
 
+  private int crlScope;
+
   public CertWithRevocationInfo() {
   }
 
@@ -66,6 +68,18 @@ public class CertWithRevocationInfo {
     this.certprofile = certprofile;
   }
 
+  /**
+   * Returns the CRL scope (partition) of the certificate, as saved in the database.
+   * @return the CRL scope.
+   */
+  public int getCrlScope() {
+    return crlScope;
+  }
+
+  public void setCrlScope(int crlScope) {
+    this.crlScope = crlScope;
+  }
+
   public CertWithStatusInfo toCertWithStatusInfo() {
     CertWithStatusInfo ret = new CertWithStatusInfo();
     ret.setCert(cert.getCert());
@@ -20,6 +20,7 @@ package org.xipki.ca.api.mgmt;
 import org.xipki.util.*;
 import org.xipki.util.exception.InvalidConfException;
 
+import java.math.BigInteger;
 import java.util.List;
 
 /**
@@ -67,6 +68,13 @@ import java.util.List;
  * # Default is false
  * include.expiredcerts=&lt;'true'|'false'&gt;
  *
+ * # Number of CRL partitions. If greater than 1, each new certificate is assigned to the
+ * # partition (serial number mod partitions) + 1, its CRLDistributionPoints and FreshestCRL
+ * # point to the CRL of this partition, and one CRL is generated per partition. The CRL of
+ * # partition 0 is the complete CRL covering all certificates.
+ * # Should not be decreased. Default is 1 (no partitioning).
+ * partitions=&lt;integer&gt;
+ *
  * </pre>
  * @author Lijun Liao
  * @since 2.0.0
@@ -107,6 +115,10 @@ public class CrlControl {
 
   public static final String KEY_INVALIDITY_DATE = "invalidity.date";
 
+  public static final String KEY_PARTITIONS = "partitions";
+
+  public static final int MAX_PARTITIONS = 1024;
+
   private final int fullCrlIntervals;
 
   private final int deltaCrlIntervals;
@@ -125,6 +137,8 @@ public class CrlControl {
 
   private final boolean includeExpiredCerts;
 
+  private final int partitions;
+
   private TripleState invalidityDateMode = TripleState.optional;
 
   public CrlControl(String conf)
@@ -157,6 +171,7 @@ public class CrlControl {
     this.fullCrlIntervals = getInteger(props, KEY_FULLCRL_INTERVALS, 7);
     this.deltaCrlIntervals = getInteger(props, KEY_DELTACRL_INTERVALS, 0);
     this.extendedNextUpdate = getBoolean(props, KEY_FULLCRL_EXTENDED_NEXTUPDATE, false);
+    this.partitions = getInteger(props, KEY_PARTITIONS, 1);
 
     Validity ov;
     if (props.value(KEY_OVERLAP_DAYS) != null) {
@@ -232,6 +247,9 @@ public class CrlControl {
     pairs.putPair(KEY_INTERVAL_TIME, intervalDayTime.toString());
     pairs.putPair(KEY_INVALIDITY_DATE, invalidityDateMode.name());
     pairs.putPair(KEY_OVERLAP, overlap.toString());
+    if (partitions > 1) {
+      pairs.putPair(KEY_PARTITIONS, Integer.toString(partitions));
+    }
     return pairs;
   } // method getConf
 
@@ -250,6 +268,7 @@ public class CrlControl {
         "\n  exclude reason: ", excludeReason,
         "\n  include expired certs: ", includeExpiredCerts,
         "\n  invalidity date mode: ", invalidityDateMode,
+        "\n  partitions: ", partitions,
         "\n  intervalDayTime: ", "generate CRL at " + intervalDayTime, " UTC",
         (verbose ? "\n  encoded: " : ""), (verbose ? getConf() : ""));
   } // method toString(boolean)
@@ -286,6 +305,19 @@ public class CrlControl {
     return invalidityDateMode;
   }
 
+  public int getPartitions() {
+    return partitions;
+  }
+
+  /**
+   * Returns the CRL partition of the certificate with given serial number.
+   * @param serialNumber the serial number of the certificate.
+   * @return 0 if the CRL is not partitioned, otherwise the partition in [1, partitions].
+   */
+  public int getPartition(BigInteger serialNumber) {
+    return (partitions < 2) ? 0 : serialNumber.mod(BigInteger.valueOf(partitions)).intValue() + 1;
+  }
+
   public int getIntervalHours() {
     return intervalHours;
   }
@@ -309,6 +341,27 @@ public class CrlControl {
       throw new InvalidConfException("deltaCRLIntervals may not be less than 0: " + deltaCrlIntervals);
     }
 
+    if (partitions < 1 || partitions > MAX_PARTITIONS) {
+      throw new InvalidConfException("partitions not in [1, " + MAX_PARTITIONS + "]: " + partitions);
+    }
+
+  } // method validate
+
+  /**
+   * Validates this control as the replacement of the previous one. The number of partitions
+   * may not be decreased, since the certificates issued before point to the CRLs of their
+   * partitions, which would no longer be generated.
+   *
+   * @param previous the CRL control to be replaced, may be {@code null}.
+   * @throws InvalidConfException if this control is invalid, or decreases the number of partitions.
+   */
+  public void validate(CrlControl previous)
+      throws InvalidConfException {
+    validate();
+
+    if (previous != null && partitions < previous.partitions) {
+      throw new InvalidConfException("partitions may not be decreased: " + previous.partitions + " -> " + partitions);
+    }
   } // method validate
 
   @Override
@@ -333,7 +386,8 @@ public class CrlControl {
             && intervalDayTime.equals(obj2.intervalDayTime)
             && intervalHours == obj2.intervalHours
             && invalidityDateMode.equals(obj2.invalidityDateMode)
-            && overlap.equals(obj2.overlap);
+            && overlap.equals(obj2.overlap)
+            && partitions == obj2.partitions;
   } // method equals
 
   private static int getInteger(ConfPairs props, String propKey, int dfltValue)
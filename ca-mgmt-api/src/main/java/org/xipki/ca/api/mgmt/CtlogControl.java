@@ -48,8 +48,24 @@ public class CtlogControl {
    */
   public static final String KEY_SSLCONTEXT_NAME = "sslcontext.name";
 
+  /**
+   * Minimal number of SCTs to be embedded in the certificate. Default to the number of servers.
+   */
+  public static final String KEY_QUORUM = "quorum";
+
+  /**
+   * Timeout in milliseconds to wait for the response of each CT Log server. Default to 10000.
+   */
+  public static final String KEY_TIMEOUT = "timeout";
+
+  public static final int DFLT_TIMEOUT_MS = 10000;
+
   private boolean enabled;
 
+  private int quorum;
+
+  private int timeoutMs = DFLT_TIMEOUT_MS;
+
   private String sslContextName;
 
   private List<String> servers;
@@ -77,6 +93,16 @@ public class CtlogControl {
       throw new InvalidConfException(KEY_SERVERS + " is not specified");
     }
 
+    quorum = getInt(pairs, KEY_QUORUM, servers.size());
+    if (quorum < 1 || quorum > servers.size()) {
+      throw new InvalidConfException(KEY_QUORUM + " is not in [1, " + servers.size() + "]: " + quorum);
+    }
+
+    timeoutMs = getInt(pairs, KEY_TIMEOUT, DFLT_TIMEOUT_MS);
+    if (timeoutMs < 1) {
+      throw new InvalidConfException(KEY_TIMEOUT + " is not positive: " + timeoutMs);
+    }
+
     this.confPairs = pairs;
   } // constructor
 
@@ -89,6 +115,7 @@ public class CtlogControl {
 
     pairs.putPair(KEY_SERVERS, StringUtil.collectionAsString(servers, ";"));
     this.servers = servers;
+    this.quorum = servers.size();
 
     this.sslContextName = sslContextName;
     if (sslContextName != null) {
@@ -126,6 +153,14 @@ public class CtlogControl {
     this.servers = servers;
   }
 
+  public int getQuorum() {
+    return quorum;
+  }
+
+  public int getTimeoutMs() {
+    return timeoutMs;
+  }
+
   public void setEnabled(boolean enabled) {
     this.enabled = enabled;
   }
@@ -144,7 +179,9 @@ public class CtlogControl {
     return StringUtil.concatObjects(
         "  enabled: ", enabled,
         "\n  SSL context name: ", sslContextName,
-        "\n  Servers: ", servers);
+        "\n  Servers: ", servers,
+        "\n  Quorum: ", quorum,
+        "\n  Timeout: ", timeoutMs, " ms");
   }
 
   @Override
@@ -165,4 +202,18 @@ public class CtlogControl {
     return ret;
   } // method getBoolean
 
+  private static int getInt(ConfPairs pairs, String key, int defaultValue)
+      throws InvalidConfException {
+    String str = pairs.value(key);
+    if (StringUtil.isBlank(str)) {
+      return defaultValue;
+    }
+
+    try {
+      return Integer.parseInt(str.trim());
+    } catch (NumberFormatException ex) {
+      throw new InvalidConfException(key + " is not an integer: " + str);
+    }
+  } // method getInt
+
 }
@@ -80,8 +80,10 @@ public abstract class MgmtMessage {
     getCertprofileNames,
     getCertprofilesForCa,
     getCertRequest,
+    getCertStatistics,
     getCrl,
     getCurrentCrl,
+    getDataSourceStats,
     getDbSchemas,
     getFailedCaNames,
     getInactiveCaNames,
@@ -122,6 +124,7 @@ public abstract class MgmtMessage {
     @Deprecated
     revokeCertficate,
     revokeCertificate,
+    revokeCertificates,
     tokenInfoP11,
     unlockCa,
     unrevokeCa,
@@ -782,6 +782,50 @@ public abstract class MgmtRequest extends MgmtMessage {
 
   } // class RevokeCertificate
 
+  public static class RevokeCertificates extends CaNameRequest {
+
+    private BulkRevocationFilter filter;
+
+    private CrlReason reason;
+
+    private Date invalidityTime;
+
+    private boolean generateCrl;
+
+    public BulkRevocationFilter getFilter() {
+      return filter;
+    }
+
+    public void setFilter(BulkRevocationFilter filter) {
+      this.filter = filter;
+    }
+
+    public CrlReason getReason() {
+      return reason;
+    }
+
+    public void setReason(CrlReason reason) {
+      this.reason = reason;
+    }
+
+    public Date getInvalidityTime() {
+      return invalidityTime;
+    }
+
+    public void setInvalidityTime(Date invalidityTime) {
+      this.invalidityTime = invalidityTime;
+    }
+
+    public boolean isGenerateCrl() {
+      return generateCrl;
+    }
+
+    public void setGenerateCrl(boolean generateCrl) {
+      this.generateCrl = generateCrl;
+    }
+
+  } // class RevokeCertificates
+
   public static class UnsuspendCertificate extends CaNameRequest {
 
     private BigInteger serialNumber;
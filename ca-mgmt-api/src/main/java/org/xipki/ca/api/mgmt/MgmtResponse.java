@@ -19,6 +19,7 @@ package org.xipki.ca.api.mgmt;
 
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.mgmt.entry.*;
+import org.xipki.datasource.DataSourceStats;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.util.X509Util;
 
@@ -56,6 +57,27 @@ public abstract class MgmtResponse extends MgmtMessage {
 
   }
 
+  public static class GetDataSourceStats extends MgmtResponse {
+
+    private List<DataSourceStats> result;
+
+    public GetDataSourceStats() {
+    }
+
+    public GetDataSourceStats(List<DataSourceStats> result) {
+      this.result = result;
+    }
+
+    public List<DataSourceStats> getResult() {
+      return result;
+    }
+
+    public void setResult(List<DataSourceStats> result) {
+      this.result = result;
+    }
+
+  } // class GetDataSourceStats
+
   public static class CertWithDbIdWrapper {
 
     private byte[] cert;
@@ -146,6 +168,27 @@ public abstract class MgmtResponse extends MgmtMessage {
 
   } // class CertWithRevocationInfoWrapper
 
+  public static class IntResponse extends MgmtResponse {
+
+    private int result;
+
+    public IntResponse() {
+    }
+
+    public IntResponse(int result) {
+      this.result = result;
+    }
+
+    public int getResult() {
+      return result;
+    }
+
+    public void setResult(int result) {
+      this.result = result;
+    }
+
+  } // class IntResponse
+
   public static class KeyCertBytes extends MgmtResponse {
 
     private byte[] key;
@@ -261,6 +304,27 @@ public abstract class MgmtResponse extends MgmtMessage {
 
   } // class GetCaSystemStatus
 
+  public static class GetCertStatistics extends MgmtResponse {
+
+    private CertStatistics result;
+
+    public GetCertStatistics() {
+    }
+
+    public GetCertStatistics(CertStatistics result) {
+      this.result = result;
+    }
+
+    public CertStatistics getResult() {
+      return result;
+    }
+
+    public void setResult(CertStatistics result) {
+      this.result = result;
+    }
+
+  } // class GetCertStatistics
+
   public static class GetCertprofile extends MgmtResponse {
 
     private CertprofileEntry result;
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.api.mgmt.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.api.mgmt.CrlControl;
+import org.xipki.util.exception.InvalidConfException;
+
+import java.math.BigInteger;
+
+/**
+ * Test for {@link CrlControl}.
+ *
+ * @author Lijun Liao
+ */
+
+public class CrlControlTest {
+
+  @Test
+  public void testNotPartitioned()
+      throws Exception {
+    CrlControl control = new CrlControl("fullcrl.intervals=1");
+    Assert.assertEquals(1, control.getPartitions());
+    Assert.assertEquals(0, control.getPartition(BigInteger.valueOf(12345)));
+  }
+
+  @Test
+  public void testGetPartition()
+      throws Exception {
+    CrlControl control = new CrlControl("fullcrl.intervals=1,partitions=4");
+    Assert.assertEquals(4, control.getPartitions());
+    Assert.assertEquals(1, control.getPartition(BigInteger.valueOf(8)));
+    Assert.assertEquals(2, control.getPartition(BigInteger.valueOf(9)));
+    Assert.assertEquals(4, control.getPartition(BigInteger.valueOf(11)));
+
+    // the partitions are in [1, partitions]
+    BigInteger sn = new BigInteger("7f1e2d3c4b5a69788796a5b4c3d2e1f0", 16);
+    for (int i = 0; i < 100; i++) {
+      int partition = control.getPartition(sn.add(BigInteger.valueOf(i)));
+      Assert.assertTrue("partition " + partition, partition >= 1 && partition <= 4);
+    }
+  }
+
+  @Test
+  public void testPartitionsOutOfRange() {
+    assertInvalid("fullcrl.intervals=1,partitions=0");
+    assertInvalid("fullcrl.intervals=1,partitions=" + (CrlControl.MAX_PARTITIONS + 1));
+  }
+
+  @Test
+  public void testPartitionsNotDecreased()
+      throws Exception {
+    CrlControl previous = new CrlControl("fullcrl.intervals=1,partitions=4");
+
+    new CrlControl("fullcrl.intervals=1,partitions=4").validate(previous);
+    new CrlControl("fullcrl.intervals=1,partitions=8").validate(previous);
+    new CrlControl("fullcrl.intervals=1,partitions=2").validate(null);
+
+    assertInvalid(new CrlControl("fullcrl.intervals=1,partitions=2"), previous);
+    assertInvalid(new CrlControl("fullcrl.intervals=1"), previous);
+  }
+
+  private static void assertInvalid(String conf) {
+    try {
+      new CrlControl(conf);
+      Assert.fail("InvalidConfException expected");
+    } catch (InvalidConfException ex) {
+      // expected
+    }
+  }
+
+  private static void assertInvalid(CrlControl control, CrlControl previous) {
+    try {
+      control.validate(previous);
+      Assert.fail("InvalidConfException expected");
+    } catch (InvalidConfException ex) {
+      // expected
+    }
+  }
+
+}
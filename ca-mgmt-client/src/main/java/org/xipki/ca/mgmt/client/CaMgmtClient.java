@@ -25,6 +25,7 @@ import org.xipki.ca.api.mgmt.MgmtMessage.CaEntryWrapper;
 import org.xipki.ca.api.mgmt.MgmtMessage.MgmtAction;
 import org.xipki.ca.api.mgmt.MgmtMessage.SignerEntryWrapper;
 import org.xipki.ca.api.mgmt.entry.*;
+import org.xipki.datasource.DataSourceStats;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.CrlReason;
 import org.xipki.security.KeyCertBytesPair;
@@ -167,6 +168,14 @@ public class CaMgmtClient implements CaManager {
     return resp.getResult();
   }
 
+  @Override
+  public List<DataSourceStats> getDataSourceStats()
+      throws CaMgmtException {
+    byte[] respBytes = transmit(MgmtAction.getDataSourceStats, null);
+    MgmtResponse.GetDataSourceStats resp = parse(respBytes, MgmtResponse.GetDataSourceStats.class);
+    return resp.getResult();
+  }
+
   @Override
   public void republishCertificates(String caName, List<String> publisherNames, int numThreads)
       throws CaMgmtException {
@@ -326,6 +335,15 @@ public class CaMgmtClient implements CaManager {
     }
   } // method getCa
 
+  @Override
+  public CertStatistics getCertStatistics(String caName)
+      throws CaMgmtException {
+    MgmtRequest.Name req = new MgmtRequest.Name(caName);
+    byte[] respBytes = transmit(MgmtAction.getCertStatistics, req);
+    MgmtResponse.GetCertStatistics resp = parse(respBytes, MgmtResponse.GetCertStatistics.class);
+    return resp.getResult();
+  } // method getCertStatistics
+
   @Override
   public void changeCa(ChangeCaEntry changeCaEntry)
       throws CaMgmtException {
@@ -597,6 +615,21 @@ public class CaMgmtClient implements CaManager {
     voidTransmit(MgmtAction.revokeCertificate, req);
   } // method revokeCertificate
 
+  @Override
+  public int revokeCertificates(String caName, BulkRevocationFilter filter, CrlReason reason, Date invalidityTime,
+      boolean generateCrl)
+      throws CaMgmtException {
+    MgmtRequest.RevokeCertificates req = new MgmtRequest.RevokeCertificates();
+    req.setCaName(caName);
+    req.setFilter(filter);
+    req.setReason(reason);
+    req.setInvalidityTime(invalidityTime);
+    req.setGenerateCrl(generateCrl);
+    byte[] respBytes = transmit(MgmtAction.revokeCertificates, req);
+    MgmtResponse.IntResponse resp = parse(respBytes, MgmtResponse.IntResponse.class);
+    return resp.getResult();
+  } // method revokeCertificates
+
   @Override
   public void unsuspendCertificate(String caName, BigInteger serialNumber)
       throws CaMgmtException {
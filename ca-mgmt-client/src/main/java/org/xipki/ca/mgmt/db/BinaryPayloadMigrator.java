@@ -0,0 +1,211 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.datasource.DataAccessException;
+import org.xipki.datasource.DataSourceFactory;
+import org.xipki.password.PasswordResolver;
+import org.xipki.password.PasswordResolverException;
+import org.xipki.util.Args;
+import org.xipki.util.Base64;
+import org.xipki.util.LogUtil;
+import org.xipki.util.ProcessLog;
+import org.xipki.util.StringUtil;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Worker to move the Base64-encoded payloads to the binary columns added by
+ * sql/ca-binary-payload.xml (CA database) or sql/ocsp-cache-binary-payload.xml (OCSP cache
+ * database).
+ *
+ * <p>The rows are converted in chunks ordered by ID, each chunk in its own transaction: the
+ * payload is decoded into the binary column and the text column is set to {@code NULL}. The
+ * CA and OCSP responders read both columns, so the migration can run while they are online,
+ * and be stopped and run again at any time.
+ *
+ * @author Lijun Liao
+ */
+
+public class BinaryPayloadMigrator extends DbWorker {
+
+  public enum DbType {
+    ca,
+    ocspCache
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(BinaryPayloadMigrator.class);
+
+  // table and text column, the binary column is the text column with suffix "2".
+  private static final String[][] CA_TABLES =
+      {{"CERT", "CERT"}, {"CERT_ARCHIVE", "CERT"}, {"CRL", "CRL"}, {"REQUEST", "DATA"}};
+
+  private static final String[][] OCSP_CACHE_TABLES = {{"OCSP", "RESP"}};
+
+  private final DbType dbType;
+
+  private final int numRowsPerCommit;
+
+  public BinaryPayloadMigrator(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
+      String dbConfFile, DbType dbType, int numRowsPerCommit)
+      throws PasswordResolverException, IOException {
+    super(datasourceFactory, passwordResolver, dbConfFile);
+    this.dbType = Args.notNull(dbType, "dbType");
+    this.numRowsPerCommit = Args.positive(numRowsPerCommit, "numRowsPerCommit");
+  }
+
+  @Override
+  protected void run0()
+      throws Exception {
+    long start = System.currentTimeMillis();
+    try {
+      String[][] tables = dbType == DbType.ca ? CA_TABLES : OCSP_CACHE_TABLES;
+      for (String[] table : tables) {
+        if (stopMe.get()) {
+          break;
+        }
+        migrateTable(table[0], table[1]);
+      }
+    } finally {
+      try {
+        datasource.close();
+      } catch (Throwable th) {
+        LOG.error("datasource.close()", th);
+      }
+      long end = System.currentTimeMillis();
+      System.out.println("finished in " + StringUtil.formatTime((end - start) / 1000, false));
+    }
+  } // method run0
+
+  private void migrateTable(String table, String column)
+      throws DataAccessException {
+    if ("CERT_ARCHIVE".equals(table) && !datasource.tableExists(null, table)) {
+      // optional table, created by sql/ca-cert-archive.xml
+      return;
+    }
+
+    String binaryColumn = column + "2";
+    if (!datasource.tableHasColumn(null, table, binaryColumn)) {
+      throw new IllegalStateException("column " + table + "." + binaryColumn + " does not exist, apply "
+          + (dbType == DbType.ca ? "sql/ca-binary-payload.xml" : "sql/ocsp-cache-binary-payload.xml") + " first");
+    }
+
+    final String condition = column + " IS NOT NULL";
+    final String selectSql = datasource.buildSelectFirstSql(numRowsPerCommit, "ID ASC",
+        "ID," + column + " FROM " + table + " WHERE ID>? AND " + condition);
+    final String updateSql = "UPDATE " + table + " SET " + binaryColumn + "=?," + column + "=NULL WHERE ID=?";
+
+    long total = count(table, condition);
+    System.out.println("migrating " + total + " entries of table " + table);
+    if (total == 0) {
+      return;
+    }
+
+    ProcessLog processLog = new ProcessLog(total);
+    processLog.printHeader();
+
+    Connection conn = datasource.getConnection();
+    PreparedStatement selectStmt = null;
+    PreparedStatement updateStmt = null;
+    boolean autoCommit = true;
+    String sql = null;
+    try {
+      autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+
+      selectStmt = datasource.prepareStatement(conn, selectSql);
+      updateStmt = datasource.prepareStatement(conn, updateSql);
+
+      long lastId = Long.MIN_VALUE;
+      while (!stopMe.get()) {
+        sql = selectSql;
+        selectStmt.setLong(1, lastId);
+        int num = 0;
+        try (ResultSet rs = selectStmt.executeQuery()) {
+          while (rs.next()) {
+            lastId = rs.getLong("ID");
+            updateStmt.setBytes(1, Base64.decodeFast(rs.getString(column)));
+            updateStmt.setLong(2, lastId);
+            updateStmt.addBatch();
+            num++;
+          }
+        }
+
+        if (num == 0) {
+          break;
+        }
+
+        sql = updateSql;
+        updateStmt.executeBatch();
+        conn.commit();
+
+        processLog.addNumProcessed(num);
+        processLog.printStatus();
+      }
+    } catch (SQLException ex) {
+      try {
+        conn.rollback();
+      } catch (SQLException ex2) {
+        LOG.warn("could not rollback: {}", ex2.getMessage());
+      }
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(selectStmt, null, false);
+      datasource.releaseResources(updateStmt, null, false);
+      try {
+        conn.setAutoCommit(autoCommit);
+      } catch (SQLException ex) {
+        LogUtil.error(LOG, datasource.translate(null, ex), "could not recover AutoCommit");
+      }
+      datasource.returnConnection(conn);
+    }
+
+    processLog.printTrailer();
+    if (stopMe.get()) {
+      System.out.println(" stopped after " + processLog.numProcessed() + " entries of table " + table
+          + ", run the migration again to continue");
+    } else {
+      System.out.println(" migrated " + processLog.numProcessed() + " entries of table " + table);
+    }
+  } // method migrateTable
+
+  private long count(String table, String condition)
+      throws DataAccessException {
+    final String sql = "SELECT COUNT(*) FROM " + table + " WHERE " + condition;
+    Statement stmt = null;
+    ResultSet rs = null;
+    try {
+      stmt = datasource.createStatement();
+      rs = stmt.executeQuery(sql);
+      rs.next();
+      return rs.getLong(1);
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(stmt, rs);
+    }
+  } // method count
+
+}
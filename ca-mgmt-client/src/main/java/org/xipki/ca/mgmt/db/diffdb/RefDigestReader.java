@@ -78,6 +78,9 @@ class RefDigestReader implements Closeable {
 
   private HashAlgo certhashAlgo;
 
+  // whether the certificates may be in the binary column CERT2
+  private boolean binaryPayload;
+
   private class Retriever implements Runnable {
 
     private PreparedStatement selectCertStmt;
@@ -135,7 +138,10 @@ class RefDigestReader implements Closeable {
               if (certhashAlgo == HashAlgo.SHA1) {
                 hash = rs.getString("SHA1");
               } else {
-                byte[] encodedCert = Base64.decodeFast(rs.getString("CERT"));
+                byte[] encodedCert = binaryPayload ? rs.getBytes("CERT2") : null;
+                if (encodedCert == null) {
+                  encodedCert = Base64.decodeFast(rs.getString("CERT"));
+                }
                 hash = certhashAlgo.base64Hash(encodedCert);
               }
               break;
@@ -211,7 +217,9 @@ class RefDigestReader implements Closeable {
             Integer.toString(caId), " AND ID>=?");
         break;
       default:
-        coreSql = StringUtil.concat("ID,SN,REV,RR,RT,RIT,", (certhashAlgo == HashAlgo.SHA1 ? "SHA1" : "CERT"),
+        binaryPayload = certhashAlgo != HashAlgo.SHA1 && datasource.tableHasColumn(conn, "CERT", "CERT2");
+        coreSql = StringUtil.concat("ID,SN,REV,RR,RT,RIT,",
+            (certhashAlgo == HashAlgo.SHA1 ? "SHA1" : binaryPayload ? "CERT,CERT2" : "CERT"),
             " FROM CERT WHERE CA_ID=", Integer.toString(caId), " AND ID>=?");
         break;
     }
@@ -142,6 +142,9 @@ class TargetDigestReader implements Closeable {
 
   private final HashAlgo certhashAlgo;
 
+  // whether the certificates may be in the binary column CERT2
+  private final boolean binaryPayload;
+
   private final DataSourceWrapper datasource;
 
   private final int numPerSelect;
@@ -193,6 +196,9 @@ class TargetDigestReader implements Closeable {
       }
     }
 
+    this.binaryPayload = dbType != DbType.XIPKI_OCSP_v4 && certHashAlgo != HashAlgo.SHA1
+        && datasource.tableHasColumn(null, "CERT", "CERT2");
+
     String singleSql;
     StringBuilder arrayBuffer = new StringBuilder(200);
 
@@ -212,7 +218,7 @@ class TargetDigestReader implements Closeable {
         if (certHashAlgo == HashAlgo.SHA1) {
           hashOrCertColumn = "SHA1";
         } else {
-          hashOrCertColumn = "CERT";
+          hashOrCertColumn = binaryPayload ? "CERT,CERT2" : "CERT";
         }
 
         singleSql = StringUtil.concat("REV,RR,RT,RIT,", hashOrCertColumn,
@@ -385,7 +391,10 @@ class TargetDigestReader implements Closeable {
         if (certhashAlgo == HashAlgo.SHA1) {
           return rs.getString("SHA1");
         } else {
-          byte[] encodedCert = Base64.decodeFast(rs.getString("CERT"));
+          byte[] encodedCert = binaryPayload ? rs.getBytes("CERT2") : null;
+          if (encodedCert == null) {
+            encodedCert = Base64.decodeFast(rs.getString("CERT"));
+          }
           return certhashAlgo.base64Hash(encodedCert);
         }
     }
@@ -22,6 +22,8 @@ import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.HashAlgo;
 import org.xipki.util.SqlUtil;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -43,6 +45,13 @@ abstract class AbstractOcspCertstoreDbImporter extends DbPorter {
   protected static final String SQL_ADD_CERT = SqlUtil.buildInsertSql("CERT",
       "ID,IID,SN,LUPDATE,NBEFORE,NAFTER,REV,RR,RT,RIT,HASH,SUBJECT,CRL_ID");
 
+  /**
+   * Foreign keys of the table CERT which may be dropped during the import.
+   */
+  protected static final List<DbConstraint> CERT_CONSTRAINTS = Arrays.asList(
+      DbConstraint.foreignKey("FK_CERT_ISSUER1", "CERT", "IID", "ISSUER", "ID", "NO ACTION"),
+      DbConstraint.foreignKey("FK_CERT_CRL1", "CERT", "CRL_ID", "CRL_INFO", "ID", "NO ACTION"));
+
   AbstractOcspCertstoreDbImporter(DataSourceWrapper datasource, String srcDir, AtomicBoolean stopMe)
       throws Exception {
     super(datasource, srcDir, stopMe);
@@ -30,28 +30,43 @@ import org.xipki.security.util.X509Util;
 import org.xipki.util.*;
 import org.xipki.util.exception.InvalidConfException;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.security.cert.CRLException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Database exporter of CA CertStore.
  *
+ * <p>If more than one thread is configured, the rows of each table are split into ID ranges of
+ * equal number of rows, see {@link DbPortIdRanges}. Each range is read via its own database
+ * connection and written to its own bundle. The ranges and the completed ones are recorded in the
+ * file &lt;dirName&gt;.ranges, so that the export can be resumed with the same ranges.
+ * The manifest file &lt;dirName&gt;.mf is written in ID order after all ranges of a table have
+ * been exported.
+ *
+ * <p>The bundles are written either as zip files or as segment files, see {@link DbPortBundle}.
+ *
  * @author Lijun Liao
  * @since 2.0.0
  */
@@ -60,21 +75,48 @@ class CaCertstoreDbExporter extends DbPorter {
 
   private static final Logger LOG = LoggerFactory.getLogger(CaCertstoreDbExporter.class);
 
+  private static final String RANGES_FILE_SUFFIX = ".ranges";
+
   private final int numCertsInBundle;
 
   private final int numCertsPerSelect;
 
+  private final int numThreads;
+
+  private final DbPortBundle.Format format;
+
   private final boolean resume;
 
+  // whether the payloads may be in the binary columns CERT2, CRL2 and DATA2
+  private final boolean binaryPayload;
+
   CaCertstoreDbExporter(
       DataSourceWrapper datasource, String baseDir, int numCertsInBundle,
       int numCertsPerSelect, boolean resume, AtomicBoolean stopMe)
       throws DataAccessException {
+    this(datasource, baseDir, numCertsInBundle, numCertsPerSelect, 1, DbPortBundle.Format.zip, resume, stopMe);
+  }
+
+  CaCertstoreDbExporter(
+      DataSourceWrapper datasource, String baseDir, int numCertsInBundle,
+      int numCertsPerSelect, int numThreads, DbPortBundle.Format format, boolean resume, AtomicBoolean stopMe)
+      throws DataAccessException {
     super(datasource, baseDir, stopMe);
 
     this.numCertsInBundle = Args.positive(numCertsInBundle, "numCertsInBundle");
     this.numCertsPerSelect = Args.positive(numCertsPerSelect, "numCertsPerSelect");
+    // one connection is held by this exporter itself.
+    int maxThreads = Math.max(1, datasource.getMaximumPoolSize() - 1);
+    int threads = Args.positive(numThreads, "numThreads");
+    if (threads > maxThreads) {
+      LOG.warn("reduced the number of threads from {} to {} (maximal pool size of the datasource - 1)",
+          threads, maxThreads);
+      threads = maxThreads;
+    }
+    this.numThreads = threads;
+    this.format = Args.notNull(format, "format");
     this.resume = resume;
+    this.binaryPayload = datasource.tableHasColumn(null, "CERT", "CERT2");
   } // constructor
 
   public void export()
@@ -160,7 +202,11 @@ class CaCertstoreDbExporter extends DbPorter {
     try {
       entriesFileOs = Files.newOutputStream(Paths.get(baseDir, type.getDirName() + ".mf"),
           StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-      exportEntries(type, certstore, processLogFile, entriesFileOs, idProcessedInLastProcess);
+      if (numThreads > 1) {
+        exportEntriesInParallel(type, certstore, processLogFile, entriesFileOs, idProcessedInLastProcess);
+      } else {
+        exportEntries(type, certstore, processLogFile, entriesFileOs, idProcessedInLastProcess);
+      }
       return null;
     } catch (Exception ex) {
       // delete the temporary files
@@ -184,34 +230,8 @@ class CaCertstoreDbExporter extends DbPorter {
     File entriesDir = new File(baseDir, type.getDirName());
     String tableName = type.getTableName();
 
-    int numProcessedBefore;
-    String coreSql;
-
-    switch (type) {
-      case CERT:
-        numProcessedBefore = certstore.getCountCerts();
-        String columns = "ID,SN,CA_ID,PID,RID,TID,EE,LUPDATE,REV,RR,RT,RIT,FP_RS,"
-            + "REQ_SUBJECT,CRL_SCOPE,CERT";
-        if (dbSchemaVersion >= 7) {
-          columns += ",PRIVATE_KEY";
-        }
-        coreSql = columns + " FROM CERT WHERE ID>=?";
-        break;
-      case CRL:
-        numProcessedBefore = certstore.getCountCrls();
-        coreSql = "ID,CA_ID,CRL_SCOPE,CRL FROM CRL WHERE ID>=?";
-        break;
-      case REQUEST:
-        numProcessedBefore = certstore.getCountRequests();
-        coreSql = "ID,LUPDATE,DATA FROM REQUEST WHERE ID>=?";
-        break;
-      case REQCERT:
-        numProcessedBefore = certstore.getCountReqCerts();
-        coreSql = "ID,RID,CID FROM REQCERT WHERE ID>=?";
-        break;
-      default:
-        throw new IllegalStateException("unknown CaDbEntryType " + type);
-    }
+    int numProcessedBefore = getCount(type, certstore);
+    String coreSql = buildCoreSql(type);
 
     long minId = (idProcessedInLastProcess != null) ? idProcessedInLastProcess + 1 : min(tableName, "ID");
 
@@ -232,9 +252,8 @@ class CaCertstoreDbExporter extends DbPorter {
     int numEntriesInCurrentFile = 0;
 
     int sum = 0;
-    File currentEntriesZipFile = new File(baseDir,
-        "tmp-" + type.getDirName() + "-" + System.currentTimeMillis() + ".zip");
-    ZipOutputStream currentEntriesZip = getZipOutputStream(currentEntriesZipFile);
+    DbPortBundle.Writer currentEntriesBundle = DbPortBundle.newWriter(format,
+        baseDir + File.separator + "tmp-" + type.getDirName() + "-" + System.currentTimeMillis());
 
     long minIdOfCurrentFile = -1;
     long maxIdOfCurrentFile = -1;
@@ -280,159 +299,18 @@ class CaCertstoreDbExporter extends DbPorter {
             maxIdOfCurrentFile = id;
           }
 
-          if (CaDbEntryType.CERT == type) {
-            byte[] certBytes = Base64.decodeFast(rs.getString("CERT"));
-            String privateKey = null;
-            if (dbSchemaVersion >= 7) {
-              privateKey = rs.getString("PRIVATE_KEY");
-            }
-
-            String sha1 = HashAlgo.SHA1.hexHash(certBytes);
-
-            String certFileName = sha1 + ".der";
-            ZipEntry certZipEntry = new ZipEntry(certFileName);
-            currentEntriesZip.putNextEntry(certZipEntry);
-            try {
-              currentEntriesZip.write(certBytes);
-            } finally {
-              currentEntriesZip.closeEntry();
-            }
-
-            String privateKeyFileName = sha1 + "-key.bin";
-            if (privateKey != null) {
-              ZipEntry keyZipEntry = new ZipEntry(privateKeyFileName);
-              currentEntriesZip.putNextEntry(keyZipEntry);
-              try {
-                currentEntriesZip.write(privateKey.getBytes(StandardCharsets.UTF_8));
-              } finally {
-                currentEntriesZip.closeEntry();
-              }
-            }
-
-            CaCertstore.Cert cert = new CaCertstore.Cert();
-            cert.setId(id);
-            cert.setCaId(rs.getInt("CA_ID"));
-            cert.setEe(rs.getBoolean("EE"));
-            cert.setFile(certFileName);
-            if (privateKey != null) {
-              cert.setPrivateKeyFile(privateKeyFileName);
-            }
-
-            long fpReqSubject = rs.getLong("FP_RS");
-            if (fpReqSubject != 0) {
-              cert.setFpRs(fpReqSubject);
-              cert.setRs(rs.getString("REQ_SUBJECT"));
-            }
-
-            cert.setPid(rs.getInt("PID"));
-            cert.setRid(rs.getInt("RID"));
-            cert.setSn(rs.getString("SN"));
-
-            String str = rs.getString("TID");
-            if (StringUtil.isNotBlank(str)) {
-              cert.setTid(str);
-            }
-
-            cert.setUpdate(rs.getLong("LUPDATE"));
-
-            int revoked = rs.getInt("REV");
-            cert.setRev(revoked);
-
-            if (revoked == 1) {
-              cert.setRr(rs.getInt("RR"));
-              cert.setRt(rs.getLong("RT"));
-              long revInvTime = rs.getLong("RIT");
-              if (revInvTime != 0) {
-                cert.setRit(revInvTime);
-              }
-            }
-
-            cert.setCrlScope(rs.getInt("CRL_SCOPE"));
-
-            cert.validate();
-            ((CaCertstore.Certs) entriesInCurrentFile).add(cert);
-          } else if (CaDbEntryType.CRL == type) {
-            byte[] crlBytes = Base64.decodeFast(rs.getString("CRL"));
-
-            X509CRLHolder x509Crl;
-            try {
-              x509Crl = X509Util.parseCrl(crlBytes);
-            } catch (CRLException ex) {
-              LogUtil.error(LOG, ex, "could not parse CRL with id " + id);
-              throw ex;
-            } catch (Exception ex) {
-              LogUtil.error(LOG, ex, "could not parse CRL with id " + id);
-              throw new CRLException(ex.getMessage(), ex);
-            }
-
-            byte[] extnValue = X509Util.getCoreExtValue(x509Crl.getExtensions(),
-                                  Extension.cRLNumber);
-            if (extnValue == null) {
-              LOG.warn("CRL without CRL number, ignore it");
-              continue;
-            }
-            String sha1 = HashAlgo.SHA1.hexHash(crlBytes);
-
-            final String crlFilename = sha1 + ".crl";
-            ZipEntry certZipEntry = new ZipEntry(crlFilename);
-            currentEntriesZip.putNextEntry(certZipEntry);
-            try {
-              currentEntriesZip.write(crlBytes);
-            } finally {
-              currentEntriesZip.closeEntry();
-            }
-
-            CaCertstore.Crl crl = new CaCertstore.Crl();
-            crl.setId(id);
-
-            crl.setCaId(rs.getInt("CA_ID"));
-
-            BigInteger crlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue();
-            crl.setCrlNo(crlNumber.toString());
-            crl.setCrlScope(rs.getInt("CRL_SCOPE"));
-            crl.setFile(crlFilename);
-
-            crl.validate();
-            ((CaCertstore.Crls) entriesInCurrentFile).add(crl);
-          } else if (CaDbEntryType.REQUEST == type) {
-            byte[] dataBytes = Base64.decodeFast(rs.getString("DATA"));
-            String sha1 = HashAlgo.SHA1.hexHash(dataBytes);
-            final String dataFilename = sha1 + ".req";
-            ZipEntry certZipEntry = new ZipEntry(dataFilename);
-            currentEntriesZip.putNextEntry(certZipEntry);
-            try {
-              currentEntriesZip.write(dataBytes);
-            } finally {
-              currentEntriesZip.closeEntry();
-            }
-
-            CaCertstore.Request entry = new CaCertstore.Request();
-            entry.setId(id);
-            entry.setUpdate(rs.getLong("LUPDATE"));
-            entry.setFile(dataFilename);
-
-            entry.validate();
-            ((CaCertstore.Requests) entriesInCurrentFile).add(entry);
-          } else if (CaDbEntryType.REQCERT == type) {
-            CaCertstore.ReqCert entry = new CaCertstore.ReqCert();
-            entry.setId(id);
-            entry.setCid(rs.getLong("CID"));
-            entry.setRid(rs.getLong("RID"));
-
-            entry.validate();
-            ((CaCertstore.ReqCerts) entriesInCurrentFile).add(entry);
-          } else {
-            throw new IllegalStateException("unknown CaDbEntryType " + type);
+          if (!exportEntry(type, rs, id, currentEntriesBundle, entriesInCurrentFile)) {
+            continue;
           }
 
           numEntriesInCurrentFile++;
           sum++;
 
           if (numEntriesInCurrentFile == numEntriesPerZip) {
-            String currentEntriesFilename = buildFilename(type.getDirName() + "_", ".zip",
+            String currentEntriesFilename = buildFilename(type.getDirName() + "_", format.getFileSuffix(),
                 minIdOfCurrentFile, maxIdOfCurrentFile, maxId);
-            finalizeZip(currentEntriesZip, "overview.json", entriesInCurrentFile);
-            currentEntriesZipFile.renameTo(new File(entriesDir, currentEntriesFilename));
+            finalizeBundle(currentEntriesBundle, "overview.json", entriesInCurrentFile);
+            currentEntriesBundle.moveTo(new File(entriesDir, currentEntriesFilename));
 
             writeLine(filenameListOs, currentEntriesFilename);
             setCount(type, certstore, numProcessedBefore + sum);
@@ -446,9 +324,8 @@ class CaCertstoreDbExporter extends DbPorter {
             numEntriesInCurrentFile = 0;
             minIdOfCurrentFile = -1;
             maxIdOfCurrentFile = -1;
-            currentEntriesZipFile = new File(baseDir, "tmp-" + type.getDirName() + "-"
-                + System.currentTimeMillis() + ".zip");
-            currentEntriesZip = getZipOutputStream(currentEntriesZipFile);
+            currentEntriesBundle = DbPortBundle.newWriter(format,
+                baseDir + File.separator + "tmp-" + type.getDirName() + "-" + System.currentTimeMillis());
           }
         } while (rs.next());
 
@@ -456,16 +333,16 @@ class CaCertstoreDbExporter extends DbPorter {
       } // end for
 
       if (interrupted) {
-        currentEntriesZip.close();
+        currentEntriesBundle.abort();
         throw new InterruptedException("interrupted by the user");
       }
 
       if (numEntriesInCurrentFile > 0) {
-        finalizeZip(currentEntriesZip, "overview.json", entriesInCurrentFile);
+        finalizeBundle(currentEntriesBundle, "overview.json", entriesInCurrentFile);
 
-        String currentEntriesFilename = buildFilename(type.getDirName() + "_", ".zip",
+        String currentEntriesFilename = buildFilename(type.getDirName() + "_", format.getFileSuffix(),
             minIdOfCurrentFile, maxIdOfCurrentFile, maxId);
-        currentEntriesZipFile.renameTo(new File(entriesDir, currentEntriesFilename));
+        currentEntriesBundle.moveTo(new File(entriesDir, currentEntriesFilename));
 
         writeLine(filenameListOs, currentEntriesFilename);
         setCount(type, certstore, numProcessedBefore + sum);
@@ -475,8 +352,7 @@ class CaCertstoreDbExporter extends DbPorter {
 
         processLog.addNumProcessed(numEntriesInCurrentFile);
       } else {
-        currentEntriesZip.close();
-        currentEntriesZipFile.delete();
+        currentEntriesBundle.abort();
       }
 
     } catch (SQLException ex) {
@@ -491,6 +367,445 @@ class CaCertstoreDbExporter extends DbPorter {
     System.out.println(" exported " + sum + " entries from " + tablesText);
   } // method exportEntries
 
+  private boolean exportEntry(
+      CaDbEntryType type, ResultSet rs, long id, DbPortBundle.Writer bundle, Object container)
+      throws SQLException, IOException, InvalidConfException, CRLException {
+    if (CaDbEntryType.CERT == type) {
+      byte[] certBytes = getPayload(rs, "CERT");
+      String privateKey = null;
+      if (dbSchemaVersion >= 7) {
+        privateKey = rs.getString("PRIVATE_KEY");
+      }
+
+      String sha1 = HashAlgo.SHA1.hexHash(certBytes);
+
+      String certFileName = sha1 + ".der";
+      bundle.write(certFileName, certBytes);
+
+      String privateKeyFileName = sha1 + "-key.bin";
+      if (privateKey != null) {
+        bundle.write(privateKeyFileName, privateKey.getBytes(StandardCharsets.UTF_8));
+      }
+
+      CaCertstore.Cert cert = new CaCertstore.Cert();
+      cert.setId(id);
+      cert.setCaId(rs.getInt("CA_ID"));
+      cert.setEe(rs.getBoolean("EE"));
+      cert.setFile(certFileName);
+      if (privateKey != null) {
+        cert.setPrivateKeyFile(privateKeyFileName);
+      }
+
+      long fpReqSubject = rs.getLong("FP_RS");
+      if (fpReqSubject != 0) {
+        cert.setFpRs(fpReqSubject);
+        cert.setRs(rs.getString("REQ_SUBJECT"));
+      }
+
+      cert.setPid(rs.getInt("PID"));
+      cert.setRid(rs.getInt("RID"));
+      cert.setSn(rs.getString("SN"));
+
+      String str = rs.getString("TID");
+      if (StringUtil.isNotBlank(str)) {
+        cert.setTid(str);
+      }
+
+      cert.setUpdate(rs.getLong("LUPDATE"));
+
+      int revoked = rs.getInt("REV");
+      cert.setRev(revoked);
+
+      if (revoked == 1) {
+        cert.setRr(rs.getInt("RR"));
+        cert.setRt(rs.getLong("RT"));
+        long revInvTime = rs.getLong("RIT");
+        if (revInvTime != 0) {
+          cert.setRit(revInvTime);
+        }
+      }
+
+      cert.setCrlScope(rs.getInt("CRL_SCOPE"));
+
+      cert.validate();
+      ((CaCertstore.Certs) container).add(cert);
+    } else if (CaDbEntryType.CRL == type) {
+      byte[] crlBytes = getPayload(rs, "CRL");
+
+      X509CRLHolder x509Crl;
+      try {
+        x509Crl = X509Util.parseCrl(crlBytes);
+      } catch (CRLException ex) {
+        LogUtil.error(LOG, ex, "could not parse CRL with id " + id);
+        throw ex;
+      } catch (Exception ex) {
+        LogUtil.error(LOG, ex, "could not parse CRL with id " + id);
+        throw new CRLException(ex.getMessage(), ex);
+      }
+
+      byte[] extnValue = X509Util.getCoreExtValue(x509Crl.getExtensions(),
+                            Extension.cRLNumber);
+      if (extnValue == null) {
+        LOG.warn("CRL without CRL number, ignore it");
+        return false;
+      }
+      String sha1 = HashAlgo.SHA1.hexHash(crlBytes);
+
+      final String crlFilename = sha1 + ".crl";
+      bundle.write(crlFilename, crlBytes);
+
+      CaCertstore.Crl crl = new CaCertstore.Crl();
+      crl.setId(id);
+
+      crl.setCaId(rs.getInt("CA_ID"));
+
+      BigInteger crlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue();
+      crl.setCrlNo(crlNumber.toString());
+      crl.setCrlScope(rs.getInt("CRL_SCOPE"));
+      crl.setFile(crlFilename);
+
+      crl.validate();
+      ((CaCertstore.Crls) container).add(crl);
+    } else if (CaDbEntryType.REQUEST == type) {
+      byte[] dataBytes = getPayload(rs, "DATA");
+      String sha1 = HashAlgo.SHA1.hexHash(dataBytes);
+      final String dataFilename = sha1 + ".req";
+      bundle.write(dataFilename, dataBytes);
+
+      CaCertstore.Request entry = new CaCertstore.Request();
+      entry.setId(id);
+      entry.setUpdate(rs.getLong("LUPDATE"));
+      entry.setFile(dataFilename);
+
+      entry.validate();
+      ((CaCertstore.Requests) container).add(entry);
+    } else if (CaDbEntryType.REQCERT == type) {
+      CaCertstore.ReqCert entry = new CaCertstore.ReqCert();
+      entry.setId(id);
+      entry.setCid(rs.getLong("CID"));
+      entry.setRid(rs.getLong("RID"));
+
+      entry.validate();
+      ((CaCertstore.ReqCerts) container).add(entry);
+    } else {
+      throw new IllegalStateException("unknown CaDbEntryType " + type);
+    }
+
+    return true;
+  } // method exportEntry
+
+  private void exportEntriesInParallel(
+      CaDbEntryType type, CaCertstore certstore, File processLogFile,
+      OutputStream filenameListOs, Long idProcessedInLastProcess)
+      throws Exception {
+    final int numEntriesPerSelect = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsPerSelect));
+    final File entriesDir = new File(baseDir, type.getDirName());
+    final String tableName = type.getTableName();
+    final int numProcessedBefore = getCount(type, certstore);
+
+    final long minId = (idProcessedInLastProcess != null) ? idProcessedInLastProcess + 1 : min(tableName, "ID");
+    final long maxId = max(tableName, "ID");
+
+    String tablesText = "table " + tableName;
+    System.out.println("exporting " + tablesText + " from ID " + minId + " with " + numThreads + " threads");
+
+    // the start ID must be the same if the export is resumed.
+    echoToFile(tableName + ":" + (minId - 1), processLogFile);
+
+    File rangesFile = new File(baseDir, type.getDirName() + RANGES_FILE_SUFFIX);
+    // range start ID -> [range end ID, number of entries, bundle filename]
+    SortedMap<Long, String[]> completedRanges = new TreeMap<>();
+    List<DbPortIdRanges.Range> allRanges = new ArrayList<>();
+    readRangesFile(rangesFile, allRanges, completedRanges);
+
+    boolean newRanges = allRanges.isEmpty();
+    if (newRanges) {
+      if (!completedRanges.isEmpty()) {
+        throw new InvalidConfException("the ranges file " + rangesFile.getPath()
+            + " has no range definitions, please restart the export without '--resume'");
+      }
+
+      int rowsPerRange = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsInBundle));
+      allRanges = splitRanges(tableName, minId, maxId, rowsPerRange);
+    }
+
+    List<DbPortIdRanges.Range> ranges = new LinkedList<>();
+    long total = 0;
+    for (DbPortIdRanges.Range range : allRanges) {
+      if (!completedRanges.containsKey(range.getFromId())) {
+        ranges.add(range);
+        total += range.getNumRows();
+      }
+    }
+    ProcessLog processLog = new ProcessLog(Math.max(1, total));
+    processLog.printHeader();
+
+    final String sql = datasource.buildSelectFirstSql(numEntriesPerSelect, "ID ASC",
+        buildCoreSql(type) + " AND ID<=?");
+
+    if (newRanges) {
+      // write all range definitions before any range is exported, and replace the file atomically,
+      // so that a resumed export always sees all ranges.
+      File tmpRangesFile = new File(baseDir, "tmp-" + type.getDirName() + RANGES_FILE_SUFFIX);
+      try (OutputStream os = Files.newOutputStream(tmpRangesFile.toPath())) {
+        for (DbPortIdRanges.Range range : allRanges) {
+          writeLine(os, DbPortIdRanges.toLine(range));
+        }
+      }
+      Files.move(tmpRangesFile.toPath(), rangesFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    try (OutputStream rangesOs = Files.newOutputStream(rangesFile.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+      for (DbPortIdRanges.Range range : ranges) {
+        final long fromId = range.getFromId();
+        final long toId = range.getToId();
+        executor.execute(() -> {
+          if (stopMe.get() || error.get() != null) {
+            return;
+          }
+
+          try {
+            String[] result = exportRange(type, sql, fromId, toId, entriesDir, maxId, processLog);
+            synchronized (rangesOs) {
+              writeLine(rangesOs, fromId + ":" + toId + ":" + result[1] + ":" + result[2]);
+              rangesOs.flush();
+              completedRanges.put(fromId, result);
+            }
+          } catch (Exception ex) {
+            LOG.error("could not export " + tableName + " with ID in [" + fromId + ", " + toId + "]", ex);
+            error.compareAndSet(null, ex);
+          }
+        });
+      }
+
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    processLog.printTrailer();
+
+    if (error.get() != null) {
+      throw error.get();
+    }
+
+    if (stopMe.get()) {
+      throw new InterruptedException("interrupted by the user");
+    }
+
+    // write the manifest in ID order
+    int sum = 0;
+    for (String[] result : completedRanges.values()) {
+      sum += Integer.parseInt(result[1]);
+      if (!"-".equals(result[2])) {
+        writeLine(filenameListOs, result[2]);
+      }
+    }
+
+    setCount(type, certstore, numProcessedBefore + sum);
+
+    // all successful, delete the rangesFile and processLogFile
+    rangesFile.delete();
+    processLogFile.delete();
+    System.out.println(" exported " + sum + " entries from " + tablesText);
+  } // method exportEntriesInParallel
+
+  /**
+   * Exports the entries with ID in [fromId, toId] to a bundle.
+   * @return [toId, number of entries, bundle filename or '-' if no entry is exported]
+   */
+  private String[] exportRange(CaDbEntryType type, String sql, long fromId, long toId,
+      File entriesDir, long maxId, ProcessLog processLog)
+      throws Exception {
+    DbPortBundle.Writer bundle = DbPortBundle.newWriter(format,
+        baseDir + File.separator + "tmp-" + type.getDirName() + "-" + fromId);
+    Object container = createContainer(type);
+
+    int num = 0;
+    long minIdOfFile = -1;
+    long maxIdOfFile = -1;
+    boolean finalized = false;
+
+    // not from the read replicas: the ranges are determined on the primary, and a lagging replica
+    // would silently drop the latest entries of a range.
+    Connection conn = datasource.getConnection();
+    PreparedStatement ps = null;
+    ResultSet rs = null;
+    try {
+      ps = datasource.prepareStatement(conn, sql);
+
+      long lastMaxId = fromId - 1;
+      while (true) {
+        if (stopMe.get()) {
+          throw new InterruptedException("interrupted by the user");
+        }
+
+        ps.setLong(1, lastMaxId + 1);
+        ps.setLong(2, toId);
+        rs = ps.executeQuery();
+
+        int numRead = 0;
+        while (rs.next()) {
+          numRead++;
+          long id = rs.getLong("ID");
+          if (lastMaxId < id) {
+            lastMaxId = id;
+          }
+
+          if (!exportEntry(type, rs, id, bundle, container)) {
+            continue;
+          }
+
+          num++;
+          if (minIdOfFile == -1 || minIdOfFile > id) {
+            minIdOfFile = id;
+          }
+
+          if (maxIdOfFile < id) {
+            maxIdOfFile = id;
+          }
+        }
+
+        rs.close();
+        rs = null;
+
+        // no entries anymore
+        if (numRead == 0) {
+          break;
+        }
+
+        processLog.addNumProcessed(numRead);
+        processLog.printStatus();
+      }
+
+      String filename = "-";
+      if (num > 0) {
+        finalizeBundle(bundle, "overview.json", container);
+        filename = buildFilename(type.getDirName() + "_", format.getFileSuffix(), minIdOfFile, maxIdOfFile, maxId);
+        bundle.moveTo(new File(entriesDir, filename));
+      } else {
+        bundle.abort();
+      }
+      finalized = true;
+
+      return new String[]{Long.toString(toId), Integer.toString(num), filename};
+    } catch (SQLException ex) {
+      throw translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, rs, false);
+      datasource.returnConnection(conn);
+      if (!finalized) {
+        bundle.abort();
+      }
+    }
+  } // method exportRange
+
+  /**
+   * Splits the rows with ID in [minId, maxId] into ranges of {@code rowsPerRange} rows.
+   */
+  private List<DbPortIdRanges.Range> splitRanges(String tableName, long minId, long maxId, int rowsPerRange)
+      throws DataAccessException {
+    System.out.println("splitting table " + tableName + " into ranges of " + rowsPerRange + " rows");
+    final String sql = datasource.buildSelectFirstSql(rowsPerRange, "ID ASC",
+        "ID FROM " + tableName + " WHERE ID>=?");
+    PreparedStatement ps = prepareStatement(sql);
+    try {
+      return DbPortIdRanges.split(minId, maxId, rowsPerRange, (fromId, maxRows) -> {
+        long[] ids = new long[maxRows];
+        int num = 0;
+        ps.setLong(1, fromId);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next() && num < maxRows) {
+            ids[num++] = rs.getLong("ID");
+          }
+        }
+        return num == maxRows ? ids : Arrays.copyOf(ids, num);
+      });
+    } catch (SQLException ex) {
+      throw translate(sql, ex);
+    } catch (DataAccessException | RuntimeException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new DataAccessException(ex.getMessage(), ex);
+    } finally {
+      releaseResources(ps, null);
+    }
+  } // method splitRanges
+
+  /**
+   * Reads the range definitions and the completed ranges.
+   */
+  private static void readRangesFile(File rangesFile, List<DbPortIdRanges.Range> ranges,
+      Map<Long, String[]> completedRanges)
+      throws IOException {
+    if (!rangesFile.exists()) {
+      return;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(rangesFile.toPath())) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.startsWith(DbPortIdRanges.RANGE_LINE_PREFIX)) {
+          DbPortIdRanges.Range range = DbPortIdRanges.parseLine(line);
+          if (range != null) {
+            ranges.add(range);
+          }
+          continue;
+        } else if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+
+        // fromId:toId:num:filename
+        String[] tokens = line.split(":");
+        if (tokens.length != 4) {
+          // incomplete line written while the process was terminated.
+          continue;
+        }
+        completedRanges.put(Long.parseLong(tokens[0]), new String[]{tokens[1], tokens[2], tokens[3]});
+      }
+    }
+  } // method readRangesFile
+
+  private String buildCoreSql(CaDbEntryType type) {
+    switch (type) {
+      case CERT:
+        String columns = "ID,SN,CA_ID,PID,RID,TID,EE,LUPDATE,REV,RR,RT,RIT,FP_RS,"
+            + "REQ_SUBJECT,CRL_SCOPE,CERT";
+        if (binaryPayload) {
+          columns += ",CERT2";
+        }
+        if (dbSchemaVersion >= 7) {
+          columns += ",PRIVATE_KEY";
+        }
+        return columns + " FROM CERT WHERE ID>=?";
+      case CRL:
+        return "ID,CA_ID,CRL_SCOPE,CRL" + (binaryPayload ? ",CRL2" : "") + " FROM CRL WHERE ID>=?";
+      case REQUEST:
+        return "ID,LUPDATE,DATA" + (binaryPayload ? ",DATA2" : "") + " FROM REQUEST WHERE ID>=?";
+      case REQCERT:
+        return "ID,RID,CID FROM REQCERT WHERE ID>=?";
+      default:
+        throw new IllegalStateException("unknown CaDbEntryType " + type);
+    }
+  } // method buildCoreSql
+
+  private byte[] getPayload(ResultSet rs, String column)
+      throws SQLException {
+    if (binaryPayload) {
+      byte[] bytes = rs.getBytes(column + "2");
+      if (bytes != null) {
+        return bytes;
+      }
+    }
+
+    String b64 = rs.getString(column);
+    return b64 == null ? null : Base64.decodeFast(b64);
+  } // method getPayload
+
   private void exportPublishQueue(CaCertstore certstore)
       throws DataAccessException, InvalidConfException {
     System.out.println("exporting table PUBLISHQUEUE");
@@ -536,18 +851,12 @@ class CaCertstoreDbExporter extends DbPorter {
     System.out.println(" exported table PUBLISHQUEUE");
   } // method exportPublishQueue
 
-  private void finalizeZip(ZipOutputStream zipOutStream, String filename, Object container)
+  private void finalizeBundle(DbPortBundle.Writer bundle, String filename, Object container)
       throws IOException {
-    ZipEntry certZipEntry = new ZipEntry(filename);
-    zipOutStream.putNextEntry(certZipEntry);
-    try {
-      JSON.writeJSONString(zipOutStream, StandardCharsets.UTF_8, container);
-    } finally {
-      zipOutStream.closeEntry();
-    }
-
-    zipOutStream.close();
-  } // method finalizeZip
+    ByteArrayOutputStream overview = new ByteArrayOutputStream();
+    JSON.writeJSONString(overview, StandardCharsets.UTF_8, container);
+    bundle.finish(filename, overview.toByteArray());
+  } // method finalizeBundle
 
   private static Object createContainer(CaDbEntryType type) {
     switch (type) {
@@ -564,6 +873,21 @@ class CaCertstoreDbExporter extends DbPorter {
     }
   } // method createContainer
 
+  private static int getCount(CaDbEntryType type, CaCertstore certstore) {
+    switch (type) {
+      case CERT:
+        return certstore.getCountCerts();
+      case CRL:
+        return certstore.getCountCrls();
+      case REQUEST:
+        return certstore.getCountRequests();
+      case REQCERT:
+        return certstore.getCountReqCerts();
+      default:
+        throw new IllegalStateException("unknown CaDbEntryType " + type);
+    }
+  } // method getCount
+
   private static void setCount(CaDbEntryType type, CaCertstore certstore, int num) {
     switch (type) {
       case CERT:
@@ -24,13 +24,16 @@ import org.bouncycastle.asn1.x509.*;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xipki.ca.mgmt.db.port.DbPortImportPipeline.ParsedEntry;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.security.FpIdCalculator;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.file.Files;
@@ -40,11 +43,12 @@ import java.security.cert.CertificateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import static org.xipki.util.SqlUtil.buildInsertSql;
 
@@ -60,7 +64,7 @@ class CaCertstoreDbImporter extends DbPorter {
   private static final Logger LOG = LoggerFactory.getLogger(CaCertstoreDbImporter.class);
 
   private static final String SQL_ADD_CERT = buildInsertSql("CERT",
-      "ID,LUPDATE,SN,SUBJECT,FP_S,FP_RS,NBEFORE,NAFTER,REV,RR,RT,RIT,"
+      "ID,LUPDATE,SN,SUBJECT,FP_S,FP_RS,FP_K,NBEFORE,NAFTER,REV,RR,RT,RIT,"
       + "PID,CA_ID,RID,EE,TID,SHA1,REQ_SUBJECT,CRL_SCOPE,CERT,PRIVATE_KEY");
 
   private static final String SQL_ADD_CRL = buildInsertSql("CRL",
@@ -72,14 +76,41 @@ class CaCertstoreDbImporter extends DbPorter {
   private static final String SQL_ADD_REQCERT = buildInsertSql("REQCERT",
       "ID,RID,CID");
 
+  /**
+   * Indexes and foreign keys of the certstore tables which may be dropped during the import.
+   */
+  private static final List<DbConstraint> CONSTRAINTS = Arrays.asList(
+      DbConstraint.foreignKey("FK_CRL_CA1", "CRL", "CA_ID", "CA", "ID", "NO ACTION"),
+      DbConstraint.foreignKey("FK_CERT_CA1", "CERT", "CA_ID", "CA", "ID", "NO ACTION"),
+      DbConstraint.foreignKey("FK_CERT_REQUESTOR1", "CERT", "RID", "REQUESTOR", "ID", "NO ACTION"),
+      DbConstraint.foreignKey("FK_CERT_PROFILE1", "CERT", "PID", "PROFILE", "ID", "NO ACTION"),
+      DbConstraint.foreignKey("FK_PUBLISHQUEUE_CERT1", "PUBLISHQUEUE", "CID", "CERT", "ID", "CASCADE"),
+      DbConstraint.foreignKey("FK_REQCERT_REQ1", "REQCERT", "RID", "REQUEST", "ID", "CASCADE"),
+      DbConstraint.foreignKey("FK_REQCERT_CERT1", "REQCERT", "CID", "CERT", "ID", "CASCADE"),
+      DbConstraint.index("IDX_CA_FPS", "CERT", "CA_ID", "FP_S"),
+      DbConstraint.index("IDX_CA_FPRS", "CERT", "CA_ID", "FP_RS"),
+      DbConstraint.index("IDX_CA_FPK", "CERT", "CA_ID", "FP_K"));
+
   private final int numCertsPerCommit;
 
+  private final int numThreads;
+
+  private final boolean dropConstraints;
+
   CaCertstoreDbImporter(DataSourceWrapper datasource, String srcDir, int numCertsPerCommit,
       boolean resume, AtomicBoolean stopMe)
           throws Exception {
+    this(datasource, srcDir, numCertsPerCommit, 1, false, resume, stopMe);
+  }
+
+  CaCertstoreDbImporter(DataSourceWrapper datasource, String srcDir, int numCertsPerCommit,
+      int numThreads, boolean dropConstraints, boolean resume, AtomicBoolean stopMe)
+          throws Exception {
     super(datasource, srcDir, stopMe);
 
     this.numCertsPerCommit = Args.positive(numCertsPerCommit, "numCertsPerCommit");
+    this.numThreads = Args.positive(numThreads, "numThreads");
+    this.dropConstraints = dropConstraints;
 
     File processLogFile = new File(baseDir, DbPorter.IMPORT_PROCESS_LOG_FILENAME);
     if (resume) {
@@ -109,6 +140,13 @@ class CaCertstoreDbImporter extends DbPorter {
 
     File processLogFile = new File(baseDir, DbPorter.IMPORT_PROCESS_LOG_FILENAME);
     System.out.println("importing CA certstore to database");
+
+    // the constraints dropped by a killed import are rebuilt, even without dropConstraints.
+    File droppedConstraintsFile = getDroppedConstraintsFile(processLogFile);
+    List<DbConstraint> droppedConstraints = dropConstraints
+        ? dropConstraints(CONSTRAINTS, droppedConstraintsFile)
+        : readDroppedConstraints(CONSTRAINTS, droppedConstraintsFile);
+    boolean successful = false;
     try {
       CaDbEntryType typeProcessedInLastProcess = null;
       Integer numProcessedInLastProcess = null;
@@ -176,9 +214,20 @@ class CaCertstoreDbImporter extends DbPorter {
       importPublishQueue(certstore.getPublishQueue());
 
       processLogFile.delete();
+      successful = true;
     } catch (Exception ex) {
       System.err.println("could not import CA certstore to database");
       throw ex;
+    } finally {
+      if (!droppedConstraints.isEmpty()) {
+        try {
+          restoreConstraints(droppedConstraints, droppedConstraintsFile);
+        } catch (DataAccessException | IOException ex) {
+          if (successful) {
+            throw ex;
+          }
+        }
+      }
     }
     System.out.println(" imported CA certstore to database");
   } // method importToDb
@@ -253,19 +302,16 @@ class CaCertstoreDbImporter extends DbPorter {
       System.out.println("importing entries to " + tablesText + " from ID " + minId);
       processLog.printHeader();
 
-      PreparedStatement stmt = null;
+      List<String> entriesFiles = new LinkedList<>();
       try (DbPortFileNameIterator entriesFileIterator = new DbPortFileNameIterator(
               baseDir + File.separator + type.getDirName() + ".mf")) {
-
-        stmt = prepareStatement(sql);
-
         while (entriesFileIterator.hasNext()) {
           String entriesFile = baseDir + File.separator + type.getDirName()
               + File.separator + entriesFileIterator.next();
 
           // extract the toId from the filename
           int fromIdx = entriesFile.indexOf('-');
-          int toIdx = entriesFile.indexOf(".zip");
+          int toIdx = entriesFile.lastIndexOf('.');
           if (fromIdx != -1 && toIdx != -1) {
             try {
               long toId = Integer.parseInt(entriesFile.substring(fromIdx + 1, toIdx));
@@ -280,35 +326,48 @@ class CaCertstoreDbImporter extends DbPorter {
             LOG.warn("invalid file name '{}', but will still be processed", entriesFile);
           }
 
-          try {
-            long lastId;
-            switch (type) {
-              case CERT:
-                lastId = importCerts(entriesFile, minId, processLogFile, processLog, numProcessedBefore, stmt, sql);
-                break;
-              case CRL:
-                lastId = importCrls(entriesFile, minId, processLogFile, processLog, numProcessedBefore, stmt, sql);
-                break;
-              case REQUEST:
-                lastId = importRequests(entriesFile, minId, processLogFile, processLog, numProcessedBefore, stmt, sql);
-                break;
-              case REQCERT:
-                lastId = importReqCerts(entriesFile, minId, processLogFile, processLog, numProcessedBefore, stmt, sql);
-                break;
-              default:
-                throw new IllegalStateException("unknown CaDbEntryType " + type);
-            }
+          entriesFiles.add(entriesFile);
+        }
+      }
 
-            minId = lastId + 1;
-          } catch (Exception ex) {
-            System.err.println("\ncould not import entries from file " + entriesFile
-                + ".\nplease continue with the option '--resume'");
-            LOG.error("Exception", ex);
-            return ex;
-          }
-        } // end for
-      } finally {
-        releaseResources(stmt, null);
+      if (numThreads > 1) {
+        final int numWriters = DbPortImportPipeline.numWriters(datasource, numThreads);
+        final int numParsers = Math.min(numThreads, Runtime.getRuntime().availableProcessors());
+        final int numEntriesPerCommit = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsPerCommit));
+        final int numProcessedBefore0 = numProcessedBefore;
+
+        DbPortImportPipeline pipeline = new DbPortImportPipeline(datasource, sql, numParsers, numWriters,
+            numEntriesPerCommit, stopMe);
+        try {
+          pipeline.run(entriesFiles, minId, (file, id) -> parseEntries(type, file, id), processLog,
+              (numProcessed, lastId) -> echoToFile(type + ":" + (numProcessedBefore0 + numProcessed)
+                  + ":" + lastId, processLogFile));
+        } catch (Exception ex) {
+          System.err.println("\ncould not import entries to " + tablesText
+              + ".\nplease continue with the option '--resume'");
+          LOG.error("Exception", ex);
+          return ex;
+        }
+      } else {
+        PreparedStatement stmt = prepareStatement(sql);
+        try {
+          for (String entriesFile : entriesFiles) {
+            try {
+              List<ParsedEntry> entries = parseEntries(type, entriesFile, minId);
+              long lastId = importEntries(type, entries, processLogFile, processLog, numProcessedBefore, stmt, sql);
+              if (lastId > 0) {
+                minId = lastId + 1;
+              }
+            } catch (Exception ex) {
+              System.err.println("\ncould not import entries from file " + entriesFile
+                  + ".\nplease continue with the option '--resume'");
+              LOG.error("Exception", ex);
+              return ex;
+            }
+          } // end for
+        } finally {
+          releaseResources(stmt, null);
+        }
       }
 
       processLog.printTrailer();
@@ -324,135 +383,41 @@ class CaCertstoreDbImporter extends DbPorter {
     }
   } // method importEntries
 
-  private long importCerts
-      (String entriesZipFile, long minId, File processLogFile, ProcessLog processLog, int numProcessedInLastProcess,
-      PreparedStatement stmt, String sql)
+  private long importEntries(
+      CaDbEntryType type, List<ParsedEntry> entries, File processLogFile, ProcessLog processLog,
+      int numProcessedInLastProcess, PreparedStatement stmt, String sql)
       throws Exception {
-    final CaDbEntryType type = CaDbEntryType.CERT;
     final int numEntriesPerCommit = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsPerCommit));
 
-    ZipFile zipFile = new ZipFile(new File(entriesZipFile));
-    ZipEntry entriesEntry = zipFile.getEntry("overview.json");
-
-    CaCertstore.Certs certs;
-    try {
-      certs = JSON.parseObject(zipFile.getInputStream(entriesEntry), CaCertstore.Certs.class);
-    } catch (Exception ex) {
-      try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", entriesZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + entriesZipFile, e2);
-      }
-      throw ex;
-    }
-    certs.validate();
-
     disableAutoCommit();
 
     try {
       int numEntriesInBatch = 0;
       long lastSuccessfulEntryId = 0;
 
-      List<CaCertstore.Cert> list = certs.getCerts();
-      final int n = list.size();
+      final int n = entries.size();
 
       for (int i = 0; i < n; i++) {
-        CaCertstore.Cert cert = list.get(i);
-
         if (stopMe.get()) {
           throw new InterruptedException("interrupted by the user");
         }
 
-        long id = cert.getId();
-        if (id < minId) {
-          continue;
-        }
+        ParsedEntry entry = entries.get(i);
+        long id = entry.id;
 
         numEntriesInBatch++;
 
-        String filename = cert.getFile();
-        // rawcert
-        ZipEntry certZipEnty = zipFile.getEntry(filename);
-        byte[] encodedCert = IoUtil.read(zipFile.getInputStream(certZipEnty));
-
-        TBSCertificate tbsCert;
         try {
-          Certificate cc = Certificate.getInstance(encodedCert);
-          tbsCert = cc.getTBSCertificate();
-        } catch (RuntimeException ex) {
-          LOG.error("could not parse certificate in file {}", filename);
-          LOG.debug("could not parse certificate in file " + filename, ex);
-          throw new CertificateException(ex.getMessage(), ex);
-        }
-
-        String b64Sha1FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
-
-        // cert's subject
-        String subjectText = X509Util.cutX500Name(tbsCert.getSubject(), maxX500nameLen);
-
-        // private key
-        String privateKey = null;
-        if (cert.getPrivateKeyFile() != null) {
-          ZipEntry keyZipEnty = zipFile.getEntry(cert.getPrivateKeyFile());
-          if (keyZipEnty != null) {
-            privateKey = new String(IoUtil.read(zipFile.getInputStream(keyZipEnty)));
-          }
-        }
-
-        try {
-          int idx = 1;
-
-          stmt.setLong(idx++, id);
-          stmt.setLong(idx++, cert.getUpdate());
-          stmt.setString(idx++, tbsCert.getSerialNumber().getPositiveValue().toString(16));
-
-          stmt.setString(idx++, subjectText);
-          long fpSubject = X509Util.fpCanonicalizedName(tbsCert.getSubject());
-          stmt.setLong(idx++, fpSubject);
-
-          if (cert.getFpRs() != null) {
-            stmt.setLong(idx++, cert.getFpRs());
-          } else {
-            stmt.setNull(idx++, Types.BIGINT);
-          }
-
-          stmt.setLong(idx++, tbsCert.getStartDate().getDate().getTime() / 1000);
-          stmt.setLong(idx++, tbsCert.getEndDate().getDate().getTime() / 1000);
-          setInt(stmt, idx++, cert.getRev());
-          setInt(stmt, idx++, cert.getRr());
-          setLong(stmt, idx++, cert.getRt());
-          setLong(stmt, idx++, cert.getRit());
-          setInt(stmt, idx++, cert.getPid());
-          setInt(stmt, idx++, cert.getCaId());
-
-          setInt(stmt, idx++, cert.getRid());
-          Extension extension = tbsCert.getExtensions().getExtension(Extension.basicConstraints);
-          boolean ee = true;
-          if (extension != null) {
-            ASN1Encodable asn1 = extension.getParsedValue();
-            ee = !BasicConstraints.getInstance(asn1).isCA();
-          }
-
-          stmt.setInt(idx++, ee ? 1 : 0);
-          String tidS = null;
-          if (cert.getTid() != null) {
-            tidS = cert.getTid();
-          }
-          stmt.setString(idx++, tidS);
-          stmt.setString(idx++, b64Sha1FpCert);
-          stmt.setString(idx++, cert.getRs());
-          stmt.setInt(idx++, cert.getCrlScope());
-          stmt.setString(idx++, Base64.encodeToString(encodedCert));
-          stmt.setString(idx, privateKey);
+          entry.binder.bind(stmt);
           stmt.addBatch();
         } catch (SQLException ex) {
+          System.err.println("could not import " + type.getTableName() + " with ID=" + id
+              + ", message: " + ex.getMessage());
           throw translate(sql, ex);
         }
 
         boolean isLastBlock = i == n - 1;
-        if (numEntriesInBatch > 0
-            && (numEntriesInBatch % numEntriesPerCommit == 0 || isLastBlock)) {
+        if (numEntriesInBatch % numEntriesPerCommit == 0 || isLastBlock) {
           try {
             stmt.executeBatch();
             commit("(commit import to CA)");
@@ -476,347 +441,259 @@ class CaCertstoreDbImporter extends DbPorter {
           processLog.printStatus();
         }
 
-      } // end while
+      } // end for
 
       return lastSuccessfulEntryId;
     } finally {
       recoverAutoCommit();
-      zipFile.close();
     }
-  } // method importCerts
+  } // method importEntries
 
-  private long importCrls(
-      String entriesZipFile, long minId, File processLogFile, ProcessLog processLog, int numProcessedInLastProcess,
-      PreparedStatement stmt, String sql)
+  private List<ParsedEntry> parseEntries(CaDbEntryType type, String entriesFile, long minId)
       throws Exception {
-    final CaDbEntryType type = CaDbEntryType.CRL;
-    final int numEntriesPerCommit = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsPerCommit));
-
-    ZipFile zipFile = new ZipFile(new File(entriesZipFile));
-    ZipEntry entriesEntry = zipFile.getEntry("overview.json");
-
-    CaCertstore.Crls crls;
-    try {
-      crls = JSON.parseObject(zipFile.getInputStream(entriesEntry), CaCertstore.Crls.class);
-    } catch (Exception ex) {
-      try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", entriesZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + entriesZipFile, e2);
+    try (DbPortBundle.Reader bundle = DbPortBundle.openReader(entriesFile)) {
+      byte[] overview = DbPortBundle.readRequired(bundle, "overview.json");
+      switch (type) {
+        case CERT:
+          return parseCerts(bundle, JSON.parseObject(overview, CaCertstore.Certs.class), minId);
+        case CRL:
+          return parseCrls(bundle, JSON.parseObject(overview, CaCertstore.Crls.class), minId);
+        case REQUEST:
+          return parseRequests(bundle, JSON.parseObject(overview, CaCertstore.Requests.class), minId);
+        case REQCERT:
+          return parseReqCerts(JSON.parseObject(overview, CaCertstore.ReqCerts.class), minId);
+        default:
+          throw new IllegalStateException("unknown CaDbEntryType " + type);
       }
-      throw ex;
     }
-    crls.validate();
+  } // method parseEntries
 
-    disableAutoCommit();
-
-    try {
-      int numEntriesInBatch = 0;
-      long lastSuccessfulEntryId = 0;
+  private List<ParsedEntry> parseCerts(DbPortBundle.Reader bundle, CaCertstore.Certs certs, long minId)
+      throws Exception {
+    certs.validate();
 
-      List<CaCertstore.Crl> list = crls.getCrls();
-      final int n = list.size();
+    List<ParsedEntry> entries = new ArrayList<>(certs.getCerts().size());
+    for (CaCertstore.Cert cert : certs.getCerts()) {
+      if (stopMe.get()) {
+        throw new InterruptedException("interrupted by the user");
+      }
 
-      for (int i = 0; i < n; i++) {
-        CaCertstore.Crl crl = list.get(i);
+      long id = cert.getId();
+      if (id < minId) {
+        continue;
+      }
 
-        long id = crl.getId();
-        if (id < minId) {
-          continue;
-        }
+      String filename = cert.getFile();
+      // rawcert
+      byte[] encodedCert = DbPortBundle.readRequired(bundle, filename);
 
-        numEntriesInBatch++;
-
-        String filename = crl.getFile();
+      TBSCertificate tbsCert;
+      try {
+        Certificate cc = Certificate.getInstance(encodedCert);
+        tbsCert = cc.getTBSCertificate();
+      } catch (RuntimeException ex) {
+        LOG.error("could not parse certificate in file {}", filename);
+        LOG.debug("could not parse certificate in file " + filename, ex);
+        throw new CertificateException(ex.getMessage(), ex);
+      }
 
-        // CRL
-        ZipEntry zipEnty = zipFile.getEntry(filename);
+      String b64Sha1FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
+
+      // cert's subject
+      String subjectText = X509Util.cutX500Name(tbsCert.getSubject(), maxX500nameLen);
+      long fpSubject = X509Util.fpCanonicalizedName(tbsCert.getSubject());
+      long fpKey = FpIdCalculator.hash(tbsCert.getSubjectPublicKeyInfo().getEncoded());
+      String sn = tbsCert.getSerialNumber().getPositiveValue().toString(16);
+      long notBefore = tbsCert.getStartDate().getDate().getTime() / 1000;
+      long notAfter = tbsCert.getEndDate().getDate().getTime() / 1000;
+
+      Extension extension = tbsCert.getExtensions().getExtension(Extension.basicConstraints);
+      boolean ee = true;
+      if (extension != null) {
+        ASN1Encodable asn1 = extension.getParsedValue();
+        ee = !BasicConstraints.getInstance(asn1).isCA();
+      }
 
-        // rawcert
-        byte[] encodedCrl = IoUtil.read(zipFile.getInputStream(zipEnty));
-        String b64Sha1 = HashAlgo.SHA1.base64Hash(encodedCrl);
+      String b64Cert = Base64.encodeToString(encodedCert);
 
-        X509CRLHolder x509crl;
-        try {
-          x509crl = X509Util.parseCrl(encodedCrl);
-        } catch (Exception ex) {
-          LOG.error("could not parse CRL in file {}", filename);
-          LOG.debug("could not parse CRL in file " + filename, ex);
-          if (ex instanceof CRLException) {
-            throw ex;
-          } else {
-            throw new CRLException(ex.getMessage(), ex);
-          }
+      // private key
+      String privateKey = null;
+      if (cert.getPrivateKeyFile() != null) {
+        byte[] keyBytes = bundle.read(cert.getPrivateKeyFile());
+        if (keyBytes != null) {
+          privateKey = new String(keyBytes);
         }
+      }
 
-        try {
-          Extensions extns = x509crl.getExtensions();
-          byte[] extnValue = X509Util.getCoreExtValue(extns, Extension.cRLNumber);
-          if (extnValue == null) {
-            LOG.warn("CRL without CRL number, ignore it");
-            continue;
-          }
-          BigInteger crlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue();
-
-          BigInteger baseCrlNumber = null;
-          extnValue = X509Util.getCoreExtValue(extns, Extension.deltaCRLIndicator);
-          if (extnValue != null) {
-            baseCrlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue();
-          }
-
-          int idx = 1;
-          stmt.setLong(idx++, crl.getId());
-          stmt.setInt(idx++, crl.getCaId());
-          stmt.setLong(idx++, crlNumber.longValue());
-          stmt.setLong(idx++, x509crl.getThisUpdate().getTime() / 1000);
-          if (x509crl.getNextUpdate() != null) {
-            stmt.setLong(idx++, x509crl.getNextUpdate().getTime() / 1000);
-          } else {
-            stmt.setNull(idx++, Types.INTEGER);
-          }
+      final boolean ee0 = ee;
+      final String privateKey0 = privateKey;
+      entries.add(new ParsedEntry(id, stmt -> {
+        int idx = 1;
 
-          if (baseCrlNumber == null) {
-            setBoolean(stmt, idx++, false);
-            stmt.setNull(idx++, Types.BIGINT);
-          } else {
-            setBoolean(stmt, idx++, true);
-            stmt.setLong(idx++, baseCrlNumber.longValue());
-          }
+        stmt.setLong(idx++, id);
+        stmt.setLong(idx++, cert.getUpdate());
+        stmt.setString(idx++, sn);
 
-          stmt.setInt(idx++, crl.getCrlScope());
-          stmt.setString(idx++, b64Sha1);
-          stmt.setString(idx, Base64.encodeToString(encodedCrl));
+        stmt.setString(idx++, subjectText);
+        stmt.setLong(idx++, fpSubject);
 
-          stmt.addBatch();
-        } catch (SQLException ex) {
-          System.err.println("could not import CRL with ID=" + crl.getId() + ", message: " + ex.getMessage());
-          throw ex;
+        if (cert.getFpRs() != null) {
+          stmt.setLong(idx++, cert.getFpRs());
+        } else {
+          stmt.setNull(idx++, Types.BIGINT);
         }
 
-        boolean isLastBlock = i == n - 1;
-        if (numEntriesInBatch > 0
-            && (numEntriesInBatch % numEntriesPerCommit == 0 || isLastBlock)) {
-          try {
-            stmt.executeBatch();
-            commit("(commit import to CA)");
-          } catch (Throwable th) {
-            rollback();
-            deleteFromTableWithLargerId(type.getTableName(), "ID", id, LOG);
-            if (th instanceof SQLException) {
-              throw translate(sql, (SQLException) th);
-            } else if (th instanceof Exception) {
-              throw (Exception) th;
-            } else {
-              throw new Exception(th);
-            }
-          }
-
-          lastSuccessfulEntryId = id;
-          processLog.addNumProcessed(numEntriesInBatch);
-          numEntriesInBatch = 0;
-          echoToFile(type + ":" + (numProcessedInLastProcess + processLog.numProcessed()) + ":"
-              + lastSuccessfulEntryId, processLogFile);
-          processLog.printStatus();
-        }
-
-      } // end while
-
-      return lastSuccessfulEntryId;
-    } finally {
-      recoverAutoCommit();
-      zipFile.close();
+        stmt.setLong(idx++, fpKey);
+        stmt.setLong(idx++, notBefore);
+        stmt.setLong(idx++, notAfter);
+        setInt(stmt, idx++, cert.getRev());
+        setInt(stmt, idx++, cert.getRr());
+        setLong(stmt, idx++, cert.getRt());
+        setLong(stmt, idx++, cert.getRit());
+        setInt(stmt, idx++, cert.getPid());
+        setInt(stmt, idx++, cert.getCaId());
+
+        setInt(stmt, idx++, cert.getRid());
+        stmt.setInt(idx++, ee0 ? 1 : 0);
+        stmt.setString(idx++, cert.getTid());
+        stmt.setString(idx++, b64Sha1FpCert);
+        stmt.setString(idx++, cert.getRs());
+        stmt.setInt(idx++, cert.getCrlScope());
+        stmt.setString(idx++, b64Cert);
+        stmt.setString(idx, privateKey0);
+      }));
     }
-  } // method importCrls
 
-  private long importRequests(
-      String entriesZipFile, long minId, File processLogFile, ProcessLog processLog, int numProcessedInLastProcess,
-      PreparedStatement stmt, String sql)
-      throws Exception {
-    final CaDbEntryType type = CaDbEntryType.REQUEST;
-    final int numEntriesPerCommit = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsPerCommit));
+    return entries;
+  } // method parseCerts
 
-    ZipFile zipFile = new ZipFile(new File(entriesZipFile));
-    ZipEntry entriesEntry = zipFile.getEntry("overview.json");
+  private List<ParsedEntry> parseCrls(DbPortBundle.Reader bundle, CaCertstore.Crls crls, long minId)
+      throws Exception {
+    crls.validate();
 
-    CaCertstore.Requests requests;
-    try {
-      requests = JSON.parseObject(zipFile.getInputStream(entriesEntry), CaCertstore.Requests.class);
-    } catch (Exception ex) {
-      try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", entriesZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + entriesZipFile, e2);
+    List<ParsedEntry> entries = new ArrayList<>(crls.getCrls().size());
+    for (CaCertstore.Crl crl : crls.getCrls()) {
+      long id = crl.getId();
+      if (id < minId) {
+        continue;
       }
-      throw ex;
-    }
-    requests.validate();
 
-    disableAutoCommit();
+      String filename = crl.getFile();
 
-    try {
-      int numEntriesInBatch = 0;
-      long lastSuccessfulEntryId = 0;
-
-      List<CaCertstore.Request> list = requests.getRequests();
-      final int n = list.size();
-
-      for (int i = 0; i < n; i++) {
-        CaCertstore.Request request = list.get(i);
-
-        if (stopMe.get()) {
-          throw new InterruptedException("interrupted by the user");
-        }
+      // CRL
+      byte[] encodedCrl = DbPortBundle.readRequired(bundle, filename);
+      String b64Sha1 = HashAlgo.SHA1.base64Hash(encodedCrl);
 
-        long id = request.getId();
-        if (id < minId) {
-          continue;
+      X509CRLHolder x509crl;
+      try {
+        x509crl = X509Util.parseCrl(encodedCrl);
+      } catch (Exception ex) {
+        LOG.error("could not parse CRL in file {}", filename);
+        LOG.debug("could not parse CRL in file " + filename, ex);
+        if (ex instanceof CRLException) {
+          throw ex;
+        } else {
+          throw new CRLException(ex.getMessage(), ex);
         }
+      }
 
-        numEntriesInBatch++;
-
-        String filename = request.getFile();
+      Extensions extns = x509crl.getExtensions();
+      byte[] extnValue = X509Util.getCoreExtValue(extns, Extension.cRLNumber);
+      if (extnValue == null) {
+        LOG.warn("CRL without CRL number, ignore it");
+        continue;
+      }
+      BigInteger crlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue();
 
-        ZipEntry zipEnty = zipFile.getEntry(filename);
-        byte[] encodedRequest = IoUtil.read(zipFile.getInputStream(zipEnty));
+      BigInteger baseCrlNumber = null;
+      extnValue = X509Util.getCoreExtValue(extns, Extension.deltaCRLIndicator);
+      if (extnValue != null) {
+        baseCrlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue();
+      }
 
-        try {
-          int idx = 1;
-          stmt.setLong(idx++, request.getId());
-          stmt.setLong(idx++, request.getUpdate());
-          stmt.setString(idx, Base64.encodeToString(encodedRequest));
-          stmt.addBatch();
-        } catch (SQLException ex) {
-          System.err.println("could not import REQUEST with ID=" + request.getId() + ", message: " + ex.getMessage());
-          throw ex;
+      final BigInteger baseCrlNumber0 = baseCrlNumber;
+      String b64Crl = Base64.encodeToString(encodedCrl);
+
+      entries.add(new ParsedEntry(id, stmt -> {
+        int idx = 1;
+        stmt.setLong(idx++, crl.getId());
+        stmt.setInt(idx++, crl.getCaId());
+        stmt.setLong(idx++, crlNumber.longValue());
+        stmt.setLong(idx++, x509crl.getThisUpdate().getTime() / 1000);
+        if (x509crl.getNextUpdate() != null) {
+          stmt.setLong(idx++, x509crl.getNextUpdate().getTime() / 1000);
+        } else {
+          stmt.setNull(idx++, Types.INTEGER);
         }
 
-        boolean isLastBlock = i == n - 1;
-        if (numEntriesInBatch > 0
-            && (numEntriesInBatch % numEntriesPerCommit == 0 || isLastBlock)) {
-          try {
-            stmt.executeBatch();
-            commit("(commit import to CA)");
-          } catch (Throwable th) {
-            rollback();
-            deleteFromTableWithLargerId(type.getTableName(), "ID", id, LOG);
-            if (th instanceof SQLException) {
-              throw translate(sql, (SQLException) th);
-            } else if (th instanceof Exception) {
-              throw (Exception) th;
-            } else {
-              throw new Exception(th);
-            }
-          }
-
-          lastSuccessfulEntryId = id;
-          processLog.addNumProcessed(numEntriesInBatch);
-          numEntriesInBatch = 0;
-          echoToFile(type + ":" + (numProcessedInLastProcess + processLog.numProcessed()) + ":"
-              + lastSuccessfulEntryId, processLogFile);
-          processLog.printStatus();
+        if (baseCrlNumber0 == null) {
+          setBoolean(stmt, idx++, false);
+          stmt.setNull(idx++, Types.BIGINT);
+        } else {
+          setBoolean(stmt, idx++, true);
+          stmt.setLong(idx++, baseCrlNumber0.longValue());
         }
 
-      } // end while
-
-      return lastSuccessfulEntryId;
-    } finally {
-      recoverAutoCommit();
-      zipFile.close();
+        stmt.setInt(idx++, crl.getCrlScope());
+        stmt.setString(idx++, b64Sha1);
+        stmt.setString(idx, b64Crl);
+      }));
     }
-  } // method importRequests
 
-  private long importReqCerts(
-      String entriesZipFile, long minId, File processLogFile, ProcessLog processLog, int numProcessedInLastProcess,
-      PreparedStatement stmt, String sql)
-      throws Exception {
-    final CaDbEntryType type = CaDbEntryType.REQCERT;
-    final int numEntriesPerCommit = Math.max(1, Math.round(type.getSqlBatchFactor() * numCertsPerCommit));
+    return entries;
+  } // method parseCrls
 
-    ZipFile zipFile = new ZipFile(new File(entriesZipFile));
-    ZipEntry entriesEntry = zipFile.getEntry("overview.json");
+  private List<ParsedEntry> parseRequests(DbPortBundle.Reader bundle, CaCertstore.Requests requests, long minId)
+      throws Exception {
+    requests.validate();
 
-    CaCertstore.ReqCerts reqCerts;
-    try {
-      reqCerts = JSON.parseObject(zipFile.getInputStream(entriesEntry), CaCertstore.ReqCerts.class);
-    } catch (Exception ex) {
-      try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", entriesZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + entriesZipFile, e2);
+    List<ParsedEntry> entries = new ArrayList<>(requests.getRequests().size());
+    for (CaCertstore.Request request : requests.getRequests()) {
+      if (stopMe.get()) {
+        throw new InterruptedException("interrupted by the user");
       }
-      throw ex;
-    }
-    reqCerts.validate();
-
-    disableAutoCommit();
 
-    try {
-      int numEntriesInBatch = 0;
-      long lastSuccessfulEntryId = 0;
-
-      List<CaCertstore.ReqCert> list = reqCerts.getReqCerts();
-      final int n = list.size();
-
-      for (int i = 0; i < n; i++) {
-        CaCertstore.ReqCert reqCert = list.get(i);
-        if (stopMe.get()) {
-          throw new InterruptedException("interrupted by the user");
-        }
+      long id = request.getId();
+      if (id < minId) {
+        continue;
+      }
 
-        long id = reqCert.getId();
-        if (id < minId) {
-          continue;
-        }
+      String filename = request.getFile();
 
-        numEntriesInBatch++;
+      byte[] encodedRequest = DbPortBundle.readRequired(bundle, filename);
+      String b64Request = Base64.encodeToString(encodedRequest);
 
-        try {
-          int idx = 1;
-          stmt.setLong(idx++, reqCert.getId());
-          stmt.setLong(idx++, reqCert.getRid());
-          stmt.setLong(idx, reqCert.getCid());
-          stmt.addBatch();
-        } catch (SQLException ex) {
-          System.err.println("could not import REQUEST with ID=" + reqCert.getId() + ", message: " + ex.getMessage());
-          throw ex;
-        }
+      entries.add(new ParsedEntry(id, stmt -> {
+        int idx = 1;
+        stmt.setLong(idx++, request.getId());
+        stmt.setLong(idx++, request.getUpdate());
+        stmt.setString(idx, b64Request);
+      }));
+    }
 
-        boolean isLastBlock = i == n - 1;
-        if (numEntriesInBatch > 0
-            && (numEntriesInBatch % numEntriesPerCommit == 0 || isLastBlock)) {
-          try {
-            stmt.executeBatch();
-            commit("(commit import to CA)");
-          } catch (Throwable th) {
-            rollback();
-            deleteFromTableWithLargerId(type.getTableName(), "ID", id, LOG);
-            if (th instanceof SQLException) {
-              throw translate(sql, (SQLException) th);
-            } else if (th instanceof Exception) {
-              throw (Exception) th;
-            } else {
-              throw new Exception(th);
-            }
-          }
+    return entries;
+  } // method parseRequests
 
-          lastSuccessfulEntryId = id;
-          processLog.addNumProcessed(numEntriesInBatch);
-          numEntriesInBatch = 0;
-          echoToFile(type + ":" + (numProcessedInLastProcess + processLog.numProcessed()) + ":"
-              + lastSuccessfulEntryId, processLogFile);
-          processLog.printStatus();
-        }
+  private List<ParsedEntry> parseReqCerts(CaCertstore.ReqCerts reqCerts, long minId)
+      throws Exception {
+    reqCerts.validate();
 
-      } // end while
+    List<ParsedEntry> entries = new ArrayList<>(reqCerts.getReqCerts().size());
+    for (CaCertstore.ReqCert reqCert : reqCerts.getReqCerts()) {
+      long id = reqCert.getId();
+      if (id < minId) {
+        continue;
+      }
 
-      return lastSuccessfulEntryId;
-    } finally {
-      recoverAutoCommit();
-      zipFile.close();
+      entries.add(new ParsedEntry(id, stmt -> {
+        int idx = 1;
+        stmt.setLong(idx++, reqCert.getId());
+        stmt.setLong(idx++, reqCert.getRid());
+        stmt.setLong(idx, reqCert.getCid());
+      }));
     }
-  } // method importReqCerts
+
+    return entries;
+  } // method parseReqCerts
 
 }
@@ -0,0 +1,243 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.xipki.ca.mgmt.db.DbToolBase;
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bundle of exported entries. A bundle is a set of named binaries, e.g. the DER-encoded
+ * certificates and the JSON overview. Two formats are supported:
+ * <ul>
+ *   <li>zip: one zip entry per binary.</li>
+ *   <li>segment: length-prefixed records in compressed blocks, see {@link DbPortSegmentWriter}.</li>
+ * </ul>
+ *
+ * @author Lijun Liao
+ */
+
+class DbPortBundle {
+
+  enum Format {
+    zip(".zip"),
+    segment(DbPortSegmentWriter.FILE_SUFFIX);
+
+    private final String fileSuffix;
+
+    Format(String fileSuffix) {
+      this.fileSuffix = fileSuffix;
+    }
+
+    String getFileSuffix() {
+      return fileSuffix;
+    }
+
+    static Format forName(String name) {
+      Args.notBlank(name, "name");
+      for (Format f : values()) {
+        if (f.name().equalsIgnoreCase(name)) {
+          return f;
+        }
+      }
+      throw new IllegalArgumentException("unknown bundle format " + name);
+    }
+
+    static Format forFile(String filename) {
+      return filename.endsWith(segment.fileSuffix) ? segment : zip;
+    }
+
+  } // enum Format
+
+  interface Writer extends Closeable {
+
+    void write(String name, byte[] content)
+        throws IOException;
+
+    /**
+     * Writes the overview as the last binary and closes the writer.
+     * @param name name of the overview
+     * @param overview the overview
+     * @throws IOException if IO error occurs.
+     */
+    void finish(String name, byte[] overview)
+        throws IOException;
+
+    /**
+     * Moves the finished bundle (including its auxiliary files) to the target file.
+     * @param targetFile the target file
+     * @throws IOException if the file could not be moved.
+     */
+    void moveTo(File targetFile)
+        throws IOException;
+
+    /**
+     * Closes the writer and deletes the unfinished bundle.
+     */
+    void abort();
+
+  } // interface Writer
+
+  interface Reader extends Closeable {
+
+    /**
+     * Reads the binary with given name.
+     * @param name name of the binary
+     * @return the binary, or {@code null} if the bundle does not contain such binary.
+     * @throws IOException if IO error occurs.
+     */
+    byte[] read(String name)
+        throws IOException;
+
+  } // interface Reader
+
+  private static class ZipWriter implements Writer {
+
+    private final File file;
+
+    private final ZipOutputStream zip;
+
+    private ZipWriter(File file)
+        throws IOException {
+      this.file = file;
+      this.zip = DbToolBase.getZipOutputStream(file);
+    }
+
+    @Override
+    public void write(String name, byte[] content)
+        throws IOException {
+      zip.putNextEntry(new ZipEntry(name));
+      try {
+        zip.write(content);
+      } finally {
+        zip.closeEntry();
+      }
+    }
+
+    @Override
+    public void finish(String name, byte[] overview)
+        throws IOException {
+      write(name, overview);
+      zip.close();
+    }
+
+    @Override
+    public void moveTo(File targetFile)
+        throws IOException {
+      if (!file.renameTo(targetFile)) {
+        throw new IOException("could not rename " + file.getPath() + " to " + targetFile.getPath());
+      }
+    }
+
+    @Override
+    public void abort() {
+      IoUtil.closeQuietly(zip);
+      file.delete();
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      zip.close();
+    }
+
+  } // class ZipWriter
+
+  private static class ZipReader implements Reader {
+
+    private final ZipFile zipFile;
+
+    private ZipReader(File file)
+        throws IOException {
+      this.zipFile = new ZipFile(file);
+    }
+
+    @Override
+    public byte[] read(String name)
+        throws IOException {
+      ZipEntry entry = zipFile.getEntry(name);
+      if (entry == null) {
+        return null;
+      }
+
+      try (InputStream is = zipFile.getInputStream(entry)) {
+        return IoUtil.read(is);
+      }
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      zipFile.close();
+    }
+
+  } // class ZipReader
+
+  private DbPortBundle() {
+  }
+
+  /**
+   * Creates a writer for the bundle.
+   * @param format format of the bundle
+   * @param tmpFilePrefix path of the temporary file without the suffix.
+   * @return the writer
+   * @throws IOException if IO error occurs.
+   */
+  static Writer newWriter(Format format, String tmpFilePrefix)
+      throws IOException {
+    File file = new File(tmpFilePrefix + format.getFileSuffix());
+    return (format == Format.segment) ? new DbPortSegmentWriter(file) : new ZipWriter(file);
+  }
+
+  /**
+   * Opens the bundle, the format is detected from the file name.
+   * @param bundleFile the bundle file
+   * @return the reader
+   * @throws IOException if IO error occurs.
+   */
+  static Reader openReader(String bundleFile)
+      throws IOException {
+    File file = new File(bundleFile);
+    return (Format.forFile(bundleFile) == Format.segment) ? new DbPortSegmentReader(file) : new ZipReader(file);
+  }
+
+  /**
+   * Reads the binary with given name.
+   * @param reader the bundle
+   * @param name name of the binary
+   * @return the binary
+   * @throws IOException if IO error occurs or the bundle does not contain the binary.
+   */
+  static byte[] readRequired(Reader reader, String name)
+      throws IOException {
+    byte[] content = reader.read(name);
+    if (content == null) {
+      throw new IOException("found no entry " + name + " in the bundle");
+    }
+    return content;
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.xipki.util.Args;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the rows of a table into ID ranges of equal number of rows. The IDs (e.g. generated
+ * by the time-based UniqueIdGenerator) may be very sparse, hence the boundaries are taken from the
+ * rows themselves, read in ID order, and not computed from the ID span.
+ *
+ * @author Lijun Liao
+ */
+
+public class DbPortIdRanges {
+
+  /**
+   * Reader of the IDs of a table.
+   */
+  public interface IdReader {
+
+    /**
+     * Reads the IDs not less than {@code fromId} in ascending order.
+     * @param fromId the minimal ID.
+     * @param maxRows maximal number of IDs to be read.
+     * @return at most {@code maxRows} IDs in ascending order.
+     * @throws Exception if error occurs while reading the IDs.
+     */
+    long[] readIds(long fromId, int maxRows) throws Exception;
+
+  } // interface IdReader
+
+  /**
+   * Range of IDs [fromId, toId] containing numRows rows.
+   */
+  public static class Range {
+
+    private final long fromId;
+
+    private final long toId;
+
+    private final int numRows;
+
+    public Range(long fromId, long toId, int numRows) {
+      if (fromId > toId) {
+        throw new IllegalArgumentException("fromId (" + fromId + ") > toId (" + toId + ")");
+      }
+      this.fromId = fromId;
+      this.toId = toId;
+      this.numRows = Args.notNegative(numRows, "numRows");
+    }
+
+    public long getFromId() {
+      return fromId;
+    }
+
+    public long getToId() {
+      return toId;
+    }
+
+    public int getNumRows() {
+      return numRows;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Range)) {
+        return false;
+      }
+
+      Range other = (Range) obj;
+      return fromId == other.fromId && toId == other.toId && numRows == other.numRows;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(fromId) * 31 + Long.hashCode(toId);
+    }
+
+    @Override
+    public String toString() {
+      return "[" + fromId + ", " + toId + "]: " + numRows + " rows";
+    }
+
+  } // class Range
+
+  /**
+   * Prefix of the lines defining a range in the ranges file.
+   */
+  public static final String RANGE_LINE_PREFIX = "#range=";
+
+  private DbPortIdRanges() {
+  }
+
+  /**
+   * Splits the IDs in [minId, maxId] into ranges, each of them contains {@code rowsPerRange}
+   * rows, except the last one. The last range ends with {@code maxId}.
+   *
+   * @param minId the minimal ID.
+   * @param maxId the maximal ID.
+   * @param rowsPerRange number of rows per range.
+   * @param reader reader of the IDs.
+   * @return the ranges in ascending order, empty if there is no row.
+   * @throws Exception if error occurs while reading the IDs.
+   */
+  public static List<Range> split(long minId, long maxId, int rowsPerRange, IdReader reader)
+      throws Exception {
+    Args.positive(rowsPerRange, "rowsPerRange");
+    Args.notNull(reader, "reader");
+
+    List<Range> ranges = new ArrayList<>();
+    long fromId = minId;
+    while (fromId <= maxId) {
+      long[] ids = reader.readIds(fromId, rowsPerRange);
+      int num = 0;
+      long lastId = fromId;
+      for (long id : ids) {
+        if (id > maxId) {
+          break;
+        }
+        num++;
+        lastId = id;
+      }
+
+      if (num == 0) {
+        break;
+      }
+
+      if (num < rowsPerRange || lastId == maxId) {
+        ranges.add(new Range(fromId, maxId, num));
+        break;
+      }
+
+      ranges.add(new Range(fromId, lastId, num));
+      fromId = lastId + 1;
+    }
+    return ranges;
+  } // method split
+
+  /**
+   * Encodes the range as a line of the ranges file.
+   * @param range the range.
+   * @return the encoded line, starting with {@link #RANGE_LINE_PREFIX}.
+   */
+  public static String toLine(Range range) {
+    return RANGE_LINE_PREFIX + range.fromId + ":" + range.toId + ":" + range.numRows;
+  }
+
+  /**
+   * Decodes the range line of the ranges file.
+   * @param line the line starting with {@link #RANGE_LINE_PREFIX}.
+   * @return the range, or {@code null} if the line is incomplete.
+   */
+  public static Range parseLine(String line) {
+    if (!line.startsWith(RANGE_LINE_PREFIX)) {
+      throw new IllegalArgumentException("invalid range line: " + line);
+    }
+
+    String[] tokens = line.substring(RANGE_LINE_PREFIX.length()).split(":");
+    if (tokens.length != 3) {
+      // incomplete line written while the process was terminated.
+      return null;
+    }
+
+    try {
+      return new Range(Long.parseLong(tokens[0]), Long.parseLong(tokens[1]), Integer.parseInt(tokens[2]));
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  } // method parseLine
+
+}
@@ -0,0 +1,341 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.datasource.DataAccessException;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.util.Args;
+import org.xipki.util.LogUtil;
+import org.xipki.util.ProcessLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Producer / consumer pipeline to import the bundles of one table.
+ *
+ * <p>The bundles are read and parsed by N parser threads, the parsed entries are
+ * inserted in batches by M writer threads, each with its own database connection.
+ * Since the bundles may be finished out of order, only the highest ID up to which
+ * all bundles have been committed is reported to the {@link ProgressListener}.
+ *
+ * @author Lijun Liao
+ */
+
+class DbPortImportPipeline {
+
+  interface EntryBinder {
+
+    void bind(PreparedStatement ps)
+        throws SQLException;
+
+  } // interface EntryBinder
+
+  interface BundleParser {
+
+    /**
+     * Parses the bundle.
+     * @param bundleFile the bundle file
+     * @param minId entries with ID less than minId will be ignored.
+     * @return the parsed entries, in ascending order of ID.
+     * @throws Exception if error occurs while parsing the bundle.
+     */
+    List<ParsedEntry> parse(String bundleFile, long minId)
+        throws Exception;
+
+  } // interface BundleParser
+
+  interface ProgressListener {
+
+    /**
+     * Called if all bundles up to the entry with ID lastId have been committed.
+     * @param numProcessed number of entries in the committed bundles.
+     * @param lastId the ID of the last committed entry.
+     * @throws Exception if error occurs while saving the progress.
+     */
+    void onProgress(long numProcessed, long lastId)
+        throws Exception;
+
+  } // interface ProgressListener
+
+  static class ParsedEntry {
+
+    final long id;
+
+    final EntryBinder binder;
+
+    ParsedEntry(long id, EntryBinder binder) {
+      this.id = id;
+      this.binder = binder;
+    }
+
+  } // class ParsedEntry
+
+  private static class ParsedBundle {
+
+    private final int index;
+
+    private final List<ParsedEntry> entries;
+
+    private ParsedBundle(int index, List<ParsedEntry> entries) {
+      this.index = index;
+      this.entries = entries;
+    }
+
+  } // class ParsedBundle
+
+  private static final Logger LOG = LoggerFactory.getLogger(DbPortImportPipeline.class);
+
+  private static final long POLL_INTERVAL_MS = 100;
+
+  private final DataSourceWrapper datasource;
+
+  private final String sql;
+
+  private final int numParsers;
+
+  private final int numWriters;
+
+  private final int numEntriesPerCommit;
+
+  private final AtomicBoolean stopMe;
+
+  private final AtomicReference<Exception> error = new AtomicReference<>();
+
+  // progress of the committed bundles, guarded by this
+  private boolean[] committed;
+
+  private long[] lastIds;
+
+  private int[] counts;
+
+  private int nextUncommittedIndex;
+
+  private long numCommitted;
+
+  DbPortImportPipeline(DataSourceWrapper datasource, String sql, int numParsers, int numWriters,
+      int numEntriesPerCommit, AtomicBoolean stopMe) {
+    this.datasource = Args.notNull(datasource, "datasource");
+    this.sql = Args.notBlank(sql, "sql");
+    this.numParsers = Args.positive(numParsers, "numParsers");
+    this.numWriters = Args.positive(numWriters, "numWriters");
+    this.numEntriesPerCommit = Args.positive(numEntriesPerCommit, "numEntriesPerCommit");
+    this.stopMe = Args.notNull(stopMe, "stopMe");
+  } // constructor
+
+  /**
+   * Returns the number of writer threads (connections) for the given number of threads.
+   * One connection of the pool is reserved for the importer itself.
+   * @param datasource the datasource
+   * @param numThreads the requested number of threads
+   * @return the number of writer threads
+   */
+  static int numWriters(DataSourceWrapper datasource, int numThreads) {
+    return Math.max(1, Math.min(numThreads, datasource.getMaximumPoolSize() - 1));
+  }
+
+  void run(List<String> bundleFiles, long minId, BundleParser parser, ProcessLog processLog,
+      ProgressListener listener)
+      throws Exception {
+    Args.notNull(bundleFiles, "bundleFiles");
+    Args.notNull(parser, "parser");
+    Args.notNull(processLog, "processLog");
+    Args.notNull(listener, "listener");
+
+    final int n = bundleFiles.size();
+    if (n == 0) {
+      return;
+    }
+
+    committed = new boolean[n];
+    lastIds = new long[n];
+    counts = new int[n];
+    nextUncommittedIndex = 0;
+    numCommitted = 0;
+
+    // bound the number of parsed but not yet inserted bundles to limit the memory usage.
+    final BlockingQueue<ParsedBundle> queue = new ArrayBlockingQueue<>(2 * numWriters);
+    final CountDownLatch parsersLatch = new CountDownLatch(numParsers);
+    final AtomicInteger nextBundleIndex = new AtomicInteger(0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(numParsers + numWriters);
+    try {
+      for (int i = 0; i < numParsers; i++) {
+        executor.execute(() -> {
+          try {
+            int index;
+            while (!isStopped() && (index = nextBundleIndex.getAndIncrement()) < n) {
+              String bundleFile = bundleFiles.get(index);
+              List<ParsedEntry> entries;
+              try {
+                entries = parser.parse(bundleFile, minId);
+              } catch (Exception ex) {
+                System.err.println("\ncould not parse entries from file " + bundleFile);
+                throw ex;
+              }
+
+              ParsedBundle bundle = new ParsedBundle(index, entries);
+              while (!queue.offer(bundle, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (isStopped()) {
+                  return;
+                }
+              }
+            }
+          } catch (Exception ex) {
+            LOG.error("parser thread failed", ex);
+            error.compareAndSet(null, ex);
+          } finally {
+            parsersLatch.countDown();
+          }
+        });
+      }
+
+      for (int i = 0; i < numWriters; i++) {
+        executor.execute(() -> {
+          try {
+            write(queue, parsersLatch, processLog, listener);
+          } catch (Exception ex) {
+            LOG.error("writer thread failed", ex);
+            error.compareAndSet(null, ex);
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    if (error.get() != null) {
+      throw error.get();
+    }
+
+    if (stopMe.get()) {
+      throw new InterruptedException("interrupted by the user");
+    }
+  } // method run
+
+  private boolean isStopped() {
+    return stopMe.get() || error.get() != null;
+  }
+
+  private void write(BlockingQueue<ParsedBundle> queue, CountDownLatch parsersLatch,
+      ProcessLog processLog, ProgressListener listener)
+      throws Exception {
+    Connection conn = datasource.getConnection();
+    PreparedStatement ps = null;
+    boolean autoCommit = true;
+    try {
+      autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      ps = datasource.prepareStatement(conn, sql);
+
+      while (!isStopped()) {
+        ParsedBundle bundle = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (bundle == null) {
+          if (parsersLatch.getCount() == 0 && queue.isEmpty()) {
+            break;
+          }
+          continue;
+        }
+
+        writeBundle(conn, ps, bundle, processLog);
+        markCommitted(bundle, listener);
+      }
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, null, false);
+      try {
+        conn.setAutoCommit(autoCommit);
+      } catch (SQLException ex) {
+        LogUtil.error(LOG, datasource.translate(null, ex), "could not recover AutoCommit");
+      }
+      datasource.returnConnection(conn);
+    }
+  } // method write
+
+  private void writeBundle(Connection conn, PreparedStatement ps, ParsedBundle bundle, ProcessLog processLog)
+      throws DataAccessException, InterruptedException {
+    List<ParsedEntry> entries = bundle.entries;
+    final int n = entries.size();
+    int numEntriesInBatch = 0;
+
+    for (int i = 0; i < n; i++) {
+      if (isStopped()) {
+        throw new InterruptedException("interrupted");
+      }
+
+      try {
+        entries.get(i).binder.bind(ps);
+        ps.addBatch();
+        numEntriesInBatch++;
+
+        if (numEntriesInBatch % numEntriesPerCommit == 0 || i == n - 1) {
+          ps.executeBatch();
+          conn.commit();
+          processLog.addNumProcessed(numEntriesInBatch);
+          numEntriesInBatch = 0;
+          processLog.printStatus();
+        }
+      } catch (SQLException ex) {
+        try {
+          conn.rollback();
+        } catch (SQLException ex2) {
+          LogUtil.error(LOG, ex2, "could not rollback");
+        }
+        System.err.println("\ncould not import entry with ID=" + entries.get(i).id);
+        throw datasource.translate(sql, ex);
+      }
+    }
+  } // method writeBundle
+
+  private synchronized void markCommitted(ParsedBundle bundle, ProgressListener listener)
+      throws Exception {
+    int index = bundle.index;
+    committed[index] = true;
+    counts[index] = bundle.entries.size();
+    lastIds[index] = bundle.entries.isEmpty() ? -1 : bundle.entries.get(counts[index] - 1).id;
+
+    long lastId = -1;
+    while (nextUncommittedIndex < committed.length && committed[nextUncommittedIndex]) {
+      numCommitted += counts[nextUncommittedIndex];
+      if (lastIds[nextUncommittedIndex] != -1) {
+        lastId = lastIds[nextUncommittedIndex];
+      }
+      nextUncommittedIndex++;
+    }
+
+    if (lastId != -1) {
+      listener.onProgress(numCommitted, lastId);
+    }
+  } // method markCommitted
+
+}
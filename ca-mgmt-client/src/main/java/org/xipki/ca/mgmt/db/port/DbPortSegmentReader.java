@@ -0,0 +1,254 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.xipki.util.Args;
+import org.xipki.util.StringUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.xipki.ca.mgmt.db.port.DbPortSegmentWriter.*;
+
+/**
+ * Reader of the segment bundle written by {@link DbPortSegmentWriter}.
+ *
+ * <p>The segment file is memory-mapped. Stored blocks are read directly from the mapped
+ * buffer, compressed blocks are inflated block by block. Since the binaries are normally
+ * read in the order they have been written, the reader continues the search from the
+ * position of the last found record.
+ *
+ * @author Lijun Liao
+ */
+
+class DbPortSegmentReader implements DbPortBundle.Reader {
+
+  private static class Block {
+
+    private final int offset;
+
+    private final int storedLength;
+
+    private final int rawLength;
+
+    private Block(int offset, int storedLength, int rawLength) {
+      this.offset = offset;
+      this.storedLength = storedLength;
+      this.rawLength = rawLength;
+    }
+
+  } // class Block
+
+  private final String filename;
+
+  private final MappedByteBuffer mapped;
+
+  private final List<Block> blocks = new ArrayList<>();
+
+  // name of the first record in block -> index of block
+  private final Map<String, Integer> firstNames = new HashMap<>();
+
+  private final Inflater inflater = new Inflater();
+
+  private byte[] inflateBuffer;
+
+  private byte[] storedBuffer;
+
+  private int currentBlockIndex = -1;
+
+  private ByteBuffer currentBlock;
+
+  DbPortSegmentReader(File file)
+      throws IOException {
+    Args.notNull(file, "file");
+    this.filename = file.getPath();
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("segment file too large: " + filename);
+      }
+      // the mapping remains valid after the channel is closed.
+      this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    File indexFile = new File(file.getPath() + INDEX_FILE_SUFFIX);
+    if (indexFile.exists()) {
+      readIndex(indexFile);
+    } else {
+      scanBlocks();
+    }
+  } // constructor
+
+  private void readIndex(File indexFile)
+      throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath())) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (StringUtil.isBlank(line) || line.startsWith("#")) {
+          continue;
+        }
+
+        // offset:storedLength:rawLength:numRecords:nameOfFirstRecord
+        String[] tokens = line.split(":", 5);
+        if (tokens.length != 5) {
+          throw new IOException("invalid line in index of " + filename + ": " + line);
+        }
+
+        Block block = new Block(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]),
+            Integer.parseInt(tokens[2]));
+        firstNames.put(tokens[4], blocks.size());
+        blocks.add(block);
+      }
+    }
+  } // method readIndex
+
+  private void scanBlocks()
+      throws IOException {
+    int offset = 0;
+    final int limit = mapped.limit();
+    while (offset < limit) {
+      if (limit - offset < BLOCK_HEADER_SIZE) {
+        throw new IOException("truncated segment file " + filename);
+      }
+
+      int rawLength = mapped.getInt(offset);
+      int storedLength = mapped.getInt(offset + 4);
+      blocks.add(new Block(offset, storedLength, rawLength));
+      offset += BLOCK_HEADER_SIZE + storedLength;
+    }
+  } // method scanBlocks
+
+  @Override
+  public byte[] read(String name)
+      throws IOException {
+    Args.notNull(name, "name");
+    if (blocks.isEmpty()) {
+      return null;
+    }
+
+    Integer blockIndex = firstNames.get(name);
+    if (blockIndex != null && blockIndex != currentBlockIndex) {
+      loadBlock(blockIndex);
+    } else if (currentBlock == null) {
+      loadBlock(0);
+    }
+
+    final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    final int n = blocks.size();
+    // visit each block at most once, plus the part of the current block before the position.
+    for (int i = 0; i <= n; i++) {
+      while (currentBlock.hasRemaining()) {
+        int nameLen = currentBlock.getShort() & 0xFFFF;
+        boolean match = nameLen == nameBytes.length;
+        if (match) {
+          for (int j = 0; j < nameLen; j++) {
+            if (currentBlock.get() != nameBytes[j]) {
+              match = false;
+              currentBlock.position(currentBlock.position() + nameLen - j - 1);
+              break;
+            }
+          }
+        } else {
+          currentBlock.position(currentBlock.position() + nameLen);
+        }
+
+        int contentLen = currentBlock.getInt();
+        if (match) {
+          byte[] content = new byte[contentLen];
+          currentBlock.get(content);
+          return content;
+        } else {
+          currentBlock.position(currentBlock.position() + contentLen);
+        }
+      }
+
+      loadBlock((currentBlockIndex + 1) % n);
+    }
+
+    return null;
+  } // method read
+
+  private void loadBlock(int index)
+      throws IOException {
+    Block block = blocks.get(index);
+    int offset = block.offset;
+    byte method = mapped.get(offset + 8);
+
+    ByteBuffer stored = mapped.duplicate();
+    stored.position(offset + BLOCK_HEADER_SIZE);
+    stored.limit(offset + BLOCK_HEADER_SIZE + block.storedLength);
+
+    if (method == METHOD_STORED) {
+      currentBlock = stored.slice();
+    } else if (method == METHOD_DEFLATE) {
+      // Inflater of Java 8 accepts only byte arrays as input.
+      if (storedBuffer == null || storedBuffer.length < block.storedLength) {
+        storedBuffer = new byte[block.storedLength];
+      }
+      stored.get(storedBuffer, 0, block.storedLength);
+
+      if (inflateBuffer == null || inflateBuffer.length < block.rawLength) {
+        inflateBuffer = new byte[block.rawLength];
+      }
+
+      inflater.reset();
+      inflater.setInput(storedBuffer, 0, block.storedLength);
+      int len = 0;
+      try {
+        while (len < block.rawLength && !inflater.finished()) {
+          int num = inflater.inflate(inflateBuffer, len, block.rawLength - len);
+          if (num == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          len += num;
+        }
+      } catch (DataFormatException ex) {
+        throw new IOException("corrupted block " + index + " in " + filename, ex);
+      }
+
+      if (len != block.rawLength) {
+        throw new IOException("corrupted block " + index + " in " + filename);
+      }
+      currentBlock = ByteBuffer.wrap(inflateBuffer, 0, block.rawLength).slice();
+    } else {
+      throw new IOException("unknown method " + method + " of block " + index + " in " + filename);
+    }
+
+    currentBlockIndex = index;
+  } // method loadBlock
+
+  @Override
+  public void close() {
+    inflater.end();
+    currentBlock = null;
+  }
+
+}
@@ -0,0 +1,218 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+import org.xipki.util.StringUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of the segment bundle.
+ *
+ * <p>A segment file consists of blocks, each block starts with a 9-byte header:
+ *<pre>
+ * rawLength (4 bytes) | storedLength (4 bytes) | method (1 byte, 0: stored, 1: deflate)
+ *</pre>
+ * followed by the stored (compressed) content. The raw content of a block is a sequence
+ * of records:
+ *<pre>
+ * nameLength (2 bytes) | name (UTF-8) | contentLength (4 bytes) | content
+ *</pre>
+ * The overview is always written as the single record of the last block.
+ *
+ * <p>The sidecar index file &lt;segment-file&gt;.idx contains one line per block:
+ *<pre>
+ * offset:storedLength:rawLength:numRecords:nameOfFirstRecord
+ *</pre>
+ *
+ * @author Lijun Liao
+ */
+
+class DbPortSegmentWriter implements DbPortBundle.Writer {
+
+  static final String FILE_SUFFIX = ".seg";
+
+  static final String INDEX_FILE_SUFFIX = ".idx";
+
+  static final String INDEX_HEADER = "#xipki-segment-v1";
+
+  static final int BLOCK_HEADER_SIZE = 9;
+
+  static final byte METHOD_STORED = 0;
+
+  static final byte METHOD_DEFLATE = 1;
+
+  private static final int BLOCK_SIZE = 1024 * 1024; // 1M
+
+  private static final int STREAM_BUFFER_SIZE = 1024 * 1024; // 1M
+
+  private final File file;
+
+  private final File indexFile;
+
+  private final DataOutputStream out;
+
+  private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(BLOCK_SIZE + 64 * 1024);
+
+  private final DataOutputStream block = new DataOutputStream(blockBytes);
+
+  private final StringBuilder index = new StringBuilder(INDEX_HEADER + "\n");
+
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+  private byte[] deflateBuffer = new byte[BLOCK_SIZE];
+
+  private long offset;
+
+  private int numRecordsInBlock;
+
+  private String firstNameInBlock;
+
+  private boolean closed;
+
+  DbPortSegmentWriter(File file)
+      throws IOException {
+    this.file = Args.notNull(file, "file");
+    this.indexFile = new File(file.getPath() + INDEX_FILE_SUFFIX);
+    this.out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file.toPath()), STREAM_BUFFER_SIZE));
+  }
+
+  @Override
+  public void write(String name, byte[] content)
+      throws IOException {
+    Args.notBlank(name, "name");
+    Args.notNull(content, "content");
+
+    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    if (nameBytes.length > 0xFFFF) {
+      throw new IOException("name too long: " + name);
+    }
+
+    if (numRecordsInBlock == 0) {
+      firstNameInBlock = name;
+    }
+
+    block.writeShort(nameBytes.length);
+    block.write(nameBytes);
+    block.writeInt(content.length);
+    block.write(content);
+    numRecordsInBlock++;
+
+    if (blockBytes.size() >= BLOCK_SIZE) {
+      flushBlock();
+    }
+  } // method write
+
+  @Override
+  public void finish(String name, byte[] overview)
+      throws IOException {
+    flushBlock();
+    write(name, overview);
+    flushBlock();
+    close();
+
+    try (OutputStream indexOs = Files.newOutputStream(indexFile.toPath())) {
+      indexOs.write(StringUtil.toUtf8Bytes(index.toString()));
+    }
+  } // method finish
+
+  @Override
+  public void moveTo(File targetFile)
+      throws IOException {
+    File targetIndexFile = new File(targetFile.getPath() + INDEX_FILE_SUFFIX);
+    if (!indexFile.renameTo(targetIndexFile)) {
+      throw new IOException("could not rename " + indexFile.getPath() + " to " + targetIndexFile.getPath());
+    }
+
+    if (!file.renameTo(targetFile)) {
+      throw new IOException("could not rename " + file.getPath() + " to " + targetFile.getPath());
+    }
+  } // method moveTo
+
+  @Override
+  public void abort() {
+    IoUtil.closeQuietly(this);
+    file.delete();
+    indexFile.delete();
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    deflater.end();
+    out.close();
+  }
+
+  private void flushBlock()
+      throws IOException {
+    if (numRecordsInBlock == 0) {
+      return;
+    }
+
+    byte[] raw = blockBytes.toByteArray();
+    int rawLength = raw.length;
+
+    deflater.reset();
+    deflater.setInput(raw);
+    deflater.finish();
+    if (deflateBuffer.length < rawLength) {
+      deflateBuffer = new byte[rawLength];
+    }
+
+    int storedLength = 0;
+    while (!deflater.finished() && storedLength < rawLength) {
+      storedLength += deflater.deflate(deflateBuffer, storedLength, rawLength - storedLength);
+    }
+
+    // store the block uncompressed if compression does not reduce the size.
+    boolean compressed = deflater.finished() && storedLength < rawLength;
+    if (!compressed) {
+      storedLength = rawLength;
+    }
+
+    out.writeInt(rawLength);
+    out.writeInt(storedLength);
+    out.writeByte(compressed ? METHOD_DEFLATE : METHOD_STORED);
+    out.write(compressed ? deflateBuffer : raw, 0, storedLength);
+
+    index.append(offset).append(':').append(storedLength).append(':').append(rawLength)
+        .append(':').append(numRecordsInBlock).append(':').append(firstNameInBlock).append('\n');
+
+    offset += BLOCK_HEADER_SIZE + storedLength;
+    blockBytes.reset();
+    numRecordsInBlock = 0;
+    firstNameInBlock = null;
+  } // method flushBlock
+
+}
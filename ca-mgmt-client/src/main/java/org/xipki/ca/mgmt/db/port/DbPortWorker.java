@@ -147,14 +147,29 @@ public abstract class DbPortWorker extends DbWorker {
 
     private final int batchEntriesPerCommit;
 
+    private final int numThreads;
+
+    private final boolean dropIndexes;
+
     public ImportCaDb(
         DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
         boolean resume, String srcFolder, int batchEntriesPerCommit, char[] password)
         throws PasswordResolverException, IOException {
+      this(datasourceFactory, passwordResolver, dbConfFile, resume, srcFolder, batchEntriesPerCommit,
+          1, false, password);
+    }
+
+    public ImportCaDb(
+        DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
+        boolean resume, String srcFolder, int batchEntriesPerCommit, int numThreads, boolean dropIndexes,
+        char[] password)
+        throws PasswordResolverException, IOException {
       super(datasourceFactory, passwordResolver, dbConfFile, password);
       this.resume = resume;
       this.srcFolder = IoUtil.expandFilepath(srcFolder);
       this.batchEntriesPerCommit = batchEntriesPerCommit;
+      this.numThreads = numThreads;
+      this.dropIndexes = dropIndexes;
     }
 
     @Override
@@ -191,7 +206,7 @@ public abstract class DbPortWorker extends DbWorker {
 
         // CertStore
         CaCertstoreDbImporter certStoreImporter = new CaCertstoreDbImporter(datasource,
-                srcFolder, batchEntriesPerCommit, resume, stopMe);
+                srcFolder, batchEntriesPerCommit, numThreads, dropIndexes, resume, stopMe);
         certStoreImporter.importToDb();
         certStoreImporter.close();
       } finally {
@@ -218,15 +233,39 @@ public abstract class DbPortWorker extends DbWorker {
 
     private final int numCertsPerSelect;
 
+    private final int numThreads;
+
+    private final DbPortBundle.Format bundleFormat;
+
     public ExportCaDb(
         DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
         String destFolder, boolean resume, int numCertsInBundle, int numCertsPerSelect, char[] password)
         throws PasswordResolverException, IOException {
+      this(datasourceFactory, passwordResolver, dbConfFile, destFolder, resume,
+          numCertsInBundle, numCertsPerSelect, 1, password);
+    }
+
+    public ExportCaDb(
+        DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
+        String destFolder, boolean resume, int numCertsInBundle, int numCertsPerSelect,
+        int numThreads, char[] password)
+        throws PasswordResolverException, IOException {
+      this(datasourceFactory, passwordResolver, dbConfFile, destFolder, resume,
+          numCertsInBundle, numCertsPerSelect, numThreads, "zip", password);
+    }
+
+    public ExportCaDb(
+        DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
+        String destFolder, boolean resume, int numCertsInBundle, int numCertsPerSelect,
+        int numThreads, String bundleFormat, char[] password)
+        throws PasswordResolverException, IOException {
       super(datasourceFactory, passwordResolver, dbConfFile, password);
       this.destFolder = IoUtil.expandFilepath(destFolder);
       this.resume = resume;
       this.numCertsInBundle = numCertsInBundle;
       this.numCertsPerSelect = numCertsPerSelect;
+      this.numThreads = numThreads;
+      this.bundleFormat = DbPortBundle.Format.forName(bundleFormat);
       checkDestFolder();
     }
 
@@ -272,7 +311,7 @@ public abstract class DbPortWorker extends DbWorker {
 
         // CertStore
         CaCertstoreDbExporter certStoreExporter = new CaCertstoreDbExporter(datasource, destFolder,
-            numCertsInBundle, numCertsPerSelect, resume, stopMe);
+            numCertsInBundle, numCertsPerSelect, numThreads, bundleFormat, resume, stopMe);
         certStoreExporter.export();
         certStoreExporter.close();
 
@@ -369,14 +408,29 @@ public abstract class DbPortWorker extends DbWorker {
 
     private final int batchEntriesPerCommit;
 
+    private final int numThreads;
+
+    private final boolean dropIndexes;
+
     public ImportOcspDb(
         DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
         boolean resume, String srcFolder, int batchEntriesPerCommit, char[] password)
         throws PasswordResolverException, IOException {
+      this(datasourceFactory, passwordResolver, dbConfFile, resume, srcFolder, batchEntriesPerCommit,
+          1, false, password);
+    }
+
+    public ImportOcspDb(
+        DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
+        boolean resume, String srcFolder, int batchEntriesPerCommit, int numThreads, boolean dropIndexes,
+        char[] password)
+        throws PasswordResolverException, IOException {
       super(datasourceFactory, passwordResolver, dbConfFile, password);
       this.resume = resume;
       this.srcFolder = IoUtil.expandFilepath(srcFolder);
       this.batchEntriesPerCommit = batchEntriesPerCommit;
+      this.numThreads = numThreads;
+      this.dropIndexes = dropIndexes;
     }
 
     @Override
@@ -390,7 +444,7 @@ public abstract class DbPortWorker extends DbWorker {
       // CertStore
       try {
         OcspCertstoreDbImporter certStoreImporter = new OcspCertstoreDbImporter(datasource,
-                srcFolder, batchEntriesPerCommit, resume, stopMe);
+                srcFolder, batchEntriesPerCommit, numThreads, dropIndexes, resume, stopMe);
         certStoreImporter.importToDb();
         certStoreImporter.close();
       } finally {
@@ -417,15 +471,27 @@ public abstract class DbPortWorker extends DbWorker {
 
     private final int batchEntriesPerCommit;
 
+    private final int numThreads;
+
     public ImportOcspFromCaDb(
         DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
         String publisherName, boolean resume, String srcFolder, int batchEntriesPerCommit, char[] password)
         throws PasswordResolverException, IOException {
+      this(datasourceFactory, passwordResolver, dbConfFile, publisherName, resume, srcFolder,
+          batchEntriesPerCommit, 1, password);
+    }
+
+    public ImportOcspFromCaDb(
+        DataSourceFactory datasourceFactory, PasswordResolver passwordResolver, String dbConfFile,
+        String publisherName, boolean resume, String srcFolder, int batchEntriesPerCommit, int numThreads,
+        char[] password)
+        throws PasswordResolverException, IOException {
       super(datasourceFactory, passwordResolver, dbConfFile, password);
       this.publisherName = publisherName;
       this.resume = resume;
       this.srcFolder = IoUtil.expandFilepath(srcFolder);
       this.batchEntriesPerCommit = batchEntriesPerCommit;
+      this.numThreads = numThreads;
     }
 
     @Override
@@ -439,7 +505,7 @@ public abstract class DbPortWorker extends DbWorker {
       // CertStore
       try {
         OcspCertStoreFromCaDbImporter certStoreImporter = new OcspCertStoreFromCaDbImporter(
-                datasource, srcFolder, publisherName, batchEntriesPerCommit, resume, stopMe);
+                datasource, srcFolder, publisherName, batchEntriesPerCommit, numThreads, resume, stopMe);
         certStoreImporter.importToDb();
         certStoreImporter.close();
       } finally {
@@ -31,7 +31,14 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -43,6 +50,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DbPorter extends DbToolBase {
 
+  private static final Logger LOG = LoggerFactory.getLogger(DbPorter.class);
+
   public enum OcspDbEntryType {
     CERT("certs", "CERT", 1);
 
@@ -156,7 +165,8 @@ public class DbPorter extends DbToolBase {
       String line;
       while ((line = reader.readLine()) != null) {
         line = line.trim();
-        if (StringUtil.isBlank(line) || line.startsWith("#") || !line.endsWith(".zip")) {
+        if (StringUtil.isBlank(line) || line.startsWith("#")
+            || !(line.endsWith(".zip") || line.endsWith(DbPortSegmentWriter.FILE_SUFFIX))) {
           continue;
         }
         return line;
@@ -167,6 +177,54 @@ public class DbPorter extends DbToolBase {
 
   } // class DbPortFileNameIterator
 
+  /**
+   * Index or foreign key constraint which may be dropped during the import and
+   * rebuilt afterwards.
+   */
+  protected static class DbConstraint {
+
+    private final boolean foreignKey;
+
+    private final String name;
+
+    private final String table;
+
+    private final String[] columns;
+
+    private final String referencedTable;
+
+    private final String referencedColumn;
+
+    private final String onDeleteAction;
+
+    private DbConstraint(boolean foreignKey, String name, String table, String[] columns,
+        String referencedTable, String referencedColumn, String onDeleteAction) {
+      this.foreignKey = foreignKey;
+      this.name = name;
+      this.table = table;
+      this.columns = columns;
+      this.referencedTable = referencedTable;
+      this.referencedColumn = referencedColumn;
+      this.onDeleteAction = onDeleteAction;
+    }
+
+    public static DbConstraint index(String name, String table, String... columns) {
+      return new DbConstraint(false, name, table, columns, null, null, null);
+    }
+
+    public static DbConstraint foreignKey(String name, String baseTable, String baseColumn,
+        String referencedTable, String referencedColumn, String onDeleteAction) {
+      return new DbConstraint(true, name, baseTable, new String[]{baseColumn},
+          referencedTable, referencedColumn, onDeleteAction);
+    }
+
+    @Override
+    public String toString() {
+      return (foreignKey ? "foreign key " : "index ") + name + " of table " + table;
+    }
+
+  } // class DbConstraint
+
   public static final String FILENAME_CA_CONFIGURATION = "ca-configuration.json";
 
   public static final String FILENAME_CA_CERTSTORE = "ca-certstore.json";
@@ -177,6 +235,8 @@ public class DbPorter extends DbToolBase {
 
   public static final String IMPORT_PROCESS_LOG_FILENAME = "import.process";
 
+  private static final String DROPPED_CONSTRAINTS_FILE_SUFFIX = ".dropped-constraints";
+
   public static final String IMPORT_TO_OCSP_PROCESS_LOG_FILENAME = "import-to-ocsp.process";
 
   /**
@@ -284,6 +344,187 @@ public class DbPorter extends DbToolBase {
     return StringUtil.toUtf8String(IoUtil.read(file));
   } // method readContent
 
+  /**
+   * Returns the file recording the constraints dropped by the import with the given process log.
+   * @param processLogFile the process log file of the import.
+   * @return the file recording the dropped constraints.
+   */
+  protected static File getDroppedConstraintsFile(File processLogFile) {
+    return new File(processLogFile.getPath() + DROPPED_CONSTRAINTS_FILE_SUFFIX);
+  }
+
+  /**
+   * Drops the given constraints, foreign keys first. Each dropped constraint is recorded
+   * in the {@code recordFile} before the next one is dropped, so that the constraints dropped by a
+   * killed import are known when it is resumed. Constraints recorded by a previous import are
+   * not dropped again but returned. Constraints not present in the database are skipped.
+   * If a present constraint could not be dropped, the constraints dropped so far are rebuilt and
+   * the exception is thrown.
+   * @param constraints the constraints to be dropped.
+   * @param recordFile the file recording the dropped constraints.
+   * @return the dropped constraints, including those dropped by a previous import.
+   * @throws DataAccessException if a constraint could not be dropped.
+   * @throws IOException if the dropped constraints could not be recorded.
+   */
+  protected List<DbConstraint> dropConstraints(List<DbConstraint> constraints, File recordFile)
+      throws DataAccessException, IOException {
+    List<DbConstraint> dropped = readDroppedConstraints(constraints, recordFile);
+    for (DbConstraint c : dropped) {
+      System.out.println("already dropped " + c);
+    }
+
+    for (int i = 0; i < 2; i++) {
+      boolean foreignKey = i == 0;
+      for (DbConstraint c : constraints) {
+        if (c.foreignKey != foreignKey || dropped.contains(c)) {
+          continue;
+        }
+
+        if (!constraintExists(c)) {
+          System.out.println("skipped " + c + ", not present in the database");
+          continue;
+        }
+
+        try {
+          if (foreignKey) {
+            datasource.dropForeignKeyConstraint(connection, c.name, c.table);
+          } else {
+            datasource.dropIndex(connection, c.table, c.name);
+          }
+        } catch (DataAccessException ex) {
+          System.err.println("could not drop " + c);
+          LogUtil.error(LOG, ex, "could not drop " + c);
+          try {
+            restoreConstraints(dropped, recordFile);
+          } catch (DataAccessException | IOException ex2) {
+            LogUtil.error(LOG, ex2, "could not rebuild the dropped constraints");
+          }
+          throw ex;
+        }
+
+        dropped.add(c);
+        writeDroppedConstraints(dropped, recordFile);
+        System.out.println("dropped " + c);
+      }
+    }
+    return dropped;
+  } // method dropConstraints
+
+  /**
+   * Reads the constraints dropped by a previous import.
+   * @param constraints the constraints which may have been dropped.
+   * @param recordFile the file recording the dropped constraints.
+   * @return the constraints dropped by a previous import, empty if none.
+   * @throws IOException if the file could not be read.
+   */
+  protected List<DbConstraint> readDroppedConstraints(List<DbConstraint> constraints, File recordFile)
+      throws IOException {
+    List<DbConstraint> dropped = new ArrayList<>(constraints.size());
+    if (!recordFile.exists()) {
+      return dropped;
+    }
+
+    List<String> names = new ArrayList<>();
+    for (String line : Files.readAllLines(recordFile.toPath())) {
+      line = line.trim();
+      if (!line.isEmpty()) {
+        names.add(line);
+      }
+    }
+
+    for (DbConstraint c : constraints) {
+      if (names.contains(c.name)) {
+        dropped.add(c);
+      }
+    }
+    return dropped;
+  } // method readDroppedConstraints
+
+  private static void writeDroppedConstraints(List<DbConstraint> constraints, File recordFile)
+      throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (DbConstraint c : constraints) {
+      sb.append(c.name).append("\n");
+    }
+
+    // replace the file atomically, a killed import must not leave an incomplete file.
+    File tmpFile = new File(recordFile.getPath() + ".tmp");
+    Files.write(tmpFile.toPath(), StringUtil.toUtf8Bytes(sb.toString()));
+    Files.move(tmpFile.toPath(), recordFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  } // method writeDroppedConstraints
+
+  private boolean constraintExists(DbConstraint c)
+      throws DataAccessException {
+    try {
+      DatabaseMetaData metaData = connection.getMetaData();
+      // the case of the table names in the metadata depends on the database.
+      String[] tables = {c.table, c.table.toUpperCase(Locale.ROOT), c.table.toLowerCase(Locale.ROOT)};
+      for (String table : tables) {
+        try (ResultSet rs = c.foreignKey ? metaData.getImportedKeys(null, null, table)
+            : metaData.getIndexInfo(null, null, table, false, true)) {
+          while (rs.next()) {
+            if (c.name.equalsIgnoreCase(rs.getString(c.foreignKey ? "FK_NAME" : "INDEX_NAME"))) {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    } catch (SQLException ex) {
+      throw translate(null, ex);
+    }
+  } // method constraintExists
+
+  /**
+   * Rebuilds the given constraints, indexes first. The constraints which could not be rebuilt
+   * remain recorded in the {@code recordFile}, and will be rebuilt by the resumed import.
+   * @param constraints the constraints to be rebuilt.
+   * @param recordFile the file recording the dropped constraints.
+   * @throws DataAccessException if any constraint could not be rebuilt.
+   * @throws IOException if the record file could not be updated.
+   */
+  protected void restoreConstraints(List<DbConstraint> constraints, File recordFile)
+      throws DataAccessException, IOException {
+    DataAccessException error = null;
+    List<DbConstraint> failed = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      boolean foreignKey = i == 1;
+      for (DbConstraint c : constraints) {
+        if (c.foreignKey != foreignKey) {
+          continue;
+        }
+
+        System.out.println("rebuilding " + c);
+        try {
+          if (foreignKey) {
+            datasource.addForeignKeyConstraint(connection, c.name, c.table, c.columns[0],
+                c.referencedTable, c.referencedColumn, c.onDeleteAction, "NO ACTION");
+          } else {
+            datasource.createIndex(connection, c.name, c.table, c.columns);
+          }
+        } catch (DataAccessException ex) {
+          failed.add(c);
+          System.err.println("could not rebuild " + c + ", please rebuild it manually");
+          LogUtil.error(LOG, ex, "could not rebuild " + c);
+          if (error == null) {
+            error = ex;
+          }
+        }
+      }
+    }
+
+    if (failed.isEmpty()) {
+      Files.deleteIfExists(recordFile.toPath());
+    } else {
+      writeDroppedConstraints(failed, recordFile);
+    }
+
+    if (error != null) {
+      throw error;
+    }
+  } // method restoreConstraints
+
   public static void echoToFile(String content, File file)
       throws IOException {
     Files.write(Args.notNull(file, "file").toPath(), StringUtil.toUtf8Bytes(Args.notNull(content, "content")));
@@ -22,6 +22,7 @@ import org.bouncycastle.asn1.x509.Certificate;
 import org.bouncycastle.asn1.x509.TBSCertificate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xipki.ca.mgmt.db.port.DbPortImportPipeline.ParsedEntry;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.HashAlgo;
@@ -32,7 +33,6 @@ import org.xipki.util.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
@@ -42,8 +42,6 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Database importer of OCSP CertStore from CA CertStore.
@@ -62,14 +60,17 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
 
   private final int numCertsPerCommit;
 
+  private final int numThreads;
+
   OcspCertStoreFromCaDbImporter(
       DataSourceWrapper datasource,  String srcDir, String publisherName,
-      int numCertsPerCommit, boolean resume, AtomicBoolean stopMe)
+      int numCertsPerCommit, int numThreads, boolean resume, AtomicBoolean stopMe)
       throws Exception {
     super(datasource, srcDir, stopMe);
 
     this.publisherName = Args.toNonBlankLower(publisherName, "publisherName");
     this.numCertsPerCommit = Args.positive(numCertsPerCommit, "numCertsPerCommit");
+    this.numThreads = Args.positive(numThreads, "numThreads");
 
     File processLogFile = new File(baseDir, DbPorter.IMPORT_TO_OCSP_PROCESS_LOG_FILENAME);
     if (resume) {
@@ -271,14 +272,11 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
 
     final long total = certstore.getCountCerts() - numProcessedBefore;
     final ProcessLog processLog = new ProcessLog(total);
-    // all initial values for importLog will be not evaluated, so just any number
-    final ProcessLog importLog = new ProcessLog(total);
 
     System.out.println("importing certificates from ID " + minId);
     processLog.printHeader();
 
-    PreparedStatement psCert = prepareStatement(SQL_ADD_CERT);
-
+    List<String> certsFiles = new LinkedList<>();
     try (DbPortFileNameIterator certsFileIterator = new DbPortFileNameIterator(
             baseDir + File.separator + CaDbEntryType.CERT.getDirName() + ".mf")) {
       while (certsFileIterator.hasNext()) {
@@ -286,10 +284,10 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
                 + File.separator + certsFileIterator.next();
         // extract the toId from the filename
         int fromIdx = certsFile.indexOf('-');
-        int toIdx = certsFile.indexOf(".zip");
+        int toIdx = certsFile.lastIndexOf('.');
         if (fromIdx != -1 && toIdx != -1) {
           try {
-            long toId = Integer.parseInt(certsFile.substring(fromIdx + 1, toIdx));
+            long toId = Long.parseLong(certsFile.substring(fromIdx + 1, toIdx));
             if (toId < minId) {
               // try next file
               continue;
@@ -301,129 +299,152 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
           LOG.warn("invalid file name '{}', but will still be processed", certsFile);
         }
 
-        try {
-          long lastId = importCert0(certhashAlgo, psCert, certsFile, revokedOnly, caIds,
-                  minId, processLogFile, processLog, numProcessedBefore, importLog);
-          minId = lastId + 1;
-        } catch (Exception ex) {
-          System.err.println("\ncould not import certificates from file " + certsFile
-                  + ".\nplease continue with the option '--resume'");
-          LOG.error("Exception", ex);
-          throw ex;
+        certsFiles.add(certsFile);
+      }
+    }
+
+    DbPortImportPipeline.BundleParser parser =
+        (certsFile, fromId) -> parseCerts(certhashAlgo, certsFile, revokedOnly, caIds, fromId);
+
+    if (numThreads > 1) {
+      final int numWriters = DbPortImportPipeline.numWriters(datasource, numThreads);
+      final int numParsers = Math.min(numThreads, Runtime.getRuntime().availableProcessors());
+      final int numProcessedBefore0 = numProcessedBefore;
+
+      DbPortImportPipeline pipeline = new DbPortImportPipeline(datasource, SQL_ADD_CERT, numParsers, numWriters,
+          numCertsPerCommit, stopMe);
+      try {
+        pipeline.run(certsFiles, minId, parser, processLog,
+            (numProcessed, lastId) -> echoToFile((numProcessedBefore0 + numProcessed) + ":" + lastId, processLogFile));
+      } catch (Exception ex) {
+        System.err.println("\ncould not import certificates.\nplease continue with the option '--resume'");
+        LOG.error("Exception", ex);
+        throw ex;
+      }
+    } else {
+      PreparedStatement psCert = prepareStatement(SQL_ADD_CERT);
+      try {
+        for (String certsFile : certsFiles) {
+          try {
+            List<ParsedEntry> entries = parser.parse(certsFile, minId);
+            long lastId = importCert0(psCert, entries, processLogFile, processLog, numProcessedBefore);
+            if (lastId > 0) {
+              minId = lastId + 1;
+            }
+          } catch (Exception ex) {
+            System.err.println("\ncould not import certificates from file " + certsFile
+                    + ".\nplease continue with the option '--resume'");
+            LOG.error("Exception", ex);
+            throw ex;
+          }
         }
+      } finally {
+        releaseResources(psCert, null);
       }
-    } finally {
-      releaseResources(psCert, null);
     }
 
     processLog.printTrailer();
     DbPorter.echoToFile(MSG_CERTS_FINISHED, processLogFile);
-    System.out.println("processed " + processLog.numProcessed() + " and imported "
-        + importLog.numProcessed() + " certificates");
+    System.out.println(" imported " + processLog.numProcessed() + " certificates");
   } // method importCert
 
-  private long importCert0(
-      HashAlgo certhashAlgo, PreparedStatement psCert, String certsZipFile,
-      boolean revokedOnly, List<Integer> caIds, long minId, File processLogFile,
-      ProcessLog processLog, int numProcessedInLastProcess, ProcessLog importLog)
+  private List<ParsedEntry> parseCerts(
+      HashAlgo certhashAlgo, String certsFile, boolean revokedOnly, List<Integer> caIds, long minId)
       throws Exception {
-    ZipFile zipFile = new ZipFile(new File(certsZipFile));
-    ZipEntry certsEntry = zipFile.getEntry("overview.json");
+    try (DbPortBundle.Reader bundle = DbPortBundle.openReader(certsFile)) {
+      CaCertstore.Certs certs =
+          JSON.parseObject(DbPortBundle.readRequired(bundle, "overview.json"), CaCertstore.Certs.class);
+      certs.validate();
+
+      List<ParsedEntry> entries = new ArrayList<>(certs.getCerts().size());
+      for (CaCertstore.Cert cert : certs.getCerts()) {
+        final long id = cert.getId();
+        if (id < minId) {
+          continue;
+        }
 
-    CaCertstore.Certs certs;
-    try {
-      certs = JSON.parseObject(zipFile.getInputStream(certsEntry), StandardCharsets.UTF_8,
-          CaCertstore.Certs.class);
-    } catch (Exception ex) {
-      try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", certsZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + certsZipFile, e2);
+        if (revokedOnly && (cert.getRev() == null || cert.getRev() != 1)) {
+          continue;
+        }
+
+        final int caId = cert.getCaId();
+        if (!caIds.contains(caId)) {
+          continue;
+        }
+
+        String filename = cert.getFile();
+
+        // rawcert
+        byte[] encodedCert = DbPortBundle.readRequired(bundle, filename);
+        final String certhash = certhashAlgo.base64Hash(encodedCert);
+
+        TBSCertificate tbsCert;
+        try {
+          Certificate cc = Certificate.getInstance(encodedCert);
+          tbsCert = cc.getTBSCertificate();
+        } catch (RuntimeException ex) {
+          LogUtil.error(LOG, ex, "could not parse certificate in file " + filename);
+          throw new CertificateException(ex.getMessage(), ex);
+        }
+
+        final String sn = tbsCert.getSerialNumber().getPositiveValue().toString(16);
+        final long notBefore = tbsCert.getStartDate().getDate().getTime() / 1000;
+        final long notAfter = tbsCert.getEndDate().getDate().getTime() / 1000;
+        final String subject = X509Util.cutX500Name(tbsCert.getSubject(), maxX500nameLen);
+
+        entries.add(new ParsedEntry(id, psCert -> {
+          int idx = 1;
+          psCert.setLong(idx++, id);
+          psCert.setInt(idx++, caId);
+          psCert.setString(idx++, sn);
+          psCert.setLong(idx++, cert.getUpdate());
+          psCert.setLong(idx++, notBefore);
+          psCert.setLong(idx++, notAfter);
+          setInt(psCert, idx++, cert.getRev());
+          setInt(psCert, idx++, cert.getRr());
+          setLong(psCert, idx++, cert.getRt());
+          setLong(psCert, idx++, cert.getRit());
+          psCert.setString(idx++, certhash);
+          psCert.setString(idx++, subject);
+          psCert.setNull(idx, Types.INTEGER);
+        }));
       }
-      throw ex;
+
+      return entries;
     }
-    certs.validate();
+  } // method parseCerts
 
+  private long importCert0(
+      PreparedStatement psCert, List<ParsedEntry> entries,
+      File processLogFile, ProcessLog processLog, int numProcessedInLastProcess)
+      throws Exception {
     disableAutoCommit();
 
     try {
-      int numProcessedEntriesInBatch = 0;
-      int numImportedEntriesInBatch = 0;
+      int numEntriesInBatch = 0;
       long lastSuccessfulCertId = 0;
 
-      List<CaCertstore.Cert> list = certs.getCerts();
-      final int n = list.size();
+      final int n = entries.size();
 
       for (int i = 0; i < n; i++) {
         if (stopMe.get()) {
           throw new InterruptedException("interrupted by the user");
         }
 
-        CaCertstore.Cert cert = list.get(i);
+        ParsedEntry entry = entries.get(i);
+        long id = entry.id;
 
-        long id = cert.getId();
-        lastSuccessfulCertId = id;
-        if (id < minId) {
-          continue;
-        }
+        numEntriesInBatch++;
 
-        numProcessedEntriesInBatch++;
-
-        if (!revokedOnly || (cert.getRev() != null && cert.getRev() == 1)) {
-          int caId = cert.getCaId();
-          if (caIds.contains(caId)) {
-            numImportedEntriesInBatch++;
-
-            String filename = cert.getFile();
-
-            // rawcert
-            ZipEntry certZipEnty = zipFile.getEntry(filename);
-            // rawcert
-            byte[] encodedCert = IoUtil.read(zipFile.getInputStream(certZipEnty));
-            String certhash = certhashAlgo.base64Hash(encodedCert);
-
-            TBSCertificate tbsCert;
-            try {
-              Certificate cc = Certificate.getInstance(encodedCert);
-              tbsCert = cc.getTBSCertificate();
-            } catch (RuntimeException ex) {
-              LogUtil.error(LOG, ex, "could not parse certificate in file " + filename);
-              throw new CertificateException(ex.getMessage(), ex);
-            }
-
-            String subject = X509Util.cutX500Name(tbsCert.getSubject(), maxX500nameLen);
-
-            // cert
-            try {
-              int idx = 1;
-              psCert.setLong(idx++, id);
-              psCert.setInt(idx++, caId);
-              psCert.setString(idx++, tbsCert.getSerialNumber().getPositiveValue().toString(16));
-              psCert.setLong(idx++, cert.getUpdate());
-              psCert.setLong(idx++, tbsCert.getStartDate().getDate().getTime() / 1000);
-              psCert.setLong(idx++, tbsCert.getEndDate().getDate().getTime() / 1000);
-              setInt(psCert, idx++, cert.getRev());
-              setInt(psCert, idx++, cert.getRr());
-              setLong(psCert, idx++, cert.getRt());
-              setLong(psCert, idx++, cert.getRit());
-
-              psCert.setString(idx++, certhash);
-              psCert.setString(idx++, subject);
-              psCert.setNull(idx, Types.INTEGER);
-
-              psCert.addBatch();
-            } catch (SQLException ex) {
-              throw translate(SQL_ADD_CERT, ex);
-            }
-
-          } // end if (caIds.contains(caId))
-        } // end if (revokedOnly
-
-        boolean isLastBlock = i == n - 1;
+        // cert
+        try {
+          entry.binder.bind(psCert);
+          psCert.addBatch();
+        } catch (SQLException ex) {
+          throw translate(SQL_ADD_CERT, ex);
+        }
 
-        if (numImportedEntriesInBatch > 0
-            && (numImportedEntriesInBatch % this.numCertsPerCommit == 0 || isLastBlock)) {
+        if (numEntriesInBatch % this.numCertsPerCommit == 0 || i == n - 1) {
           try {
             psCert.executeBatch();
             commit("(commit import cert to OCSP)");
@@ -440,30 +461,17 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
           }
 
           lastSuccessfulCertId = id;
-          processLog.addNumProcessed(numProcessedEntriesInBatch);
-          importLog.addNumProcessed(numImportedEntriesInBatch);
-          numProcessedEntriesInBatch = 0;
-          numImportedEntriesInBatch = 0;
-          String filename = (numProcessedInLastProcess + processLog.numProcessed()) + ":" + lastSuccessfulCertId;
-          echoToFile(filename, processLogFile);
-          processLog.printStatus();
-        } else if (isLastBlock) {
-          lastSuccessfulCertId = id;
-          processLog.addNumProcessed(numProcessedEntriesInBatch);
-          importLog.addNumProcessed(numImportedEntriesInBatch);
-          numProcessedEntriesInBatch = 0;
-          numImportedEntriesInBatch = 0;
-          String filename = (numProcessedInLastProcess + processLog.numProcessed()) + ":" + lastSuccessfulCertId;
-          echoToFile(filename, processLogFile);
+          processLog.addNumProcessed(numEntriesInBatch);
+          numEntriesInBatch = 0;
+          echoToFile((numProcessedInLastProcess + processLog.numProcessed())
+              + ":" + lastSuccessfulCertId, processLogFile);
           processLog.printStatus();
         }
-        // if (numImportedEntriesInBatch)
       } // end for
 
       return lastSuccessfulCertId;
     } finally {
       recoverAutoCommit();
-      zipFile.close();
     }
   } // method importCert0
 
@@ -21,6 +21,7 @@ import com.alibaba.fastjson.JSON;
 import org.bouncycastle.asn1.x509.Certificate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xipki.ca.mgmt.db.port.DbPortImportPipeline.ParsedEntry;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.util.X509Util;
@@ -29,18 +30,17 @@ import org.xipki.util.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.cert.CertificateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Database importer of OCSP CertStore.
@@ -57,12 +57,25 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
 
   private final int numCertsPerCommit;
 
+  private final int numThreads;
+
+  private final boolean dropConstraints;
+
   OcspCertstoreDbImporter(
       DataSourceWrapper datasource, String srcDir, int numCertsPerCommit, boolean resume, AtomicBoolean stopMe)
       throws Exception {
+    this(datasource, srcDir, numCertsPerCommit, 1, false, resume, stopMe);
+  }
+
+  OcspCertstoreDbImporter(
+      DataSourceWrapper datasource, String srcDir, int numCertsPerCommit, int numThreads,
+      boolean dropConstraints, boolean resume, AtomicBoolean stopMe)
+      throws Exception {
     super(datasource, srcDir, stopMe);
 
     this.numCertsPerCommit = Args.positive(numCertsPerCommit, "numCertsPerCommit");
+    this.numThreads = Args.positive(numThreads, "numThreads");
+    this.dropConstraints = dropConstraints;
     File processLogFile = new File(baseDir, DbPorter.IMPORT_PROCESS_LOG_FILENAME);
     if (resume) {
       if (!processLogFile.exists()) {
@@ -97,7 +110,27 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
         importCrlInfo(certstore.getCrlInfos());
         importIssuer(certstore.getIssuers());
       }
-      importCert(certstore, processLogFile);
+
+      // the constraints dropped by a killed import are rebuilt, even without dropConstraints.
+      File droppedConstraintsFile = getDroppedConstraintsFile(processLogFile);
+      List<DbConstraint> droppedConstraints = dropConstraints
+          ? dropConstraints(CERT_CONSTRAINTS, droppedConstraintsFile)
+          : readDroppedConstraints(CERT_CONSTRAINTS, droppedConstraintsFile);
+      boolean successful = false;
+      try {
+        importCert(certstore, processLogFile);
+        successful = true;
+      } finally {
+        if (!droppedConstraints.isEmpty()) {
+          try {
+            restoreConstraints(droppedConstraints, droppedConstraintsFile);
+          } catch (DataAccessException | IOException ex) {
+            if (successful) {
+              throw ex;
+            }
+          }
+        }
+      }
       processLogFile.delete();
     } catch (Exception ex) {
       System.err.println("could not import OCSP certstore to database");
@@ -231,10 +264,9 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
     System.out.println("importing certificates from ID " + minId);
     processLog.printHeader();
 
-    PreparedStatement psCert = prepareStatement(SQL_ADD_CERT);
-
     OcspDbEntryType type = OcspDbEntryType.CERT;
 
+    List<String> certsFiles = new LinkedList<>();
     try (DbPortFileNameIterator certsFileIterator = new DbPortFileNameIterator(
             baseDir + File.separator + type.getDirName() + ".mf")) {
       while (certsFileIterator.hasNext()) {
@@ -242,7 +274,7 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
 
         // extract the toId from the filename
         int fromIdx = certsFile.indexOf('-');
-        int toIdx = certsFile.indexOf(".zip");
+        int toIdx = certsFile.lastIndexOf('.');
         if (fromIdx != -1 && toIdx != -1) {
           try {
             long toId = Long.parseLong(certsFile.substring(fromIdx + 1, toIdx));
@@ -257,18 +289,45 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
           LOG.warn("invalid file name '{}', but will still be processed", certsFile);
         }
 
-        try {
-          long lastId = importCert0(psCert, certsFile, minId, processLogFile, processLog, numProcessedBefore);
-          minId = lastId + 1;
-        } catch (Exception ex) {
-          System.err.println("\ncould not import certificates from file " + certsFile
-                  + ".\nplease continue with the option '--resume'");
-          LOG.error("Exception", ex);
-          throw ex;
-        }
-      } // end for
-    } finally {
-      releaseResources(psCert, null);
+        certsFiles.add(certsFile);
+      }
+    }
+
+    if (numThreads > 1) {
+      final int numWriters = DbPortImportPipeline.numWriters(datasource, numThreads);
+      final int numParsers = Math.min(numThreads, Runtime.getRuntime().availableProcessors());
+      final int numProcessedBefore0 = numProcessedBefore;
+
+      DbPortImportPipeline pipeline = new DbPortImportPipeline(datasource, SQL_ADD_CERT, numParsers, numWriters,
+          numCertsPerCommit, stopMe);
+      try {
+        pipeline.run(certsFiles, minId, this::parseCerts, processLog,
+            (numProcessed, lastId) -> echoToFile((numProcessedBefore0 + numProcessed) + ":" + lastId, processLogFile));
+      } catch (Exception ex) {
+        System.err.println("\ncould not import certificates.\nplease continue with the option '--resume'");
+        LOG.error("Exception", ex);
+        throw ex;
+      }
+    } else {
+      PreparedStatement psCert = prepareStatement(SQL_ADD_CERT);
+      try {
+        for (String certsFile : certsFiles) {
+          try {
+            List<ParsedEntry> entries = parseCerts(certsFile, minId);
+            long lastId = importCert0(psCert, entries, processLogFile, processLog, numProcessedBefore);
+            if (lastId > 0) {
+              minId = lastId + 1;
+            }
+          } catch (Exception ex) {
+            System.err.println("\ncould not import certificates from file " + certsFile
+                    + ".\nplease continue with the option '--resume'");
+            LOG.error("Exception", ex);
+            throw ex;
+          }
+        } // end for
+      } finally {
+        releaseResources(psCert, null);
+      }
     }
 
     processLog.printTrailer();
@@ -276,69 +335,71 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
     System.out.println(" imported " + processLog.numProcessed() + " certificates");
   } // method importCert
 
-  private long importCert0(
-      PreparedStatement psCert, String certsZipFile, long minId,
-      File processLogFile, ProcessLog processLog, int numProcessedInLastProcess)
+  private List<ParsedEntry> parseCerts(String certsFile, long minId)
       throws Exception {
-    ZipFile zipFile = new ZipFile(new File(certsZipFile));
-    ZipEntry certsEntry = zipFile.getEntry("certs.json");
-
     OcspCertstore.Certs certs;
-    try {
-      certs = JSON.parseObject(zipFile.getInputStream(certsEntry), StandardCharsets.UTF_8, OcspCertstore.Certs.class);
-    } catch (Exception ex) {
-      try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", certsZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + certsZipFile, e2);
-      }
-      throw ex;
+    try (DbPortBundle.Reader bundle = DbPortBundle.openReader(certsFile)) {
+      certs = JSON.parseObject(DbPortBundle.readRequired(bundle, "certs.json"), OcspCertstore.Certs.class);
     }
     certs.validate();
 
+    List<ParsedEntry> entries = new ArrayList<>(certs.getCerts().size());
+    for (OcspCertstore.Cert cert : certs.getCerts()) {
+      long id = cert.getId();
+      if (id < minId) {
+        continue;
+      }
+
+      entries.add(new ParsedEntry(id, psCert -> {
+        int idx = 1;
+        psCert.setLong(idx++, id);
+        psCert.setInt(idx++, cert.getIid());
+        psCert.setString(idx++, cert.getSn());
+        psCert.setLong(idx++, cert.getUpdate());
+        psCert.setLong(idx++, cert.getNbefore());
+        psCert.setLong(idx++, cert.getNafter());
+        setBoolean(psCert, idx++, cert.getRev());
+        setInt(psCert, idx++, cert.getRr());
+        setLong(psCert, idx++, cert.getRt());
+        setLong(psCert, idx++, cert.getRit());
+        psCert.setString(idx++, cert.getHash());
+        psCert.setString(idx++, cert.getSubject());
+        if (cert.getCrlId() == null) {
+          psCert.setNull(idx, Types.INTEGER);
+        } else {
+          psCert.setInt(idx, cert.getCrlId());
+        }
+      }));
+    }
+
+    return entries;
+  } // method parseCerts
+
+  private long importCert0(
+      PreparedStatement psCert, List<ParsedEntry> entries,
+      File processLogFile, ProcessLog processLog, int numProcessedInLastProcess)
+      throws Exception {
     disableAutoCommit();
 
     try {
       int numEntriesInBatch = 0;
       long lastSuccessfulCertId = 0;
 
-      List<OcspCertstore.Cert> list = certs.getCerts();
-      final int n = list.size();
+      final int n = entries.size();
 
       for (int i = 0; i < n; i++) {
         if (stopMe.get()) {
           throw new InterruptedException("interrupted by the user");
         }
 
-        OcspCertstore.Cert cert = list.get(i);
-        long id = cert.getId();
-        if (id < minId) {
-          continue;
-        }
+        ParsedEntry entry = entries.get(i);
+        long id = entry.id;
 
         numEntriesInBatch++;
 
         // cert
         try {
-          int idx = 1;
-          psCert.setLong(idx++, id);
-          psCert.setInt(idx++, cert.getIid());
-          psCert.setString(idx++, cert.getSn());
-          psCert.setLong(idx++, cert.getUpdate());
-          psCert.setLong(idx++, cert.getNbefore());
-          psCert.setLong(idx++, cert.getNafter());
-          setBoolean(psCert, idx++, cert.getRev());
-          setInt(psCert, idx++, cert.getRr());
-          setLong(psCert, idx++, cert.getRt());
-          setLong(psCert, idx++, cert.getRit());
-          psCert.setString(idx++, cert.getHash());
-          psCert.setString(idx++, cert.getSubject());
-          if (cert.getCrlId() == null) {
-            psCert.setNull(idx, Types.INTEGER);
-          } else {
-            psCert.setInt(idx, cert.getCrlId());
-          }
+          entry.binder.bind(psCert);
           psCert.addBatch();
         } catch (SQLException ex) {
           throw translate(SQL_ADD_CERT, ex);
@@ -346,8 +407,7 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
 
         boolean isLastBlock = i == n - 1;
 
-        if (numEntriesInBatch > 0
-            && (numEntriesInBatch % this.numCertsPerCommit == 0 || isLastBlock)) {
+        if (numEntriesInBatch % this.numCertsPerCommit == 0 || isLastBlock) {
           try {
             psCert.executeBatch();
             commit("(commit import cert to OCSP)");
@@ -375,7 +435,6 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
       return lastSuccessfulCertId;
     } finally {
       recoverAutoCommit();
-      zipFile.close();
     }
   } // method importCert0
 
@@ -0,0 +1,230 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test for {@link DbPortSegmentWriter} and {@link DbPortSegmentReader}. The test is in the
+ * package of the tested classes, since the latter are package-private.
+ *
+ * @author Lijun Liao
+ */
+
+public class DbPortSegmentTest {
+
+  private static final String OVERVIEW_NAME = "overview.json";
+
+  private static final byte[] OVERVIEW = "{\"numCerts\":3300}".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Number of lookups in an order different from the write order. Each such lookup may scan the
+   * whole file.
+   */
+  private static final int NUM_UNORDERED_READS = 200;
+
+  private final Random random = new Random(1234);
+
+  private File dir;
+
+  private File file;
+
+  private File indexFile;
+
+  private Map<String, byte[]> entries;
+
+  @Before
+  public void writeSegment() throws IOException {
+    dir = Files.createTempDirectory("segment-test").toFile();
+    File tmpFile = new File(dir, "tmp-certs" + DbPortSegmentWriter.FILE_SUFFIX);
+
+    // runs of random (incompressible), compressible and again random contents, about 1.1 MB
+    // each, so that the blocks are stored as well as deflated.
+    entries = new LinkedHashMap<>();
+    for (int i = 0; i < 3300; i++) {
+      byte[] content = new byte[900 + random.nextInt(200)];
+      if ((i / 1100) % 2 == 0) {
+        random.nextBytes(content);
+      } else {
+        for (int j = 0; j < content.length; j++) {
+          content[j] = (byte) ('a' + (i + j) % 8);
+        }
+      }
+      entries.put((1_000_000_000_000L + i * 7L) + ".der", content);
+    }
+
+    try (DbPortBundle.Writer writer = DbPortBundle.newWriter(DbPortBundle.Format.segment,
+        new File(dir, "tmp-certs").getPath())) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        writer.write(entry.getKey(), entry.getValue());
+      }
+      writer.finish(OVERVIEW_NAME, OVERVIEW);
+
+      file = new File(dir, "certs_1-3300" + DbPortSegmentWriter.FILE_SUFFIX);
+      writer.moveTo(file);
+    }
+
+    indexFile = new File(file.getPath() + DbPortSegmentWriter.INDEX_FILE_SUFFIX);
+    Assert.assertFalse("temporary file is moved", tmpFile.exists());
+    Assert.assertTrue("index file exists", indexFile.exists());
+  } // method writeSegment
+
+  @After
+  public void deleteSegment() {
+    file.delete();
+    indexFile.delete();
+    dir.delete();
+  }
+
+  @Test
+  public void testBlocks() throws IOException {
+    Assert.assertTrue("file larger than 1 MB", file.length() > 2 * 1024 * 1024);
+
+    List<String> lines = readIndexLines();
+    Assert.assertTrue("multiple blocks", lines.size() > 3);
+
+    int numStored = 0;
+    int numDeflated = 0;
+    int numRecords = 0;
+    long expectedOffset = 0;
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      for (String line : lines) {
+        // offset:storedLength:rawLength:numRecords:nameOfFirstRecord
+        String[] tokens = line.split(":", 5);
+        long offset = Long.parseLong(tokens[0]);
+        int storedLength = Integer.parseInt(tokens[1]);
+        int rawLength = Integer.parseInt(tokens[2]);
+        numRecords += Integer.parseInt(tokens[3]);
+
+        Assert.assertEquals("offset", expectedOffset, offset);
+        raf.seek(offset);
+        Assert.assertEquals("rawLength", rawLength, raf.readInt());
+        Assert.assertEquals("storedLength", storedLength, raf.readInt());
+        byte method = raf.readByte();
+        if (method == DbPortSegmentWriter.METHOD_STORED) {
+          Assert.assertEquals("storedLength of stored block", rawLength, storedLength);
+          numStored++;
+        } else {
+          Assert.assertEquals("method", DbPortSegmentWriter.METHOD_DEFLATE, method);
+          Assert.assertTrue("deflated block is smaller", storedLength < rawLength);
+          numDeflated++;
+        }
+        expectedOffset = offset + DbPortSegmentWriter.BLOCK_HEADER_SIZE + storedLength;
+      }
+    }
+
+    Assert.assertEquals("end of file", file.length(), expectedOffset);
+    Assert.assertTrue("stored blocks", numStored > 0);
+    Assert.assertTrue("deflated blocks", numDeflated > 0);
+    Assert.assertEquals("number of records", entries.size() + 1, numRecords);
+
+    // the overview is the single record of the last block
+    Assert.assertTrue(lines.get(lines.size() - 1).endsWith(":1:" + OVERVIEW_NAME));
+  } // method testBlocks
+
+  @Test
+  public void testReadInOrder() throws IOException {
+    assertRead(new ArrayList<>(entries.keySet()));
+  }
+
+  @Test
+  public void testReadInReverseOrder() throws IOException {
+    List<String> names = new ArrayList<>(entries.keySet());
+    Collections.reverse(names);
+    assertRead(names.subList(0, NUM_UNORDERED_READS));
+  }
+
+  @Test
+  public void testReadInRandomOrder() throws IOException {
+    assertRead(shuffledNames());
+  }
+
+  @Test
+  public void testReadWithoutIndex() throws IOException {
+    Assert.assertTrue(indexFile.delete());
+
+    assertRead(new ArrayList<>(entries.keySet()));
+    assertRead(shuffledNames());
+  }
+
+  @Test
+  public void testOverview() throws IOException {
+    try (DbPortBundle.Reader reader = DbPortBundle.openReader(file.getPath())) {
+      // as in the import: the overview is read first
+      Assert.assertArrayEquals(OVERVIEW, DbPortBundle.readRequired(reader, OVERVIEW_NAME));
+      String firstName = entries.keySet().iterator().next();
+      Assert.assertArrayEquals(entries.get(firstName), reader.read(firstName));
+    }
+
+    Assert.assertTrue(indexFile.delete());
+    try (DbPortBundle.Reader reader = DbPortBundle.openReader(file.getPath())) {
+      Assert.assertArrayEquals(OVERVIEW, reader.read(OVERVIEW_NAME));
+    }
+  }
+
+  @Test
+  public void testUnknownName() throws IOException {
+    try (DbPortBundle.Reader reader = DbPortBundle.openReader(file.getPath())) {
+      Assert.assertNull(reader.read("unknown.der"));
+      // the reader is still usable after a failed search
+      String name = entries.keySet().iterator().next();
+      Assert.assertArrayEquals(entries.get(name), reader.read(name));
+      Assert.assertNull(reader.read("unknown.der"));
+      Assert.assertArrayEquals(OVERVIEW, reader.read(OVERVIEW_NAME));
+    }
+  }
+
+  private void assertRead(List<String> names) throws IOException {
+    try (DbPortBundle.Reader reader = DbPortBundle.openReader(file.getPath())) {
+      Assert.assertTrue(reader instanceof DbPortSegmentReader);
+      for (String name : names) {
+        Assert.assertArrayEquals(name, entries.get(name), reader.read(name));
+      }
+      Assert.assertArrayEquals(OVERVIEW, reader.read(OVERVIEW_NAME));
+    }
+  }
+
+  private List<String> shuffledNames() {
+    List<String> names = new ArrayList<>(entries.keySet());
+    Collections.shuffle(names, random);
+    return names.subList(0, NUM_UNORDERED_READS);
+  }
+
+  private List<String> readIndexLines() throws IOException {
+    List<String> lines = new ArrayList<>(Files.readAllLines(indexFile.toPath()));
+    Assert.assertEquals(DbPortSegmentWriter.INDEX_HEADER, lines.remove(0));
+    return lines;
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.mgmt.db.port.DbPortIdRanges;
+import org.xipki.ca.mgmt.db.port.DbPortIdRanges.Range;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test for {@link DbPortIdRanges}.
+ *
+ * @author Lijun Liao
+ */
+
+public class DbPortIdRangesTest {
+
+  private static class ArrayIdReader implements DbPortIdRanges.IdReader {
+
+    private final long[] ids;
+
+    private int numReads;
+
+    ArrayIdReader(long... ids) {
+      this.ids = ids;
+    }
+
+    @Override
+    public long[] readIds(long fromId, int maxRows) {
+      numReads++;
+      int idx = Arrays.binarySearch(ids, fromId);
+      if (idx < 0) {
+        idx = -idx - 1;
+      }
+      return Arrays.copyOfRange(ids, idx, Math.min(ids.length, idx + maxRows));
+    }
+
+  } // class ArrayIdReader
+
+  @Test
+  public void testSparseIds() throws Exception {
+    // IDs as generated by the time-based UniqueIdGenerator, far apart from each other.
+    long[] ids = new long[10];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = 1_000_000_000_000L * (i + 1) + i;
+    }
+
+    ArrayIdReader reader = new ArrayIdReader(ids);
+    List<Range> ranges = DbPortIdRanges.split(ids[0], ids[9], 4, reader);
+
+    Assert.assertEquals("number of ranges", 3, ranges.size());
+    Assert.assertEquals(new Range(ids[0], ids[3], 4), ranges.get(0));
+    Assert.assertEquals(new Range(ids[3] + 1, ids[7], 4), ranges.get(1));
+    Assert.assertEquals(new Range(ids[7] + 1, ids[9], 2), ranges.get(2));
+    Assert.assertEquals("number of reads", 3, reader.numReads);
+  }
+
+  @Test
+  public void testExactMultiple() throws Exception {
+    ArrayIdReader reader = new ArrayIdReader(1, 2, 3, 4, 5, 6);
+    List<Range> ranges = DbPortIdRanges.split(1, 6, 3, reader);
+
+    Assert.assertEquals("number of ranges", 2, ranges.size());
+    Assert.assertEquals(new Range(1, 3, 3), ranges.get(0));
+    Assert.assertEquals(new Range(4, 6, 3), ranges.get(1));
+  }
+
+  @Test
+  public void testLastRangeEndsWithMaxId() throws Exception {
+    // ID 20 is greater than maxId, e.g. inserted after maxId has been read.
+    ArrayIdReader reader = new ArrayIdReader(2, 5, 9, 20);
+    List<Range> ranges = DbPortIdRanges.split(1, 10, 2, reader);
+
+    Assert.assertEquals("number of ranges", 2, ranges.size());
+    Assert.assertEquals(new Range(1, 5, 2), ranges.get(0));
+    Assert.assertEquals(new Range(6, 10, 1), ranges.get(1));
+  }
+
+  @Test
+  public void testRangesCoverAllIds() throws Exception {
+    long[] ids = {3, 7, 8, 100, 101, 5000, 5001, 5002, 1L << 40, (1L << 40) + 1, Long.MAX_VALUE - 1};
+    ArrayIdReader reader = new ArrayIdReader(ids);
+    List<Range> ranges = DbPortIdRanges.split(1, Long.MAX_VALUE - 1, 3, reader);
+
+    int num = 0;
+    long nextFromId = 1;
+    for (Range range : ranges) {
+      Assert.assertEquals("fromId", nextFromId, range.getFromId());
+      nextFromId = range.getToId() + 1;
+      num += range.getNumRows();
+    }
+    Assert.assertEquals("number of rows", ids.length, num);
+    Assert.assertEquals("toId of last range", Long.MAX_VALUE - 1, ranges.get(ranges.size() - 1).getToId());
+  }
+
+  @Test
+  public void testEmptyTable() throws Exception {
+    Assert.assertTrue(DbPortIdRanges.split(1, 100, 10, new ArrayIdReader()).isEmpty());
+    Assert.assertTrue(DbPortIdRanges.split(1, 0, 10, new ArrayIdReader()).isEmpty());
+  }
+
+  @Test
+  public void testLine() {
+    Range range = new Range(1_000_000_000_001L, 2_000_000_000_002L, 10_000);
+    String line = DbPortIdRanges.toLine(range);
+    Assert.assertEquals("#range=1000000000001:2000000000002:10000", line);
+    Assert.assertEquals(range, DbPortIdRanges.parseLine(line));
+
+    // incomplete line
+    Assert.assertNull(DbPortIdRanges.parseLine("#range=1000000000001:2000"));
+    Assert.assertNull(DbPortIdRanges.parseLine("#range=1000000000001:2000:"));
+  }
+
+}
@@ -88,6 +88,8 @@ public class CaAuditConstants {
 
   public static final String TYPE_revoke_cert = "revoke_cert";
 
+  public static final String TYPE_revoke_certs = "revoke_certs";
+
   public static final String TYPE_revoke_suspendedCert = "revoke_suspended_cert";
 
 }
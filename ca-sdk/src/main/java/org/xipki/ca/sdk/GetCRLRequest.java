@@ -28,6 +28,11 @@ public class GetCRLRequest extends SdkRequest {
    */
   private String crlDp;
 
+  /**
+   * Returns CRL of this partition. Only used if crlNumber is not specified.
+   */
+  private Integer partition;
+
   public BigInteger getCrlNumber() {
     return crlNumber;
   }
@@ -52,6 +57,14 @@ public class GetCRLRequest extends SdkRequest {
     this.crlDp = crlDp;
   }
 
+  public Integer getPartition() {
+    return partition;
+  }
+
+  public void setPartition(Integer partition) {
+    this.partition = partition;
+  }
+
   public static GetCRLRequest decode(byte[] encoded) {
     return JSON.parseObject(encoded, GetCRLRequest.class);
   }
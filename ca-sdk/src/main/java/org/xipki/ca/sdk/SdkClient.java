@@ -110,9 +110,15 @@ public class SdkClient {
 
   public byte[] currentCrl(String ca, BigInteger crlNumber, Date thisUpdate, String crlDp)
       throws IOException, SdkErrorResponseException {
+    return currentCrl(ca, crlNumber, thisUpdate, crlDp, null);
+  }
+
+  public byte[] currentCrl(String ca, BigInteger crlNumber, Date thisUpdate, String crlDp, Integer partition)
+      throws IOException, SdkErrorResponseException {
     GetCRLRequest req = new GetCRLRequest();
     req.setCrlNumber(crlNumber);
     req.setCrlDp(crlDp);
+    req.setPartition(partition);
     req.setThisUpdate(thisUpdate == null ? null : thisUpdate.getTime() / 1000);
     byte[] respBytes = send(ca, CMD_crl, req);
     CrlResponse resp = CrlResponse.decode(respBytes);
@@ -42,6 +42,7 @@ import org.xipki.util.exception.OperationException;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CA information.
@@ -56,6 +57,14 @@ public class CaInfo {
 
   private static final long MS_PER_DAY = 24L * 60 * 60 * 1000;
 
+  /**
+   * Seconds to wait before the first retry of a failed signer initialization on first use.
+   * The interval is doubled for each further failure, up to {@link #MAX_LAZY_SIGNER_INIT_BACKOFF}.
+   */
+  private static final long MIN_LAZY_SIGNER_INIT_BACKOFF = 5;
+
+  private static final long MAX_LAZY_SIGNER_INIT_BACKOFF = 300;
+
   private final CaEntry caEntry;
 
   private final CaConfColumn caConfColumn;
@@ -86,9 +95,25 @@ public class CaInfo {
 
   private final AlgorithmIdentifier caKeyAlgId;
 
-  private Map<SignAlgo, ConcurrentContentSigner> signers;
+  private volatile Map<SignAlgo, ConcurrentContentSigner> signers;
+
+  private volatile ConcurrentContentSigner dfltSigner;
 
-  private ConcurrentContentSigner dfltSigner;
+  /**
+   * If not {@code null}, the signer will be initialized with this factory on first use.
+   */
+  private SecurityFactory lazySignerFactory;
+
+  /**
+   * Number of failed attempts to initialize the signer on first use, guarded by this.
+   */
+  private int lazySignerInitFailures;
+
+  /**
+   * Time ({@link System#nanoTime()}) before which the failed initialization will not be retried,
+   * guarded by this.
+   */
+  private long nextLazySignerInit;
 
   private ConfPairs extraControl;
 
@@ -321,7 +346,7 @@ public class CaInfo {
     return randomSnGenerator.nextSerialNumber(caEntry.getSerialNoLen());
   }
 
-  public BigInteger nextCrlNumber()
+  public synchronized BigInteger nextCrlNumber()
       throws OperationException {
     long crlNo = caEntry.getNextCrlNumber();
     long currentMaxNo = certStore.getMaxCrlNumber(caEntry.getIdent());
@@ -332,13 +357,19 @@ public class CaInfo {
     return BigInteger.valueOf(crlNo);
   }
 
-  public BigInteger getMaxFullCrlNumber()
+  public BigInteger getMaxFullCrlNumber(int crlScope)
       throws OperationException {
-    long crlNumber = certStore.getMaxFullCrlNumber(caEntry.getIdent());
+    long crlNumber = certStore.getMaxFullCrlNumber(caEntry.getIdent(), crlScope);
     return crlNumber == 0 ? null : BigInteger.valueOf(crlNumber);
   }
 
   public ConcurrentContentSigner getSigner(List<SignAlgo> algos) {
+    if (signers == null && lazySignerFactory != null) {
+      if (!initLazySigner()) {
+        return null;
+      }
+    }
+
     if (CollectionUtil.isEmpty(algos)) {
       return dfltSigner;
     }
@@ -352,23 +383,66 @@ public class CaInfo {
     return null;
   } // method getSigner
 
-  public boolean initSigner(SecurityFactory securityFactory)
+  private synchronized boolean initLazySigner() {
+    if (signers != null) {
+      return true;
+    }
+
+    // do not retry the failed initialization for each request, e.g. while the HSM is unavailable.
+    long now = System.nanoTime();
+    if (lazySignerInitFailures > 0 && now - nextLazySignerInit < 0) {
+      return false;
+    }
+
+    try {
+      initSigner(lazySignerFactory);
+      lazySignerInitFailures = 0;
+      return true;
+    } catch (XiSecurityException ex) {
+      // the error has been logged in initSigner
+      lazySignerInitFailures++;
+      long backoff = Math.min(MAX_LAZY_SIGNER_INIT_BACKOFF,
+          MIN_LAZY_SIGNER_INIT_BACKOFF << Math.min(lazySignerInitFailures - 1, 16));
+      nextLazySignerInit = now + TimeUnit.SECONDS.toNanos(backoff);
+      LOG.warn("CA {}: will retry to initialize the signer in {} seconds",
+          caEntry.getIdent().getName(), backoff);
+      return false;
+    }
+  } // method initLazySigner
+
+  /**
+   * Defers the initialization of the signer until it is used for the first time.
+   * @param securityFactory the factory to create the signer.
+   */
+  public void deferSignerInit(SecurityFactory securityFactory) {
+    this.lazySignerFactory = Args.notNull(securityFactory, "securityFactory");
+  }
+
+  public boolean isSignerInitDeferred() {
+    return lazySignerFactory != null;
+  }
+
+  public boolean isSignerInitialized() {
+    return signers != null;
+  }
+
+  public synchronized boolean initSigner(SecurityFactory securityFactory)
       throws XiSecurityException {
     if (signers != null) {
       return true;
     }
-    dfltSigner = null;
 
     List<CaSignerConf> signerConfs = CaEntry.splitCaSignerConfs(caEntry.getSignerConf());
 
+    ConcurrentContentSigner tmpDfltSigner = null;
     Map<SignAlgo, ConcurrentContentSigner> tmpSigners = new HashMap<>();
     for (CaSignerConf m : signerConfs) {
       SignerConf signerConf = new SignerConf(m.getConf());
       ConcurrentContentSigner signer;
       try {
         signer = securityFactory.createSigner(caEntry.getSignerType(), signerConf, caEntry.getCert());
-        if (dfltSigner == null) {
-          dfltSigner = signer;
+        if (tmpDfltSigner == null) {
+          tmpDfltSigner = signer;
         }
         tmpSigners.put(m.getAlgo(), signer);
       } catch (Throwable th) {
@@ -385,6 +459,7 @@ public class CaInfo {
       }
     }
 
+    this.dfltSigner = tmpDfltSigner;
     this.signers = Collections.unmodifiableMap(tmpSigners);
     return true;
   } // method initSigner
@@ -114,6 +114,39 @@ public class CaServerConf extends ValidatableConf {
 
   } // class RemoteMgmt
 
+  /**
+   * Configuration of the certificate status change feed, served under the path /feed/.
+   * Only the clients presenting one of the given TLS client certificates are allowed.
+   */
+  public static class ChangeFeed extends ValidatableConf {
+
+    private boolean enabled;
+
+    private List<FileOrBinary> certs;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public List<FileOrBinary> getCerts() {
+      return certs;
+    }
+
+    public void setCerts(List<FileOrBinary> certs) {
+      this.certs = certs;
+    }
+
+    @Override
+    public void validate()
+        throws InvalidConfException {
+    }
+
+  } // class ChangeFeed
+
   public static class CtLogConf {
 
     private String keydir;
@@ -134,6 +167,13 @@ public class CaServerConf extends ValidatableConf {
 
   private RemoteMgmt remoteMgmt;
 
+  private ChangeFeed changeFeed;
+
+  /**
+   * Whether the metrics are served in the Prometheus text format under the path /metrics.
+   */
+  private boolean metricsEnabled;
+
   /**
    * master or slave, the default is master.
    */
@@ -156,6 +196,18 @@ public class CaServerConf extends ValidatableConf {
    */
   private int shardId = 0;
 
+  /**
+   * Number of threads to start the CAs. CAs using the same signer backend (e.g. the same
+   * PKCS#11 module) are started one after another.
+   */
+  private int caStartThreads = 4;
+
+  /**
+   * If set to true, the signer of a CA is initialized when it is used for the first time
+   * instead of at the start of the CA.
+   */
+  private boolean lazySignerInit = false;
+
   private boolean logReqResp;
 
   private List<DataSourceConf> datasources;
@@ -223,6 +275,22 @@ public class CaServerConf extends ValidatableConf {
     this.shardId = shardId;
   }
 
+  public int getCaStartThreads() {
+    return caStartThreads;
+  }
+
+  public void setCaStartThreads(int caStartThreads) {
+    this.caStartThreads = caStartThreads;
+  }
+
+  public boolean isLazySignerInit() {
+    return lazySignerInit;
+  }
+
+  public void setLazySignerInit(boolean lazySignerInit) {
+    this.lazySignerInit = lazySignerInit;
+  }
+
   public List<DataSourceConf> getDatasources() {
     return datasources;
   }
@@ -277,6 +345,22 @@ public class CaServerConf extends ValidatableConf {
     this.remoteMgmt = remoteMgmt;
   }
 
+  public ChangeFeed getChangeFeed() {
+    return changeFeed;
+  }
+
+  public void setChangeFeed(ChangeFeed changeFeed) {
+    this.changeFeed = changeFeed;
+  }
+
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  public void setMetricsEnabled(boolean metricsEnabled) {
+    this.metricsEnabled = metricsEnabled;
+  }
+
   public List<String> getCertprofileFactories() {
     return certprofileFactories;
   }
@@ -324,8 +408,13 @@ public class CaServerConf extends ValidatableConf {
       throw new InvalidConfException("shardId is not in [0, 127]");
     }
 
+    if (caStartThreads < 1) {
+      throw new InvalidConfException("caStartThreads must not be less than 1");
+    }
+
     notEmpty(datasources, "datasources");
     validate(remoteMgmt);
+    validate(changeFeed);
     validate(security);
   } // method validate
 
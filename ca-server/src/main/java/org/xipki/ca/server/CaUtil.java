@@ -133,6 +133,30 @@ public class CaUtil {
     return new CRLDistPoint(points);
   } // method createCrlDistributionPoints
 
+  /**
+   * Returns the URIs of the CRL partition. The placeholder {@code {partition}} in the URI is
+   * replaced by the partition, if the URI contains no such placeholder, the query parameter
+   * {@code partition=<partition>} is appended.
+   * @param uris the URIs of the CRL.
+   * @param partition the CRL partition.
+   * @return the URIs of the CRL partition.
+   */
+  public static List<String> getPartitionUris(List<String> uris, int partition) {
+    if (CollectionUtil.isEmpty(uris)) {
+      return uris;
+    }
+
+    List<String> ret = new ArrayList<>(uris.size());
+    for (String uri : uris) {
+      if (uri.contains("{partition}")) {
+        ret.add(uri.replace("{partition}", Integer.toString(partition)));
+      } else {
+        ret.add(uri + (uri.indexOf('?') == -1 ? "?" : "&") + "partition=" + partition);
+      }
+    }
+    return ret;
+  } // method getPartitionUris
+
   public static X500Name sortX509Name(X500Name name) {
     notNull(name, "name");
     RDN[] requestedRdns = name.getRDNs();
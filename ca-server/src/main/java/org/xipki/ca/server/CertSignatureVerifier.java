@@ -0,0 +1,235 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.security.X509Cert;
+import org.xipki.security.util.SignerUtil;
+import org.xipki.util.ConfPairs;
+import org.xipki.util.StringUtil;
+import org.xipki.util.metrics.MetricsRegistry;
+
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.xipki.util.Args.notNull;
+
+/**
+ * Verifies the signature of issued certificates (verify-after-sign).
+ *
+ * <p>The policy is configured in the extra control of the CA:
+ *<pre>
+ * verify-after-sign=&lt;always|never|hsm|sample:&lt;n&gt;&gt;
+ *</pre>
+ * <ul>
+ *   <li>always: verify every certificate (default).</li>
+ *   <li>never: never verify.</li>
+ *   <li>hsm: verify only if the CA signer is backed by an HSM (PKCS#11).</li>
+ *   <li>sample:n: verify every n-th certificate.</li>
+ * </ul>
+ *
+ * @author Lijun Liao
+ */
+
+class CertSignatureVerifier {
+
+  enum Mode {
+    ALWAYS,
+    NEVER,
+    HSM,
+    SAMPLE
+  }
+
+  static final String KEY_VERIFY_AFTER_SIGN = "verify-after-sign";
+
+  private static final Logger LOG = LoggerFactory.getLogger(CertSignatureVerifier.class);
+
+  private static final String SIGNER_TYPE_PKCS11 = "pkcs11";
+
+  private final String caName;
+
+  private final Mode mode;
+
+  private final int sampleRate;
+
+  private final boolean active;
+
+  private final ContentVerifierProvider verifierProvider;
+
+  private final AtomicLong counter = new AtomicLong(0);
+
+  private final AtomicLong numVerified = new AtomicLong(0);
+
+  private final AtomicLong numFailed = new AtomicLong(0);
+
+  CertSignatureVerifier(CaInfo caInfo) {
+    this(notNull(caInfo, "caInfo").getIdent().getName(), getPolicy(caInfo.getExtraControl()),
+        SIGNER_TYPE_PKCS11.equalsIgnoreCase(caInfo.getCaEntry().getSignerType()), caInfo.getCert().getPublicKey());
+  }
+
+  /**
+   * Constructor.
+   * @param caName name of the CA.
+   * @param policy the verify-after-sign policy, {@code null} or empty for always.
+   * @param hsmSigner whether the CA signer is backed by an HSM.
+   * @param caPublicKey public key of the CA.
+   * @throws IllegalArgumentException if the policy is invalid.
+   */
+  CertSignatureVerifier(String caName, String policy, boolean hsmSigner, PublicKey caPublicKey) {
+    this.caName = notNull(caName, "caName");
+
+    Mode mode0 = Mode.ALWAYS;
+    int rate = 1;
+    if (policy != null) {
+      policy = policy.trim().toLowerCase();
+    }
+
+    if (StringUtil.isNotBlank(policy)) {
+      if (policy.startsWith("sample:")) {
+        mode0 = Mode.SAMPLE;
+        try {
+          rate = Integer.parseInt(policy.substring("sample:".length()).trim());
+        } catch (NumberFormatException ex) {
+          throw new IllegalArgumentException("invalid " + KEY_VERIFY_AFTER_SIGN + ": " + policy, ex);
+        }
+
+        if (rate < 1) {
+          throw new IllegalArgumentException("invalid " + KEY_VERIFY_AFTER_SIGN + ": " + policy);
+        }
+      } else {
+        switch (policy) {
+          case "always":
+            mode0 = Mode.ALWAYS;
+            break;
+          case "never":
+            mode0 = Mode.NEVER;
+            break;
+          case "hsm":
+            mode0 = Mode.HSM;
+            break;
+          default:
+            throw new IllegalArgumentException("invalid " + KEY_VERIFY_AFTER_SIGN + ": " + policy);
+        }
+      }
+    }
+
+    this.mode = mode0;
+    this.sampleRate = rate;
+
+    if (mode == Mode.NEVER) {
+      this.active = false;
+    } else if (mode == Mode.HSM) {
+      this.active = hsmSigner;
+    } else {
+      this.active = true;
+    }
+
+    ContentVerifierProvider cvp = null;
+    if (active) {
+      // the provider is stateless and thread-safe, so it is built only once per CA key.
+      try {
+        cvp = SignerUtil.getContentVerifierProvider(notNull(caPublicKey, "caPublicKey"), null);
+      } catch (InvalidKeyException ex) {
+        LOG.warn("CA {}: could not build ContentVerifierProvider, fall back to JCA: {}", caName, ex.getMessage());
+      }
+    }
+    this.verifierProvider = cvp;
+
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    registry.counter("xipki_ca_signature_verifications_total",
+        "Signatures of the issued certificates verified after signing", numVerified::get, "ca", caName);
+    registry.counter("xipki_ca_signature_verification_failures_total",
+        "Invalid signatures of the issued certificates", numFailed::get, "ca", caName);
+
+    LOG.info("CA {}: verify-after-sign mode={}, sampleRate={}, active={}", caName, mode, sampleRate, active);
+  } // constructor
+
+  private static String getPolicy(ConfPairs extraControl) {
+    return extraControl == null ? null : extraControl.value(KEY_VERIFY_AFTER_SIGN);
+  }
+
+  Mode getMode() {
+    return mode;
+  }
+
+  int getSampleRate() {
+    return sampleRate;
+  }
+
+  boolean isActive() {
+    return active;
+  }
+
+  long getNumVerified() {
+    return numVerified.get();
+  }
+
+  long getNumFailed() {
+    return numFailed.get();
+  }
+
+  /**
+   * Verifies the signature of the certificate according to the configured policy.
+   * @param cert the certificate to be verified.
+   * @param caCert the CA certificate
+   * @return false if the signature has been verified and is invalid, true otherwise.
+   */
+  boolean verify(X509Cert cert, X509Cert caCert) {
+    notNull(cert, "cert");
+    if (!isSelected()) {
+      return true;
+    }
+
+    boolean valid;
+    try {
+      if (verifierProvider != null) {
+        valid = cert.toBcCert().isSignatureValid(verifierProvider);
+      } else {
+        cert.verify(caCert.getPublicKey());
+        valid = true;
+      }
+    } catch (Exception ex) {
+      LOG.debug("{} while verifying signature: {}", ex.getClass().getName(), ex.getMessage());
+      valid = false;
+    }
+
+    numVerified.incrementAndGet();
+    if (!valid) {
+      long failed = numFailed.incrementAndGet();
+      LOG.error("CA {}: signature of the issued certificate is invalid ({} failures so far)", caName, failed);
+    }
+    return valid;
+  } // method verify
+
+  /**
+   * Decides whether the next certificate is verified: every certificate if active, and only every
+   * n-th one (the first, the (n+1)-th, ...) in the mode sample.
+   * @return whether the next certificate is verified.
+   */
+  boolean isSelected() {
+    if (!active) {
+      return false;
+    }
+
+    return mode != Mode.SAMPLE || counter.getAndIncrement() % sampleRate == 0;
+  } // method isSelected
+
+}
@@ -21,6 +21,7 @@ import com.alibaba.fastjson.JSON;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.mgmt.CtlogControl;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.security.ctlog.CtLog;
@@ -28,39 +29,95 @@ import org.xipki.security.ctlog.CtLog.*;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainRequest;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainResponse;
 import org.xipki.util.*;
-import org.xipki.util.Curl.CurlResult;
 import org.xipki.util.exception.ErrorCode;
+import org.xipki.util.exception.ObjectCreationException;
 import org.xipki.util.exception.OperationException;
 import org.xipki.util.http.SslContextConf;
 
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Certificate transparency (CT) log client.
  *
+ * <p>The add-pre-chain requests are sent to all CT Log servers concurrently, and the
+ * method {@link #getCtLogScts(X509CertificateHolder, X509Cert, List, CtLogPublicKeyFinder)}
+ * returns as soon as the quorum of SCTs is reached. The HTTP connections are not
+ * disconnected explicitly, so that they can be reused via the keep-alive cache.
+ *
  * @author Lijun Liao
  */
-public class CtLogClient {
+public class CtLogClient implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(CtLogClient.class);
 
-  private final Curl curl;
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger(0);
+
+  private static final int MIN_THREADS = 4;
+
+  private static final int THREADS_PER_SERVER = 4;
+
+  private static final int QUEUE_SIZE_PER_THREAD = 4;
 
   private final List<String> addPreChainUrls;
 
-  public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf) {
+  private final int quorum;
+
+  private final int timeoutMs;
+
+  private final SSLSocketFactory sslSocketFactory;
+
+  private final HostnameVerifier hostnameVerifier;
+
+  private final ExecutorService executor;
+
+  public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf)
+      throws ObjectCreationException {
+    this(serverUrls, sslContextConf, Args.notEmpty(serverUrls, "serverUrls").size(), CtlogControl.DFLT_TIMEOUT_MS);
+  }
+
+  public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf, int quorum, int timeoutMs)
+      throws ObjectCreationException {
     Args.notEmpty(serverUrls, "serverUrls");
+    this.quorum = Args.range(quorum, "quorum", 1, serverUrls.size());
+    this.timeoutMs = Args.positive(timeoutMs, "timeoutMs");
 
-    this.curl  = new DefaultCurl(sslContextConf);
     this.addPreChainUrls = new ArrayList<>(serverUrls.size());
     for (String m : serverUrls) {
       String addPreChainUrl = m.endsWith("/")
           ? m + "ct/v1/add-pre-chain" : m + "/ct/v1/add-pre-chain";
       this.addPreChainUrls.add(addPreChainUrl);
     }
+
+    if (sslContextConf != null && sslContextConf.isUseSslConf()) {
+      this.sslSocketFactory = sslContextConf.getSslSocketFactory();
+      this.hostnameVerifier = sslContextConf.buildHostnameVerifier();
+    } else {
+      this.sslSocketFactory = null;
+      this.hostnameVerifier = null;
+    }
+
+    // Bounded, so that a slow CT log server does not result in a new thread per issuance.
+    int numThreads = Math.max(MIN_THREADS, addPreChainUrls.size() * THREADS_PER_SERVER);
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(numThreads * QUEUE_SIZE_PER_THREAD), r -> {
+          Thread thread = new Thread(r, "ctlog-client-" + THREAD_INDEX.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    this.executor = pool;
   } // constructor
 
   public SignedCertificateTimestampList getCtLogScts(
@@ -104,66 +161,162 @@ public class CtLogClient {
       LOG.debug("CTLog Request: {}", StringUtil.toUtf8String(content));
     }
 
+    CompletionService<SignedCertificateTimestamp> completionService = new ExecutorCompletionService<>(executor);
+    List<Future<SignedCertificateTimestamp>> futures = new ArrayList<>(addPreChainUrls.size());
     List<SignedCertificateTimestamp> scts = new ArrayList<>(addPreChainUrls.size());
-    Map<String, String> headers = new HashMap<>();
-    headers.put("content-type", "application/json");
+    List<String> errors = new LinkedList<>();
+
     for (String url : addPreChainUrls) {
-      CurlResult res;
       try {
-        res = curl.curlPost(url, false, headers, null, content);
-      } catch (Exception ex) {
-        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error while calling " + url + ": " + ex.getMessage());
+        futures.add(completionService.submit(
+            () -> addPreChain(url, content, issuerKeyHash, preCertTbsCert, publicKeyFinder)));
+      } catch (RejectedExecutionException ex) {
+        LOG.warn("too many pending requests, skip CT log server {}", url);
+        errors.add("too many pending requests to " + url);
       }
+    }
+    long deadline = System.currentTimeMillis() + timeoutMs;
 
-      byte[] respContent = res.getContent();
-      if (respContent == null) {
-        throw new OperationException(ErrorCode.SYSTEM_FAILURE,
-            "server does not return any content while responding " + url);
-      }
+    try {
+      int pending = futures.size();
+      while (scts.size() < quorum && pending > 0) {
+        // the quorum is not reachable any more
+        if (scts.size() + pending < quorum) {
+          break;
+        }
+
+        long waitMs = deadline - System.currentTimeMillis();
+        Future<SignedCertificateTimestamp> future = waitMs <= 0 ? null
+            : completionService.poll(waitMs, TimeUnit.MILLISECONDS);
+        if (future == null) {
+          errors.add("timeout after " + timeoutMs + " ms");
+          break;
+        }
 
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("CTLog Response: {}", StringUtil.toUtf8String(respContent));
+        pending--;
+        try {
+          scts.add(future.get());
+        } catch (ExecutionException ex) {
+          Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+          LOG.warn("error while getting SCT: {}", cause.getMessage());
+          errors.add(cause.getMessage());
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE, "interrupted while waiting for SCTs");
+    } finally {
+      for (Future<SignedCertificateTimestamp> future : futures) {
+        future.cancel(true);
       }
+    }
 
-      AddPreChainResponse resp = JSON.parseObject(respContent, AddPreChainResponse.class);
+    if (scts.size() < quorum) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE,
+          "received only " + scts.size() + " of required " + quorum + " SCTs: " + errors);
+    }
 
-      DigitallySigned ds = DigitallySigned.getInstance(resp.getSignature(), new AtomicInteger(0));
-      byte sctVersion = resp.getSct_version();
-      byte[] logId = resp.getId();
-      String hexLogId = Hex.encodeUpper(logId);
-      long timestamp = resp.getTimestamp();
-      byte[] extensions = resp.getExtensions();
+    return new SignedCertificateTimestampList(new SerializedSCT(scts));
+  } // method getCtLogScts
 
-      PublicKey verifyKey = publicKeyFinder == null ? null : publicKeyFinder.getPublicKey(logId);
-      if (verifyKey == null) {
-        LOG.warn("could not find CtLog public key 0x{} to verify the SCT", hexLogId);
+  private SignedCertificateTimestamp addPreChain(String url, byte[] content, byte[] issuerKeyHash,
+      byte[] preCertTbsCert, CtLogPublicKeyFinder publicKeyFinder)
+      throws OperationException {
+    byte[] respContent;
+    try {
+      respContent = post(url, content);
+    } catch (Exception ex) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error while calling " + url + ": " + ex.getMessage());
+    }
+
+    if (respContent == null) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE,
+          "server does not return any content while responding " + url);
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("CTLog Response: {}", StringUtil.toUtf8String(respContent));
+    }
+
+    AddPreChainResponse resp = JSON.parseObject(respContent, AddPreChainResponse.class);
+
+    DigitallySigned ds = DigitallySigned.getInstance(resp.getSignature(), new AtomicInteger(0));
+    byte sctVersion = resp.getSct_version();
+    byte[] logId = resp.getId();
+    String hexLogId = Hex.encodeUpper(logId);
+    long timestamp = resp.getTimestamp();
+    byte[] extensions = resp.getExtensions();
+
+    PublicKey verifyKey = publicKeyFinder == null ? null : publicKeyFinder.getPublicKey(logId);
+    if (verifyKey == null) {
+      LOG.warn("could not find CtLog public key 0x{} to verify the SCT", hexLogId);
+    } else {
+      SignatureAndHashAlgorithm algorithm = ds.getAlgorithm();
+      String signAlgo = getSignatureAlgo(algorithm);
+
+      boolean sigValid;
+      try {
+        Signature sig = Signature.getInstance(signAlgo, "BC");
+        sig.initVerify(verifyKey);
+        CtLog.update(sig, sctVersion, timestamp, extensions, issuerKeyHash, preCertTbsCert);
+        sigValid = sig.verify(ds.getSignature());
+      } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException | SignatureException ex) {
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error verifying SCT signature");
+      }
+
+      if (sigValid) {
+        LOG.info("verified SCT signature with logId {} and timestamp {}", hexLogId, timestamp);
       } else {
-        SignatureAndHashAlgorithm algorithm = ds.getAlgorithm();
-        String signAlgo = getSignatureAlgo(algorithm);
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "SCT signature is invalid");
+      }
+    }
 
-        boolean sigValid;
-        try {
-          Signature sig = Signature.getInstance(signAlgo, "BC");
-          sig.initVerify(verifyKey);
-          CtLog.update(sig, sctVersion, timestamp, extensions, issuerKeyHash, preCertTbsCert);
-          sigValid = sig.verify(ds.getSignature());
-        } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException | SignatureException ex) {
-          throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error verifying SCT signature");
-        }
+    return new SignedCertificateTimestamp(sctVersion, logId, timestamp, extensions, ds);
+  } // method addPreChain
 
-        if (sigValid) {
-          LOG.info("verified SCT signature with logId {} and timestamp {}", hexLogId, timestamp);
-        } else {
-          throw new OperationException(ErrorCode.SYSTEM_FAILURE, "SCT signature is invalid");
-        }
+  private byte[] post(String url, byte[] content)
+      throws IOException {
+    HttpURLConnection httpConn = IoUtil.openHttpConn(new URL(url));
+    if (httpConn instanceof HttpsURLConnection) {
+      if (sslSocketFactory != null) {
+        ((HttpsURLConnection) httpConn).setSSLSocketFactory(sslSocketFactory);
       }
+      if (hostnameVerifier != null) {
+        ((HttpsURLConnection) httpConn).setHostnameVerifier(hostnameVerifier);
+      }
+    }
+
+    httpConn.setConnectTimeout(timeoutMs);
+    httpConn.setReadTimeout(timeoutMs);
+    httpConn.setRequestMethod("POST");
+    httpConn.setUseCaches(false);
+    httpConn.setDoOutput(true);
+    httpConn.setRequestProperty("Content-Type", "application/json");
+    httpConn.setRequestProperty("Content-Length", Integer.toString(content.length));
 
-      SignedCertificateTimestamp sct = new SignedCertificateTimestamp(sctVersion, logId, timestamp, extensions, ds);
-      scts.add(sct);
+    try (OutputStream os = httpConn.getOutputStream()) {
+      os.write(content);
     }
 
-    return new SignedCertificateTimestampList(new SerializedSCT(scts));
-  } // method getCtLogScts
+    int respCode = httpConn.getResponseCode();
+    if (respCode != HttpURLConnection.HTTP_OK) {
+      // consume the error stream so that the connection can be reused.
+      InputStream errorStream = httpConn.getErrorStream();
+      if (errorStream != null) {
+        IoUtil.read(errorStream);
+      }
+      throw new IOException("bad response: " + respCode + " " + httpConn.getResponseMessage());
+    }
+
+    // the stream is read fully and closed, but the connection is not disconnected, so that
+    // the underlying socket is returned to the keep-alive cache.
+    return IoUtil.read(httpConn.getInputStream());
+  } // method post
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
 
   private static String getSignatureAlgo(SignatureAndHashAlgorithm algorithm)
       throws OperationException {
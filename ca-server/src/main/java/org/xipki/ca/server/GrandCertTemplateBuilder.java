@@ -18,10 +18,7 @@
 package org.xipki.ca.server;
 
 import org.bouncycastle.asn1.ASN1BitString;
-import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
 import org.bouncycastle.asn1.pkcs.RSAPrivateKey;
 import org.bouncycastle.asn1.pkcs.RSAPublicKey;
@@ -42,7 +39,6 @@ import org.xipki.ca.server.db.CertStore;
 import org.xipki.security.ConcurrentContentSigner;
 import org.xipki.security.KeypairGenerator;
 import org.xipki.security.XiSecurityException;
-import org.xipki.security.util.RSABrokenKey;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.LogUtil;
 import org.xipki.util.Validity;
@@ -50,7 +46,6 @@ import org.xipki.util.exception.BadCertTemplateException;
 import org.xipki.util.exception.OperationException;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Date;
 import java.util.List;
@@ -81,9 +76,13 @@ class GrandCertTemplateBuilder {
 
   private final CaInfo caInfo;
 
-  GrandCertTemplateBuilder(CaInfo caInfo, CertStore certstore) {
+  private final PublicKeyQualityChecker publicKeyChecker;
+
+  GrandCertTemplateBuilder(CaInfo caInfo, CertStore certstore)
+      throws OperationException {
     this.caInfo = caInfo;
     this.certstore = certstore;
+    this.publicKeyChecker = new PublicKeyQualityChecker(caInfo, certstore);
 
     this.keyspecByImplicitCA = caInfo.getCaKeyspec();
     this.keyAlgOidByImplicitCA = caInfo.getCaKeyAlgId().getAlgorithm();
@@ -167,23 +166,8 @@ class GrandCertTemplateBuilder {
         throw new OperationException(BAD_CERT_TEMPLATE, "invalid SubjectPublicKeyInfo");
       }
 
-      // CHECK weak public key, like RSA key (ROCA)
-      if (grantedPublicKeyInfo.getAlgorithm().getAlgorithm().equals(
-          PKCSObjectIdentifiers.rsaEncryption)) {
-        try {
-          ASN1Sequence seq = ASN1Sequence.getInstance(grantedPublicKeyInfo.getPublicKeyData().getOctets());
-          if (seq.size() != 2) {
-            throw new OperationException(BAD_CERT_TEMPLATE, "invalid format of RSA public key");
-          }
-
-          BigInteger modulus = ASN1Integer.getInstance(seq.getObjectAt(0)).getPositiveValue();
-          if (RSABrokenKey.isAffected(modulus)) {
-            throw new OperationException(BAD_CERT_TEMPLATE, "RSA public key is too weak");
-          }
-        } catch (IllegalArgumentException ex) {
-          throw new OperationException(BAD_CERT_TEMPLATE, "invalid format of RSA public key");
-        }
-      }
+      // CHECK weak public key, like RSA key (ROCA), blocked and duplicate keys
+      publicKeyChecker.checkPublicKey(grantedPublicKeyInfo);
     } else if (certTemplate.isCaGenerateKeypair()) {
       KeypairGenControl kg = certprofile.getKeypairGenControl();
 
@@ -30,6 +30,7 @@ import org.xipki.security.X509Cert;
 import org.xipki.util.FileOrValue;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
 
 import static org.xipki.util.Args.notNull;
@@ -70,6 +71,11 @@ public class IdentifiedCertPublisher implements Closeable {
     return certPublisher.certificateRevoked(caCert, cert, certprofile, revInfo);
   }
 
+  public List<CertWithDbId> certificatesRevoked(X509Cert caCert, List<CertWithDbId> certs, String certprofile,
+      CertRevocationInfo revInfo) {
+    return certPublisher.certificatesRevoked(caCert, certs, certprofile, revInfo);
+  }
+
   public boolean crlAdded(X509Cert caCert, X509CRLHolder crl) {
     return certPublisher.crlAdded(caCert, crl);
   }
@@ -102,6 +108,10 @@ public class IdentifiedCertPublisher implements Closeable {
     return certPublisher.certificateRemoved(caCert, cert);
   }
 
+  public List<CertWithDbId> certificatesRemoved(X509Cert caCert, List<CertWithDbId> certs) {
+    return certPublisher.certificatesRemoved(caCert, certs);
+  }
+
   @Override
   public void close() {
     certPublisher.close();
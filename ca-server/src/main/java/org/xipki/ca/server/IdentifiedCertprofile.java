@@ -46,6 +46,7 @@ import java.io.Closeable;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.xipki.ca.server.CertprofileUtil.*;
 import static org.xipki.util.Args.notNull;
@@ -59,9 +60,55 @@ import static org.xipki.util.Args.notNull;
 
 public class IdentifiedCertprofile implements Closeable {
 
+  /**
+   * Extension values which depend only on the certificate profile and the CA, and not on
+   * the request. They are built for the first certificate issued by a CA, and reused
+   * (together with the cached DER encoding) until the CA information or the CRL signer changes.
+   */
+  private static class ExtensionPlan {
+
+    private final PublicCaInfo publicCaInfo;
+
+    private final X509Cert crlSignerCert;
+
+    private ExtensionValue authorityKeyIdentifier;
+
+    private ExtensionValue issuerAltName;
+
+    private ExtensionValue authorityInfoAccess;
+
+    private ExtensionValue crlDistributionPoints;
+
+    private ExtensionValue freshestCrl;
+
+    private ExtensionValue basicConstraints;
+
+    // null if the KeyUsage depends on the request
+    private ExtensionValue keyUsage;
+
+    // null if the ExtendedKeyUsage depends on the request
+    private ExtensionValue extendedKeyUsage;
+
+    private ExtensionValue certificatePolicies;
+
+    private ExtensionPlan(PublicCaInfo publicCaInfo, X509Cert crlSignerCert) {
+      this.publicCaInfo = publicCaInfo;
+      this.crlSignerCert = crlSignerCert;
+    }
+
+    private boolean isValidFor(PublicCaInfo publicCaInfo, X509Cert crlSignerCert) {
+      // PublicCaInfo is replaced as a whole if the CA is changed.
+      return this.publicCaInfo == publicCaInfo && this.crlSignerCert == crlSignerCert;
+    }
+
+  } // class ExtensionPlan
+
   private final CertprofileEntry dbEntry;
   private final Certprofile certprofile;
 
+  // CA subject -> extension plan
+  private final ConcurrentHashMap<String, ExtensionPlan> extensionPlans = new ConcurrentHashMap<>();
+
   public IdentifiedCertprofile(CertprofileEntry dbEntry, Certprofile certprofile)
       throws CertprofileException {
     this.dbEntry = notNull(dbEntry, "dbEntry");
@@ -338,108 +385,56 @@ public class IdentifiedCertprofile implements Closeable {
       addExtension(values, extType, value, extControl);
     }
 
+    ExtensionPlan plan = getExtensionPlan(publicCaInfo, crlSignerCert);
+
     // Authority key identifier
     extType = Extension.authorityKeyIdentifier;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      AuthorityKeyIdentifier value = null;
-      if (certprofile.useIssuerAndSerialInAki()) {
-        GeneralNames x509CaIssuer = new GeneralNames(new GeneralName(publicCaInfo.getIssuer()));
-        value = new AuthorityKeyIdentifier(x509CaIssuer, publicCaInfo.getSerialNumber());
-      } else {
-        byte[] ikiValue = publicCaInfo.getSubjectKeyIdentifer();
-        if (ikiValue != null) {
-          value = new AuthorityKeyIdentifier(ikiValue);
-        }
-      }
-
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, plan.authorityKeyIdentifier, extControl);
     }
 
     // IssuerAltName
     extType = Extension.issuerAlternativeName;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      GeneralNames value = publicCaInfo.getSubjectAltName();
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, plan.issuerAltName, extControl);
     }
 
     // AuthorityInfoAccess
     extType = Extension.authorityInfoAccess;
     extControl = controls.remove(extType);
-    CaUris caUris = publicCaInfo.getCaUris();
-
     if (extControl != null) {
-      AuthorityInfoAccessControl aiaControl = certprofile.getAiaControl();
-
-      List<String> caIssuers = null;
-      if (aiaControl != null && aiaControl.isIncludesCaIssuers()) {
-        caIssuers = caUris.getCacertUris();
-        assertAllUrisHasProtocol(caIssuers, aiaControl.getCaIssuersProtocols());
-      }
-
-      List<String> ocspUris = null;
-      if (aiaControl != null && aiaControl.isIncludesOcsp()) {
-        ocspUris = caUris.getOcspUris();
-        assertAllUrisHasProtocol(ocspUris, aiaControl.getOcspProtocols());
-      }
-
-      AuthorityInformationAccess value = null;
-      if (CollectionUtil.isNotEmpty(caIssuers) || CollectionUtil.isNotEmpty(ocspUris)) {
-        value = CaUtil.createAuthorityInformationAccess(caIssuers, ocspUris);
-      }
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, plan.authorityInfoAccess, extControl);
     }
 
-    if (controls.containsKey(Extension.cRLDistributionPoints)
-        || controls.containsKey(Extension.freshestCRL)) {
-      X500Name crlSignerSubject = (crlSignerCert == null) ? null : crlSignerCert.getSubject();
-      X500Name x500CaPrincipal = publicCaInfo.getSubject();
-
-      // CRLDistributionPoints
-      extType = Extension.cRLDistributionPoints;
-      extControl = controls.remove(extType);
-      if (extControl != null) {
-        CRLDistPoint value = null;
-        List<String> uris = caUris.getCrlUris();
-        if (CollectionUtil.isNotEmpty(uris)) {
-          CrlDistributionPointsControl control = certprofile.getCrlDpControl();
-          Set<String> protocols = control == null ? null : control.getProtocols();
-          assertAllUrisHasProtocol(uris, protocols);
-          value = CaUtil.createCrlDistributionPoints(uris, x500CaPrincipal, crlSignerSubject);
-        }
-        addExtension(values, extType, value, extControl);
-      }
+    // CRLDistributionPoints
+    extType = Extension.cRLDistributionPoints;
+    extControl = controls.remove(extType);
+    if (extControl != null) {
+      addExtension(values, extType, plan.crlDistributionPoints, extControl);
+    }
 
-      // FreshestCRL
-      extType = Extension.freshestCRL;
-      extControl = controls.remove(extType);
-      if (extControl != null) {
-        CRLDistPoint value = null;
-        List<String> uris = caUris.getDeltaCrlUris();
-        if (CollectionUtil.isNotEmpty(uris)) {
-          CrlDistributionPointsControl control = certprofile.getFreshestCrlControl();
-          Set<String> protocols = control == null ? null : control.getProtocols();
-          assertAllUrisHasProtocol(uris, protocols);
-          value = CaUtil.createCrlDistributionPoints(caUris.getDeltaCrlUris(), x500CaPrincipal, crlSignerSubject);
-        }
-        addExtension(values, extType, value, extControl);
-      }
+    // FreshestCRL
+    extType = Extension.freshestCRL;
+    extControl = controls.remove(extType);
+    if (extControl != null) {
+      addExtension(values, extType, plan.freshestCrl, extControl);
     }
 
     // BasicConstraints
     extType = Extension.basicConstraints;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      BasicConstraints value = CaUtil.createBasicConstraints(
-          certprofile.getCertLevel(), certprofile.getPathLenBasicConstraint());
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, plan.basicConstraints, extControl);
     }
 
     // KeyUsage
     extType = Extension.keyUsage;
     extControl = controls.remove(extType);
-    if (extControl != null) {
+    if (extControl != null && plan.keyUsage != null) {
+      addExtension(values, extType, plan.keyUsage, extControl);
+    } else if (extControl != null) {
       Set<KeyUsage> usages = new HashSet<>();
       Set<KeyUsageControl> usageOccs = certprofile.getKeyUsage();
       for (KeyUsageControl k : usageOccs) {
@@ -458,7 +453,9 @@ public class IdentifiedCertprofile implements Closeable {
     // ExtendedKeyUsage
     extType = Extension.extendedKeyUsage;
     extControl = controls.remove(extType);
-    if (extControl != null) {
+    if (extControl != null && plan.extendedKeyUsage != null) {
+      addExtension(values, extType, plan.extendedKeyUsage, extControl);
+    } else if (extControl != null) {
       List<ASN1ObjectIdentifier> usages = new LinkedList<>();
       Set<ExtKeyUsageControl> usageOccs = certprofile.getExtendedKeyUsages();
       for (ExtKeyUsageControl k : usageOccs) {
@@ -469,18 +466,7 @@ public class IdentifiedCertprofile implements Closeable {
 
       // the optional ExtKeyUsage will only be set if requested explicitly
       addRequestedExtKeyusage(usages, requestedExtns, usageOccs);
-
-      if (extControl.isCritical()
-          && usages.contains(ObjectIdentifiers.XKU.id_kp_anyExtendedKeyUsage)) {
-        extControl = new ExtensionControl(false, extControl.isRequired(), extControl.isRequest());
-      }
-
-      if (!extControl.isCritical() && usages.contains(ObjectIdentifiers.XKU.id_kp_timeStamping)) {
-        extControl = new ExtensionControl(true, extControl.isRequired(), extControl.isRequest());
-      }
-
-      ExtendedKeyUsage value = X509Util.createExtendedUsage(usages);
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, createExtendedKeyUsage(usages, extControl), extControl);
     }
 
     // ocsp-nocheck
@@ -503,8 +489,7 @@ public class IdentifiedCertprofile implements Closeable {
     extType = Extension.certificatePolicies;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      ASN1Encodable value = certprofile.getCertificatePolicies();
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, plan.certificatePolicies, extControl);
     }
 
     ExtensionValues subvalues = certprofile.getExtensions(Collections.unmodifiableMap(controls),
@@ -632,6 +617,176 @@ public class IdentifiedCertprofile implements Closeable {
     return values;
   } // method getExtensions
 
+  private ExtensionPlan getExtensionPlan(PublicCaInfo publicCaInfo, X509Cert crlSignerCert)
+      throws CertprofileException {
+    String caKey = publicCaInfo.getC14nSubject();
+    ExtensionPlan plan = extensionPlans.get(caKey);
+    if (plan == null || !plan.isValidFor(publicCaInfo, crlSignerCert)) {
+      plan = buildExtensionPlan(publicCaInfo, crlSignerCert);
+      extensionPlans.put(caKey, plan);
+    }
+    return plan;
+  } // method getExtensionPlan
+
+  private ExtensionPlan buildExtensionPlan(PublicCaInfo publicCaInfo, X509Cert crlSignerCert)
+      throws CertprofileException {
+    Map<ASN1ObjectIdentifier, ExtensionControl> controls = certprofile.getExtensionControls();
+    ExtensionPlan plan = new ExtensionPlan(publicCaInfo, crlSignerCert);
+
+    // Authority key identifier
+    ExtensionControl extControl = controls.get(Extension.authorityKeyIdentifier);
+    if (extControl != null) {
+      AuthorityKeyIdentifier value = null;
+      if (certprofile.useIssuerAndSerialInAki()) {
+        GeneralNames x509CaIssuer = new GeneralNames(new GeneralName(publicCaInfo.getIssuer()));
+        value = new AuthorityKeyIdentifier(x509CaIssuer, publicCaInfo.getSerialNumber());
+      } else {
+        byte[] ikiValue = publicCaInfo.getSubjectKeyIdentifer();
+        if (ikiValue != null) {
+          value = new AuthorityKeyIdentifier(ikiValue);
+        }
+      }
+      plan.authorityKeyIdentifier = toExtensionValue(value, extControl);
+    }
+
+    // IssuerAltName
+    extControl = controls.get(Extension.issuerAlternativeName);
+    if (extControl != null) {
+      plan.issuerAltName = toExtensionValue(publicCaInfo.getSubjectAltName(), extControl);
+    }
+
+    // AuthorityInfoAccess
+    CaUris caUris = publicCaInfo.getCaUris();
+    extControl = controls.get(Extension.authorityInfoAccess);
+    if (extControl != null) {
+      AuthorityInfoAccessControl aiaControl = certprofile.getAiaControl();
+
+      List<String> caIssuers = null;
+      if (aiaControl != null && aiaControl.isIncludesCaIssuers()) {
+        caIssuers = caUris.getCacertUris();
+        assertAllUrisHasProtocol(caIssuers, aiaControl.getCaIssuersProtocols());
+      }
+
+      List<String> ocspUris = null;
+      if (aiaControl != null && aiaControl.isIncludesOcsp()) {
+        ocspUris = caUris.getOcspUris();
+        assertAllUrisHasProtocol(ocspUris, aiaControl.getOcspProtocols());
+      }
+
+      AuthorityInformationAccess value = null;
+      if (CollectionUtil.isNotEmpty(caIssuers) || CollectionUtil.isNotEmpty(ocspUris)) {
+        value = CaUtil.createAuthorityInformationAccess(caIssuers, ocspUris);
+      }
+      plan.authorityInfoAccess = toExtensionValue(value, extControl);
+    }
+
+    X500Name crlSignerSubject = (crlSignerCert == null) ? null : crlSignerCert.getSubject();
+    X500Name x500CaPrincipal = publicCaInfo.getSubject();
+
+    // CRLDistributionPoints
+    extControl = controls.get(Extension.cRLDistributionPoints);
+    if (extControl != null) {
+      CRLDistPoint value = null;
+      List<String> uris = caUris.getCrlUris();
+      if (CollectionUtil.isNotEmpty(uris)) {
+        CrlDistributionPointsControl control = certprofile.getCrlDpControl();
+        Set<String> protocols = control == null ? null : control.getProtocols();
+        assertAllUrisHasProtocol(uris, protocols);
+        value = CaUtil.createCrlDistributionPoints(uris, x500CaPrincipal, crlSignerSubject);
+      }
+      plan.crlDistributionPoints = toExtensionValue(value, extControl);
+    }
+
+    // FreshestCRL
+    extControl = controls.get(Extension.freshestCRL);
+    if (extControl != null) {
+      CRLDistPoint value = null;
+      List<String> uris = caUris.getDeltaCrlUris();
+      if (CollectionUtil.isNotEmpty(uris)) {
+        CrlDistributionPointsControl control = certprofile.getFreshestCrlControl();
+        Set<String> protocols = control == null ? null : control.getProtocols();
+        assertAllUrisHasProtocol(uris, protocols);
+        value = CaUtil.createCrlDistributionPoints(uris, x500CaPrincipal, crlSignerSubject);
+      }
+      plan.freshestCrl = toExtensionValue(value, extControl);
+    }
+
+    // BasicConstraints
+    extControl = controls.get(Extension.basicConstraints);
+    if (extControl != null) {
+      BasicConstraints value = CaUtil.createBasicConstraints(
+          certprofile.getCertLevel(), certprofile.getPathLenBasicConstraint());
+      plan.basicConstraints = toExtensionValue(value, extControl);
+    }
+
+    // KeyUsage, constant only if no optional KeyUsage is allowed
+    extControl = controls.get(Extension.keyUsage);
+    if (extControl != null) {
+      Set<KeyUsage> usages = new HashSet<>();
+      boolean constant = true;
+      for (KeyUsageControl k : certprofile.getKeyUsage()) {
+        if (k.isRequired()) {
+          usages.add(k.getKeyUsage());
+        } else {
+          constant = false;
+        }
+      }
+
+      if (constant) {
+        plan.keyUsage = toExtensionValue(X509Util.createKeyUsage(usages), extControl);
+      }
+    }
+
+    // ExtendedKeyUsage, constant only if no optional ExtendedKeyUsage is allowed
+    extControl = controls.get(Extension.extendedKeyUsage);
+    if (extControl != null) {
+      List<ASN1ObjectIdentifier> usages = new LinkedList<>();
+      boolean constant = true;
+      for (ExtKeyUsageControl k : certprofile.getExtendedKeyUsages()) {
+        if (k.isRequired()) {
+          usages.add(k.getExtKeyUsage());
+        } else {
+          constant = false;
+        }
+      }
+
+      if (constant) {
+        plan.extendedKeyUsage = createExtendedKeyUsage(usages, extControl);
+      }
+    }
+
+    // CertificatePolicies
+    extControl = controls.get(Extension.certificatePolicies);
+    if (extControl != null) {
+      plan.certificatePolicies = toExtensionValue(certprofile.getCertificatePolicies(), extControl);
+    }
+
+    return plan;
+  } // method buildExtensionPlan
+
+  private static ExtensionValue createExtendedKeyUsage(
+      List<ASN1ObjectIdentifier> usages, ExtensionControl extControl) {
+    ExtendedKeyUsage value = X509Util.createExtendedUsage(usages);
+    if (value == null) {
+      return null;
+    }
+
+    boolean critical = extControl.isCritical();
+    if (critical && usages.contains(ObjectIdentifiers.XKU.id_kp_anyExtendedKeyUsage)) {
+      critical = false;
+    }
+
+    if (!critical && usages.contains(ObjectIdentifiers.XKU.id_kp_timeStamping)) {
+      critical = true;
+    }
+
+    return new ExtensionValue(critical, value);
+  } // method createExtendedKeyUsage
+
+  private static ExtensionValue toExtensionValue(ASN1Encodable value, ExtensionControl extControl) {
+    return (value == null) ? null : new ExtensionValue(extControl.isCritical(), value);
+  }
+
   private static void assertAllUrisHasProtocol(List<String> uris, Set<String> protocols)
       throws CertprofileException {
     if (protocols == null || uris == null) {
@@ -0,0 +1,246 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+import org.xipki.util.StringUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Blocklist of public keys, e.g. the Debian weak keys and the known-compromised keys.
+ *
+ * <p>A blocklist file contains one hex-encoded digest per line, lines starting with '#' are ignored.
+ * Two kinds of digests are supported, and may be mixed in one file:
+ * <ul>
+ *   <li>64 hex chars: SHA-256 of the DER-encoded SubjectPublicKeyInfo.</li>
+ *   <li>20 hex chars: the last 80 bits of SHA-1 over "Modulus=&lt;upper-case hex of the RSA modulus&gt;\n",
+ *     the format of the Debian openssl-blacklist.</li>
+ * </ul>
+ *
+ * <p>Each set of digests is held in a Bloom filter and in a sorted table. Since nearly all
+ * keys are not in the blocklist, they are rejected by the Bloom filter, the binary search
+ * in the sorted table is only needed to rule out the false positives.
+ *
+ * @author Lijun Liao
+ */
+
+class KeyBlocklist {
+
+  private static class DigestSet {
+
+    private static final int NUM_HASHES = 7;
+
+    private static final int BITS_PER_ENTRY = 10;
+
+    private final int digestLen;
+
+    private final byte[] table;
+
+    private final int size;
+
+    private final long[] bloom;
+
+    private final int bloomMask;
+
+    private DigestSet(int digestLen, List<byte[]> digests) {
+      this.digestLen = digestLen;
+
+      digests.sort(DigestSet::compare);
+      // remove duplicates
+      List<byte[]> uniqueDigests = new ArrayList<>(digests.size());
+      for (byte[] digest : digests) {
+        if (uniqueDigests.isEmpty() || compare(uniqueDigests.get(uniqueDigests.size() - 1), digest) != 0) {
+          uniqueDigests.add(digest);
+        }
+      }
+
+      this.size = uniqueDigests.size();
+      this.table = new byte[size * digestLen];
+      for (int i = 0; i < size; i++) {
+        System.arraycopy(uniqueDigests.get(i), 0, table, i * digestLen, digestLen);
+      }
+
+      // number of bits is a power of 2, at least 64
+      int numBits = 64;
+      while (numBits < size * BITS_PER_ENTRY && numBits < (1 << 30)) {
+        numBits <<= 1;
+      }
+      this.bloom = new long[numBits >>> 6];
+      this.bloomMask = numBits - 1;
+
+      for (byte[] digest : uniqueDigests) {
+        int h1 = getInt(digest, 0);
+        int h2 = getInt(digest, 4) | 1;
+        for (int i = 0; i < NUM_HASHES; i++) {
+          int bit = (h1 + i * h2) & bloomMask;
+          bloom[bit >>> 6] |= 1L << bit;
+        }
+      }
+    } // constructor
+
+    private boolean contains(byte[] digest) {
+      // the digests are uniformly distributed, their bytes are used as hash values directly.
+      int h1 = getInt(digest, 0);
+      int h2 = getInt(digest, 4) | 1;
+      for (int i = 0; i < NUM_HASHES; i++) {
+        int bit = (h1 + i * h2) & bloomMask;
+        if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+
+      // exact match
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compare(table, mid * digestLen, digest);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    } // method contains
+
+    private int compare(byte[] tableBytes, int offset, byte[] digest) {
+      for (int i = 0; i < digestLen; i++) {
+        int diff = (tableBytes[offset + i] & 0xFF) - (digest[i] & 0xFF);
+        if (diff != 0) {
+          return diff;
+        }
+      }
+      return 0;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+      for (int i = 0; i < a.length; i++) {
+        int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+        if (diff != 0) {
+          return diff;
+        }
+      }
+      return 0;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+      return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+          | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+  } // class DigestSet
+
+  private static final int SPKI_SHA256_LEN = 32;
+
+  private static final int DEBIAN_FP_LEN = 10;
+
+  private final DigestSet spkiDigests;
+
+  private final DigestSet debianFingerprints;
+
+  private KeyBlocklist(List<byte[]> spkiDigests, List<byte[]> debianFingerprints) {
+    this.spkiDigests = spkiDigests.isEmpty() ? null : new DigestSet(SPKI_SHA256_LEN, spkiDigests);
+    this.debianFingerprints = debianFingerprints.isEmpty() ? null
+        : new DigestSet(DEBIAN_FP_LEN, debianFingerprints);
+  }
+
+  /**
+   * Loads the blocklist from the files.
+   * @param files the blocklist files.
+   * @return the blocklist.
+   * @throws IOException if a file could not be read or contains invalid line.
+   */
+  static KeyBlocklist load(List<String> files)
+      throws IOException {
+    Args.notEmpty(files, "files");
+
+    List<byte[]> spkiDigests = new ArrayList<>();
+    List<byte[]> debianFingerprints = new ArrayList<>();
+
+    for (String file : files) {
+      try (BufferedReader reader = Files.newBufferedReader(Paths.get(IoUtil.expandFilepath(file, true)))) {
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+          lineNo++;
+          line = line.trim();
+          if (line.isEmpty() || line.startsWith("#")) {
+            continue;
+          }
+
+          byte[] digest;
+          try {
+            digest = Hex.decode(line);
+          } catch (RuntimeException ex) {
+            throw new IOException("invalid line " + lineNo + " in key blocklist " + file);
+          }
+
+          if (digest.length == SPKI_SHA256_LEN) {
+            spkiDigests.add(digest);
+          } else if (digest.length == DEBIAN_FP_LEN) {
+            debianFingerprints.add(digest);
+          } else {
+            throw new IOException("invalid line " + lineNo + " in key blocklist " + file);
+          }
+        }
+      }
+    }
+
+    return new KeyBlocklist(spkiDigests, debianFingerprints);
+  } // method load
+
+  int size() {
+    return (spkiDigests == null ? 0 : spkiDigests.size)
+        + (debianFingerprints == null ? 0 : debianFingerprints.size);
+  }
+
+  /**
+   * Checks whether the public key is in the blocklist.
+   * @param encodedSpki DER-encoded SubjectPublicKeyInfo
+   * @param rsaModulus the modulus if the key is an RSA key, {@code null} otherwise.
+   * @return whether the key is blocked.
+   */
+  boolean isBlocked(byte[] encodedSpki, BigInteger rsaModulus) {
+    if (spkiDigests != null && spkiDigests.contains(HashAlgo.SHA256.hash(encodedSpki))) {
+      return true;
+    }
+
+    if (debianFingerprints != null && rsaModulus != null) {
+      String text = "Modulus=" + rsaModulus.toString(16).toUpperCase() + "\n";
+      byte[] sha1 = HashAlgo.SHA1.hash(StringUtil.toUtf8Bytes(text));
+      return debianFingerprints.contains(Arrays.copyOfRange(sha1, sha1.length - DEBIAN_FP_LEN, sha1.length));
+    }
+
+    return false;
+  } // method isBlocked
+
+}
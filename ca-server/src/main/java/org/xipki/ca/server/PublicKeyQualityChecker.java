@@ -0,0 +1,231 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.server.db.CertStore;
+import org.xipki.security.FpIdCalculator;
+import org.xipki.security.util.RSABrokenKey;
+import org.xipki.util.ConfPairs;
+import org.xipki.util.LogUtil;
+import org.xipki.util.StringUtil;
+import org.xipki.util.exception.OperationException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.xipki.util.Args.notNull;
+import static org.xipki.util.exception.ErrorCode.BAD_CERT_TEMPLATE;
+import static org.xipki.util.exception.ErrorCode.SYSTEM_FAILURE;
+
+/**
+ * Checks the quality of the public keys to be certified.
+ *
+ * <p>The checks are configured in the extra control of the CA:
+ *<pre>
+ * duplicate-key=&lt;permitted|forbidden&gt;
+ * key-blocklist=&lt;file&gt;[;&lt;file&gt;...]
+ *</pre>
+ * <ul>
+ *   <li>RSA keys affected by ROCA are always rejected.</li>
+ *   <li>key-blocklist: keys contained in the blocklists are rejected, see {@link KeyBlocklist}
+ *     for the format of the files.</li>
+ *   <li>duplicate-key: if forbidden, a key which has been certified by the CA is rejected.
+ *     The certified keys are found via the indexed column FP_K of the table CERT. Default to
+ *     permitted.</li>
+ * </ul>
+ * The checks are applied in the above order, the database is only queried for keys which
+ * passed the in-memory checks.
+ *
+ * @author Lijun Liao
+ */
+
+class PublicKeyQualityChecker {
+
+  /**
+   * A single check of the public key.
+   */
+  interface Check {
+
+    /**
+     * Checks the public key.
+     * @param key the public key to be checked.
+     * @return {@code null} if the key is accepted, otherwise the reason of the rejection.
+     * @throws OperationException if error occurs while checking the key.
+     */
+    String check(CheckedKey key)
+        throws OperationException;
+
+  } // interface Check
+
+  /**
+   * Public key with the values derived from it, each computed at most once.
+   */
+  static class CheckedKey {
+
+    private final SubjectPublicKeyInfo publicKeyInfo;
+
+    private byte[] encoded;
+
+    private boolean rsaModulusParsed;
+
+    private BigInteger rsaModulus;
+
+    CheckedKey(SubjectPublicKeyInfo publicKeyInfo) {
+      this.publicKeyInfo = notNull(publicKeyInfo, "publicKeyInfo");
+    }
+
+    SubjectPublicKeyInfo getPublicKeyInfo() {
+      return publicKeyInfo;
+    }
+
+    byte[] getEncoded()
+        throws OperationException {
+      if (encoded == null) {
+        try {
+          encoded = publicKeyInfo.getEncoded();
+        } catch (IOException ex) {
+          throw new OperationException(BAD_CERT_TEMPLATE, "invalid SubjectPublicKeyInfo");
+        }
+      }
+      return encoded;
+    }
+
+    /**
+     * Returns the modulus of the RSA key.
+     * @return the modulus if the key is an RSA key, {@code null} otherwise.
+     * @throws OperationException if the RSA key is invalid.
+     */
+    BigInteger getRsaModulus()
+        throws OperationException {
+      if (!rsaModulusParsed) {
+        rsaModulusParsed = true;
+        if (publicKeyInfo.getAlgorithm().getAlgorithm().equals(PKCSObjectIdentifiers.rsaEncryption)) {
+          try {
+            ASN1Sequence seq = ASN1Sequence.getInstance(publicKeyInfo.getPublicKeyData().getOctets());
+            if (seq.size() != 2) {
+              throw new OperationException(BAD_CERT_TEMPLATE, "invalid format of RSA public key");
+            }
+            rsaModulus = ASN1Integer.getInstance(seq.getObjectAt(0)).getPositiveValue();
+          } catch (IllegalArgumentException ex) {
+            throw new OperationException(BAD_CERT_TEMPLATE, "invalid format of RSA public key");
+          }
+        }
+      }
+      return rsaModulus;
+    } // method getRsaModulus
+
+  } // class CheckedKey
+
+  static final String KEY_DUPLICATE_KEY = "duplicate-key";
+
+  static final String KEY_KEY_BLOCKLIST = "key-blocklist";
+
+  private static final Logger LOG = LoggerFactory.getLogger(PublicKeyQualityChecker.class);
+
+  private final List<Check> checks;
+
+  PublicKeyQualityChecker(CaInfo caInfo, CertStore certstore)
+      throws OperationException {
+    notNull(caInfo, "caInfo");
+    notNull(certstore, "certstore");
+    final String caName = caInfo.getIdent().getName();
+    ConfPairs extraControl = caInfo.getExtraControl();
+
+    List<Check> list = new ArrayList<>(3);
+
+    // ROCA
+    list.add(key -> {
+      BigInteger modulus = key.getRsaModulus();
+      return (modulus != null && RSABrokenKey.isAffected(modulus)) ? "RSA public key is too weak" : null;
+    });
+
+    // blocklist
+    String str = extraControl == null ? null : extraControl.value(KEY_KEY_BLOCKLIST);
+    if (StringUtil.isNotBlank(str)) {
+      List<String> files = StringUtil.split(str, ";");
+      KeyBlocklist blocklist;
+      try {
+        blocklist = KeyBlocklist.load(files);
+      } catch (IOException ex) {
+        LogUtil.error(LOG, ex, "CA " + caName + ": could not load key blocklist");
+        throw new OperationException(SYSTEM_FAILURE, "could not load key blocklist: " + ex.getMessage());
+      }
+
+      LOG.info("CA {}: loaded {} entries from key blocklist {}", caName, blocklist.size(), files);
+      list.add(key -> blocklist.isBlocked(key.getEncoded(), key.getRsaModulus())
+          ? "public key is in the blocklist" : null);
+    }
+
+    // duplicate key
+    str = extraControl == null ? null : extraControl.value(KEY_DUPLICATE_KEY);
+    boolean duplicateKeyPermitted = true;
+    if (StringUtil.isNotBlank(str)) {
+      if ("forbidden".equalsIgnoreCase(str)) {
+        duplicateKeyPermitted = false;
+      } else if (!"permitted".equalsIgnoreCase(str)) {
+        throw new OperationException(SYSTEM_FAILURE, "invalid " + KEY_DUPLICATE_KEY + ": " + str);
+      }
+    }
+
+    if (!duplicateKeyPermitted) {
+      if (!certstore.isKeyFingerprintSupported()) {
+        throw new OperationException(SYSTEM_FAILURE, KEY_DUPLICATE_KEY
+            + "=forbidden requires the column CERT.FP_K, please apply sql/ca-key-fingerprint.xml");
+      }
+
+      if (!caInfo.isSaveCert()) {
+        LOG.warn("CA {}: certificates are not saved, duplicate keys cannot be detected", caName);
+      }
+
+      final NameId caIdent = caInfo.getIdent();
+      list.add(key -> certstore.isCertForKeyIssued(caIdent, FpIdCalculator.hash(key.getEncoded()))
+          ? "public key has been certified by the CA" : null);
+    }
+
+    this.checks = Collections.unmodifiableList(list);
+    LOG.info("CA {}: {}={}, {} checks of public key", caName, KEY_DUPLICATE_KEY,
+        duplicateKeyPermitted ? "permitted" : "forbidden", checks.size());
+  } // constructor
+
+  /**
+   * Checks the public key.
+   * @param publicKeyInfo the public key, in the form to be included in the certificate.
+   * @throws OperationException with error code BAD_CERT_TEMPLATE if the key is rejected.
+   */
+  void checkPublicKey(SubjectPublicKeyInfo publicKeyInfo)
+      throws OperationException {
+    CheckedKey key = new CheckedKey(publicKeyInfo);
+    for (Check check : checks) {
+      String reason = check.check(key);
+      if (reason != null) {
+        throw new OperationException(BAD_CERT_TEMPLATE, reason);
+      }
+    }
+  } // method checkPublicKey
+
+}
@@ -232,7 +232,11 @@ public class SdkResponder {
       switch (command) {
         case CMD_health: {
           boolean healthy = ca.healthy();
-          return healthy ? null : new ErrorResponse(null, SYSTEM_UNAVAILABLE, "CA is not healthy");
+          if (healthy) {
+            return null;
+          }
+          return new ErrorResponse(null, SYSTEM_UNAVAILABLE,
+              ca.isReady() ? "CA is not healthy" : "CA signer is not initialized");
         }
         case CMD_cacert: {
           byte[][] certs = new byte[1][];
@@ -639,7 +643,8 @@ public class SdkResponder {
     GetCRLRequest req = GetCRLRequest.decode(request);
 
     BigInteger crlNumber = req.getCrlNumber();
-    X509CRLHolder crl = ca.getCrl(crlNumber, event);
+    Integer partition = req.getPartition();
+    X509CRLHolder crl = ca.getCrl(crlNumber, partition == null ? 0 : partition, event);
     return buildCrlResp(crl, "get CRL");
   }
 
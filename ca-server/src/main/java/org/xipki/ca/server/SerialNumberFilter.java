@@ -0,0 +1,360 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.server.db.CertStore;
+import org.xipki.ca.server.db.CertStore.SerialWithId;
+import org.xipki.util.ConfPairs;
+import org.xipki.util.LogUtil;
+import org.xipki.util.exception.OperationException;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.xipki.util.Args.notNull;
+import static org.xipki.util.exception.ErrorCode.SYSTEM_FAILURE;
+
+/**
+ * Bloom filter over the serial numbers issued by a CA. If the filter reports that a serial
+ * number is not contained, the serial number is not used by the CA, and the database does not
+ * need to be queried.
+ *
+ * <p>The filter is built in background by streaming the serial numbers from the table CERT.
+ * Before the build is completed, every serial number is reported as possibly contained.
+ * The certificates issued by other CA instances sharing the same database are not
+ * added; the unique constraint on (CA_ID, SN) still rejects such a collision.
+ *
+ * <p>The maximal size is configured in the extra control of the CA:
+ *<pre>
+ * serial-filter-size=&lt;size in MiB, 0 to disable the filter&gt;
+ *</pre>
+ * Default to 16 MiB. The filter uses 16 bits per certificate for twice the current number of
+ * certificates, but not more than the maximal size. If the estimated fill ratio exceeds
+ * {@link #MAX_FILL_RATIO}, a filter four times larger, but not more than the maximal size,
+ * is built in background and replaces the current one.
+ *
+ * @author Lijun Liao
+ */
+
+class SerialNumberFilter {
+
+  /**
+   * Bit array of the Bloom filter. The number of bits is a power of 2.
+   */
+  static class BloomBits {
+
+    private final AtomicLongArray words;
+
+    private final long numBits;
+
+    private final long bitMask;
+
+    /**
+     * Maximal number of entries before the estimated fill ratio exceeds {@link #MAX_FILL_RATIO}.
+     */
+    private final long maxEntries;
+
+    BloomBits(long numBits) {
+      if (numBits < 64 || Long.bitCount(numBits) != 1 || numBits > (1L << 36)) {
+        throw new IllegalArgumentException("invalid numBits " + numBits);
+      }
+      this.words = new AtomicLongArray((int) (numBits >>> 6));
+      this.numBits = numBits;
+      this.bitMask = numBits - 1;
+      // fill ratio = 1 - exp(-k * n / m)
+      this.maxEntries = (long) (-Math.log(1 - MAX_FILL_RATIO) * numBits / NUM_HASHES);
+    }
+
+    long getNumBits() {
+      return numBits;
+    }
+
+    long getMaxEntries() {
+      return maxEntries;
+    }
+
+    boolean mightContain(BigInteger serialNumber) {
+      long hash1 = hash(serialNumber);
+      long hash2 = mix(hash1) | 1;
+      for (int i = 0; i < NUM_HASHES; i++) {
+        long bit = (hash1 + i * hash2) & bitMask;
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    } // method mightContain
+
+    void add(BigInteger serialNumber) {
+      long hash1 = hash(serialNumber);
+      long hash2 = mix(hash1) | 1;
+      for (int i = 0; i < NUM_HASHES; i++) {
+        long bit = (hash1 + i * hash2) & bitMask;
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+          word = words.get(index);
+          if ((word & mask) != 0) {
+            break;
+          }
+        } while (!words.compareAndSet(index, word, word | mask));
+      }
+    } // method add
+
+  } // class BloomBits
+
+  static final String KEY_SERIAL_FILTER_SIZE = "serial-filter-size";
+
+  /**
+   * Estimated fill ratio above which the filter is replaced by a larger one. With 7 hashes,
+   * the false positive rate is about 0.8% at this ratio.
+   */
+  static final double MAX_FILL_RATIO = 0.5;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SerialNumberFilter.class);
+
+  private static final int DEFAULT_MAX_SIZE_MIB = 16;
+
+  private static final int NUM_HASHES = 7;
+
+  private static final int BITS_PER_ENTRY = 16;
+
+  private static final int MIN_NUM_BITS = 1 << 16;
+
+  private static final int GROWTH_FACTOR = 4;
+
+  private static final int PAGE_SIZE = 10000;
+
+  private final NameId caIdent;
+
+  private final CertStore certstore;
+
+  private final long maxNumBits;
+
+  private volatile BloomBits bits;
+
+  /**
+   * The larger filter being built, the serial numbers are added to both filters.
+   */
+  private volatile BloomBits nextBits;
+
+  private final AtomicLong numEntries = new AtomicLong();
+
+  private final AtomicBoolean growing = new AtomicBoolean();
+
+  private Executor executor;
+
+  private volatile boolean ready;
+
+  private volatile boolean closed;
+
+  SerialNumberFilter(CaInfo caInfo, CertStore certstore)
+      throws OperationException {
+    this.caIdent = notNull(caInfo, "caInfo").getIdent();
+    this.certstore = notNull(certstore, "certstore");
+
+    ConfPairs extraControl = caInfo.getExtraControl();
+    String str = (extraControl == null) ? null : extraControl.value(KEY_SERIAL_FILTER_SIZE);
+    int maxSizeMib = DEFAULT_MAX_SIZE_MIB;
+    if (str != null) {
+      try {
+        maxSizeMib = Integer.parseInt(str.trim());
+      } catch (NumberFormatException ex) {
+        throw new OperationException(SYSTEM_FAILURE, "invalid " + KEY_SERIAL_FILTER_SIZE + ": " + str);
+      }
+    }
+
+    if (maxSizeMib <= 0) {
+      this.bits = null;
+      this.maxNumBits = 0;
+      LOG.info("CA {}: serial number filter is disabled", caIdent.getName());
+      return;
+    }
+
+    this.maxNumBits = Math.max(MIN_NUM_BITS, Math.min(8L * 1024 * 1024 * maxSizeMib, 1L << 36));
+    long expectedEntries = 2 * Math.max(1, certstore.getCertStatistics(caIdent).getIssued());
+
+    // number of bits is a power of 2
+    long numBits = MIN_NUM_BITS;
+    while (numBits < expectedEntries * BITS_PER_ENTRY && numBits * 2 <= maxNumBits) {
+      numBits <<= 1;
+    }
+
+    this.bits = new BloomBits(numBits);
+    LOG.info("CA {}: serial number filter with {} KiB", caIdent.getName(), numBits >>> 13);
+  } // constructor
+
+  /**
+   * Builds the filter in background.
+   * @param executor the executor to run the build, and the later rebuilds with larger size.
+   */
+  void build(Executor executor) {
+    if (bits == null) {
+      return;
+    }
+
+    this.executor = executor;
+    final BloomBits target = bits;
+    execute(() -> {
+      long start = System.currentTimeMillis();
+      long num;
+      try {
+        num = fill(target);
+      } catch (Throwable th) {
+        LogUtil.error(LOG, th, "CA " + caIdent.getName() + ": could not build serial number filter");
+        return;
+      }
+
+      if (!closed) {
+        numEntries.addAndGet(num);
+        ready = true;
+        LOG.info("CA {}: built serial number filter with {} serial numbers in {} ms",
+            caIdent.getName(), num, System.currentTimeMillis() - start);
+      }
+    }, false);
+  } // method build
+
+  /**
+   * Checks whether the serial number may have been used.
+   * @param serialNumber the serial number.
+   * @return {@code false} if the serial number has not been used by this CA instance,
+   *         {@code true} if it may have been used.
+   */
+  boolean mightContain(BigInteger serialNumber) {
+    if (!ready) {
+      return true;
+    }
+
+    return bits.mightContain(serialNumber);
+  } // method mightContain
+
+  void add(BigInteger serialNumber) {
+    BloomBits current = bits;
+    if (current == null) {
+      return;
+    }
+
+    current.add(serialNumber);
+    BloomBits next = nextBits;
+    if (next != null) {
+      next.add(serialNumber);
+    }
+
+    if (numEntries.incrementAndGet() > current.getMaxEntries() && ready) {
+      grow(current);
+    }
+  } // method add
+
+  void close() {
+    closed = true;
+  }
+
+  private void grow(BloomBits current) {
+    if (current.getNumBits() >= maxNumBits || !growing.compareAndSet(false, true)) {
+      return;
+    }
+
+    final BloomBits larger = new BloomBits(Math.min(maxNumBits, current.getNumBits() * GROWTH_FACTOR));
+    // the serial numbers added from now on are added to the larger filter, and those saved
+    // before are read from the database.
+    nextBits = larger;
+
+    execute(() -> {
+      long start = System.currentTimeMillis();
+      long num;
+      try {
+        num = fill(larger);
+      } catch (Throwable th) {
+        // the current filter remains in use, and will not be replaced any more.
+        nextBits = null;
+        LogUtil.error(LOG, th, "CA " + caIdent.getName() + ": could not rebuild serial number filter");
+        return;
+      }
+
+      if (!closed) {
+        bits = larger;
+        numEntries.set(num);
+        LOG.info("CA {}: rebuilt serial number filter with {} KiB and {} serial numbers in {} ms",
+            caIdent.getName(), larger.getNumBits() >>> 13, num, System.currentTimeMillis() - start);
+      }
+
+      nextBits = null;
+      growing.set(false);
+    }, true);
+  } // method grow
+
+  private long fill(BloomBits target)
+      throws OperationException {
+    long num = 0;
+    long startId = 1;
+    while (!closed) {
+      List<SerialWithId> serials = certstore.getSerialNumbers(caIdent, startId, PAGE_SIZE, false);
+      for (SerialWithId m : serials) {
+        target.add(m.getSerial());
+        startId = Math.max(startId, m.getId() + 1);
+      }
+
+      num += serials.size();
+      if (serials.size() < PAGE_SIZE) {
+        break;
+      }
+    }
+    return num;
+  } // method fill
+
+  private void execute(Runnable task, boolean inBackground) {
+    if (executor != null) {
+      executor.execute(task);
+    } else if (inBackground) {
+      Thread thread = new Thread(task, "serial-filter-" + caIdent.getName());
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      task.run();
+    }
+  } // method execute
+
+  private static long hash(BigInteger serialNumber) {
+    byte[] bytes = serialNumber.toByteArray();
+    long hash = 0x9E3779B97F4A7C15L;
+    for (byte b : bytes) {
+      hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  // finalizer of MurmurHash3
+  private static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+}
@@ -24,6 +24,7 @@ import org.xipki.security.ConcurrentContentSigner;
 import org.xipki.security.SecurityFactory;
 import org.xipki.security.SignerConf;
 import org.xipki.security.X509Cert;
+import org.xipki.util.IoUtil;
 import org.xipki.util.exception.ObjectCreationException;
 
 import static org.xipki.util.Args.notNull;
@@ -103,4 +104,13 @@ public class SignerEntryWrapper {
     return subject;
   }
 
+  /**
+   * Closes the signer, e.g. after it has been replaced.
+   */
+  public void close() {
+    if (signer != null) {
+      IoUtil.closeQuietly(signer);
+    }
+  }
+
 }
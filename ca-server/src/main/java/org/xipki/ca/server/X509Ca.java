@@ -149,6 +149,10 @@ public class X509Ca extends X509CaModule implements Closeable {
 
   private final X509RemoverModule removerModule;
 
+  private final CertSignatureVerifier certVerifier;
+
+  private final SerialNumberFilter serialFilter;
+
   private final boolean saveCert;
 
   private final boolean saveKeypair;
@@ -157,7 +161,7 @@ public class X509Ca extends X509CaModule implements Closeable {
       CtLogClient ctlogClient) throws OperationException {
     super(caInfo);
 
-    if (caInfo.isSignerRequired()) {
+    if (caInfo.isSignerRequired() && !caInfo.isSignerInitDeferred()) {
       try {
         caInfo.initSigner(caManager.getSecurityFactory());
       } catch (XiSecurityException ex) {
@@ -176,6 +180,11 @@ public class X509Ca extends X509CaModule implements Closeable {
     this.grandCertTemplateBuilder = new GrandCertTemplateBuilder(caInfo, certstore);
     this.revokerModule = new X509RevokerModule(caManager, caInfo, certstore, publisherModule);
     this.removerModule = new X509RemoverModule(caManager, caInfo, certstore, publisherModule);
+    try {
+      this.certVerifier = new CertSignatureVerifier(caInfo);
+    } catch (IllegalArgumentException ex) {
+      throw new OperationException(SYSTEM_FAILURE, ex);
+    }
     this.saveKeypair = caInfo.isSaveKeypair();
     this.saveCert = caInfo.isSaveCert();
     if (!this.saveCert) {
@@ -183,6 +192,9 @@ public class X509Ca extends X509CaModule implements Closeable {
           caInfo.getIdent().getName());
     }
 
+    this.serialFilter = new SerialNumberFilter(caInfo, certstore);
+    this.serialFilter.build(caManager.getScheduledThreadPoolExecutor());
+
     if (!this.saveCert) {
       if (caInfo.isSaveRequest()) {
         // Request cannot be saved if SAVE_CERT (in EXTRA_CONTROL) is set to false.
@@ -251,7 +263,7 @@ public class X509Ca extends X509CaModule implements Closeable {
     AuditEvent event = newPerfAuditEvent(crlNumber == null ? TYPE_download_crl : TYPE_downlaod_crl4number);
     boolean succ = false;
     try {
-      X509CRLHolder ret = crlModule.getCrl(crlNumber, event);
+      X509CRLHolder ret = crlModule.getCrl(crlNumber, 0, event);
       succ = true;
       return ret;
     } finally {
@@ -260,7 +272,11 @@ public class X509Ca extends X509CaModule implements Closeable {
   } // method getCrl
 
   public X509CRLHolder getCrl(BigInteger crlNumber, AuditEvent event) throws OperationException {
-    return crlModule.getCrl(crlNumber, event);
+    return crlModule.getCrl(crlNumber, 0, event);
+  }
+
+  public X509CRLHolder getCrl(BigInteger crlNumber, int crlScope, AuditEvent event) throws OperationException {
+    return crlModule.getCrl(crlNumber, crlScope, event);
   } // method getCrl
 
   public X509CRLHolder generateCrlOnDemand() throws OperationException {
@@ -308,6 +324,24 @@ public class X509Ca extends X509CaModule implements Closeable {
     return revokerModule.revokeCert(serialNumber, reason, invalidityTime, event);
   }
 
+  public int revokeCerts(BulkRevocationFilter filter, CrlReason reason, Date invalidityTime, boolean generateCrl)
+      throws OperationException {
+    AuditEvent event = newAuditEvent(CaAuditConstants.TYPE_revoke_certs);
+    boolean succ = false;
+    int num;
+    try {
+      num = revokerModule.revokeCerts(filter, reason, invalidityTime, event);
+      succ = true;
+    } finally {
+      finish(event, succ);
+    }
+
+    if (generateCrl && num > 0) {
+      crlModule.generateCrlOnDemand(true);
+    }
+    return num;
+  } // method revokeCerts
+
   public CertWithDbId unsuspendCert(BigInteger serialNumber)
       throws OperationException {
     AuditEvent event = newAuditEvent(CaAuditConstants.TYPE_unsuspend_cert);
@@ -449,7 +483,7 @@ public class X509Ca extends X509CaModule implements Closeable {
         // check number of certificate
         long maxNumOfCerts = license.getMaxNumberOfCerts();
         if (maxNumOfCerts >= 0) {
-          long numOfCerts = certstore.getCountOfCerts(0);
+          long numOfCerts = certstore.getNumberOfCerts(maxNumOfCerts);
           if (numOfCerts >= maxNumOfCerts) {
             LOG.error("Maximal {} certificates is allowed, {} already issued, need new license",
                 maxNumOfCerts, numOfCerts);
@@ -557,6 +591,10 @@ public class X509Ca extends X509CaModule implements Closeable {
     while (true) {
       if (StringUtil.isBlank(serialNumberMode) || "CA".equalsIgnoreCase(serialNumberMode)) {
         serialNumber = caInfo.nextSerial();
+        // the database is only queried if the serial number may have been used
+        if (!serialFilter.mightContain(serialNumber)) {
+          break;
+        }
       } else if ("PROFILE".equalsIgnoreCase(serialNumberMode)) {
         try {
           BigInteger previousSerialNumber = serialNumber;
@@ -600,10 +638,13 @@ public class X509Ca extends X509CaModule implements Closeable {
       ExtensionValues extensionTuples = certprofile.getExtensions(gct.requestedSubject,
           gct.grantedSubject, gct.extensions, gct.grantedPublicKey, caInfo.getPublicCaInfo(),
           crlSignerCert, gct.grantedNotBefore, gct.grantedNotAfter);
+      int crlScope = crlModule.getCrlScope(serialNumber);
+      crlModule.applyCrlScope(extensionTuples, crlScope);
       if (extensionTuples != null) {
         for (ASN1ObjectIdentifier extensionType : extensionTuples.getExtensionTypes()) {
           ExtensionValue extValue = extensionTuples.getExtensionValue(extensionType);
-          certBuilder.addExtension(extensionType, extValue.isCritical(), extValue.getValue());
+          // use the cached DER encoding, constant extensions are encoded only once per CA and profile.
+          certBuilder.addExtension(new Extension(extensionType, extValue.isCritical(), extValue.getEncoded()));
         }
       }
 
@@ -674,7 +715,7 @@ public class X509Ca extends X509CaModule implements Closeable {
 
       X509Cert cert = new X509Cert(bcCert, encodedCert);
       event.addEventData(CaAuditConstants.NAME_serial, LogUtil.formatCsn(cert.getSerialNumber()));
-      if (!verifySignature(cert)) {
+      if (!certVerifier.verify(cert, caCert)) {
         throw new OperationException(SYSTEM_FAILURE, "could not verify the signature of generated certificate");
       }
 
@@ -683,10 +724,12 @@ public class X509Ca extends X509CaModule implements Closeable {
               gct.certprofile.getIdent(), requestor.getIdent());
       ret.setTransactionId(transactionId);
       ret.setRequestedSubject(gct.requestedSubject);
+      ret.setCrlScope(crlScope);
 
       if (saveCert && publisherModule.publishCert(ret, saveKeypair) == 1) {
         throw new OperationException(SYSTEM_FAILURE, "could not save certificate");
       }
+      serialFilter.add(cert.getSerialNumber());
     } catch (BadCertTemplateException ex) {
       throw new OperationException(BAD_CERT_TEMPLATE, ex);
     } catch (OperationException ex) {
@@ -733,11 +776,20 @@ public class X509Ca extends X509CaModule implements Closeable {
     return null;
   }
 
+  /**
+   * Returns whether the CA is ready to sign: the signer is initialized or not required.
+   * @return whether the CA is ready to sign.
+   */
+  public boolean isReady() {
+    return !caInfo.isSignerRequired() || caInfo.isSignerInitialized();
+  }
+
   public boolean healthy() {
+    // initializes the signer if deferred, and not failed recently
     ConcurrentContentSigner signer = caInfo.getSigner(null);
 
-    boolean healthy = true;
-    if (signer != null) {
+    boolean healthy = isReady();
+    if (healthy && signer != null) {
       healthy = signer.isHealthy();
     }
 
@@ -756,10 +808,22 @@ public class X509Ca extends X509CaModule implements Closeable {
     return caInfo.getHexSha1OfCert();
   }
 
+  public long getNumVerifiedCertSignatures() {
+    return certVerifier.getNumVerified();
+  }
+
+  public long getNumInvalidCertSignatures() {
+    return certVerifier.getNumFailed();
+  }
+
   @Override
   public void close() {
+    serialFilter.close();
     crlModule.close();
     revokerModule.close();
+    if (ctlogClient != null) {
+      ctlogClient.close();
+    }
 
     ScheduledThreadPoolExecutor executor = caManager.getScheduledThreadPoolExecutor();
     if (executor != null) {
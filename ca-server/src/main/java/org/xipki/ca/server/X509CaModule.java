@@ -24,7 +24,6 @@ import org.xipki.ca.api.NameId;
 import org.xipki.ca.sdk.CaAuditConstants;
 import org.xipki.security.X509Cert;
 
-import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -104,16 +103,4 @@ public abstract class X509CaModule {
     auditService().logEvent(event);
   }
 
-  protected boolean verifySignature(X509Cert cert) {
-    notNull(cert, "cert");
-    PublicKey caPublicKey = caCert.getPublicKey();
-    try {
-      cert.verify(caPublicKey);
-      return true;
-    } catch (Exception ex) {
-      LOG.debug("{} while verifying signature: {}", ex.getClass().getName(), ex.getMessage());
-      return false;
-    }
-  } // method verifySignature
-
 }
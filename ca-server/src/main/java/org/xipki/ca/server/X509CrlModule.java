@@ -19,6 +19,7 @@ package org.xipki.ca.server;
 
 import org.bouncycastle.asn1.ASN1GeneralizedTime;
 import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.DERGeneralizedTime;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.*;
@@ -28,6 +29,8 @@ import org.bouncycastle.cert.X509v2CRLBuilder;
 import org.xipki.audit.AuditEvent;
 import org.xipki.ca.api.PublicCaInfo;
 import org.xipki.ca.api.mgmt.CrlControl;
+import org.xipki.ca.api.profile.ExtensionValue;
+import org.xipki.ca.api.profile.ExtensionValues;
 import org.xipki.ca.server.db.CertStore;
 import org.xipki.ca.server.mgmt.CaManagerImpl;
 import org.xipki.security.KeyUsage;
@@ -44,10 +47,17 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.cert.CRLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.xipki.ca.sdk.CaAuditConstants.*;
 import static org.xipki.util.Args.notNull;
@@ -56,6 +66,13 @@ import static org.xipki.util.exception.ErrorCode.*;
 /**
  * X509CA CRL module.
  *
+ * <p>If the CRL control specifies more than one partition, the CRL is partitioned: a certificate
+ * is assigned to a partition derived from its serial number, its CRLDistributionPoints and
+ * FreshestCRL point to the CRL of this partition, and the full and delta CRLs of each partition,
+ * with an IssuingDistributionPoint naming the partition, are generated in parallel. The partition
+ * is saved in the column CRL_SCOPE of the tables CERT and CRL; the CRL of partition 0 is the complete
+ * CRL covering all certificates, including those issued before the partitioning.
+ *
  * @author Lijun Liao
  */
 
@@ -86,10 +103,27 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     } // method run
 
     private void run0() throws OperationException {
+      Date now = new Date();
+      List<Callable<X509CRLHolder>> tasks = new ArrayList<>();
+      for (int crlScope : getCrlScopes()) {
+        Callable<X509CRLHolder> task = getScheduledCrlTask(crlScope, now);
+        if (task != null) {
+          tasks.add(task);
+        }
+      }
+
+      if (tasks.isEmpty()) {
+        LOG.debug("No CRL is needed to be created");
+        return;
+      }
+
+      generateCrls(tasks);
+    } // method run0
+
+    private Callable<X509CRLHolder> getScheduledCrlTask(int crlScope, Date now) throws OperationException {
       CrlControl control = caInfo.getCrlControl();
       // In seconds
-      long lastIssueTimeOfFullCrl = certstore.getThisUpdateOfCurrentCrl(caIdent, false);
-      Date now = new Date();
+      long lastIssueTimeOfFullCrl = certstore.getThisUpdateOfCurrentCrl(caIdent, false, crlScope);
 
       boolean createFullCrlNow = false;
       if (lastIssueTimeOfFullCrl == 0L) {
@@ -111,7 +145,7 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       if (control.getDeltaCrlIntervals() > 0 && !createFullCrlNow) {
         // if no CRL will be issued, check whether it is time to generate DeltaCRL
         // In seconds
-        long lastIssueTimeOfDeltaCrl = certstore.getThisUpdateOfCurrentCrl(caIdent, true);
+        long lastIssueTimeOfDeltaCrl = certstore.getThisUpdateOfCurrentCrl(caIdent, true, crlScope);
         long lastIssueTime = Math.max(lastIssueTimeOfDeltaCrl, lastIssueTimeOfFullCrl);
 
         Date nearestScheduledCrlIssueTime = getScheduledCrlGenTimeNotAfter(
@@ -126,8 +160,7 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       }
 
       if (!(createFullCrlNow || createDeltaCrlNow)) {
-        LOG.debug("No CRL is needed to be created");
-        return;
+        return null;
       }
 
       int intervals;
@@ -145,14 +178,10 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       Date nextUpdate = new Date(scheduledCrlGenTime.getTime()
                         + intervals * control.getIntervalMillis());
       // add overlap
-      nextUpdate = control.getOverlap().add(nextUpdate);
-
-      try {
-        generateCrl(createDeltaCrlNow, now, nextUpdate);
-      } catch (Throwable th) {
-        LogUtil.error(LOG, th);
-      }
-    } // method run0
+      final Date nextUpdate0 = control.getOverlap().add(nextUpdate);
+      final boolean deltaCrl = createDeltaCrlNow;
+      return () -> generateCrl(deltaCrl, now, nextUpdate0, crlScope);
+    } // method getScheduledCrlTask
 
   } // class CrlGenerationService
 
@@ -168,6 +197,14 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
   private final X509PublisherModule publisher;
 
+  // CRLDistributionPoints and FreshestCRL of the certificates per CRL partition, index is the partition.
+  private final CRLDistPoint[] partitionCrlDps;
+
+  private final CRLDistPoint[] partitionDeltaCrlDps;
+
+  // generates the CRLs of the partitions in parallel, null if the CRL is not partitioned.
+  private final ExecutorService crlGenExecutor;
+
   public X509CrlModule(CaManagerImpl caManager, CaInfo caInfo, CertStore certstore, X509PublisherModule publisher)
       throws OperationException {
     super(caInfo);
@@ -177,7 +214,11 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     this.caCert = caInfo.getCert();
     this.certstore = notNull(certstore, "certstore");
 
-    if (caInfo.getCrlControl() != null) {
+    CRLDistPoint[] crlDps = null;
+    CRLDistPoint[] deltaCrlDps = null;
+
+    CrlControl crlControl = caInfo.getCrlControl();
+    if (crlControl != null) {
       X509Cert crlSignerCert;
       if (caInfo.getCrlSignerName() != null) {
         crlSignerCert = getCrlSigner().getDbEntry().getCertificate();
@@ -191,6 +232,57 @@ public class X509CrlModule extends X509CaModule implements Closeable {
         LOG.error(msg);
         throw new OperationException(SYSTEM_FAILURE, msg);
       }
+
+      if (crlControl.getDeltaCrlIntervals() > 0 && !certstore.isCrlChangelogSupported()) {
+        throw new OperationException(SYSTEM_FAILURE,
+            "delta CRL requires the table CRL_CHANGELOG, please apply sql/ca-crl-changelog.xml");
+      }
+
+      int partitions = crlControl.getPartitions();
+      if (partitions > 1) {
+        PublicCaInfo pci = caInfo.getPublicCaInfo();
+        List<String> crlUris = pci.getCaUris().getCrlUris();
+        List<String> deltaCrlUris = pci.getCaUris().getDeltaCrlUris();
+        if (CollectionUtil.isEmpty(crlUris)) {
+          LOG.warn("CA {}: CRL is partitioned, but no CRL URIs are configured", caIdent.getName());
+        }
+
+        X500Name crlSignerSubject = crlSignerCert.getSubject();
+        crlDps = new CRLDistPoint[partitions + 1];
+        deltaCrlDps = new CRLDistPoint[partitions + 1];
+        for (int i = 1; i <= partitions; i++) {
+          if (CollectionUtil.isNotEmpty(crlUris)) {
+            crlDps[i] = CaUtil.createCrlDistributionPoints(
+                CaUtil.getPartitionUris(crlUris, i), pci.getSubject(), crlSignerSubject);
+          }
+
+          if (CollectionUtil.isNotEmpty(deltaCrlUris)) {
+            deltaCrlDps[i] = CaUtil.createCrlDistributionPoints(
+                CaUtil.getPartitionUris(deltaCrlUris, i), pci.getSubject(), crlSignerSubject);
+          }
+        }
+        LOG.info("CA {}: CRL is partitioned into {} partitions", caIdent.getName(), partitions);
+      }
+    }
+
+    this.partitionCrlDps = crlDps;
+    this.partitionDeltaCrlDps = deltaCrlDps;
+
+    if (crlDps == null) {
+      this.crlGenExecutor = null;
+    } else {
+      int numThreads = Math.min(crlDps.length, Runtime.getRuntime().availableProcessors());
+      final String threadName = "crlgen-" + caIdent.getName() + "-";
+      final AtomicInteger threadNo = new AtomicInteger();
+      ThreadPoolExecutor crlGenExecutor = new ThreadPoolExecutor(numThreads, numThreads,
+          60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, threadName + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      // the CRLs are generated rarely, do not keep the threads in between.
+      crlGenExecutor.allowCoreThreadTimeOut(true);
+      this.crlGenExecutor = crlGenExecutor;
     }
 
     if (!caManager.isMasterMode()) {
@@ -210,14 +302,26 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       crlGenerationService.cancel(false);
       crlGenerationService = null;
     }
+
+    if (crlGenExecutor != null) {
+      crlGenExecutor.shutdownNow();
+    }
   }
 
   public X509CRLHolder getCurrentCrl(AuditEvent event) throws OperationException {
-    return getCrl(null, event);
+    return getCrl(null, 0, event);
   }
 
-  public X509CRLHolder getCrl(BigInteger crlNumber, AuditEvent event) throws OperationException {
-    LOG.info("     START getCrl: ca={}, crlNumber={}", caIdent.getName(), crlNumber);
+  /**
+   * Returns the CRL.
+   * @param crlNumber the CRL number, or {@code null} for the current CRL.
+   * @param crlScope the CRL partition, only used if crlNumber is {@code null}.
+   * @param event the audit event.
+   * @return the CRL, or {@code null} if not available.
+   * @throws OperationException if error occurs.
+   */
+  public X509CRLHolder getCrl(BigInteger crlNumber, int crlScope, AuditEvent event) throws OperationException {
+    LOG.info("     START getCrl: ca={}, crlNumber={}, partition={}", caIdent.getName(), crlNumber, crlScope);
     boolean successful = false;
 
     if (crlNumber != null) {
@@ -225,7 +329,7 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
 
     try {
-      byte[] encodedCrl = certstore.getEncodedCrl(caIdent, crlNumber);
+      byte[] encodedCrl = certstore.getEncodedCrl(caIdent, crlNumber, crlScope);
       if (encodedCrl == null) {
         return null;
       }
@@ -262,7 +366,7 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
 
     try {
-      byte[] encodedCrl = certstore.getEncodedCrl(caIdent, crlNumber);
+      byte[] encodedCrl = certstore.getEncodedCrl(caIdent, crlNumber, 0);
       if (encodedCrl == null) {
         return null;
       }
@@ -285,16 +389,16 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
   } // method getCrl
 
-  private void cleanupCrlsWithoutException() {
+  private void cleanupCrlsWithoutException(int crlScope) {
     try {
       int numCrls = caInfo.getNumCrls();
-      LOG.info("     START cleanupCrls: ca={}, numCrls={}", caIdent.getName(), numCrls);
+      LOG.info("     START cleanupCrls: ca={}, numCrls={}, partition={}", caIdent.getName(), numCrls, crlScope);
 
       boolean succ = false;
       AuditEvent event0 = newPerfAuditEvent(TYPE_cleanup_crl);
 
       try {
-        int num = (numCrls <= 0) ? 0 : certstore.cleanupCrls(caIdent, caInfo.getNumCrls());
+        int num = (numCrls <= 0) ? 0 : certstore.cleanupCrls(caIdent, numCrls, crlScope);
         succ = true;
         event0.addEventData(NAME_num, num);
         LOG.info("SUCCESSFUL cleanupCrls: ca={}, num={}", caIdent.getName(), num);
@@ -311,7 +415,42 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
   }
 
+  /**
+   * Removes the changes which are older than the current full CRLs of all partitions from the CRL
+   * changelog, they are no longer needed to generate the delta CRLs.
+   */
+  private void compactCrlChangelogWithoutException() {
+    try {
+      long minThisUpdate = Long.MAX_VALUE;
+      for (int crlScope : getCrlScopes()) {
+        long thisUpdate = certstore.getThisUpdateOfCurrentCrl(caIdent, false, crlScope);
+        if (thisUpdate <= 0) {
+          // no full CRL of this partition yet
+          return;
+        }
+        minThisUpdate = Math.min(minThisUpdate, thisUpdate);
+      }
+
+      // -1: keep all changes with LUPDATE >= CRL.thisUpdate - 1, see CertStore.getCertsForDeltaCrl
+      int num = certstore.compactCrlChangelog(caIdent, minThisUpdate - 1);
+      LOG.info("compacted CRL changelog: ca={}, num={}", caIdent.getName(), num);
+    } catch (Throwable th) {
+      LOG.warn("could not compact CRL changelog.{}: {}", th.getClass().getName(), th.getMessage());
+    }
+  } // method compactCrlChangelogWithoutException
+
   public X509CRLHolder generateCrlOnDemand() throws OperationException {
+    return generateCrlOnDemand(false);
+  }
+
+  /**
+   * Generates the CRLs of all partitions on demand.
+   * @param deltaCrl whether to generate delta CRLs. If delta CRL is not configured, or if no
+   *        full CRL is available, full CRLs are generated.
+   * @return the CRL of the partition 0.
+   * @throws OperationException if error occurs.
+   */
+  public X509CRLHolder generateCrlOnDemand(boolean deltaCrl) throws OperationException {
     CrlControl control = caInfo.getCrlControl();
     if (control == null) {
       throw new OperationException(NOT_PERMITTED, "CA could not generate CRL");
@@ -325,9 +464,10 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     try {
       Date thisUpdate = new Date();
       Date nearestScheduledIssueTime = getScheduledCrlGenTimeNotAfter(thisUpdate);
+      boolean withDeltaCrl = deltaCrl && control.getDeltaCrlIntervals() > 0;
 
       int intervals;
-      if (!control.isExtendedNextUpdate() && control.getDeltaCrlIntervals() > 0) {
+      if (withDeltaCrl || (!control.isExtendedNextUpdate() && control.getDeltaCrlIntervals() > 0)) {
         intervals = control.getDeltaCrlIntervals();
       } else {
         intervals = control.getFullCrlIntervals();
@@ -335,20 +475,76 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
       Date nextUpdate = new Date(nearestScheduledIssueTime.getTime() + intervals * control.getIntervalMillis());
       // add overlap
-      nextUpdate = control.getOverlap().add(nextUpdate);
+      final Date nextUpdate0 = control.getOverlap().add(nextUpdate);
 
-      return generateCrl(false, thisUpdate, nextUpdate);
+      List<Callable<X509CRLHolder>> tasks = new ArrayList<>();
+      for (int crlScope : getCrlScopes()) {
+        final boolean delta = withDeltaCrl && caInfo.getMaxFullCrlNumber(crlScope) != null;
+        tasks.add(() -> generateCrl(delta, thisUpdate, nextUpdate0, crlScope));
+      }
+
+      // the first one is the CRL of partition 0.
+      return generateCrls(tasks).get(0);
     } finally {
       crlGenInProcess.set(false);
     }
   } // method generateCrlOnDemand
 
-  private X509CRLHolder generateCrl(boolean deltaCrl, Date thisUpdate, Date nextUpdate)
+  /**
+   * Generates the CRLs, in parallel if more than one CRL is to be generated.
+   * @param tasks the tasks to generate the CRLs.
+   * @return the generated CRLs, in the order of the tasks.
+   * @throws OperationException if any of the CRLs could not be generated.
+   */
+  private List<X509CRLHolder> generateCrls(List<Callable<X509CRLHolder>> tasks)
+      throws OperationException {
+    if (tasks.size() == 1 || crlGenExecutor == null) {
+      List<X509CRLHolder> crls = new ArrayList<>(tasks.size());
+      try {
+        for (Callable<X509CRLHolder> task : tasks) {
+          crls.add(task.call());
+        }
+        return crls;
+      } catch (OperationException ex) {
+        throw ex;
+      } catch (Exception ex) {
+        throw new OperationException(CRL_FAILURE, ex);
+      }
+    }
+
+    try {
+      List<Future<X509CRLHolder>> futures = crlGenExecutor.invokeAll(tasks);
+      List<X509CRLHolder> crls = new ArrayList<>(futures.size());
+      OperationException firstException = null;
+      for (Future<X509CRLHolder> future : futures) {
+        try {
+          crls.add(future.get());
+        } catch (ExecutionException ex) {
+          Throwable cause = ex.getCause();
+          LogUtil.error(LOG, cause, "could not generate CRL for CA " + caIdent.getName());
+          if (firstException == null) {
+            firstException = (cause instanceof OperationException)
+                ? (OperationException) cause : new OperationException(CRL_FAILURE, cause);
+          }
+        }
+      }
+
+      if (firstException != null) {
+        throw firstException;
+      }
+      return crls;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationException(SYSTEM_FAILURE, "interrupted while generating CRLs");
+    }
+  } // method generateCrls
+
+  private X509CRLHolder generateCrl(boolean deltaCrl, Date thisUpdate, Date nextUpdate, int crlScope)
       throws OperationException {
     boolean successful = false;
     AuditEvent event = newPerfAuditEvent(TYPE_gen_crl);
     try {
-      X509CRLHolder crl = generateCrl0(deltaCrl, thisUpdate, nextUpdate, event);
+      X509CRLHolder crl = generateCrl0(deltaCrl, thisUpdate, nextUpdate, crlScope, event);
       successful = true;
       return crl;
     } finally {
@@ -356,7 +552,8 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
   }
 
-  private X509CRLHolder generateCrl0(boolean deltaCrl, Date thisUpdate, Date nextUpdate, AuditEvent event)
+  private X509CRLHolder generateCrl0(
+      boolean deltaCrl, Date thisUpdate, Date nextUpdate, int crlScope, AuditEvent event)
       throws OperationException {
     CrlControl control = caInfo.getCrlControl();
     if (control == null) {
@@ -365,15 +562,15 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
     BigInteger baseCrlNumber = null;
     if (deltaCrl) {
-      baseCrlNumber = caInfo.getMaxFullCrlNumber();
+      baseCrlNumber = caInfo.getMaxFullCrlNumber(crlScope);
       if (baseCrlNumber == null) {
         throw new OperationException(SYSTEM_FAILURE,
             "Should not happen. No FullCRL is available while generating DeltaCRL");
       }
     }
 
-    LOG.info("     START generateCrl: ca={}, deltaCRL={}, nextUpdate={}, baseCRLNumber={}",
-        caIdent.getName(), deltaCrl, nextUpdate, deltaCrl ? baseCrlNumber : "-");
+    LOG.info("     START generateCrl: ca={}, partition={}, deltaCRL={}, nextUpdate={}, baseCRLNumber={}",
+        caIdent.getName(), crlScope, deltaCrl, nextUpdate, deltaCrl ? baseCrlNumber : "-");
     event.addEventData(NAME_crl_type, (deltaCrl ? "DELTA_CRL" : "FULL_CRL"));
 
     if (nextUpdate == null) {
@@ -409,17 +606,20 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       // 10 minutes buffer
       Date notExpiredAt = withExpiredCerts ? new Date(0) : new Date(thisUpdate.getTime() - 600L * MS_PER_SECOND);
 
+      // the CRL of partition 0, as well as the non-partitioned CRL, covers all certificates.
+      Integer scopeFilter = (crlControl.getPartitions() > 1 && crlScope > 0) ? crlScope : null;
+
       // we have to cache the serial entries to sort them
       List<CertRevInfoWithSerial> allRevInfos = new LinkedList<>();
 
       if (deltaCrl) {
-        allRevInfos = certstore.getCertsForDeltaCrl(caIdent, baseCrlNumber, notExpiredAt);
+        allRevInfos = certstore.getCertsForDeltaCrl(caIdent, baseCrlNumber, notExpiredAt, scopeFilter);
       } else {
         long startId = 1;
 
         List<CertRevInfoWithSerial> revInfos;
         do {
-          revInfos = certstore.getRevokedCerts(caIdent, notExpiredAt, startId, numEntries);
+          revInfos = certstore.getRevokedCerts(caIdent, notExpiredAt, startId, numEntries, scopeFilter);
           allRevInfos.addAll(revInfos);
 
           long maxId = 1;
@@ -519,13 +719,18 @@ public class X509CrlModule extends X509CaModule implements Closeable {
         crlBuilder.addExtension(Extension.cRLNumber, false, new ASN1Integer(crlNumber));
 
         // IssuingDistributionPoint
-        if (indirectCrl) {
+        DistributionPointName idpName = null;
+        if (crlScope > 0 && partitionCrlDps[crlScope] != null) {
+          idpName = partitionCrlDps[crlScope].getDistributionPoints()[0].getDistributionPoint();
+        }
+
+        if (indirectCrl || idpName != null) {
           IssuingDistributionPoint idp = new IssuingDistributionPoint(
-              null, // distributionPoint,
+              idpName, // distributionPoint,
               false, // onlyContainsUserCerts,
               false, // onlyContainsCACerts,
               null, // onlySomeReasons,
-              true, // indirectCRL,
+              indirectCrl, // indirectCRL,
               false); // onlyContainsAttributeCerts
 
           crlBuilder.addExtension(Extension.issuingDistributionPoint, true, idp);
@@ -538,6 +743,9 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
         // freshestCRL
         List<String> deltaCrlUris = pci.getCaUris().getDeltaCrlUris();
+        if (crlScope > 0) {
+          deltaCrlUris = CaUtil.getPartitionUris(deltaCrlUris, crlScope);
+        }
         if (control.getDeltaCrlIntervals() > 0 && CollectionUtil.isNotEmpty(deltaCrlUris)) {
           CRLDistPoint cdp = CaUtil.createCrlDistributionPoints(deltaCrlUris, pci.getSubject(), crlIssuer);
           crlBuilder.addExtension(Extension.freshestCRL, false, cdp);
@@ -555,6 +763,9 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       @SuppressWarnings("resource")
       ConcurrentContentSigner concurrentSigner = (crlSigner == null)
           ? caInfo.getSigner(null) : crlSigner.getSigner();
+      if (concurrentSigner == null) {
+        throw new OperationException(SYSTEM_FAILURE, "CRL signer is not available");
+      }
 
       ConcurrentBagEntrySigner signer0;
       try {
@@ -570,22 +781,23 @@ public class X509CrlModule extends X509CaModule implements Closeable {
         concurrentSigner.requiteSigner(signer0);
       }
 
-      caInfo.setNextCrlNumber(crlNumber.longValue() + 1);
+      // caInfo.nextCrlNumber() has already increased the next CRL number
       caManager.commitNextCrlNo(caIdent, caInfo.getNextCrlNumber());
-      publisher.publishCrl(crl);
+      publisher.publishCrl(crl, crlScope);
 
       successful = true;
-      LOG.info("SUCCESSFUL generateCrl: ca={}, crlNumber={}, thisUpdate={}", caIdent.getName(),
-          crlNumber, crl.getThisUpdate());
+      LOG.info("SUCCESSFUL generateCrl: ca={}, partition={}, crlNumber={}, thisUpdate={}", caIdent.getName(),
+          crlScope, crlNumber, crl.getThisUpdate());
 
       if (!deltaCrl) {
         // clean up the CRL
-        cleanupCrlsWithoutException();
+        cleanupCrlsWithoutException(crlScope);
+        compactCrlChangelogWithoutException();
       }
       return crl;
     } finally {
       if (!successful) {
-        LOG.info("    FAILED generateCrl: ca={}", caIdent.getName());
+        LOG.info("    FAILED generateCrl: ca={}, partition={}", caIdent.getName(), crlScope);
       }
     }
   } // method generateCrl
@@ -624,6 +836,56 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
   }
 
+  private List<Integer> getCrlScopes() {
+    CrlControl control = caInfo.getCrlControl();
+    int partitions = (control == null) ? 1 : control.getPartitions();
+    if (partitions < 2) {
+      return Collections.singletonList(0);
+    }
+
+    // partition 0 covers the certificates issued before the partitioning.
+    List<Integer> scopes = new ArrayList<>(partitions + 1);
+    for (int i = 0; i <= partitions; i++) {
+      scopes.add(i);
+    }
+    return scopes;
+  } // method getCrlScopes
+
+  /**
+   * Returns the CRL partition of the certificate to be issued.
+   * @param serialNumber the serial number of the certificate.
+   * @return the CRL partition, 0 if the CRL is not partitioned.
+   */
+  int getCrlScope(BigInteger serialNumber) {
+    CrlControl control = caInfo.getCrlControl();
+    return (control == null || partitionCrlDps == null) ? 0 : control.getPartition(serialNumber);
+  }
+
+  /**
+   * Replaces the extensions CRLDistributionPoints and FreshestCRL, if present, by those
+   * pointing to the CRL partition.
+   * @param extensions the extensions of the certificate to be issued.
+   * @param crlScope the CRL partition of the certificate.
+   */
+  void applyCrlScope(ExtensionValues extensions, int crlScope) {
+    if (crlScope == 0 || extensions == null) {
+      return;
+    }
+
+    replaceExtension(extensions, Extension.cRLDistributionPoints, partitionCrlDps[crlScope]);
+    replaceExtension(extensions, Extension.freshestCRL, partitionDeltaCrlDps[crlScope]);
+  } // method applyCrlScope
+
+  private static void replaceExtension(ExtensionValues extensions, ASN1ObjectIdentifier type, CRLDistPoint value) {
+    ExtensionValue extValue = extensions.getExtensionValue(type);
+    if (extValue == null || value == null) {
+      return;
+    }
+
+    extensions.removeExtensionTuple(type);
+    extensions.addExtension(type, new ExtensionValue(extValue.isCritical(), value));
+  }
+
   SignerEntryWrapper getCrlSigner() {
     if (caInfo.getCrlControl() == null) {
       return null;
@@ -33,7 +33,11 @@ import org.xipki.util.LogUtil;
 import org.xipki.util.exception.OperationException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.xipki.util.Args.notNull;
 
@@ -260,9 +264,9 @@ class X509PublisherModule extends X509CaModule {
     return true;
   } // method publishCertsInQueue
 
-  void publishCrl(X509CRLHolder crl) {
+  void publishCrl(X509CRLHolder crl, int crlScope) {
     try {
-      certstore.addCrl(caIdent, crl);
+      certstore.addCrl(caIdent, crl, crlScope);
     } catch (Exception ex) {
       LOG.error("could not add CRL ca={}, thisUpdate={}: {}, ",
           caIdent.getName(), crl.getThisUpdate(), ex.getMessage());
@@ -306,6 +310,38 @@ class X509PublisherModule extends X509CaModule {
     return successful;
   }
 
+  /**
+   * Publishes the remove of the certificates.
+   * @param certsToRemove the certificates to be removed.
+   * @return the certificates whose remove could not be published to at least one publisher.
+   */
+  Set<Long> publishCertsRemoved(List<CertWithDbId> certsToRemove) {
+    Set<Long> failedCertIds = new HashSet<>();
+    if (CollectionUtil.isEmpty(certsToRemove)) {
+      return failedCertIds;
+    }
+
+    for (IdentifiedCertPublisher publisher : publishers()) {
+      List<CertWithDbId> failedCerts;
+      try {
+        failedCerts = publisher.certificatesRemoved(caCert, certsToRemove);
+      } catch (RuntimeException ex) {
+        failedCerts = certsToRemove;
+        LogUtil.warn(LOG, ex, "could not remove certificates from the publisher " + publisher.getIdent());
+      }
+
+      if (!failedCerts.isEmpty()) {
+        LOG.error("removing {} certificates of issuer='{}' from publisher {} failed",
+            failedCerts.size(), caCert.getSubjectText(), publisher.getIdent());
+        for (CertWithDbId cert : failedCerts) {
+          failedCertIds.add(cert.getCertId());
+        }
+      }
+    } // end for
+
+    return failedCertIds;
+  } // method publishCertsRemoved
+
   void publishCertRevoked(CertWithRevocationInfo revokedCert) {
     for (IdentifiedCertPublisher publisher : publishers()) {
       boolean successful;
@@ -331,6 +367,45 @@ class X509PublisherModule extends X509CaModule {
     } // end for
   }
 
+  /**
+   * Publishes the revocation of the certificates, which have been revoked with the same
+   * revocation information, in batches of the same certprofile.
+   * @param revokedCerts the revoked certificates.
+   */
+  void publishCertsRevoked(List<CertWithRevocationInfo> revokedCerts) {
+    if (CollectionUtil.isEmpty(revokedCerts)) {
+      return;
+    }
+
+    CertRevocationInfo revInfo = revokedCerts.get(0).getRevInfo();
+    Map<String, List<CertWithDbId>> certsByProfile = new HashMap<>();
+    for (CertWithRevocationInfo revokedCert : revokedCerts) {
+      certsByProfile.computeIfAbsent(revokedCert.getCertprofile(), k -> new ArrayList<>())
+          .add(revokedCert.getCert());
+    }
+
+    for (IdentifiedCertPublisher publisher : publishers()) {
+      for (Map.Entry<String, List<CertWithDbId>> entry : certsByProfile.entrySet()) {
+        List<CertWithDbId> failedCerts;
+        try {
+          failedCerts = publisher.certificatesRevoked(caCert, entry.getValue(), entry.getKey(), revInfo);
+        } catch (RuntimeException ex) {
+          failedCerts = entry.getValue();
+          LogUtil.error(LOG, ex, "could not publish revocation of certificates to the publisher "
+              + publisher.getIdent());
+        }
+
+        for (CertWithDbId failedCert : failedCerts) {
+          try {
+            certstore.addToPublishQueue(publisher.getIdent(), failedCert.getCertId(), caIdent);
+          } catch (Throwable th) {
+            LogUtil.error(LOG, th, "could not add entry to PublishQueue");
+          }
+        }
+      }
+    } // end for
+  } // method publishCertsRevoked
+
   void publishCertUnrevoked(CertWithDbId unrevokedCert) {
     for (IdentifiedCertPublisher publisher : publishers()) {
       boolean successful;
@@ -25,23 +25,31 @@ import org.xipki.ca.server.db.CertStore;
 import org.xipki.ca.server.db.CertStore.SerialWithId;
 import org.xipki.ca.server.mgmt.CaManagerImpl;
 import org.xipki.util.CollectionUtil;
+import org.xipki.util.ConfPairs;
 import org.xipki.util.LogUtil;
 import org.xipki.util.exception.OperationException;
 
 import java.io.Closeable;
 import java.math.BigInteger;
-import java.util.Date;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static org.xipki.util.Args.notNull;
 import static org.xipki.util.exception.ErrorCode.NOT_PERMITTED;
+import static org.xipki.util.exception.ErrorCode.SYSTEM_FAILURE;
 
 /**
- * X509CA revoker module.
+ * X509CA remover module.
+ *
+ * <p>The expired unrevoked certificates are removed in chunks ordered by the ID with set-based
+ * statements, and the publishers are notified in bulk. It is configured in the extra control of the CA:
+ *<pre>
+ * expired-certs-archive=&lt;true|false, whether to move the certificates to the table CERT_ARCHIVE&gt;
+ * expired-certs-rate=&lt;maximal number of certificates processed per second, 0 for unlimited&gt;
+ *</pre>
+ * Default to no archive and 1000 certificates per second.
  *
  * @author Lijun Liao
  */
@@ -86,8 +94,22 @@ public class X509RemoverModule extends X509CaModule implements Closeable {
 
   } // class ExpiredCertsRemover
 
+  static final String KEY_EXPIRED_CERTS_ARCHIVE = "expired-certs-archive";
+
+  static final String KEY_EXPIRED_CERTS_RATE = "expired-certs-rate";
+
+  private static final int DEFAULT_ROWS_PER_SECOND = 1000;
+
+  private static final int MAX_CHUNK_SIZE = 1000;
+
   private final boolean masterMode;
 
+  private final boolean archive;
+
+  private final int rowsPerSecond;
+
+  private volatile boolean closed;
+
   private final CertStore certstore;
 
   private final CaIdNameMap caIdNameMap;
@@ -97,7 +119,7 @@ public class X509RemoverModule extends X509CaModule implements Closeable {
   private ScheduledFuture<?> expiredCertsRemover;
 
   public X509RemoverModule(CaManagerImpl caManager, CaInfo caInfo, CertStore certstore,
-                           X509PublisherModule publisherModule) {
+                           X509PublisherModule publisherModule) throws OperationException {
     super(caInfo);
 
     this.caIdNameMap = caManager.idNameMap();
@@ -105,6 +127,25 @@ public class X509RemoverModule extends X509CaModule implements Closeable {
     this.masterMode = caManager.isMasterMode();
     this.publisherModule = publisherModule;
 
+    ConfPairs extraControl = caInfo.getExtraControl();
+    String str = (extraControl == null) ? null : extraControl.value(KEY_EXPIRED_CERTS_ARCHIVE);
+    this.archive = str != null && Boolean.parseBoolean(str.trim());
+    if (archive && !certstore.isCertArchiveSupported()) {
+      throw new OperationException(SYSTEM_FAILURE, KEY_EXPIRED_CERTS_ARCHIVE
+          + "=true requires the table CERT_ARCHIVE, please apply sql/ca-cert-archive.xml");
+    }
+
+    str = (extraControl == null) ? null : extraControl.value(KEY_EXPIRED_CERTS_RATE);
+    if (str == null) {
+      this.rowsPerSecond = DEFAULT_ROWS_PER_SECOND;
+    } else {
+      try {
+        this.rowsPerSecond = Integer.parseInt(str.trim());
+      } catch (NumberFormatException ex) {
+        throw new OperationException(SYSTEM_FAILURE, "invalid " + KEY_EXPIRED_CERTS_RATE + ": " + str);
+      }
+    }
+
     if (!masterMode) {
       return;
     }
@@ -150,7 +191,7 @@ public class X509RemoverModule extends X509CaModule implements Closeable {
         return null;
       }
 
-      certstore.removeCert(certWithRevInfo.getCert().getCertId());
+      certstore.removeCert(caIdent, certWithRevInfo);
       successful = (certToRemove != null);
       return certToRemove;
     } finally {
@@ -166,38 +207,88 @@ public class X509RemoverModule extends X509CaModule implements Closeable {
     }
 
     event.addEventData(CaAuditConstants.NAME_expired_at, expiredAtTime);
-    final int numEntries = 100;
+    final int numEntries = Math.min(MAX_CHUNK_SIZE, Math.max(1, rowsPerSecond));
 
     final long expiredAt = expiredAtTime.getTime() / 1000;
 
     int sum = 0;
-    while (true) {
-      List<SerialWithId> serials = certstore.getExpiredUnrevokedSerialNumbers(caIdent, expiredAt, numEntries);
-      if (CollectionUtil.isEmpty(serials)) {
-        return sum;
+    int processed = 0;
+    long startId = 1;
+    long startTime = System.currentTimeMillis();
+    while (!closed) {
+      List<CertWithRevocationInfo> certs =
+          certstore.getExpiredUnrevokedCerts(caIdent, expiredAt, startId, numEntries, caIdNameMap);
+      if (CollectionUtil.isEmpty(certs)) {
+        break;
       }
 
-      for (SerialWithId serial : serials) {
-        // do not delete CA's own certificate
-        if ((caInfo.isSelfSigned() && caInfo.getSerialNumber().equals(serial.getSerial()))) {
-          continue;
-        }
+      startId = certs.get(certs.size() - 1).getCert().getCertId() + 1;
+      processed += certs.size();
 
-        try {
-          if (removeCert(serial, event) != null) {
-            sum++;
+      List<CertWithDbId> certsToRemove = new ArrayList<>(certs.size());
+      for (CertWithRevocationInfo cert : certs) {
+        certsToRemove.add(cert.getCert());
+      }
+
+      Set<Long> failedCertIds = publisherModule.publishCertsRemoved(certsToRemove);
+
+      // split the chunk at the certificates which must be kept
+      List<List<CertWithRevocationInfo>> runs = new LinkedList<>();
+      List<CertWithRevocationInfo> run = null;
+      for (CertWithRevocationInfo cert : certs) {
+        // do not delete CA's own certificate, and the certificates not removed from the publishers
+        boolean keep = failedCertIds.contains(cert.getCert().getCertId())
+            || (caInfo.isSelfSigned() && caInfo.getSerialNumber().equals(cert.getCert().getCert().getSerialNumber()));
+        if (keep) {
+          run = null;
+        } else {
+          if (run == null) {
+            run = new LinkedList<>();
+            runs.add(run);
           }
-        } catch (OperationException ex) {
-          LOG.info("removed {} expired certificates of CA {}", sum, caIdent.getName());
-          LogUtil.error(LOG, ex, "could not remove expired certificate with serial" + serial.getSerial());
-          throw ex;
+          run.add(cert);
         }
-      } // end for
-    } // end while (true)
+      }
+
+      try {
+        sum += certstore.removeExpiredCerts(caIdent, runs, expiredAt, archive);
+      } catch (OperationException ex) {
+        LOG.info("removed {} expired certificates of CA {}", sum, caIdent.getName());
+        LogUtil.error(LOG, ex, "could not remove expired certificates with ID in range ["
+            + certs.get(0).getCert().getCertId() + ", " + (startId - 1) + "]");
+        throw ex;
+      }
+
+      if (certs.size() < numEntries) {
+        break;
+      }
+
+      throttle(startTime, processed);
+    } // end while
+
+    return sum;
   } // method removeExpirtedCerts
 
+  // sleep until the number of processed rows is within the budget of rows per second.
+  private void throttle(long startTime, int processedRows) throws OperationException {
+    if (rowsPerSecond <= 0) {
+      return;
+    }
+
+    long sleepMs = startTime + 1000L * processedRows / rowsPerSecond - System.currentTimeMillis();
+    if (sleepMs > 0) {
+      try {
+        Thread.sleep(sleepMs);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new OperationException(SYSTEM_FAILURE, "interrupted while removing expired certificates");
+      }
+    }
+  } // method throttle
+
   @Override
   public void close() {
+    closed = true;
     if (expiredCertsRemover != null) {
       expiredCertsRemover.cancel(false);
       expiredCertsRemover = null;
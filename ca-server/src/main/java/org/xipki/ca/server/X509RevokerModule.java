@@ -21,6 +21,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.audit.AuditEvent;
 import org.xipki.ca.api.CertWithDbId;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.BulkRevocationFilter;
 import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.ca.server.db.CertStore;
 import org.xipki.ca.server.db.CertStore.SerialWithId;
@@ -44,8 +46,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.xipki.ca.sdk.CaAuditConstants.*;
 import static org.xipki.util.Args.notNull;
-import static org.xipki.util.exception.ErrorCode.NOT_PERMITTED;
-import static org.xipki.util.exception.ErrorCode.SYSTEM_FAILURE;
+import static org.xipki.util.exception.ErrorCode.*;
 
 /**
  * X509CA revoker module.
@@ -89,6 +90,8 @@ public class X509RevokerModule extends X509CaModule implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(X509RevokerModule.class);
 
+  private static final int BULK_REVOCATION_BATCH_SIZE = 1000;
+
   private final boolean masterMode;
 
   private final CertStore certstore;
@@ -128,7 +131,122 @@ public class X509RevokerModule extends X509CaModule implements Closeable {
     if (reason == null) {
       reason = CrlReason.UNSPECIFIED;
     }
+    assertPermittedReason(reason);
+
+    boolean successful = true;
+    try {
+      CertWithRevocationInfo ret = revokeCertificate0(serialNumber, reason, invalidityTime, false, event);
+      successful = (ret != null);
+      return ret;
+    } finally {
+      setEventStatus(event, successful);
+    }
+  } // method revokeCertificate
+
+  /**
+   * Revokes all unrevoked certificates matching the filter. The certificates are selected, revoked
+   * and published in batches of {@link #BULK_REVOCATION_BATCH_SIZE} certificates.
+   * @param filter the filter of the certificates.
+   * @param reason the revocation reason.
+   * @param invalidityTime the invalidity time, may be {@code null}.
+   * @param event the audit event.
+   * @return number of revoked certificates.
+   * @throws OperationException if error occurs.
+   */
+  public int revokeCerts(BulkRevocationFilter filter, CrlReason reason, Date invalidityTime, AuditEvent event)
+      throws OperationException {
+    notNull(filter, "filter");
+    if (reason == null) {
+      reason = CrlReason.UNSPECIFIED;
+    }
+    assertPermittedReason(reason);
+
+    Integer certprofileId = null;
+    if (filter.getCertprofile() != null) {
+      NameId ident = caIdNameMap.getCertprofile(filter.getCertprofile().toLowerCase());
+      if (ident == null) {
+        throw new OperationException(UNKNOWN_CERT_PROFILE, "unknown certprofile " + filter.getCertprofile());
+      }
+      certprofileId = ident.getId();
+    }
+
+    Integer requestorId = null;
+    if (filter.getRequestor() != null) {
+      NameId ident = caIdNameMap.getRequestor(filter.getRequestor().toLowerCase());
+      if (ident == null) {
+        throw new OperationException(BAD_REQUEST, "unknown requestor " + filter.getRequestor());
+      }
+      requestorId = ident.getId();
+    }
+
+    List<BigInteger> serials = filter.getSerialNumbers();
+    if (CollectionUtil.isEmpty(serials) && certprofileId == null && requestorId == null
+        && filter.getNotBeforeFrom() == null && filter.getNotBeforeTo() == null) {
+      throw new OperationException(BAD_REQUEST, "no criterion is specified to select the certificates");
+    }
+
+    event.addEventData(NAME_reason, reason.getDescription());
+    if (invalidityTime != null) {
+      event.addEventData(NAME_invalidity_time, DateUtil.toUtcTimeyyyyMMddhhmmss(invalidityTime));
+    }
+
+    LOG.info("     START revokeCertificates: ca={}, filter=[{}], reason={}, invalidityTime={}",
+        caIdent.getName(), filter, reason.getDescription(), invalidityTime);
+
+    CertRevocationInfo revInfo = new CertRevocationInfo(reason, new Date(), invalidityTime);
+    int num = 0;
+    boolean successful = false;
+    try {
+      if (CollectionUtil.isNotEmpty(serials)) {
+        for (int i = 0; i < serials.size(); i += BULK_REVOCATION_BATCH_SIZE) {
+          List<BigInteger> batch = serials.subList(i, Math.min(serials.size(), i + BULK_REVOCATION_BATCH_SIZE));
+          List<CertWithRevocationInfo> certs = certstore.getUnrevokedCerts(caIdent, 1, batch, certprofileId,
+              requestorId, filter.getNotBeforeFrom(), filter.getNotBeforeTo(), BULK_REVOCATION_BATCH_SIZE,
+              caIdNameMap);
+          num += revokeCerts0(certs, revInfo);
+        }
+      } else {
+        long startId = 1;
+        while (true) {
+          List<CertWithRevocationInfo> certs = certstore.getUnrevokedCerts(caIdent, startId, null, certprofileId,
+              requestorId, filter.getNotBeforeFrom(), filter.getNotBeforeTo(), BULK_REVOCATION_BATCH_SIZE,
+              caIdNameMap);
+          if (certs.isEmpty()) {
+            break;
+          }
+
+          int size = certs.size();
+          startId = certs.get(size - 1).getCert().getCertId() + 1;
+          num += revokeCerts0(certs, revInfo);
+          if (size < BULK_REVOCATION_BATCH_SIZE) {
+            break;
+          }
+        }
+      }
+      successful = true;
+    } finally {
+      event.addEventData(NAME_num, num);
+      setEventStatus(event, successful);
+    }
+
+    LOG.info("SUCCESSFUL revokeCertificates: ca={}, reason={}, revoked {} certificates",
+        caIdent.getName(), reason.getDescription(), num);
+    return num;
+  } // method revokeCerts
+
+  private int revokeCerts0(List<CertWithRevocationInfo> certs, CertRevocationInfo revInfo)
+      throws OperationException {
+    if (caInfo.isSelfSigned()) {
+      // the CA certificate is revoked only via revokeCa
+      certs.removeIf(cert -> caInfo.getSerialNumber().equals(cert.getCert().getCert().getSerialNumber()));
+    }
 
+    List<CertWithRevocationInfo> revokedCerts = certstore.revokeCerts(caIdent, certs, revInfo);
+    publisherModule.publishCertsRevoked(revokedCerts);
+    return revokedCerts.size();
+  } // method revokeCerts0
+
+  private static void assertPermittedReason(CrlReason reason) throws OperationException {
     switch (reason) {
       case CA_COMPROMISE:
       case AA_COMPROMISE:
@@ -146,16 +264,7 @@ public class X509RevokerModule extends X509CaModule implements Closeable {
       default:
         throw new IllegalStateException("unknown CRL reason " + reason);
     } // switch (reason)
-
-    boolean successful = true;
-    try {
-      CertWithRevocationInfo ret = revokeCertificate0(serialNumber, reason, invalidityTime, false, event);
-      successful = (ret != null);
-      return ret;
-    } finally {
-      setEventStatus(event, successful);
-    }
-  } // method revokeCertificate
+  } // method assertPermittedReason
 
   public CertWithDbId unsuspendCert(BigInteger serialNumber, AuditEvent event)
       throws OperationException {
@@ -34,6 +34,7 @@ import org.xipki.security.*;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Base64;
 import org.xipki.util.*;
+import org.xipki.util.exception.InvalidConfException;
 import org.xipki.util.exception.ObjectCreationException;
 import org.xipki.util.exception.OperationException;
 
@@ -723,7 +724,14 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
       if (CaManager.NULL.equalsIgnoreCase(str)) {
         newCC.setCrlControl(null);
       } else {
-        newCC.setCrlControl(new ConfPairs(str).asMap());
+        ConfPairs pairs = new ConfPairs(str);
+        Map<String, String> oldCrlControl = currentCaConfColumn.getCrlControl();
+        try {
+          new CrlControl(pairs).validate(oldCrlControl == null ? null : new CrlControl(new ConfPairs(oldCrlControl)));
+        } catch (InvalidConfException ex) {
+          throw new CaMgmtException("invalid CRL_CONTROL: " + ex.getMessage(), ex);
+        }
+        newCC.setCrlControl(pairs.asMap());
       }
     }
 
@@ -0,0 +1,159 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.db;
+
+import org.xipki.ca.api.mgmt.CertStatistics;
+import org.xipki.security.CrlReason;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory counters of the certificates per CA and per certprofile.
+ *
+ * <p>The counters are updated by {@link CertStore} as certificates are added, revoked,
+ * unsuspended and removed, and are replaced by the numbers counted in the database at
+ * each reconciliation. The number of expired certificates is only counted at the
+ * reconciliation. The counters created before the first successful reconciliation start
+ * from 0 and do not reflect the database.
+ *
+ * @author Lijun Liao
+ */
+
+class CertCounters {
+
+  private static class Counter {
+
+    private final LongAdder issued = new LongAdder();
+
+    private final LongAdder revoked = new LongAdder();
+
+    private final LongAdder suspended = new LongAdder();
+
+    private final LongAdder expired = new LongAdder();
+
+    private void add(long issued, long revoked, long suspended, long expired) {
+      this.issued.add(issued);
+      this.revoked.add(revoked);
+      this.suspended.add(suspended);
+      this.expired.add(expired);
+    }
+
+    private CertStatistics toStatistics() {
+      return new CertStatistics(issued.sum(), revoked.sum(), suspended.sum(), expired.sum());
+    }
+
+  } // class Counter
+
+  private static class CaCounter {
+
+    private final Counter total = new Counter();
+
+    private final ConcurrentMap<String, Counter> certprofiles = new ConcurrentHashMap<>();
+
+    private void add(String certprofile, long issued, long revoked, long suspended, long expired) {
+      total.add(issued, revoked, suspended, expired);
+      certprofiles.computeIfAbsent(certprofile == null ? "" : certprofile, k -> new Counter())
+          .add(issued, revoked, suspended, expired);
+    }
+
+  } // class CaCounter
+
+  private final ConcurrentMap<Integer, CaCounter> cas = new ConcurrentHashMap<>();
+
+  private final LongAdder numCerts = new LongAdder();
+
+  private final boolean reconciled;
+
+  CertCounters() {
+    this(false);
+  }
+
+  /**
+   * Constructor.
+   * @param reconciled whether the counters are filled with the numbers counted in the database.
+   */
+  CertCounters(boolean reconciled) {
+    this.reconciled = reconciled;
+  }
+
+  boolean isReconciled() {
+    return reconciled;
+  }
+
+  void add(int caId, String certprofile, long issued, long revoked, long suspended, long expired) {
+    cas.computeIfAbsent(caId, k -> new CaCounter()).add(certprofile, issued, revoked, suspended, expired);
+    numCerts.add(issued);
+  }
+
+  void certAdded(int caId, String certprofile) {
+    add(caId, certprofile, 1, 0, 0, 0);
+  }
+
+  /**
+   * Moves the certificate from the bucket of the old revocation reason to that of the new one.
+   * @param caId ID of the CA
+   * @param certprofile name of the certprofile
+   * @param oldReason the revocation reason before the change, {@code null} if not revoked.
+   * @param newReason the revocation reason after the change, {@code null} if not revoked.
+   */
+  void certStatusChanged(int caId, String certprofile, CrlReason oldReason, CrlReason newReason) {
+    long revoked = (isRevoked(newReason) ? 1 : 0) - (isRevoked(oldReason) ? 1 : 0);
+    long suspended = (isSuspended(newReason) ? 1 : 0) - (isSuspended(oldReason) ? 1 : 0);
+    if (revoked != 0 || suspended != 0) {
+      add(caId, certprofile, 0, revoked, suspended, 0);
+    }
+  }
+
+  void certRemoved(int caId, String certprofile, CrlReason reason, boolean expired) {
+    add(caId, certprofile, -1, isRevoked(reason) ? -1 : 0, isSuspended(reason) ? -1 : 0, expired ? -1 : 0);
+  }
+
+  long getNumberOfCerts() {
+    return numCerts.sum();
+  }
+
+  CertStatistics getStatistics(int caId) {
+    CaCounter counter = cas.get(caId);
+    if (counter == null) {
+      CertStatistics ret = new CertStatistics();
+      ret.setCertprofiles(new HashMap<>());
+      return ret;
+    }
+
+    CertStatistics ret = counter.total.toStatistics();
+    Map<String, CertStatistics> certprofiles = new HashMap<>();
+    for (Map.Entry<String, Counter> entry : counter.certprofiles.entrySet()) {
+      certprofiles.put(entry.getKey(), entry.getValue().toStatistics());
+    }
+    ret.setCertprofiles(certprofiles);
+    return ret;
+  } // method getStatistics
+
+  private static boolean isRevoked(CrlReason reason) {
+    return reason != null && reason != CrlReason.CERTIFICATE_HOLD;
+  }
+
+  private static boolean isSuspended(CrlReason reason) {
+    return reason == CrlReason.CERTIFICATE_HOLD;
+  }
+
+}
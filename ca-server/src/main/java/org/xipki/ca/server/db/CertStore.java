@@ -20,10 +20,8 @@ package org.xipki.ca.server.db;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.asn1.x509.CertificateList;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.Extensions;
-import org.bouncycastle.asn1.x509.TBSCertList.CRLEntry;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.bouncycastle.util.Pack;
 import org.slf4j.Logger;
@@ -34,6 +32,7 @@ import org.xipki.ca.api.NameId;
 import org.xipki.ca.api.mgmt.CaMgmtException;
 import org.xipki.ca.api.mgmt.CertListInfo;
 import org.xipki.ca.api.mgmt.CertListOrderBy;
+import org.xipki.ca.api.mgmt.CertStatistics;
 import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.ca.server.CaIdNameMap;
 import org.xipki.ca.server.CaUtil;
@@ -44,24 +43,31 @@ import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.password.PasswordResolver;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.CrlReason;
+import org.xipki.security.FpIdCalculator;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Base64;
+import org.xipki.util.CollectionUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.LruCache;
 import org.xipki.util.exception.OperationException;
+import org.xipki.util.metrics.MetricsRegistry;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.cert.CRLException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.xipki.util.Args.*;
 import static org.xipki.util.exception.ErrorCode.*;
@@ -132,6 +138,87 @@ public class CertStore extends CertStoreBase {
 
   } // class SystemEvent
 
+  /**
+   * Status of a certificate after its last change, see {@link #getCertStatusChanges}.
+   */
+  public static class CertStatusChange {
+
+    private final long id;
+
+    private final long feedSeq;
+
+    private final int caId;
+
+    private final String serialHex;
+
+    private final long notBefore;
+
+    private final long notAfter;
+
+    private final boolean revoked;
+
+    private final int reason;
+
+    private final long revTime;
+
+    private final long invalidityTime;
+
+    public CertStatusChange(long id, long feedSeq, int caId, String serialHex, long notBefore,
+        long notAfter, boolean revoked, int reason, long revTime, long invalidityTime) {
+      this.id = id;
+      this.feedSeq = feedSeq;
+      this.caId = caId;
+      this.serialHex = notBlank(serialHex, "serialHex");
+      this.notBefore = notBefore;
+      this.notAfter = notAfter;
+      this.revoked = revoked;
+      this.reason = reason;
+      this.revTime = revTime;
+      this.invalidityTime = invalidityTime;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public long getFeedSeq() {
+      return feedSeq;
+    }
+
+    public int getCaId() {
+      return caId;
+    }
+
+    public String getSerialHex() {
+      return serialHex;
+    }
+
+    public long getNotBefore() {
+      return notBefore;
+    }
+
+    public long getNotAfter() {
+      return notAfter;
+    }
+
+    public boolean isRevoked() {
+      return revoked;
+    }
+
+    public int getReason() {
+      return reason;
+    }
+
+    public long getRevTime() {
+      return revTime;
+    }
+
+    public long getInvalidityTime() {
+      return invalidityTime;
+    }
+
+  } // class CertStatusChange
+
   public static class KnowCertResult {
 
     public static final KnowCertResult UNKNOWN = new KnowCertResult(false);
@@ -150,6 +237,19 @@ public class CertStore extends CertStoreBase {
 
   private static final Logger LOG = LoggerFactory.getLogger(CertStore.class);
 
+  // operations in the CRL changelog
+  private static final int CRL_CHANGELOG_REVOKE = 1;
+
+  private static final int CRL_CHANGELOG_UNREVOKE = 2;
+
+  private static final int CRL_CHANGELOG_REMOVE = 3;
+
+  /**
+   * Minimal distance to a limit of the number of certificates, within which the certificates are
+   * counted in the database.
+   */
+  private static final long MIN_CERTS_LIMIT_MARGIN = 1000;
+
   private final String sqlCertForId;
 
   private final String sqlCertWithRevInfo;
@@ -160,6 +260,8 @@ public class CertStore extends CertStoreBase {
 
   private final String sqlCertStatusForSubjectFp;
 
+  private final String sqlCertIdForKeyFp;
+
   private final String sqlCrl;
 
   private final String sqlCrlWithNo;
@@ -168,50 +270,64 @@ public class CertStore extends CertStoreBase {
 
   private final String sqlReqForId;
 
-  private final String sqlSelectUnrevokedSn100;
-
-  private final String sqlSelectUnrevokedSn;
-
   private final LruCache<Integer, String> cacheSqlCidFromPublishQueue = new LruCache<>(5);
 
-  private final LruCache<Integer, String> cacheSqlExpiredSerials = new LruCache<>(5);
+  private final LruCache<Integer, String> cacheSqlExpiredCerts = new LruCache<>(5);
 
   private final LruCache<Integer, String> cacheSqlSuspendedSerials = new LruCache<>(5);
 
   private final LruCache<Integer, String> cacheSqlRevokedCerts = new LruCache<>(5);
 
+  private final LruCache<Integer, String> cacheSqlRevokedCertsOfScope = new LruCache<>(5);
+
   private final LruCache<Integer, String> cacheSqlSerials = new LruCache<>(5);
 
   private final LruCache<Integer, String> cacheSqlSerialsRevoked = new LruCache<>(5);
 
+  private final LruCache<Integer, String> cacheSqlCertStatusChanges = new LruCache<>(5);
+
+  // incremented after each change of a certificate status, see awaitCertStatusChange().
+  private final AtomicLong certStatusChangeCount = new AtomicLong();
+
+  private final Object certStatusChangeMonitor = new Object();
+
   private final UniqueIdGenerator idGenerator;
 
   private final AtomicInteger cachedCrlId = new AtomicInteger(0);
 
   private long earliestNotBefore;
 
+  private volatile CertCounters certCounters = new CertCounters();
+
   public CertStore(DataSourceWrapper datasource, UniqueIdGenerator idGenerator, PasswordResolver passwordResolver)
       throws DataAccessException, CaMgmtException {
     super(datasource, passwordResolver);
 
     this.idGenerator = notNull(idGenerator, "idGenerator");
 
-    this.sqlCertForId = buildSelectFirstSql("PID,RID,REV,RR,RT,RIT,CERT FROM CERT WHERE ID=?");
-    this.sqlCertWithRevInfo = buildSelectFirstSql("ID,REV,RR,RT,RIT,PID,CERT FROM CERT WHERE CA_ID=? AND SN=?");
-    this.sqlCertInfo = buildSelectFirstSql("PID,RID,REV,RR,RT,RIT,CERT FROM CERT WHERE CA_ID=? AND SN=?");
+    this.sqlCertForId = buildSelectFirstSql("PID,RID,REV,RR,RT,RIT,CRL_SCOPE," + certColumns + " FROM CERT WHERE ID=?");
+    this.sqlCertWithRevInfo = buildSelectFirstSql(
+        "ID,REV,RR,RT,RIT,PID,CRL_SCOPE," + certColumns + " FROM CERT WHERE CA_ID=? AND SN=?");
+    this.sqlCertInfo = buildSelectFirstSql(
+        "PID,RID,REV,RR,RT,RIT," + certColumns + " FROM CERT WHERE CA_ID=? AND SN=?");
     this.sqlKnowsCertForSerial = buildSelectFirstSql("ID FROM CERT WHERE SN=? AND CA_ID=?");
     this.sqlCertStatusForSubjectFp = buildSelectFirstSql("REV FROM CERT WHERE FP_S=? AND CA_ID=?");
+    this.sqlCertIdForKeyFp = buildSelectFirstSql("ID FROM CERT WHERE FP_K=? AND CA_ID=?");
     this.sqlReqIdForSerial = buildSelectFirstSql("REQCERT.RID as REQ_ID FROM REQCERT INNER JOIN "
         + "CERT ON CERT.CA_ID=? AND CERT.SN=? AND REQCERT.CID=CERT.ID");
-    this.sqlReqForId = buildSelectFirstSql("DATA FROM REQUEST WHERE ID=?");
-    this.sqlCrl = buildSelectFirstSql("THISUPDATE DESC", "THISUPDATE,CRL FROM CRL WHERE CA_ID=?");
+    String crlColumns = binaryPayload ? "CRL,CRL2" : "CRL";
+    this.sqlReqForId = buildSelectFirstSql((binaryPayload ? "DATA,DATA2" : "DATA") + " FROM REQUEST WHERE ID=?");
+    this.sqlCrl = buildSelectFirstSql("THISUPDATE DESC",
+        "THISUPDATE," + crlColumns + " FROM CRL WHERE CA_ID=? AND CRL_SCOPE=?");
     this.sqlCrlWithNo = buildSelectFirstSql("THISUPDATE DESC",
-        "THISUPDATE,CRL FROM CRL WHERE CA_ID=? AND CRL_NO=?");
-
-    this.sqlSelectUnrevokedSn = buildSelectFirstSql("LUPDATE FROM CERT WHERE REV=0 AND SN=?");
-    final String prefix = "SN,LUPDATE FROM CERT WHERE REV=0 AND SN";
-    this.sqlSelectUnrevokedSn100 = buildArraySql(datasource, prefix, 100);
+        "THISUPDATE," + crlColumns + " FROM CRL WHERE CA_ID=? AND CRL_NO=?");
     this.earliestNotBefore = datasource.getMin(null, "CERT", "NBEFORE");
+
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    registry.gauge("xipki_ca_certificates", "Number of certificates of all CAs in the database",
+        this::getNumberOfCerts);
+    registry.counter("xipki_ca_cert_status_changes_total",
+        "Certificates added, revoked or unsuspended by this CA instance", certStatusChangeCount::get);
   } // constructor
 
   public boolean addCert(CertificateInfo certInfo, boolean saveKeypair) {
@@ -261,6 +377,9 @@ public class CertStore extends CertStoreBase {
         }
       }
 
+      Long fpKey = keyFingerprint
+          ? FpIdCalculator.hash(cert.getCert().getSubjectPublicKeyInfo().getEncoded()) : null;
+
       encodedCert = cert.getCert().getEncoded();
       String b64FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
 
@@ -278,6 +397,9 @@ public class CertStore extends CertStoreBase {
       columns.add(col2Str(subjectText));
       columns.add(col2Long(fpSubject));
       columns.add(col2Long(fpReqSubject));
+      if (keyFingerprint) {
+        columns.add(col2Long(fpKey));
+      }
       // notBeforeSeconds
       columns.add(col2Long(cert0.getNotBefore().getTime() / 1000));
       // notAfterSeconds
@@ -290,16 +412,21 @@ public class CertStore extends CertStoreBase {
       columns.add(col2Str(tid));
       columns.add(col2Str(b64FpCert));
       columns.add(col2Str(reqSubjectText));
-      // in this version we set CRL_SCOPE to fixed value 0
-      columns.add(col2Int(0));
-      columns.add(col2Str(Base64.encodeToString(encodedCert)));
+      columns.add(col2Int(certInfo.getCrlScope()));
+      columns.add(col2Payload(encodedCert));
       if (withPrivateKey) {
         columns.add(col2Str(privateKeyInfo));
       }
 
-      execUpdatePrepStmt0(SQL_ADD_CERT, columns.toArray(new SqlColumn2[0]));
+      if (changeFeed) {
+        addCertWithFeedSeq(columns);
+      } else {
+        execUpdatePrepStmt0(SQL_ADD_CERT, columns.toArray(new SqlColumn2[0]));
+      }
 
       cert.setCertId(certId);
+      certCounters.certAdded(certInfo.getIssuer().getId(), certInfo.getProfile().getName());
+      certStatusChanged();
     } catch (Exception ex) {
       LOG.error("could not save certificate {}: {}. Message: {}",
           certInfo.getCert().getCert().getSubject(),
@@ -346,28 +473,28 @@ public class CertStore extends CertStoreBase {
     execUpdatePrepStmt0(sqlBuilder.toString(), params.toArray(new SqlColumn2[0]));
   } // method clearPublishQueue
 
-  public long getMaxFullCrlNumber(NameId ca) throws OperationException {
-    return getMaxCrlNumber(ca, SQL_MAX_FULL_CRLNO);
-  }
+  public long getMaxFullCrlNumber(NameId ca, int crlScope) throws OperationException {
+    notNull(ca, "ca");
 
-  public long getMaxCrlNumber(NameId ca) throws OperationException {
-    return getMaxCrlNumber(ca, SQL_MAX_CRLNO);
-  }
+    long maxCrlNumber = execQueryLongPrepStmt(SQL_MAX_FULL_CRLNO, col2Int(ca.getId()), col2Int(crlScope));
+    return (maxCrlNumber < 0) ? 0 : maxCrlNumber;
+  } // method getMaxFullCrlNumber
 
-  private long getMaxCrlNumber(NameId ca, String sql) throws OperationException {
+  public long getMaxCrlNumber(NameId ca) throws OperationException {
     notNull(ca, "ca");
 
-    long maxCrlNumber = execQueryLongPrepStmt(sql, col2Int(ca.getId()));
+    long maxCrlNumber = execQueryLongPrepStmt(SQL_MAX_CRLNO, col2Int(ca.getId()));
     return (maxCrlNumber < 0) ? 0 : maxCrlNumber;
   } // method getMaxCrlNumber
 
-  public long getThisUpdateOfCurrentCrl(NameId ca, boolean deltaCrl) throws OperationException {
+  public long getThisUpdateOfCurrentCrl(NameId ca, boolean deltaCrl, int crlScope) throws OperationException {
     notNull(ca, "ca");
 
-    return execQueryLongPrepStmt(SQL_MAX_THISUPDAATE_CRL, col2Int(ca.getId()), col2Int(deltaCrl ? 1 : 0));
+    return execQueryLongPrepStmt(SQL_MAX_THISUPDAATE_CRL,
+        col2Int(ca.getId()), col2Int(deltaCrl ? 1 : 0), col2Int(crlScope));
   } // method getThisUpdateOfCurrentCrl
 
-  public void addCrl(NameId ca, X509CRLHolder crl) throws OperationException, CRLException {
+  public void addCrl(NameId ca, X509CRLHolder crl, int crlScope) throws OperationException, CRLException {
     notNulls(ca, "ca", crl, "crl");
 
     Extensions extns = crl.getExtensions();
@@ -393,7 +520,6 @@ public class CertStore extends CertStoreBase {
 
     boolean withSha1Column = dbSchemaVersion >= 7;
     String b64Sha1 = withSha1Column ? HashAlgo.SHA1.base64Hash(encodedCrl) : null;
-    String b64Crl = Base64.encodeToString(encodedCrl);
 
     List<SqlColumn2> columns = new ArrayList<>(10);
     columns.add(col2Int(crlId));
@@ -403,12 +529,11 @@ public class CertStore extends CertStoreBase {
     columns.add(col2Long(getDateSeconds(crl.getNextUpdate())));
     columns.add(col2Bool((baseCrlNumber != null)));
     columns.add(col2Long(baseCrlNumber));
-    // in this version we set CRL_SCOPE to fixed value 0
-    columns.add(col2Int(0));
+    columns.add(col2Int(crlScope));
     if (withSha1Column) {
       columns.add(col2Str(b64Sha1));
     }
-    columns.add(col2Str(b64Crl));
+    columns.add(col2Payload(encodedCrl));
 
     execUpdatePrepStmt0(SQL_ADD_CRL, columns.toArray(new SqlColumn2[0]));
   } // method addCrl
@@ -427,6 +552,7 @@ public class CertStore extends CertStoreBase {
     }
 
     CertRevocationInfo currentRevInfo = certWithRevInfo.getRevInfo();
+    CrlReason oldReason = (currentRevInfo == null) ? null : currentRevInfo.getReason();
     if (currentRevInfo != null) {
       CrlReason currentReason = currentRevInfo.getReason();
       if (currentReason == CrlReason.CERTIFICATE_HOLD) {
@@ -448,21 +574,157 @@ public class CertStore extends CertStoreBase {
       invTimeSeconds = revInfo.getInvalidityTime().getTime() / 1000;
     }
 
-    int count = execUpdatePrepStmt0(SQL_REVOKE_CERT,
-        col2Long(System.currentTimeMillis() / 1000), col2Bool(true),
-        col2Long(revInfo.getRevocationTime().getTime() / 1000), // revTimeSeconds
-        col2Long(invTimeSeconds), col2Int(revInfo.getReason().getCode()),
-        col2Long(certWithRevInfo.getCert().getCertId())); // certId
-    if (count != 1) {
-      String message = (count > 1) ? count + " rows modified, but exactly one is expected"
-          : "no row is modified, but exactly one is expected";
-      throw new OperationException(SYSTEM_FAILURE, message);
-    }
-
+    final long currentTimeSeconds = System.currentTimeMillis() / 1000;
+    final Long invTimeSeconds0 = invTimeSeconds;
+    updateCerts(ca, SQL_REVOKE_CERT, (ps, idx, cert) -> {
+      ps.setLong(idx++, currentTimeSeconds);
+      ps.setInt(idx++, 1);
+      ps.setLong(idx++, revInfo.getRevocationTime().getTime() / 1000);
+      setLong(ps, idx++, invTimeSeconds0);
+      ps.setInt(idx++, revInfo.getReason().getCode());
+      ps.setLong(idx, cert.getCert().getCertId());
+    }, Collections.singletonList(certWithRevInfo), true, CRL_CHANGELOG_REVOKE, currentTimeSeconds, revInfo);
+
+    certCounters.certStatusChanged(ca.getId(), certWithRevInfo.getCertprofile(), oldReason, revInfo.getReason());
+    certStatusChanged();
     certWithRevInfo.setRevInfo(revInfo);
     return certWithRevInfo;
   } // method revokeCert
 
+  /**
+   * Revokes the given unrevoked certificates with one batched UPDATE. Certificates which have been
+   * revoked in the meantime are not modified.
+   * @param ca the CA.
+   * @param certs the certificates to be revoked.
+   * @param revInfo the revocation information.
+   * @return the revoked certificates.
+   * @throws OperationException if error occurs.
+   */
+  public List<CertWithRevocationInfo> revokeCerts(
+      NameId ca, List<CertWithRevocationInfo> certs, CertRevocationInfo revInfo)
+      throws OperationException {
+    notNulls(ca, "ca", certs, "certs", revInfo, "revInfo");
+    if (certs.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final String sql = SQL_REVOKE_CERT + " AND REV=0";
+
+    final long currentTimeSeconds = System.currentTimeMillis() / 1000;
+    final long revTimeSeconds = revInfo.getRevocationTime().getTime() / 1000;
+    final Long invTimeSeconds = (revInfo.getInvalidityTime() == null) ? null
+        : revInfo.getInvalidityTime().getTime() / 1000;
+
+    List<CertWithRevocationInfo> ret = updateCerts(ca, sql, (ps, idx, cert) -> {
+      ps.setLong(idx++, currentTimeSeconds);
+      ps.setInt(idx++, 1);
+      ps.setLong(idx++, revTimeSeconds);
+      setLong(ps, idx++, invTimeSeconds);
+      ps.setInt(idx++, revInfo.getReason().getCode());
+      ps.setLong(idx, cert.getCert().getCertId());
+    }, certs, false, CRL_CHANGELOG_REVOKE, currentTimeSeconds, revInfo);
+
+    for (CertWithRevocationInfo cert : ret) {
+      certCounters.certStatusChanged(ca.getId(), cert.getCertprofile(), null, revInfo.getReason());
+      cert.setRevInfo(revInfo);
+    }
+
+    if (!ret.isEmpty()) {
+      certStatusChanged();
+    }
+    return ret;
+  } // method revokeCerts
+
+  /**
+   * Gets the unrevoked certificates matching all the given criteria, ordered by the ID.
+   * @param ca the CA.
+   * @param startId the smallest ID.
+   * @param serials serial numbers, at most {@code numEntries}. {@code null} to ignore.
+   * @param certprofileId ID of the certprofile. {@code null} to ignore.
+   * @param requestorId ID of the requestor. {@code null} to ignore.
+   * @param notBeforeFrom smallest notBefore (inclusive). {@code null} to ignore.
+   * @param notBeforeTo largest notBefore (exclusive). {@code null} to ignore.
+   * @param numEntries maximal number of returned certificates.
+   * @param idNameMap the ID-name map.
+   * @return the certificates without revocation information.
+   * @throws OperationException if error occurs.
+   */
+  public List<CertWithRevocationInfo> getUnrevokedCerts(
+      NameId ca, long startId, List<BigInteger> serials, Integer certprofileId, Integer requestorId,
+      Date notBeforeFrom, Date notBeforeTo, int numEntries, CaIdNameMap idNameMap)
+      throws OperationException {
+    notNulls(ca, "ca", idNameMap, "idNameMap");
+    positive(numEntries, "numEntries");
+
+    boolean withSerials = CollectionUtil.isNotEmpty(serials);
+    if (withSerials && serials.size() > 1 && !datasource.getDatabaseType().supportsInArray()) {
+      List<CertWithRevocationInfo> ret = new LinkedList<>();
+      for (BigInteger serial : serials) {
+        ret.addAll(getUnrevokedCerts(ca, startId, Collections.singletonList(serial), certprofileId, requestorId,
+            notBeforeFrom, notBeforeTo, numEntries, idNameMap));
+      }
+      return ret;
+    }
+
+    StringBuilder coreSql = new StringBuilder("ID,SN,PID,CRL_SCOPE," + certColumns
+        + " FROM CERT WHERE ID>? AND CA_ID=? AND REV=0");
+    List<SqlColumn2> params = new ArrayList<>(6 + (withSerials ? serials.size() : 0));
+    params.add(col2Long(startId - 1));
+    params.add(col2Int(ca.getId()));
+
+    if (certprofileId != null) {
+      coreSql.append(" AND PID=?");
+      params.add(col2Int(certprofileId));
+    }
+
+    if (requestorId != null) {
+      coreSql.append(" AND RID=?");
+      params.add(col2Int(requestorId));
+    }
+
+    if (notBeforeFrom != null) {
+      coreSql.append(" AND NBEFORE>=?");
+      params.add(col2Long(notBeforeFrom.getTime() / 1000));
+    }
+
+    if (notBeforeTo != null) {
+      coreSql.append(" AND NBEFORE<?");
+      params.add(col2Long(notBeforeTo.getTime() / 1000));
+    }
+
+    if (withSerials) {
+      if (serials.size() == 1) {
+        coreSql.append(" AND SN=?");
+      } else {
+        coreSql.append(" AND SN IN (?");
+        for (int i = 1; i < serials.size(); i++) {
+          coreSql.append(",?");
+        }
+        coreSql.append(")");
+      }
+
+      for (BigInteger serial : serials) {
+        params.add(col2Str(serial.toString(16)));
+      }
+    }
+
+    String sql = datasource.buildSelectFirstSql(numEntries, "ID ASC", coreSql.toString());
+    List<ResultRow> rows = execQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
+
+    List<CertWithRevocationInfo> ret = new ArrayList<>(rows.size());
+    for (ResultRow rs : rows) {
+      CertWithDbId cert = new CertWithDbId(parseCert(getPayload(rs, "CERT")));
+      cert.setCertId(rs.getLong("ID"));
+
+      CertWithRevocationInfo entry = new CertWithRevocationInfo();
+      entry.setCertprofile(idNameMap.getCertprofileName(rs.getInt("PID")));
+      entry.setCert(cert);
+      entry.setCrlScope(rs.getInt("CRL_SCOPE"));
+      ret.add(entry);
+    }
+    return ret;
+  } // method getUnrevokedCerts
+
   public CertWithRevocationInfo revokeSuspendedCert(
       NameId ca, SerialWithId serialNumber, CrlReason reason, CaIdNameMap idNameMap)
       throws OperationException {
@@ -487,16 +749,17 @@ public class CertStore extends CertStoreBase {
           + CrlReason.CERTIFICATE_HOLD.getDescription());
     }
 
-    int count = execUpdatePrepStmt0(SQL_REVOKE_SUSPENDED_CERT,
-        col2Long(System.currentTimeMillis() / 1000), col2Int(reason.getCode()),
-        col2Long(serialNumber.getId())); // certId
-
-    if (count != 1) {
-      String message = (count > 1) ? count + " rows modified, but exactly one is expected"
-            : "no row is modified, but exactly one is expected";
-      throw new OperationException(SYSTEM_FAILURE, message);
-    }
-
+    final long currentTimeSeconds = System.currentTimeMillis() / 1000;
+    CertRevocationInfo newRevInfo = new CertRevocationInfo(reason, currentRevInfo.getRevocationTime(),
+        currentRevInfo.getInvalidityTime());
+    updateCerts(ca, SQL_REVOKE_SUSPENDED_CERT, (ps, idx, cert) -> {
+      ps.setLong(idx++, currentTimeSeconds);
+      ps.setInt(idx++, reason.getCode());
+      ps.setLong(idx, serialNumber.getId());
+    }, Collections.singletonList(certWithRevInfo), true, CRL_CHANGELOG_REVOKE, currentTimeSeconds, newRevInfo);
+
+    certCounters.certStatusChanged(ca.getId(), certWithRevInfo.getCertprofile(), currentReason, reason);
+    certStatusChanged();
     currentRevInfo.setReason(reason);
     return certWithRevInfo;
   } // method revokeSuspendedCert
@@ -528,26 +791,436 @@ public class CertStore extends CertStoreBase {
       }
     }
 
-    SqlColumn2 nullInt = new SqlColumn2(ColumnType.INT, null);
-    int count = execUpdatePrepStmt0(
-        "UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE ID=?",
-        col2Long(System.currentTimeMillis() / 1000), // currentTimeSeconds
-        col2Bool(false), nullInt, nullInt, nullInt,
-        col2Long(certWithRevInfo.getCert().getCertId())); // certId
-
-    if (count != 1) {
-      String message = (count > 1) ? count + " rows modified, but exactly one is expected"
-          : "no row is modified, but exactly one is expected";
-      throw new OperationException(SYSTEM_FAILURE, message);
-    }
+    final long currentTimeSeconds = System.currentTimeMillis() / 1000;
+    updateCerts(ca, SQL_UNREVOKE_CERT, (ps, idx, cert) -> {
+      ps.setLong(idx++, currentTimeSeconds);
+      ps.setLong(idx, cert.getCert().getCertId());
+    }, Collections.singletonList(certWithRevInfo), true, CRL_CHANGELOG_UNREVOKE, currentTimeSeconds, null);
 
+    certCounters.certStatusChanged(ca.getId(), certWithRevInfo.getCertprofile(), currentReason, null);
+    certStatusChanged();
     return certWithRevInfo.getCert();
   } // method unsuspendCert
 
-  public void removeCert(long id) throws OperationException {
-    execUpdatePrepStmt0(SQL_REMOVE_CERT_FOR_ID, col2Long(id));
+  public void removeCert(NameId ca, CertWithRevocationInfo certWithRevInfo) throws OperationException {
+    notNulls(ca, "ca", certWithRevInfo, "certWithRevInfo");
+    CertRevocationInfo revInfo = certWithRevInfo.getRevInfo();
+    final long certId = certWithRevInfo.getCert().getCertId();
+
+    boolean removed;
+    if (revInfo == null) {
+      removed = execUpdatePrepStmt0(SQL_REMOVE_CERT_FOR_ID, col2Long(certId)) == 1;
+    } else {
+      // only the removal of revoked certificates is relevant for the delta CRLs.
+      removed = !updateCerts(ca, SQL_REMOVE_CERT_FOR_ID, (ps, idx, cert) -> ps.setLong(idx, certId),
+          Collections.singletonList(certWithRevInfo), false, CRL_CHANGELOG_REMOVE,
+          System.currentTimeMillis() / 1000, revInfo).isEmpty();
+    }
+
+    if (removed) {
+      boolean expired = certWithRevInfo.getCert().getCert().getNotAfter().getTime() < System.currentTimeMillis();
+      certCounters.certRemoved(ca.getId(), certWithRevInfo.getCertprofile(),
+          (revInfo == null) ? null : revInfo.getReason(), expired);
+    }
+  } // method removeCert
+
+  /**
+   * Sets the parameters of a statement for a certificate, starting with the parameter {@code idx}.
+   */
+  private interface CertParamsSetter {
+
+    void setParams(PreparedStatement ps, int idx, CertWithRevocationInfo cert) throws SQLException;
+
+  } // interface CertParamsSetter
+
+  /**
+   * Executes the UPDATE or DELETE statement on the table CERT once per certificate, and appends the
+   * changes of the modified certificates to the CRL changelog, in one transaction. Except for the
+   * removal, the first parameter of the statement is the feed sequence number if {@link #changeFeed}.
+   *
+   * @param ca the CA.
+   * @param sql the statement.
+   * @param setter sets the parameters of the statement for a certificate.
+   * @param certs the certificates, with their CRL scopes.
+   * @param exactlyOne whether exactly one row must be modified per certificate. If {@code false},
+   *        the certificates without modified row are ignored.
+   * @param op the operation in the CRL changelog.
+   * @param lastUpdate time of the change, seconds since January 1, 1970, 00:00:00 GMT.
+   * @param revInfo the revocation information in the CRL changelog, {@code null} to unrevoke.
+   * @return the modified certificates.
+   * @throws OperationException if error occurs, no change is applied then.
+   */
+  private List<CertWithRevocationInfo> updateCerts(
+      NameId ca, String sql, CertParamsSetter setter, List<CertWithRevocationInfo> certs,
+      boolean exactlyOne, int op, long lastUpdate, CertRevocationInfo revInfo)
+      throws OperationException {
+    Connection conn;
+    try {
+      conn = datasource.getConnection();
+    } catch (DataAccessException ex) {
+      throw new OperationException(DATABASE_FAILURE, ex);
+    }
+
+    // removed certificates are not in the change feed
+    final boolean feed = changeFeed && op != CRL_CHANGELOG_REMOVE;
+
+    String currentSql = sql;
+    PreparedStatement ps = null;
+    List<CertWithRevocationInfo> modified = new ArrayList<>(certs.size());
+    try {
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      try {
+        long feedSeq = 0;
+        if (feed) {
+          currentSql = SQL_INCREASE_FEED_SEQ;
+          feedSeq = nextFeedSeqs(conn, certs.size());
+          currentSql = sql;
+        }
+
+        ps = datasource.prepareStatement(conn, sql);
+        for (CertWithRevocationInfo cert : certs) {
+          if (feed) {
+            ps.setLong(1, feedSeq++);
+            setter.setParams(ps, 2, cert);
+          } else {
+            setter.setParams(ps, 1, cert);
+          }
+          ps.addBatch();
+        }
+        int[] counts = ps.executeBatch();
+        datasource.releaseResources(ps, null, false);
+        ps = null;
+
+        for (int i = 0; i < counts.length; i++) {
+          // the driver may not report the number of modified rows
+          if (exactlyOne && counts[i] != 1 && counts[i] != Statement.SUCCESS_NO_INFO) {
+            throw new OperationException(SYSTEM_FAILURE, (counts[i] > 1)
+                ? counts[i] + " rows modified, but exactly one is expected"
+                : "no row is modified, but exactly one is expected");
+          }
+
+          if (counts[i] != 0) {
+            modified.add(certs.get(i));
+          }
+        }
+
+        if (crlChangelog && !modified.isEmpty()) {
+          currentSql = SQL_ADD_CRL_CHANGELOG;
+          ps = datasource.prepareStatement(conn, currentSql);
+          for (CertWithRevocationInfo cert : modified) {
+            setCrlChangelogParams(ps, ca, op, lastUpdate, cert, revInfo);
+            ps.addBatch();
+          }
+          ps.executeBatch();
+        }
+
+        conn.commit();
+      } catch (SQLException | DataAccessException | OperationException ex) {
+        conn.rollback();
+        throw ex;
+      } finally {
+        conn.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException ex) {
+      throw new OperationException(DATABASE_FAILURE, datasource.translate(currentSql, ex).getMessage());
+    } catch (DataAccessException ex) {
+      throw new OperationException(DATABASE_FAILURE, ex);
+    } finally {
+      datasource.releaseResources(ps, null, false);
+      datasource.returnConnection(conn);
+    }
+
+    return modified;
+  } // method updateCerts
+
+  /**
+   * Inserts the certificate with the next feed sequence number in one transaction.
+   * @param columns the parameters of {@link #SQL_ADD_CERT} without the feed sequence number.
+   */
+  private void addCertWithFeedSeq(List<SqlColumn2> columns)
+      throws DataAccessException {
+    Connection conn = datasource.getConnection();
+    String currentSql = SQL_INCREASE_FEED_SEQ;
+    PreparedStatement ps = null;
+    try {
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      try {
+        // FSEQ follows ID
+        columns.add(1, col2Long(nextFeedSeqs(conn, 1)));
+
+        currentSql = SQL_ADD_CERT;
+        ps = datasource.prepareStatement(conn, SQL_ADD_CERT);
+        setParams(ps, SQL_ADD_CERT, columns.toArray(new SqlColumn2[0]));
+        ps.executeUpdate();
+        conn.commit();
+      } catch (SQLException | DataAccessException ex) {
+        conn.rollback();
+        throw ex;
+      } finally {
+        conn.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException ex) {
+      throw datasource.translate(currentSql, ex);
+    } finally {
+      datasource.releaseResources(ps, null, false);
+      datasource.returnConnection(conn);
+    }
+  } // method addCertWithFeedSeq
+
+  /**
+   * Reserves the next feed sequence numbers in the transaction of the connection. The row of
+   * CERT_FEED_SEQ remains locked until the transaction ends, so the numbers are assigned in the
+   * order of the commits, also across the CA instances sharing the database: once a number is
+   * visible, all smaller numbers are committed or discarded.
+   * @param conn the connection, not in auto-commit mode.
+   * @param num the number of sequence numbers.
+   * @return the first reserved sequence number.
+   */
+  private long nextFeedSeqs(Connection conn, int num)
+      throws SQLException, DataAccessException {
+    PreparedStatement ps = datasource.prepareStatement(conn, SQL_INCREASE_FEED_SEQ);
+    try {
+      ps.setInt(1, num);
+      if (ps.executeUpdate() != 1) {
+        throw new SQLException("table CERT_FEED_SEQ does not contain the row with ID 1");
+      }
+    } finally {
+      datasource.releaseResources(ps, null, false);
+    }
+
+    ps = datasource.prepareStatement(conn, SQL_FEED_SEQ);
+    ResultSet rs = null;
+    try {
+      rs = ps.executeQuery();
+      rs.next();
+      return rs.getLong(1) - num + 1;
+    } finally {
+      datasource.releaseResources(ps, rs, false);
+    }
+  } // method nextFeedSeqs
+
+  private void setCrlChangelogParams(PreparedStatement ps, NameId ca, int op, long lastUpdate,
+      CertWithRevocationInfo cert, CertRevocationInfo revInfo)
+      throws SQLException {
+    X509Cert x509Cert = cert.getCert().getCert();
+
+    int idx = 1;
+    ps.setInt(idx++, ca.getId());
+    ps.setLong(idx++, idGenerator.nextId());
+    ps.setLong(idx++, lastUpdate);
+    ps.setString(idx++, x509Cert.getSerialNumber().toString(16));
+    ps.setLong(idx++, x509Cert.getNotAfter().getTime() / 1000);
+    ps.setInt(idx++, cert.getCrlScope());
+    ps.setInt(idx++, op);
+    if (revInfo == null) {
+      ps.setNull(idx++, Types.SMALLINT);
+      ps.setNull(idx++, Types.BIGINT);
+      ps.setNull(idx, Types.BIGINT);
+    } else {
+      ps.setInt(idx++, revInfo.getReason().getCode());
+      ps.setLong(idx++, revInfo.getRevocationTime().getTime() / 1000);
+      Date invalidityTime = revInfo.getInvalidityTime();
+      setLong(ps, idx, (invalidityTime == null) ? null : invalidityTime.getTime() / 1000);
+    }
+  } // method setCrlChangelogParams
+
+  private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+    if (value == null) {
+      ps.setNull(index, Types.BIGINT);
+    } else {
+      ps.setLong(index, value);
+    }
+  } // method setLong
+
+  private void certStatusChanged() {
+    certStatusChangeCount.incrementAndGet();
+    synchronized (certStatusChangeMonitor) {
+      certStatusChangeMonitor.notifyAll();
+    }
+  } // method certStatusChanged
+
+  /**
+   * Returns the number of changes of the certificate status by this instance, to be passed to
+   * {@link #awaitCertStatusChange(long, long)}.
+   * @return the number of changes.
+   */
+  public long getCertStatusChangeCount() {
+    return certStatusChangeCount.get();
   }
 
+  /**
+   * Waits until this instance changes the status of a certificate. Changes made by other CA
+   * instances sharing the database are not noticed.
+   * @param changeCount the value of {@link #getCertStatusChangeCount()} before the last query.
+   * @param timeoutMs the maximal time to wait in milliseconds.
+   * @return whether a certificate status has been changed.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public boolean awaitCertStatusChange(long changeCount, long timeoutMs) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    synchronized (certStatusChangeMonitor) {
+      while (certStatusChangeCount.get() == changeCount) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          return false;
+        }
+        certStatusChangeMonitor.wait(remaining);
+      }
+    }
+    return true;
+  } // method awaitCertStatusChange
+
+  /**
+   * Returns the certificates of all CAs changed after the given position, ordered by
+   * FSEQ and ID. The position is the pair (FSEQ, ID) of the last returned certificate. Since
+   * FSEQ is assigned in the order of the commits, no change is committed later before a
+   * returned position. The ID only orders the certificates not changed since FSEQ was added.
+   * @param fromFeedSeq FSEQ of the position.
+   * @param afterId ID of the position.
+   * @param numEntries maximal number of returned certificates.
+   * @return the changed certificates.
+   * @throws OperationException if database error occurs, or if the column CERT.FSEQ does not exist.
+   */
+  public List<CertStatusChange> getCertStatusChanges(long fromFeedSeq, long afterId, int numEntries)
+      throws OperationException {
+    positive(numEntries, "numEntries");
+    if (!changeFeed) {
+      throw new OperationException(SYSTEM_FAILURE,
+          "the change feed requires the column CERT.FSEQ, please apply sql/ca-change-feed.xml");
+    }
+
+    String sql = cacheSqlCertStatusChanges.get(numEntries);
+    if (sql == null) {
+      sql = datasource.buildSelectFirstSql(numEntries, "FSEQ ASC,ID ASC",
+          "ID,FSEQ,CA_ID,SN,NBEFORE,NAFTER,REV,RR,RT,RIT FROM CERT WHERE FSEQ>? OR (FSEQ=? AND ID>?)");
+      cacheSqlCertStatusChanges.put(numEntries, sql);
+    }
+
+    // not from the read replicas: a lagging replica would let the position pass unreplicated changes
+    List<ResultRow> rows = execQueryPrepStmt0(sql, col2Long(fromFeedSeq), col2Long(fromFeedSeq),
+        col2Long(afterId));
+
+    List<CertStatusChange> ret = new ArrayList<>(rows.size());
+    for (ResultRow rs : rows) {
+      boolean revoked = rs.getBoolean("REV");
+      ret.add(new CertStatusChange(rs.getLong("ID"), rs.getLong("FSEQ"), rs.getInt("CA_ID"),
+          rs.getString("SN"), rs.getLong("NBEFORE"), rs.getLong("NAFTER"), revoked,
+          revoked ? rs.getInt("RR") : 0, revoked ? rs.getLong("RT") : 0, revoked ? rs.getLong("RIT") : 0));
+    }
+    return ret;
+  } // method getCertStatusChanges
+
+  /**
+   * Removes the entries of the CRL changelog which are no longer needed to generate delta CRLs.
+   * @param ca the CA.
+   * @param updatedBefore the entries changed before this time (in seconds) are removed.
+   * @return number of removed entries.
+   * @throws OperationException if database error occurs.
+   */
+  public int compactCrlChangelog(NameId ca, long updatedBefore) throws OperationException {
+    notNull(ca, "ca");
+    if (!crlChangelog) {
+      return 0;
+    }
+    return execUpdatePrepStmt0(SQL_DELETE_CRL_CHANGELOG, col2Int(ca.getId()), col2Long(updatedBefore));
+  } // method compactCrlChangelog
+
+  /**
+   * Removes the expired unrevoked certificates with set-based statements, and moves them to the table
+   * CERT_ARCHIVE if {@code archive} is {@code true}, all in one transaction.
+   *
+   * @param ca the CA.
+   * @param runs runs of certificates returned by {@link #getExpiredUnrevokedCerts}, each run
+   *        covers all expired unrevoked certificates between its first and last ID.
+   * @param expiredAt the certificates expired before this time (in seconds) are removed.
+   * @param archive whether to archive the certificates.
+   * @return number of removed certificates.
+   * @throws OperationException if error occurs.
+   */
+  public int removeExpiredCerts(NameId ca, List<List<CertWithRevocationInfo>> runs, long expiredAt, boolean archive)
+      throws OperationException {
+    notNulls(ca, "ca", runs, "runs");
+    if (runs.isEmpty()) {
+      return 0;
+    }
+
+    if (archive && !certArchive) {
+      throw new OperationException(SYSTEM_FAILURE, "table CERT_ARCHIVE does not exist");
+    }
+
+    Connection conn;
+    try {
+      conn = datasource.getConnection();
+    } catch (DataAccessException ex) {
+      throw new OperationException(DATABASE_FAILURE, ex);
+    }
+
+    String sql = null;
+    PreparedStatement ps = null;
+    int[] counts;
+    try {
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      try {
+        if (archive) {
+          sql = SQL_ARCHIVE_EXPIRED_CERTS;
+          ps = datasource.prepareStatement(conn, sql);
+          executeExpiredCertsBatch(ps, ca, runs, expiredAt);
+          datasource.releaseResources(ps, null, false);
+        }
+
+        sql = SQL_REMOVE_EXPIRED_CERTS;
+        ps = datasource.prepareStatement(conn, sql);
+        counts = executeExpiredCertsBatch(ps, ca, runs, expiredAt);
+        conn.commit();
+      } catch (SQLException | DataAccessException ex) {
+        conn.rollback();
+        throw ex;
+      } finally {
+        conn.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException ex) {
+      throw new OperationException(DATABASE_FAILURE, datasource.translate(sql, ex).getMessage());
+    } catch (DataAccessException ex) {
+      throw new OperationException(DATABASE_FAILURE, ex);
+    } finally {
+      datasource.releaseResources(ps, null, false);
+      datasource.returnConnection(conn);
+    }
+
+    int sum = 0;
+    for (int i = 0; i < counts.length; i++) {
+      List<CertWithRevocationInfo> run = runs.get(i);
+      // the driver may not report the number of modified rows
+      sum += (counts[i] < 0) ? run.size() : counts[i];
+      if (counts[i] == 0) {
+        continue;
+      }
+
+      // the counters are reconciled with the database periodically, even if a row has been
+      // revoked in the meantime and is not removed.
+      for (CertWithRevocationInfo cert : run) {
+        certCounters.certRemoved(ca.getId(), cert.getCertprofile(), null, true);
+      }
+    }
+    return sum;
+  } // method removeExpiredCerts
+
+  private static int[] executeExpiredCertsBatch(
+      PreparedStatement ps, NameId ca, List<List<CertWithRevocationInfo>> runs, long expiredAt)
+      throws SQLException {
+    for (List<CertWithRevocationInfo> run : runs) {
+      ps.setInt(1, ca.getId());
+      ps.setLong(2, run.get(0).getCert().getCertId());
+      ps.setLong(3, run.get(run.size() - 1).getCert().getCertId());
+      ps.setLong(4, expiredAt);
+      ps.addBatch();
+    }
+    return ps.executeBatch();
+  } // method executeExpiredCertsBatch
+
   public List<Long> getPublishQueueEntries(NameId ca, NameId publisher, int numEntries)
       throws OperationException {
     String sql = cacheSqlCidFromPublishQueue.get(numEntries);
@@ -579,6 +1252,92 @@ public class CertStore extends CertStoreBase {
     return execQueryLongPrepStmt(sql, col2Int(ca.getId()));
   } // method getCountOfCerts
 
+  /**
+   * Returns the number of certificates of all CAs, counted in memory.
+   * @return the number of certificates.
+   */
+  public long getNumberOfCerts() {
+    return certCounters.getNumberOfCerts();
+  }
+
+  /**
+   * Returns the number of certificates of all CAs to be checked against the given limit.
+   *
+   * <p>The in-memory counters are used only if they have been reconciled with the database and
+   * are not within a margin of the limit (10%, at least {@link #MIN_CERTS_LIMIT_MARGIN}).
+   * Otherwise the certificates are counted in the database, so that the certificates issued by
+   * other CA instances sharing the database since the last reconciliation are included.
+   *
+   * @param limit the maximal number of certificates.
+   * @return the number of certificates.
+   * @throws OperationException if database error occurs.
+   */
+  public long getNumberOfCerts(long limit) throws OperationException {
+    CertCounters counters = certCounters;
+    if (counters.isReconciled()) {
+      long num = counters.getNumberOfCerts();
+      if (num < limit - Math.max(MIN_CERTS_LIMIT_MARGIN, limit / 10)) {
+        return num;
+      }
+    }
+
+    return getCountOfCerts(0);
+  } // method getNumberOfCerts
+
+  public CertStatistics getCertStatistics(NameId ca) {
+    return certCounters.getStatistics(notNull(ca, "ca").getId());
+  }
+
+  /**
+   * Replaces the in-memory certificate counters by the numbers counted in the database.
+   * @param idNameMap map to resolve the names of the certprofiles.
+   * @throws OperationException if database error occurs.
+   */
+  public void reconcileCertStatistics(CaIdNameMap idNameMap) throws OperationException {
+    notNull(idNameMap, "idNameMap");
+    CertCounters counters = new CertCounters(true);
+
+    final String sql = "SELECT CA_ID,PID,REV,RR,COUNT(*) FROM CERT GROUP BY CA_ID,PID,REV,RR";
+    PreparedStatement ps = buildPrepStmt0(sql);
+    ResultSet rs = null;
+    try {
+      rs = ps.executeQuery();
+      while (rs.next()) {
+        boolean rev = rs.getBoolean(3);
+        boolean suspended = rev && rs.getInt(4) == CrlReason.CERTIFICATE_HOLD.getCode();
+        long num = rs.getLong(5);
+        counters.add(rs.getInt(1), getCertprofileName(idNameMap, rs.getInt(2)), num,
+            (rev && !suspended) ? num : 0, suspended ? num : 0, 0);
+      }
+    } catch (SQLException ex) {
+      throw new OperationException(DATABASE_FAILURE, datasource.translate(sql, ex));
+    } finally {
+      datasource.releaseResources(ps, rs);
+    }
+
+    final String sqlExpired = "SELECT CA_ID,PID,COUNT(*) FROM CERT WHERE NAFTER<? GROUP BY CA_ID,PID";
+    ps = buildPrepStmt0(sqlExpired, col2Long(System.currentTimeMillis() / 1000));
+    rs = null;
+    try {
+      rs = ps.executeQuery();
+      while (rs.next()) {
+        counters.add(rs.getInt(1), getCertprofileName(idNameMap, rs.getInt(2)), 0, 0, 0, rs.getLong(3));
+      }
+    } catch (SQLException ex) {
+      throw new OperationException(DATABASE_FAILURE, datasource.translate(sqlExpired, ex));
+    } finally {
+      datasource.releaseResources(ps, rs);
+    }
+
+    this.certCounters = counters;
+    LOG.info("reconciled certificate statistics, {} certificates", counters.getNumberOfCerts());
+  } // method reconcileCertStatistics
+
+  private static String getCertprofileName(CaIdNameMap idNameMap, int id) {
+    String name = idNameMap.getCertprofileName(id);
+    return (name == null) ? "#" + id : name;
+  }
+
   public long getCountOfCerts(long notBeforeSince) throws OperationException {
     if (notBeforeSince <= earliestNotBefore) {
       final String sql = "SELECT COUNT(*) FROM CERT";
@@ -622,19 +1381,42 @@ public class CertStore extends CertStoreBase {
     return ret;
   }
 
-  public List<SerialWithId> getExpiredUnrevokedSerialNumbers(NameId ca, long expiredAt, int numEntries)
+  /**
+   * Gets the expired unrevoked certificates, ordered by the ID.
+   * @param ca the CA.
+   * @param expiredAt the certificates expired before this time (in seconds) are returned.
+   * @param startId the smallest ID.
+   * @param numEntries maximal number of returned certificates.
+   * @param idNameMap the ID-name map.
+   * @return the certificates without revocation information.
+   * @throws OperationException if error occurs.
+   */
+  public List<CertWithRevocationInfo> getExpiredUnrevokedCerts(
+      NameId ca, long expiredAt, long startId, int numEntries, CaIdNameMap idNameMap)
       throws OperationException {
-    notNull(ca, "ca");
+    notNulls(ca, "ca", idNameMap, "idNameMap");
     positive(numEntries, "numEntries");
 
-    String sql = cacheSqlExpiredSerials.get(numEntries);
+    String sql = cacheSqlExpiredCerts.get(numEntries);
     if (sql == null) {
-      sql = datasource.buildSelectFirstSql(numEntries, "ID,SN FROM CERT WHERE CA_ID=? AND NAFTER<? AND REV=0");
-      cacheSqlExpiredSerials.put(numEntries, sql);
+      sql = datasource.buildSelectFirstSql(numEntries, "ID ASC",
+          "ID,PID," + certColumns + " FROM CERT WHERE ID>? AND CA_ID=? AND NAFTER<? AND REV=0");
+      cacheSqlExpiredCerts.put(numEntries, sql);
     }
 
-    return getSerialNumbers0(sql, numEntries, col2Int(ca.getId()), col2Long(expiredAt));
-  } // method getExpiredSerialNumbers
+    List<ResultRow> rows = execQueryPrepStmt0(sql, col2Long(startId - 1), col2Int(ca.getId()), col2Long(expiredAt));
+    List<CertWithRevocationInfo> ret = new ArrayList<>(rows.size());
+    for (ResultRow rs : rows) {
+      CertWithDbId cert = new CertWithDbId(parseCert(getPayload(rs, "CERT")));
+      cert.setCertId(rs.getLong("ID"));
+
+      CertWithRevocationInfo entry = new CertWithRevocationInfo();
+      entry.setCertprofile(idNameMap.getCertprofileName(rs.getInt("PID")));
+      entry.setCert(cert);
+      ret.add(entry);
+    }
+    return ret;
+  } // method getExpiredUnrevokedCerts
 
   public List<SerialWithId> getSuspendedCertSerials(NameId ca, long latestLastUpdate, int numEntries)
       throws OperationException {
@@ -664,45 +1446,53 @@ public class CertStore extends CertStoreBase {
     return ret;
   } // method getExpiredSerialNumbers
 
-  private byte[] getEncodedCrl(NameId ca) throws OperationException {
+  private byte[] getEncodedCrl(NameId ca, int crlScope) throws OperationException {
     notNull(ca, "ca");
 
-    List<ResultRow> rows = execQueryPrepStmt0(sqlCrl, col2Int(ca.getId()));
+    List<ResultRow> rows = execReadQueryPrepStmt0(sqlCrl, col2Int(ca.getId()), col2Int(crlScope));
     long currentThisUpdate = 0;
 
-    String b64Crl = null;
+    ResultRow latest = null;
     // iterate all entries to make sure that the latest CRL will be returned
     for (ResultRow rs : rows) {
       long thisUpdate = rs.getLong("THISUPDATE");
       if (thisUpdate >= currentThisUpdate) {
-        b64Crl = rs.getString("CRL");
+        latest = rs;
         currentThisUpdate = thisUpdate;
       }
     }
 
-    return (b64Crl == null) ? null : Base64.decodeFast(b64Crl);
+    return (latest == null) ? null : getPayload(latest, "CRL");
   } // method getEncodedCrl
 
-  public byte[] getEncodedCrl(NameId ca, BigInteger crlNumber) throws OperationException {
+  /**
+   * Returns the encoded CRL.
+   * @param ca the CA.
+   * @param crlNumber the CRL number, or {@code null} for the current CRL.
+   * @param crlScope the CRL partition, only used if crlNumber is {@code null}.
+   * @return the encoded CRL, or {@code null} if not available.
+   * @throws OperationException if database error occurs.
+   */
+  public byte[] getEncodedCrl(NameId ca, BigInteger crlNumber, int crlScope) throws OperationException {
     notNull(ca, "ca");
 
     if (crlNumber == null) {
-      return getEncodedCrl(ca);
+      return getEncodedCrl(ca, crlScope);
     }
 
-    ResultRow rs = execQuery1PrepStmt0(sqlCrlWithNo, col2Int(ca.getId()), col2Long(crlNumber.longValue()));
+    ResultRow rs = execReadQuery1PrepStmt0(sqlCrlWithNo, col2Int(ca.getId()), col2Long(crlNumber.longValue()));
 
-    return rs == null ? null : Base64.decodeFast(rs.getString("CRL"));
+    return rs == null ? null : getPayload(rs, "CRL");
   } // method getEncodedCrl
 
-  public int cleanupCrls(NameId ca, int numCrls) throws OperationException {
+  public int cleanupCrls(NameId ca, int numCrls, int crlScope) throws OperationException {
     notNull(ca, "ca");
     positive(numCrls, "numCrls");
 
     List<Long> crlNumbers = new LinkedList<>();
 
-    List<ResultRow> rows = execQueryPrepStmt0("SELECT CRL_NO FROM CRL WHERE CA_ID=? AND DELTACRL=?",
-        col2Int(ca.getId()), col2Bool(false));
+    List<ResultRow> rows = execQueryPrepStmt0("SELECT CRL_NO FROM CRL WHERE CA_ID=? AND DELTACRL=? AND CRL_SCOPE=?",
+        col2Int(ca.getId()), col2Bool(false), col2Int(crlScope));
     for (ResultRow rs : rows) {
       crlNumbers.add(rs.getLong("CRL_NO"));
     }
@@ -716,7 +1506,8 @@ public class CertStore extends CertStoreBase {
     }
 
     long crlNumber = crlNumbers.get(numCrlsToDelete - 1);
-    execUpdatePrepStmt0("DELETE FROM CRL WHERE CA_ID=? AND CRL_NO<?", col2Int(ca.getId()), col2Long(crlNumber + 1));
+    execUpdatePrepStmt0("DELETE FROM CRL WHERE CA_ID=? AND CRL_SCOPE=? AND CRL_NO<?",
+        col2Int(ca.getId()), col2Int(crlScope), col2Long(crlNumber + 1));
 
     return numCrlsToDelete;
   } // method cleanupCrls
@@ -730,7 +1521,7 @@ public class CertStore extends CertStoreBase {
       return null;
     }
 
-    X509Cert cert = parseCert(Base64.decodeFast(rs.getString("CERT")));
+    X509Cert cert = parseCert(getPayload(rs, "CERT"));
     CertWithDbId certWithMeta = new CertWithDbId(cert);
     certWithMeta.setCertId(certId);
     CertificateInfo certInfo = new CertificateInfo(certWithMeta, null, ca, caCert,
@@ -763,7 +1554,7 @@ public class CertStore extends CertStoreBase {
 
   private CertWithRevocationInfo buildCertWithRevInfo(long certId, ResultRow rs, CaIdNameMap idNameMap)
       throws OperationException {
-    X509Cert cert = parseCert(Base64.decodeFast(rs.getString("CERT")));
+    X509Cert cert = parseCert(getPayload(rs, "CERT"));
     CertWithDbId certWithMeta = new CertWithDbId(cert);
     certWithMeta.setCertId(certId);
 
@@ -771,18 +1562,16 @@ public class CertStore extends CertStoreBase {
     ret.setCertprofile(idNameMap.getCertprofileName(rs.getInt("PID")));
     ret.setCert(certWithMeta);
     ret.setRevInfo(buildCertRevInfo(rs));
+    ret.setCrlScope(rs.getInt("CRL_SCOPE"));
     return ret;
   } // method getCertWithRevocationInfo
 
   public long getCertId(NameId ca, BigInteger serial) throws OperationException {
     notNulls(ca, "ca", serial, "serial");
 
-    ResultRow rs = execQuery1PrepStmt0(sqlCertInfo,
-        col2Int(ca.getId()), col2Str(serial.toString(16)));
-    if (rs == null) {
-      return 0;
-    }
-    return rs.getLong("ID");
+    ResultRow rs = execQuery1PrepStmt0(sqlKnowsCertForSerial,
+        col2Str(serial.toString(16)), col2Int(ca.getId()));
+    return (rs == null) ? 0 : rs.getLong("ID");
   }
 
   public CertificateInfo getCertInfo(NameId ca, X509Cert caCert, BigInteger serial, CaIdNameMap idNameMap)
@@ -794,7 +1583,7 @@ public class CertStore extends CertStoreBase {
       return null;
     }
 
-    byte[] encodedCert = Base64.decodeFast(rs.getString("CERT"));
+    byte[] encodedCert = getPayload(rs, "CERT");
     CertWithDbId certWithMeta = new CertWithDbId(parseCert(encodedCert));
 
     CertificateInfo certInfo = new CertificateInfo(certWithMeta, null, ca, caCert,
@@ -815,7 +1604,7 @@ public class CertStore extends CertStoreBase {
    */
   public X509Cert getCert(X500Name subjectName, String transactionId)
       throws OperationException {
-    final String sql = buildSelectFirstSql("CERT FROM CERT WHERE TID=? AND (FP_S=? OR FP_RS=?)");
+    final String sql = buildSelectFirstSql(certColumns + " FROM CERT WHERE TID=? AND (FP_S=? OR FP_RS=?)");
 
     long fpSubject = X509Util.fpCanonicalizedName(subjectName);
 
@@ -825,7 +1614,7 @@ public class CertStore extends CertStoreBase {
     params[2] = col2Long(fpSubject);
 
     List<ResultRow> rows = execQueryPrepStmt0(sql, params);
-    return rows == null || rows.isEmpty() ? null : parseCert(Base64.decodeFast(rows.get(0).getString("CERT")));
+    return rows == null || rows.isEmpty() ? null : parseCert(getPayload(rows.get(0), "CERT"));
   } // method getCert
 
   public byte[] getCertRequest(NameId ca, BigInteger serialNumber) throws OperationException {
@@ -838,7 +1627,7 @@ public class CertStore extends CertStoreBase {
     }
 
     row = execQuery1PrepStmt0(sqlReqForId, col2Long(row.getLong("REQ_ID")));
-    return (row == null) ? null : Base64.decodeFast(row.getString("DATA"));
+    return (row == null) ? null : getPayload(row, "DATA");
   } // method getCertRequest
 
   public List<CertListInfo> listCerts(
@@ -903,7 +1692,7 @@ public class CertStore extends CertStoreBase {
     }
 
     final String sql = datasource.buildSelectFirstSql(numEntries, sortByStr, sb.toString());
-    List<ResultRow> rows = execQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
+    List<ResultRow> rows = execReadQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
 
     List<CertListInfo> ret = new LinkedList<>();
     for (ResultRow rs : rows) {
@@ -915,20 +1704,42 @@ public class CertStore extends CertStoreBase {
     return ret;
   } // method listCerts
 
-  public List<CertRevInfoWithSerial> getRevokedCerts(NameId ca, Date notExpiredAt, long startId, int numEntries)
+  /**
+   * Returns the revoked certificates.
+   * @param ca the CA.
+   * @param notExpiredAt only certificates not expired at this time are returned.
+   * @param startId the minimal ID of the certificates.
+   * @param numEntries maximal number of certificates to be returned.
+   * @param crlScope the CRL partition of the certificates, {@code null} for all certificates.
+   * @return the revoked certificates.
+   * @throws OperationException if database error occurs.
+   */
+  public List<CertRevInfoWithSerial> getRevokedCerts(
+      NameId ca, Date notExpiredAt, long startId, int numEntries, Integer crlScope)
       throws OperationException {
     notNulls(ca, "ca", notExpiredAt, "notExpiredAt");
     positive(numEntries, "numEntries");
 
-    String sql = cacheSqlRevokedCerts.get(numEntries);
+    LruCache<Integer, String> cache = (crlScope == null) ? cacheSqlRevokedCerts : cacheSqlRevokedCertsOfScope;
+    String sql = cache.get(numEntries);
     if (sql == null) {
       String coreSql = "ID,SN,RR,RT,RIT FROM CERT WHERE ID>? AND CA_ID=? AND REV=1 AND NAFTER>?";
+      if (crlScope != null) {
+        coreSql += " AND CRL_SCOPE=?";
+      }
       sql = datasource.buildSelectFirstSql(numEntries, "ID ASC", coreSql);
-      cacheSqlRevokedCerts.put(numEntries, sql);
+      cache.put(numEntries, sql);
+    }
+
+    List<SqlColumn2> params = new ArrayList<>(4);
+    params.add(col2Long(startId - 1));
+    params.add(col2Int(ca.getId()));
+    params.add(col2Long(notExpiredAt.getTime() / 1000 + 1));
+    if (crlScope != null) {
+      params.add(col2Int(crlScope));
     }
 
-    List<ResultRow> rows = execQueryPrepStmt0(sql,
-        col2Long(startId - 1), col2Int(ca.getId()), col2Long(notExpiredAt.getTime() / 1000 + 1));
+    List<ResultRow> rows = execQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
 
     List<CertRevInfoWithSerial> ret = new LinkedList<>();
     for (ResultRow rs : rows) {
@@ -943,158 +1754,81 @@ public class CertStore extends CertStoreBase {
     return ret;
   } // method getRevokedCerts
 
-  public List<CertRevInfoWithSerial> getCertsForDeltaCrl(NameId ca, BigInteger baseCrlNumber, Date notExpiredAt)
+  /**
+   * Gets the entries of the delta CRL from the CRL changelog. Only the last change of each
+   * certificate since the generation of the base CRL is considered: revoked certificates are
+   * returned with their revocation information, unrevoked certificates with the reason
+   * removeFromCRL, and removed or expired certificates are not returned.
+   *
+   * @param ca the CA.
+   * @param baseCrlNumber number of the base CRL.
+   * @param notExpiredAt the revoked certificates expired at this time are not returned.
+   * @param crlScope the CRL partition of the certificates, {@code null} for all certificates.
+   * @return the entries of the delta CRL.
+   * @throws OperationException if database error occurs.
+   */
+  public List<CertRevInfoWithSerial> getCertsForDeltaCrl(
+      NameId ca, BigInteger baseCrlNumber, Date notExpiredAt, Integer crlScope)
       throws OperationException {
     notNulls(ca, "ca", notExpiredAt, "notExpiredAt", baseCrlNumber, "baseCrlNumber");
-
-    // Get the Base FullCRL
-    byte[] encodedCrl = getEncodedCrl(ca, baseCrlNumber);
-    CertificateList crl = CertificateList.getInstance(encodedCrl);
-    // Get revoked certs in CRL
-    Enumeration<?> revokedCertsInCrl = crl.getRevokedCertificateEnumeration();
-
-    Set<BigInteger> allSnSet = null;
-
-    boolean supportInSql = datasource.getDatabaseType().supportsInArray();
-    List<BigInteger> snList = new LinkedList<>();
-
-    List<CertRevInfoWithSerial> ret = new LinkedList<>();
-
-    PreparedStatement ps = null;
-    try {
-      while (revokedCertsInCrl.hasMoreElements()) {
-        CRLEntry crlEntry = (CRLEntry) revokedCertsInCrl.nextElement();
-        if (allSnSet == null) {
-          // guess the size of revoked certificate, very rough
-          int averageSize = encodedCrl.length / crlEntry.getEncoded().length;
-          allSnSet = new HashSet<>((int) (1.1 * averageSize));
-        }
-
-        BigInteger sn = crlEntry.getUserCertificate().getPositiveValue();
-        snList.add(sn);
-        allSnSet.add(sn);
-
-        if (!supportInSql) {
-          continue;
-        }
-
-        if (snList.size() == 100) {
-          // check whether revoked certificates have been unrevoked.
-
-          // due to the memory consumption do not use the executeQueryPreparedStament0() method.
-          if (ps == null) {
-            ps = prepareStatement(sqlSelectUnrevokedSn100);
-          }
-
-          for (int i = 1; i < 101; i++) {
-            ps.setString(i, snList.get(i - 1).toString(16));
-          }
-          snList.clear();
-
-          ResultSet rs = ps.executeQuery();
-          try {
-            while (rs.next()) {
-              ret.add(new CertRevInfoWithSerial(0L, new BigInteger(rs.getString("SN"), 16),
-                  CrlReason.REMOVE_FROM_CRL, // reason
-                  new Date(100L * rs.getLong("LUPDATE")), //revocationTime,
-                  null)); // invalidityTime
-            }
-          } finally {
-            datasource.releaseResources(null, rs);
-          }
-        }
-      }
-    } catch (SQLException ex) {
-      throw new OperationException(DATABASE_FAILURE, datasource.translate(sqlSelectUnrevokedSn100, ex).getMessage());
-    } catch (IOException ex) {
-      throw new OperationException(CRL_FAILURE, ex.getMessage());
-    } finally {
-      datasource.releaseResources(ps, null);
+    if (!crlChangelog) {
+      throw new OperationException(CRL_FAILURE, "table CRL_CHANGELOG does not exist");
     }
 
-    if (!snList.isEmpty()) {
-      // check whether revoked certificates have been unrevoked.
-      ps = prepareStatement(sqlSelectUnrevokedSn);
-      try {
-        for (BigInteger sn : snList) {
-          ps.setString(1, sn.toString(16));
-          ResultSet rs = ps.executeQuery();
-          try {
-            if (rs.next()) {
-              ret.add(new CertRevInfoWithSerial(0L, sn, CrlReason.REMOVE_FROM_CRL,
-                  new Date(100L * rs.getLong("LUPDATE")), //revocationTime,
-                  null)); // invalidityTime
-            }
-          } finally {
-            datasource.releaseResources(null, rs);
-          }
-        }
-      } catch (SQLException ex) {
-        throw new OperationException(DATABASE_FAILURE, datasource.translate(sqlSelectUnrevokedSn, ex).getMessage());
-      } finally {
-        datasource.releaseResources(ps, null);
-      }
+    long baseThisUpdate = execQueryLongPrepStmt(SQL_THISUPDATE_CRL_WITH_NO,
+        col2Int(ca.getId()), col2Long(baseCrlNumber.longValue()));
+    if (baseThisUpdate == 0) {
+      throw new OperationException(CRL_FAILURE, "found no base CRL with number " + baseCrlNumber);
     }
 
-    // get list of certificates revoked after the generation of Base FullCRL
-    // we check all revoked certificates with LUPDATE field (last update) > THISUPDATE - 1.
+    // -1: so that no entry is ignored: consider all changes with LUPDATE >= CRL.thisUpdate
+    final long updatedSince = baseThisUpdate - 1;
+    final long notExpiredAtSeconds = notExpiredAt.getTime() / 1000 + 1;
     final int numEntries = 1000;
 
-    String coreSql = "ID,SN,RR,RT,RIT FROM CERT WHERE ID>? AND CA_ID=? AND REV=1 AND NAFTER>? AND LUPDATE>?";
-    String sql = datasource.buildSelectFirstSql(numEntries, "ID ASC", coreSql);
-    ps = prepareStatement(sql);
-    long startId = 1;
-
-    // -1: so that no entry is ignored: consider all revoked certificates with
-    // Database.lastUpdate >= CRL.thisUpdate
-    final long updatedSince = crl.getThisUpdate().getDate().getTime() / 1000 - 1;
-
-    try {
-      ResultSet rs;
-      while (true) {
-        ps.setLong(1, startId - 1);
-        ps.setInt(2, ca.getId());
-        ps.setLong(3, notExpiredAt.getTime() / 1000 + 1);
-        ps.setLong(4, updatedSince);
-        rs = ps.executeQuery();
-
-        try {
-          int num = 0;
-          while (rs.next()) {
-            num++;
-            long id = rs.getLong("ID");
-            if (id > startId) {
-              startId = id;
-            }
-
-            BigInteger sn = new BigInteger(rs.getString("SN"), 16);
-            if (allSnSet != null && allSnSet.contains(sn)) {
-              // already contained in CRL
-              continue;
-            }
-
-            long revInvalidityTime = rs.getLong("RIT");
-            Date invalidityTime = (revInvalidityTime == 0) ? null : new Date(1000 * revInvalidityTime);
-            CertRevInfoWithSerial revInfo = new CertRevInfoWithSerial(id, sn,
-                rs.getInt("RR"), new Date(1000 * rs.getLong("RT")), invalidityTime);
-            ret.add(revInfo);
-          }
+    String coreSql = "SEQ,LUPDATE,SN,NAFTER,OP,RR,RT,RIT FROM CRL_CHANGELOG WHERE SEQ>? AND CA_ID=? AND LUPDATE>?";
+    if (crlScope != null) {
+      coreSql += " AND CRL_SCOPE=?";
+    }
+    String sql = datasource.buildSelectFirstSql(numEntries, "SEQ ASC", coreSql);
+
+    // the last change of each certificate
+    Map<BigInteger, CertRevInfoWithSerial> changes = new HashMap<>();
+
+    long lastSeq = 0;
+    List<ResultRow> rows;
+    do {
+      List<SqlColumn2> params = new ArrayList<>(4);
+      params.add(col2Long(lastSeq));
+      params.add(col2Int(ca.getId()));
+      params.add(col2Long(updatedSince));
+      if (crlScope != null) {
+        params.add(col2Int(crlScope));
+      }
 
-          if (num < numEntries) {
-            // no more entries
-            break;
-          }
-        } finally {
-          datasource.releaseResources(null,rs);
+      rows = execQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
+      for (ResultRow rs : rows) {
+        lastSeq = Math.max(lastSeq, rs.getLong("SEQ"));
+        BigInteger sn = new BigInteger(rs.getString("SN"), 16);
+
+        int op = rs.getInt("OP");
+        if (op == CRL_CHANGELOG_REVOKE && rs.getLong("NAFTER") > notExpiredAtSeconds) {
+          long revInvalidityTime = rs.getLong("RIT");
+          Date invalidityTime = (revInvalidityTime == 0) ? null : new Date(1000 * revInvalidityTime);
+          changes.put(sn, new CertRevInfoWithSerial(0L, sn, rs.getInt("RR"),
+              new Date(1000 * rs.getLong("RT")), invalidityTime));
+        } else if (op == CRL_CHANGELOG_UNREVOKE) {
+          changes.put(sn, new CertRevInfoWithSerial(0L, sn, CrlReason.REMOVE_FROM_CRL,
+              new Date(1000 * rs.getLong("LUPDATE")), // revocationTime
+              null)); // invalidityTime
+        } else {
+          // removed, or expired
+          changes.remove(sn);
         }
       }
-    } catch (SQLException ex) {
-      throw new OperationException(DATABASE_FAILURE, datasource.translate(sql, ex).getMessage());
-    } finally {
-      datasource.releaseResources(ps, null);
-    }
+    } while (rows.size() >= numEntries);
 
-    return ret;
+    return new LinkedList<>(changes.values());
   } // method getCertsForDeltaCrl
 
   public CertStatus getCertStatusForSubject(NameId ca, X500Name subject) throws OperationException {
@@ -1103,6 +1837,53 @@ public class CertStore extends CertStoreBase {
     return (rs == null) ? CertStatus.UNKNOWN : rs.getBoolean("REV") ? CertStatus.REVOKED : CertStatus.GOOD;
   } // method getCertStatusForSubjectFp
 
+  /**
+   * Whether the fingerprints of the certified public keys are saved in the column FP_K.
+   * @return whether {@link #isCertForKeyIssued(NameId, long)} is supported.
+   */
+  public boolean isKeyFingerprintSupported() {
+    return keyFingerprint;
+  }
+
+  /**
+   * Whether the changes of the certificates are ordered by the column CERT.FSEQ.
+   * @return whether {@link #getCertStatusChanges(long, long, int)} is supported.
+   */
+  public boolean isChangeFeedSupported() {
+    return changeFeed;
+  }
+
+  /**
+   * Whether the changes of the certificate status are logged in the table CRL_CHANGELOG.
+   * @return whether {@link #getCertsForDeltaCrl(NameId, BigInteger, Date, Integer)} is supported.
+   */
+  public boolean isCrlChangelogSupported() {
+    return crlChangelog;
+  }
+
+  /**
+   * Whether the expired certificates can be moved to the table CERT_ARCHIVE.
+   * @return whether {@link #removeExpiredCerts(NameId, List, long, boolean)} supports archiving.
+   */
+  public boolean isCertArchiveSupported() {
+    return certArchive;
+  }
+
+  /**
+   * Whether the CA has issued certificate for the public key.
+   * @param ca the CA
+   * @param keyFp first 8 bytes of the SHA1 sum of the SubjectPublicKeyInfo, see {@link FpIdCalculator#hash(byte[])}.
+   * @return whether the CA has issued certificate for the public key.
+   * @throws OperationException if database error occurs.
+   */
+  public boolean isCertForKeyIssued(NameId ca, long keyFp) throws OperationException {
+    notNull(ca, "ca");
+    if (!keyFingerprint) {
+      throw new OperationException(SYSTEM_FAILURE, "column CERT.FP_K does not exist");
+    }
+    return execQuery1PrepStmt0(sqlCertIdForKeyFp, col2Long(keyFp), col2Int(ca.getId())) != null;
+  } // method isCertForKeyIssued
+
   public boolean isHealthy() {
     try {
       execUpdateStmt("SELECT ID FROM CA");
@@ -1124,7 +1905,7 @@ public class CertStore extends CertStoreBase {
     long id = idGenerator.nextId();
     long currentTimeSeconds = System.currentTimeMillis() / 1000;
     execUpdatePrepStmt0(SQL_ADD_REQUEST,
-        col2Long(id), col2Long(currentTimeSeconds), col2Str(Base64.encodeToString(request)));
+        col2Long(id), col2Long(currentTimeSeconds), col2Payload(request));
 
     return id;
   } // method addRequest
@@ -26,6 +26,7 @@ import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.security.util.X509Util;
+import org.xipki.util.Base64;
 import org.xipki.util.Hex;
 import org.xipki.util.exception.ErrorCode;
 import org.xipki.util.exception.OperationException;
@@ -57,9 +58,15 @@ public class CertStoreBase extends QueryExecutor {
 
   protected final String SQL_ADD_CERT;
 
-  protected static final String SQL_REVOKE_CERT = "UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE ID=?";
+  protected final String SQL_REVOKE_CERT;
 
-  protected static final String SQL_REVOKE_SUSPENDED_CERT = "UPDATE CERT SET LUPDATE=?,RR=? WHERE ID=?";
+  protected final String SQL_REVOKE_SUSPENDED_CERT;
+
+  protected final String SQL_UNREVOKE_CERT;
+
+  protected static final String SQL_INCREASE_FEED_SEQ = "UPDATE CERT_FEED_SEQ SET SEQ=SEQ+? WHERE ID=1";
+
+  protected static final String SQL_FEED_SEQ = "SELECT SEQ FROM CERT_FEED_SEQ WHERE ID=1";
 
   protected static final String SQL_INSERT_PUBLISHQUEUE = buildInsertSql("PUBLISHQUEUE", "PID,CA_ID,CID");
 
@@ -67,19 +74,38 @@ public class CertStoreBase extends QueryExecutor {
 
   protected static final String SQL_MAX_CRLNO = "SELECT MAX(CRL_NO) FROM CRL WHERE CA_ID=?";
 
-  protected static final String SQL_MAX_FULL_CRLNO = "SELECT MAX(CRL_NO) FROM CRL WHERE CA_ID=? AND DELTACRL = 0";
+  protected static final String SQL_MAX_FULL_CRLNO =
+      "SELECT MAX(CRL_NO) FROM CRL WHERE CA_ID=? AND DELTACRL = 0 AND CRL_SCOPE=?";
 
   protected static final String SQL_MAX_THISUPDAATE_CRL =
-      "SELECT MAX(THISUPDATE) FROM CRL WHERE CA_ID=? AND DELTACRL=?";
+      "SELECT MAX(THISUPDATE) FROM CRL WHERE CA_ID=? AND DELTACRL=? AND CRL_SCOPE=?";
 
   protected final String SQL_ADD_CRL;
 
   protected static final String SQL_REMOVE_CERT_FOR_ID = "DELETE FROM CERT WHERE ID=?";
 
+  private static final String CERT_COLUMNS = "ID,CA_ID,SN,PID,RID,FP_S,FP_RS,LUPDATE,NBEFORE,NAFTER,"
+      + "REV,RR,RT,RIT,EE,SUBJECT,TID,CRL_SCOPE,SHA1,REQ_SUBJECT,CERT,PRIVATE_KEY";
+
+  private static final String SQL_EXPIRED_CERTS_IN_RANGE =
+      " FROM CERT WHERE CA_ID=? AND ID>=? AND ID<=? AND NAFTER<? AND REV=0";
+
+  protected final String SQL_ARCHIVE_EXPIRED_CERTS;
+
+  protected static final String SQL_REMOVE_EXPIRED_CERTS = "DELETE" + SQL_EXPIRED_CERTS_IN_RANGE;
+
+  protected static final String SQL_ADD_CRL_CHANGELOG =
+      buildInsertSql("CRL_CHANGELOG", "CA_ID,SEQ,LUPDATE,SN,NAFTER,CRL_SCOPE,OP,RR,RT,RIT");
+
+  protected static final String SQL_DELETE_CRL_CHANGELOG = "DELETE FROM CRL_CHANGELOG WHERE CA_ID=? AND LUPDATE<?";
+
+  protected static final String SQL_THISUPDATE_CRL_WITH_NO =
+      "SELECT THISUPDATE FROM CRL WHERE CA_ID=? AND CRL_NO=?";
+
   protected static final String SQL_DELETE_UNREFERENCED_REQUEST =
       "DELETE FROM REQUEST WHERE ID NOT IN (SELECT req.RID FROM REQCERT req)";
 
-  protected static final String SQL_ADD_REQUEST = buildInsertSql("REQUEST", "ID,LUPDATE,DATA");
+  protected final String SQL_ADD_REQUEST;
 
   protected static final String SQL_ADD_REQCERT = buildInsertSql("REQCERT", "ID,RID,CID");
 
@@ -87,6 +113,40 @@ public class CertStoreBase extends QueryExecutor {
 
   protected final int maxX500nameLen;
 
+  /**
+   * Whether the certificates, CRLs and requests are written in the binary columns CERT2, CRL2 and
+   * DATA2 instead of Base64-encoded in CERT, CRL and DATA. The binary columns are added by
+   * sql/ca-binary-payload.xml. Rows written before are read from the text columns until
+   * they are migrated.
+   */
+  protected final boolean binaryPayload;
+
+  /**
+   * Whether the table CERT has the column FP_K, added by sql/ca-key-fingerprint.xml.
+   */
+  protected final boolean keyFingerprint;
+
+  /**
+   * Whether the table CERT has the column FSEQ, added by sql/ca-change-feed.xml. If set, FSEQ follows
+   * ID in the statement to add a certificate, and is the first parameter of the statements to change one.
+   */
+  protected final boolean changeFeed;
+
+  /**
+   * Whether the table CERT_ARCHIVE exists, created by sql/ca-cert-archive.xml.
+   */
+  protected final boolean certArchive;
+
+  /**
+   * Whether the table CRL_CHANGELOG exists, created by sql/ca-crl-changelog.xml.
+   */
+  protected final boolean crlChangelog;
+
+  /**
+   * The columns to select a certificate: CERT, and CERT2 if {@link #binaryPayload}.
+   */
+  protected final String certColumns;
+
   protected final String keypairEncAlg = "AES/GCM/NoPadding";
 
   protected final int keypairEncAlgId = 1;
@@ -113,11 +173,33 @@ public class CertStoreBase extends QueryExecutor {
     }
     this.maxX500nameLen = Integer.parseInt(dbSchemaInfo.variableValue("X500NAME_MAXLEN"));
 
-    this.SQL_ADD_CERT = buildInsertSql("CERT", "ID,LUPDATE,SN,SUBJECT,FP_S,FP_RS," +
-        "NBEFORE,NAFTER,REV,PID,CA_ID,RID,EE,TID,SHA1,REQ_SUBJECT,CRL_SCOPE,CERT, PRIVATE_KEY");
+    this.binaryPayload = datasource.tableHasColumn(null, "CERT", "CERT2");
+    String suffix = binaryPayload ? "2" : "";
+    this.certColumns = binaryPayload ? "CERT,CERT2" : "CERT";
+
+    this.keyFingerprint = datasource.tableHasColumn(null, "CERT", "FP_K");
+    this.changeFeed = datasource.tableHasColumn(null, "CERT", "FSEQ");
+    String fseq = changeFeed ? "FSEQ," : "";
+    this.SQL_ADD_CERT = buildInsertSql("CERT", "ID," + fseq + "LUPDATE,SN,SUBJECT,FP_S,FP_RS," + (keyFingerprint ? "FP_K," : "")
+        + "NBEFORE,NAFTER,REV,PID,CA_ID,RID,EE,TID,SHA1,REQ_SUBJECT,CRL_SCOPE,CERT" + suffix + ",PRIVATE_KEY");
+    this.SQL_REVOKE_CERT = "UPDATE CERT SET " + fseq + "LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE ID=?";
+    this.SQL_REVOKE_SUSPENDED_CERT = "UPDATE CERT SET " + fseq + "LUPDATE=?,RR=? WHERE ID=?";
+    this.SQL_UNREVOKE_CERT = "UPDATE CERT SET " + fseq + "LUPDATE=?,REV=0,RT=NULL,RIT=NULL,RR=NULL WHERE ID=?";
 
     this.SQL_ADD_CRL = buildInsertSql("CRL", "ID,CA_ID,CRL_NO,THISUPDATE,NEXTUPDATE," +
-        "DELTACRL,BASECRL_NO,CRL_SCOPE,SHA1,CRL");
+        "DELTACRL,BASECRL_NO,CRL_SCOPE,SHA1,CRL" + suffix);
+
+    this.SQL_ADD_REQUEST = buildInsertSql("REQUEST", "ID,LUPDATE,DATA" + suffix);
+
+    this.certArchive = datasource.tableExists(null, "CERT_ARCHIVE");
+    this.crlChangelog = datasource.tableExists(null, "CRL_CHANGELOG");
+    if (certArchive) {
+      String archiveColumns = CERT_COLUMNS + (keyFingerprint ? ",FP_K" : "") + (binaryPayload ? ",CERT2" : "");
+      this.SQL_ARCHIVE_EXPIRED_CERTS = "INSERT INTO CERT_ARCHIVE (" + archiveColumns
+          + ") SELECT " + archiveColumns + SQL_EXPIRED_CERTS_IN_RANGE;
+    } else {
+      this.SQL_ARCHIVE_EXPIRED_CERTS = null;
+    }
 
     // INSERT INTO CRL
     updateDbInfo(passwordResolver);
@@ -171,6 +253,35 @@ public class CertStoreBase extends QueryExecutor {
     return new CertRevocationInfo(rs.getInt("RR"), new Date(revTime * 1000), invalidityTime);
   }
 
+  /**
+   * Returns the payload to be written in the column CERT, CRL or DATA, or in the binary column
+   * CERT2, CRL2 or DATA2 if {@link #binaryPayload}.
+   * @param payload the DER-encoded payload.
+   * @return the column value.
+   */
+  protected SqlColumn2 col2Payload(byte[] payload) {
+    return binaryPayload ? col2Bytes(payload) : col2Str(Base64.encodeToString(payload));
+  }
+
+  /**
+   * Reads the payload from the binary column {@code column + "2"}, or if it is not set
+   * from the Base64-encoded text column {@code column}.
+   * @param rs the result row.
+   * @param column the text column CERT, CRL or DATA.
+   * @return the payload, or {@code null} if both columns are not set.
+   */
+  protected byte[] getPayload(ResultRow rs, String column) {
+    if (binaryPayload) {
+      byte[] bytes = rs.getBytes(column + "2");
+      if (bytes != null) {
+        return bytes;
+      }
+    }
+
+    String b64 = rs.getString(column);
+    return b64 == null ? null : Base64.decodeFast(b64);
+  } // method getPayload
+
   protected long getMax(String table, String column) throws OperationException {
     try {
       return datasource.getMax(null, table, column);
@@ -214,6 +325,24 @@ public class CertStoreBase extends QueryExecutor {
     }
   }
 
+  protected ResultRow execReadQuery1PrepStmt0(String sql, SqlColumn2... params)
+      throws OperationException {
+    try {
+      return execReadQuery1PrepStmt(sql, params);
+    } catch (DataAccessException ex) {
+      throw new OperationException(ErrorCode.DATABASE_FAILURE, ex);
+    }
+  }
+
+  protected List<ResultRow> execReadQueryPrepStmt0(String sql, SqlColumn2... params)
+      throws OperationException {
+    try {
+      return execReadQueryPrepStmt(sql, params);
+    } catch (DataAccessException ex) {
+      throw new OperationException(ErrorCode.DATABASE_FAILURE, ex);
+    }
+  }
+
   protected PreparedStatement buildPrepStmt0(String sql, SqlColumn2... columns)
       throws OperationException {
     try {
@@ -39,6 +39,7 @@ class QueryExecutor {
     STRING,
     BOOL,
     TIMESTAMP,
+    BYTES,
   } // class ColumnType
 
   protected static class SqlColumn {
@@ -197,6 +198,10 @@ class QueryExecutor {
     return new SqlColumn2(ColumnType.TIMESTAMP, value);
   }
 
+  protected static SqlColumn2 col2Bytes(byte[] value) {
+    return new SqlColumn2(ColumnType.BYTES, value);
+  }
+
   protected int execUpdateStmt(String sql)
       throws DataAccessException {
     Statement ps = datasource.createStatement();
@@ -248,18 +253,37 @@ class QueryExecutor {
 
   protected ResultRow execQuery1PrepStmt(String sql, SqlColumn2... params)
       throws DataAccessException {
-    List<ResultRow> rows = execQueryPrepStmt(true, sql, params);
+    List<ResultRow> rows = execQueryPrepStmt(true, false, sql, params);
     return rows.isEmpty() ? null : rows.get(0);
   }
 
   protected List<ResultRow> execQueryPrepStmt(String sql, SqlColumn2... params)
       throws DataAccessException {
-    return execQueryPrepStmt(false, sql, params);
+    return execQueryPrepStmt(false, false, sql, params);
   }
 
-  private List<ResultRow> execQueryPrepStmt(boolean single, String sql, SqlColumn2... params)
+  /**
+   * Same as {@link #execQuery1PrepStmt(String, SqlColumn2...)}, but the query may be executed
+   * on a read replica of the database.
+   */
+  protected ResultRow execReadQuery1PrepStmt(String sql, SqlColumn2... params)
       throws DataAccessException {
-    PreparedStatement ps = buildPrepStmt(sql, params);
+    List<ResultRow> rows = execQueryPrepStmt(true, true, sql, params);
+    return rows.isEmpty() ? null : rows.get(0);
+  }
+
+  /**
+   * Same as {@link #execQueryPrepStmt(String, SqlColumn2...)}, but the query may be executed
+   * on a read replica of the database.
+   */
+  protected List<ResultRow> execReadQueryPrepStmt(String sql, SqlColumn2... params)
+      throws DataAccessException {
+    return execQueryPrepStmt(false, true, sql, params);
+  }
+
+  private List<ResultRow> execQueryPrepStmt(boolean single, boolean read, String sql, SqlColumn2... params)
+      throws DataAccessException {
+    PreparedStatement ps = buildPrepStmt(read, sql, params);
     ResultSet rs = null;
     try {
       rs = ps.executeQuery();
@@ -280,53 +304,16 @@ class QueryExecutor {
 
   protected PreparedStatement buildPrepStmt(String sql,  SqlColumn2... columns)
       throws DataAccessException {
+    return buildPrepStmt(false, sql, columns);
+  }
+
+  private PreparedStatement buildPrepStmt(boolean read, String sql,  SqlColumn2... columns)
+      throws DataAccessException {
     PreparedStatement ps = null;
     boolean succ = false;
     try {
-      ps = datasource.prepareStatement(sql);
-
-      int index = 0;
-      for (SqlColumn2 col : columns) {
-        index++;
-
-        ColumnType type = col.type();
-        Object value = col.value();
-
-        try {
-          if (type == ColumnType.STRING) {
-            ps.setString(index, (String) value);
-          } else if (type == ColumnType.INT) {
-            if (value == null) {
-              ps.setNull(index, Types.INTEGER);
-            } else {
-              ps.setInt(index, (Integer) value);
-            }
-          } else if (type == ColumnType.LONG) {
-            if (value == null) {
-              ps.setNull(index, Types.BIGINT);
-            } else {
-              ps.setLong(index, (Long) value);
-            }
-          } else if (type == ColumnType.BOOL) {
-            if (value == null) {
-              ps.setNull(index, Types.INTEGER);
-            } else {
-              ps.setInt(index, (Boolean) value ? 1 : 0);
-            }
-          } else if (type == ColumnType.TIMESTAMP) {
-            if (value == null) {
-              ps.setNull(index, Types.TIMESTAMP);
-            } else {
-              ps.setTimestamp(index, (Timestamp) value);
-            }
-          } else {
-            throw new IllegalStateException("should not reach here, unknown type " + type);
-          }
-        } catch (SQLException ex) {
-          throw datasource.translate(sql, ex);
-        }
-      }
-
+      ps = read ? datasource.prepareReadStatement(sql) : datasource.prepareStatement(sql);
+      setParams(ps, sql, columns);
       succ = true;
       return ps;
     } finally {
@@ -336,6 +323,61 @@ class QueryExecutor {
     }
   }
 
+  /**
+   * Sets the parameters of a prepared statement.
+   * @param ps the prepared statement.
+   * @param sql the SQL of the statement, used in the error message.
+   * @param columns the parameters, starting with the index 1.
+   * @throws DataAccessException if a parameter could not be set.
+   */
+  protected void setParams(PreparedStatement ps, String sql, SqlColumn2... columns)
+      throws DataAccessException {
+    int index = 0;
+    for (SqlColumn2 col : columns) {
+      index++;
+
+      ColumnType type = col.type();
+      Object value = col.value();
+
+      try {
+        if (type == ColumnType.STRING) {
+          ps.setString(index, (String) value);
+        } else if (type == ColumnType.INT) {
+          if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+          } else {
+            ps.setInt(index, (Integer) value);
+          }
+        } else if (type == ColumnType.LONG) {
+          if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+          } else {
+            ps.setLong(index, (Long) value);
+          }
+        } else if (type == ColumnType.BOOL) {
+          if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+          } else {
+            ps.setInt(index, (Boolean) value ? 1 : 0);
+          }
+        } else if (type == ColumnType.TIMESTAMP) {
+          if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+          } else {
+            ps.setTimestamp(index, (Timestamp) value);
+          }
+        } else if (type == ColumnType.BYTES) {
+          // setBytes(index, null) works for BLOB and BYTEA, setNull(index, Types.BLOB) not
+          ps.setBytes(index, (byte[]) value);
+        } else {
+          throw new IllegalStateException("should not reach here, unknown type " + type);
+        }
+      } catch (SQLException ex) {
+        throw datasource.translate(sql, ex);
+      }
+    }
+  }
+
   protected void notNulls(Object param1, String name1, Object param2, String name2) {
     notNull(param1, name1);
     notNull(param2, name2);
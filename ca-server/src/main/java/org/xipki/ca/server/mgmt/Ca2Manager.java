@@ -44,6 +44,7 @@ import org.xipki.datasource.DataAccessException;
 import org.xipki.security.*;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.CollectionUtil;
+import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.RandomUtil;
 import org.xipki.util.StringUtil;
@@ -58,6 +59,10 @@ import java.math.BigInteger;
 import java.security.cert.CertificateException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.xipki.ca.sdk.CaAuditConstants.APPNAME;
 import static org.xipki.ca.sdk.CaAuditConstants.NAME_perf;
@@ -144,15 +149,30 @@ class Ca2Manager {
           return false;
         }
       }
-      ctlogClient = new CtLogClient(ctlogControl.getServers(), ctxConf);
+      try {
+        ctlogClient = new CtLogClient(ctlogControl.getServers(), ctxConf,
+            ctlogControl.getQuorum(), ctlogControl.getTimeoutMs());
+      } catch (ObjectCreationException ex) {
+        LogUtil.error(LOG, ex, concat("CtLogClient.<init> (ca=", caName, ")"));
+        return false;
+      }
+    }
+
+    if (manager.caServerConf.isLazySignerInit() && caEntry.isSignerRequired()) {
+      caEntry.deferSignerInit(manager.securityFactory);
     }
 
-    X509Ca ca;
+    X509Ca ca = null;
     try {
       ca = new X509Ca(manager, caEntry, manager.certstore, ctlogClient);
     } catch (OperationException ex) {
       LogUtil.error(LOG, ex, concat("X509CA.<init> (ca=", caName, ")"));
       return false;
+    } finally {
+      // the CA owns the CT log client only if it has been created.
+      if (ca == null && ctlogClient != null) {
+        IoUtil.closeQuietly(ctlogClient);
+      }
     }
 
     manager.x509cas.put(caName, ca);
@@ -160,6 +180,97 @@ class Ca2Manager {
     return true;
   } // method startCa
 
+  /**
+   * Starts the CAs in parallel. The CAs using the same signer backend are started one after
+   * another, since the backend (e.g. the PKCS#11 module) may not be initialized concurrently.
+   * @param caNames names of the CAs to be started.
+   * @return names of the CAs which could not be started.
+   */
+  List<String> startCas(Collection<String> caNames) {
+    // group the CAs by signer backend, keep the order within the group.
+    Map<String, List<String>> groups = new LinkedHashMap<>();
+    for (String caName : caNames) {
+      String backend = getSignerBackend(manager.caInfos.get(caName));
+      groups.computeIfAbsent(backend, k -> new LinkedList<>()).add(caName);
+    }
+
+    final List<String> failedCaNames = Collections.synchronizedList(new LinkedList<>());
+    int numThreads = Math.min(groups.size(), manager.caServerConf.getCaStartThreads());
+    if (numThreads <= 1) {
+      for (List<String> group : groups.values()) {
+        startCas0(group, failedCaNames);
+      }
+      return failedCaNames;
+    }
+
+    LOG.info("starting {} CAs in {} signer backend groups with {} threads",
+        caNames.size(), groups.size(), numThreads);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>(groups.size());
+      for (List<String> group : groups.values()) {
+        futures.add(executor.submit(() -> startCas0(group, failedCaNames)));
+      }
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          LOG.error("interrupted while starting the CAs");
+          break;
+        } catch (ExecutionException ex) {
+          LogUtil.error(LOG, ex.getCause(), "error starting CAs");
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // the CAs whose start has not been completed
+    for (String caName : caNames) {
+      if (!manager.x509cas.containsKey(caName) && !failedCaNames.contains(caName)) {
+        failedCaNames.add(caName);
+      }
+    }
+    return failedCaNames;
+  } // method startCas
+
+  private void startCas0(List<String> caNames, List<String> failedCaNames) {
+    for (String caName : caNames) {
+      boolean started;
+      try {
+        started = startCa(caName);
+      } catch (RuntimeException ex) {
+        LogUtil.error(LOG, ex, "could not start CA " + caName);
+        started = false;
+      }
+
+      if (started) {
+        LOG.info("started CA {}", caName);
+      } else {
+        failedCaNames.add(caName);
+        LOG.error("could not start CA {}", caName);
+      }
+    }
+  } // method startCas0
+
+  private static String getSignerBackend(CaInfo caInfo) {
+    CaEntry caEntry = caInfo.getCaEntry();
+    if ("pkcs11".equalsIgnoreCase(caEntry.getSignerType()) && caEntry.getSignerConf() != null) {
+      try {
+        List<CaSignerConf> signerConfs = CaEntry.splitCaSignerConfs(caEntry.getSignerConf());
+        String module = new SignerConf(signerConfs.get(0).getConf()).getConfValue("module");
+        return "pkcs11/" + (module == null ? "default" : module);
+      } catch (XiSecurityException | RuntimeException ex) {
+        return "pkcs11";
+      }
+    }
+
+    // signers of other types are independent of each other.
+    return "ca/" + caInfo.getIdent().getName();
+  } // method getSignerBackend
+
   Set<String> getSuccessfulCaNames() {
     Set<String> ret = new HashSet<>();
     for (String name : manager.x509cas.keySet()) {
@@ -782,6 +893,22 @@ class Ca2Manager {
     }
   } // method revokeCertificate
 
+  int revokeCertificates(String caName, BulkRevocationFilter filter, CrlReason reason, Date invalidityTime,
+      boolean generateCrl)
+      throws CaMgmtException {
+    assertMasterModeAndSetuped();
+
+    caName = toNonBlankLower(caName, "caName");
+    notNull(filter, "filter");
+
+    X509Ca ca = getX509Ca(caName);
+    try {
+      return ca.revokeCerts(filter, reason, invalidityTime, generateCrl);
+    } catch (OperationException ex) {
+      throw new CaMgmtException(ex.getMessage(), ex);
+    }
+  } // method revokeCertificates
+
   void unsuspendCertificate(String caName, BigInteger serialNumber) throws CaMgmtException {
     assertMasterModeAndSetuped();
 
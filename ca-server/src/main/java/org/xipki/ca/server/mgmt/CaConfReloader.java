@@ -0,0 +1,492 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.CaMgmtException;
+import org.xipki.ca.api.mgmt.CaStatus;
+import org.xipki.ca.api.mgmt.RequestorInfo;
+import org.xipki.ca.api.mgmt.entry.*;
+import org.xipki.ca.server.*;
+import org.xipki.ca.server.db.CaManagerQueryExecutor;
+import org.xipki.util.LogUtil;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.xipki.util.Args.notNull;
+
+/**
+ * Reloads the configuration of the CA system incrementally.
+ *
+ * <p>The complete configuration is first loaded from the database into a {@link Snapshot}.
+ * Only the entries which differ from the running configuration are rebuilt, and each of them
+ * is swapped in with a single put to the corresponding map of {@link CaManagerImpl}. Requests
+ * in process keep the objects they have already fetched, the replaced objects are closed
+ * after a grace period.
+ *
+ * @author Lijun Liao
+ */
+
+class CaConfReloader {
+
+  /**
+   * Configuration of the CA system as saved in the database.
+   */
+  private static class Snapshot {
+
+    private final Map<String, SignerEntry> signers;
+
+    private final Map<String, KeypairGenEntry> keypairGens;
+
+    private final Map<String, RequestorEntry> requestors;
+
+    private final Map<String, CertprofileEntry> certprofiles;
+
+    private final Map<String, PublisherEntry> publishers;
+
+    private final Map<String, Integer> caAliases;
+
+    private final Map<String, CaInfo> cas;
+
+    private final Map<String, Set<CaHasRequestorEntry>> caHasRequestors;
+
+    private final Map<String, Set<String>> caHasProfiles;
+
+    private final Map<String, Set<String>> caHasPublishers;
+
+    private Snapshot(CaManagerQueryExecutor queryExecutor, CaManagerImpl manager)
+        throws CaMgmtException {
+      Map<String, SignerEntry> signers = new HashMap<>();
+      for (String name : queryExecutor.namesFromTable("SIGNER")) {
+        signers.put(name, queryExecutor.createSigner(name));
+      }
+
+      Map<String, KeypairGenEntry> keypairGens = new HashMap<>();
+      for (String name : queryExecutor.namesFromTable("KEYPAIR_GEN")) {
+        keypairGens.put(name, queryExecutor.createKeypairGen(name));
+      }
+
+      Map<String, RequestorEntry> requestors = new HashMap<>();
+      for (String name : queryExecutor.namesFromTable("REQUESTOR")) {
+        if (!RequestorInfo.NAME_BY_CA.equalsIgnoreCase(name)) {
+          requestors.put(name, queryExecutor.createRequestor(name));
+        }
+      }
+
+      Map<String, CertprofileEntry> certprofiles = new HashMap<>();
+      Map<Integer, String> certprofileNames = new HashMap<>();
+      for (String name : queryExecutor.namesFromTable("PROFILE")) {
+        CertprofileEntry entry = queryExecutor.createCertprofile(name);
+        certprofiles.put(name, entry);
+        certprofileNames.put(entry.getIdent().getId(), name);
+      }
+
+      Map<String, PublisherEntry> publishers = new HashMap<>();
+      Map<Integer, String> publisherNames = new HashMap<>();
+      for (String name : queryExecutor.namesFromTable("PUBLISHER")) {
+        PublisherEntry entry = queryExecutor.createPublisher(name);
+        publishers.put(name, entry);
+        publisherNames.put(entry.getIdent().getId(), name);
+      }
+
+      Map<String, CaInfo> cas = new HashMap<>();
+      Map<String, Set<CaHasRequestorEntry>> caHasRequestors = new HashMap<>();
+      Map<String, Set<String>> caHasProfiles = new HashMap<>();
+      Map<String, Set<String>> caHasPublishers = new HashMap<>();
+
+      for (String name : queryExecutor.namesFromTable("CA")) {
+        CaInfo caInfo = queryExecutor.createCaInfo(name, manager.certstore);
+        NameId ident = caInfo.getIdent();
+        cas.put(name, caInfo);
+        caHasRequestors.put(name, queryExecutor.createCaHasRequestors(ident));
+        caHasProfiles.put(name, toNames(queryExecutor.createCaHasProfiles(ident), certprofileNames));
+        caHasPublishers.put(name, toNames(queryExecutor.createCaHasPublishers(ident), publisherNames));
+      }
+
+      this.signers = Collections.unmodifiableMap(signers);
+      this.keypairGens = Collections.unmodifiableMap(keypairGens);
+      this.requestors = Collections.unmodifiableMap(requestors);
+      this.certprofiles = Collections.unmodifiableMap(certprofiles);
+      this.publishers = Collections.unmodifiableMap(publishers);
+      this.caAliases = Collections.unmodifiableMap(queryExecutor.createCaAliases());
+      this.cas = Collections.unmodifiableMap(cas);
+      this.caHasRequestors = Collections.unmodifiableMap(caHasRequestors);
+      this.caHasProfiles = Collections.unmodifiableMap(caHasProfiles);
+      this.caHasPublishers = Collections.unmodifiableMap(caHasPublishers);
+    } // constructor
+
+    private static Set<String> toNames(Set<Integer> ids, Map<Integer, String> idNameMap) {
+      Set<String> names = new HashSet<>();
+      for (Integer id : ids) {
+        names.add(idNameMap.get(id));
+      }
+      return names;
+    }
+
+  } // class Snapshot
+
+  private static final Logger LOG = LoggerFactory.getLogger(CaConfReloader.class);
+
+  /**
+   * Seconds to wait before the replaced objects are closed.
+   */
+  private static final long CLOSE_GRACE_PERIOD = 60;
+
+  private final CaManagerImpl manager;
+
+  private final Ca2Manager ca2Manager;
+
+  private final CertprofileManager certprofileManager;
+
+  private final PublisherManager publisherManager;
+
+  CaConfReloader(CaManagerImpl manager, Ca2Manager ca2Manager,
+      CertprofileManager certprofileManager, PublisherManager publisherManager) {
+    this.manager = notNull(manager, "manager");
+    this.ca2Manager = notNull(ca2Manager, "ca2Manager");
+    this.certprofileManager = notNull(certprofileManager, "certprofileManager");
+    this.publisherManager = notNull(publisherManager, "publisherManager");
+  } // constructor
+
+  /**
+   * Reloads the changed configuration.
+   * @return whether the configuration has been reloaded. If {@code false}, the CA system
+   *         needs to be restarted.
+   */
+  boolean reload() {
+    if (manager.queryExecutor == null || manager.certstore == null) {
+      return false;
+    }
+
+    Snapshot snapshot;
+    try {
+      snapshot = new Snapshot(manager.queryExecutor, manager);
+    } catch (CaMgmtException | RuntimeException ex) {
+      LogUtil.error(LOG, ex, "could not load the configuration of CA system");
+      return false;
+    }
+
+    Set<String> changedSigners = reloadSigners(snapshot);
+    reloadKeypairGens(snapshot);
+    reloadRequestors(snapshot);
+    reloadCertprofiles(snapshot);
+    reloadPublishers(snapshot);
+    reloadCaAliases(snapshot);
+    reloadCas(snapshot, changedSigners);
+    return true;
+  } // method reload
+
+  private Set<String> reloadSigners(Snapshot snapshot) {
+    Set<String> changed = new HashSet<>();
+    for (Entry<String, SignerEntry> entry : snapshot.signers.entrySet()) {
+      String name = entry.getKey();
+      SignerEntry dbEntry = entry.getValue();
+      if (dbEntry.equals(manager.signerDbEntries.get(name))) {
+        continue;
+      }
+
+      changed.add(name);
+      SignerEntryWrapper signer = null;
+      dbEntry.setConfFaulty(true);
+      try {
+        signer = manager.createSigner(dbEntry);
+        dbEntry.setConfFaulty(false);
+      } catch (CaMgmtException ex) {
+        LogUtil.error(LOG, ex, "could not create signer " + name);
+      }
+
+      manager.signerDbEntries.put(name, dbEntry);
+      final SignerEntryWrapper oldSigner = (signer == null)
+          ? manager.signers.remove(name) : manager.signers.put(name, signer);
+      if (oldSigner != null) {
+        closeLater(oldSigner::close);
+      }
+      LOG.info("reloaded signer {}", name);
+    }
+
+    for (String name : new ArrayList<>(manager.signerDbEntries.keySet())) {
+      if (!snapshot.signers.containsKey(name)) {
+        changed.add(name);
+        final SignerEntryWrapper oldSigner = manager.signers.remove(name);
+        if (oldSigner != null) {
+          closeLater(oldSigner::close);
+        }
+        manager.signerDbEntries.remove(name);
+        LOG.info("removed signer {}", name);
+      }
+    }
+
+    return changed;
+  } // method reloadSigners
+
+  private void reloadKeypairGens(Snapshot snapshot) {
+    for (Entry<String, KeypairGenEntry> entry : snapshot.keypairGens.entrySet()) {
+      String name = entry.getKey();
+      KeypairGenEntry dbEntry = entry.getValue();
+      if (dbEntry.equals(manager.keypairGenDbEntries.get(name))) {
+        continue;
+      }
+
+      KeypairGenEntryWrapper gen = null;
+      try {
+        gen = manager.createKeypairGenerator(dbEntry);
+      } catch (CaMgmtException ex) {
+        LogUtil.error(LOG, ex, "could not create keypair generation " + name);
+      }
+
+      manager.keypairGenDbEntries.put(name, dbEntry);
+      if (gen == null) {
+        manager.keypairGens.remove(name);
+      } else {
+        manager.keypairGens.put(name, gen);
+      }
+      LOG.info("reloaded keypair generation {}", name);
+    }
+
+    for (String name : new ArrayList<>(manager.keypairGenDbEntries.keySet())) {
+      if (!snapshot.keypairGens.containsKey(name)) {
+        manager.keypairGens.remove(name);
+        manager.keypairGenDbEntries.remove(name);
+        LOG.info("removed keypair generation {}", name);
+      }
+    }
+  } // method reloadKeypairGens
+
+  private void reloadRequestors(Snapshot snapshot) {
+    for (Entry<String, RequestorEntry> entry : snapshot.requestors.entrySet()) {
+      String name = entry.getKey();
+      RequestorEntry dbEntry = entry.getValue();
+      RequestorEntry oldDbEntry = manager.requestorDbEntries.get(name);
+      if (dbEntry.equals(oldDbEntry)) {
+        continue;
+      }
+
+      RequestorEntryWrapper requestor = new RequestorEntryWrapper();
+      requestor.setDbEntry(dbEntry);
+
+      if (oldDbEntry != null) {
+        manager.idNameMap.removeRequestor(oldDbEntry.getIdent().getId());
+      }
+      manager.idNameMap.addRequestor(dbEntry.getIdent());
+      manager.requestorDbEntries.put(name, dbEntry);
+      manager.requestors.put(name, requestor);
+      LOG.info("reloaded requestor {}", name);
+    }
+
+    for (String name : new ArrayList<>(manager.requestorDbEntries.keySet())) {
+      if (!snapshot.requestors.containsKey(name)) {
+        manager.requestors.remove(name);
+        RequestorEntry oldDbEntry = manager.requestorDbEntries.remove(name);
+        manager.idNameMap.removeRequestor(oldDbEntry.getIdent().getId());
+        LOG.info("removed requestor {}", name);
+      }
+    }
+  } // method reloadRequestors
+
+  private void reloadCertprofiles(Snapshot snapshot) {
+    for (Entry<String, CertprofileEntry> entry : snapshot.certprofiles.entrySet()) {
+      String name = entry.getKey();
+      CertprofileEntry dbEntry = entry.getValue();
+      CertprofileEntry oldDbEntry = manager.certprofileDbEntries.get(name);
+      if (dbEntry.equals(oldDbEntry)) {
+        continue;
+      }
+
+      IdentifiedCertprofile profile = null;
+      dbEntry.setFaulty(true);
+      try {
+        profile = manager.createCertprofile(dbEntry);
+        dbEntry.setFaulty(false);
+      } catch (CaMgmtException ex) {
+        LogUtil.error(LOG, ex, "could not create certprofile " + name);
+      }
+
+      if (oldDbEntry != null) {
+        manager.idNameMap.removeCertprofile(oldDbEntry.getIdent().getId());
+      }
+      manager.idNameMap.addCertprofile(dbEntry.getIdent());
+      manager.certprofileDbEntries.put(name, dbEntry);
+
+      final IdentifiedCertprofile oldProfile = (profile == null)
+          ? manager.certprofiles.remove(name) : manager.certprofiles.put(name, profile);
+      if (oldProfile != null) {
+        closeLater(() -> certprofileManager.shutdownCertprofile(oldProfile));
+      }
+      LOG.info("reloaded certprofile {}", name);
+    }
+
+    for (String name : new ArrayList<>(manager.certprofileDbEntries.keySet())) {
+      if (!snapshot.certprofiles.containsKey(name)) {
+        CertprofileEntry oldDbEntry = manager.certprofileDbEntries.remove(name);
+        manager.idNameMap.removeCertprofile(oldDbEntry.getIdent().getId());
+        final IdentifiedCertprofile oldProfile = manager.certprofiles.remove(name);
+        if (oldProfile != null) {
+          closeLater(() -> certprofileManager.shutdownCertprofile(oldProfile));
+        }
+        LOG.info("removed certprofile {}", name);
+      }
+    }
+  } // method reloadCertprofiles
+
+  private void reloadPublishers(Snapshot snapshot) {
+    for (Entry<String, PublisherEntry> entry : snapshot.publishers.entrySet()) {
+      String name = entry.getKey();
+      PublisherEntry dbEntry = entry.getValue();
+      PublisherEntry oldDbEntry = manager.publisherDbEntries.get(name);
+      if (dbEntry.equals(oldDbEntry)) {
+        continue;
+      }
+
+      IdentifiedCertPublisher publisher = null;
+      dbEntry.setFaulty(true);
+      try {
+        publisher = manager.createPublisher(dbEntry);
+        dbEntry.setFaulty(false);
+      } catch (CaMgmtException ex) {
+        LogUtil.error(LOG, ex, "could not create publisher " + name);
+      }
+
+      if (oldDbEntry != null) {
+        manager.idNameMap.removePublisher(oldDbEntry.getIdent().getId());
+      }
+      manager.idNameMap.addPublisher(dbEntry.getIdent());
+      manager.publisherDbEntries.put(name, dbEntry);
+
+      final IdentifiedCertPublisher oldPublisher = (publisher == null)
+          ? manager.publishers.remove(name) : manager.publishers.put(name, publisher);
+      if (oldPublisher != null) {
+        closeLater(() -> publisherManager.shutdownPublisher(oldPublisher));
+      }
+      LOG.info("reloaded publisher {}", name);
+    }
+
+    for (String name : new ArrayList<>(manager.publisherDbEntries.keySet())) {
+      if (!snapshot.publishers.containsKey(name)) {
+        PublisherEntry oldDbEntry = manager.publisherDbEntries.remove(name);
+        manager.idNameMap.removePublisher(oldDbEntry.getIdent().getId());
+        final IdentifiedCertPublisher oldPublisher = manager.publishers.remove(name);
+        if (oldPublisher != null) {
+          closeLater(() -> publisherManager.shutdownPublisher(oldPublisher));
+        }
+        LOG.info("removed publisher {}", name);
+      }
+    }
+  } // method reloadPublishers
+
+  private void reloadCaAliases(Snapshot snapshot) {
+    if (snapshot.caAliases.equals(manager.caAliases)) {
+      return;
+    }
+
+    manager.caAliases.putAll(snapshot.caAliases);
+    manager.caAliases.keySet().retainAll(snapshot.caAliases.keySet());
+    LOG.info("reloaded caAliases: {}", manager.caAliases);
+  } // method reloadCaAliases
+
+  private void reloadCas(Snapshot snapshot, Set<String> changedSigners) {
+    for (Entry<String, CaInfo> entry : snapshot.cas.entrySet()) {
+      String name = entry.getKey();
+      CaInfo caInfo = entry.getValue();
+      CaInfo oldCaInfo = manager.caInfos.get(name);
+
+      String crlSignerName = caInfo.getCrlSignerName();
+      boolean changed = oldCaInfo == null
+          || !caInfo.getCaEntry().equals(oldCaInfo.getCaEntry(), true, false)
+          || (crlSignerName != null && changedSigners.contains(crlSignerName));
+
+      // the associations are read for each request, they are swapped without restarting the CA.
+      manager.caHasRequestors.put(name, snapshot.caHasRequestors.get(name));
+      manager.caHasProfiles.put(name, snapshot.caHasProfiles.get(name));
+      manager.caHasPublishers.put(name, snapshot.caHasPublishers.get(name));
+
+      if (!changed) {
+        continue;
+      }
+
+      manager.idNameMap.removeCa(name);
+      manager.idNameMap.addCa(caInfo.getIdent());
+      manager.caInfos.put(name, caInfo);
+      LOG.info("reloaded CA {}: {}", name, caInfo.toString(false));
+
+      X509Ca oldCa = manager.x509cas.get(name);
+      if (CaStatus.ACTIVE == caInfo.getStatus()) {
+        // startCa() replaces the running X509Ca only if the new one could be created.
+        if (ca2Manager.startCa(name)) {
+          LOG.info("started CA {}", name);
+        } else {
+          manager.x509cas.remove(name);
+          LOG.error("could not start CA {}", name);
+        }
+      } else {
+        manager.x509cas.remove(name);
+      }
+
+      if (oldCa != null) {
+        closeLater(oldCa::close);
+      }
+    }
+
+    for (String name : new ArrayList<>(manager.caInfos.keySet())) {
+      if (!snapshot.cas.containsKey(name)) {
+        manager.caInfos.remove(name);
+        manager.idNameMap.removeCa(name);
+        manager.caHasRequestors.remove(name);
+        manager.caHasProfiles.remove(name);
+        manager.caHasPublishers.remove(name);
+        X509Ca oldCa = manager.x509cas.remove(name);
+        if (oldCa != null) {
+          closeLater(oldCa::close);
+        }
+        LOG.info("removed CA {}", name);
+      }
+    }
+  } // method reloadCas
+
+  private void closeLater(Runnable closeAction) {
+    closeLater(manager, closeAction);
+  }
+
+  /**
+   * Closes the replaced object after a grace period, so that the requests in process
+   * can complete against it.
+   * @param manager the CA manager.
+   * @param closeAction the action to close the object.
+   */
+  static void closeLater(CaManagerImpl manager, Runnable closeAction) {
+    Runnable task = () -> {
+      try {
+        closeAction.run();
+      } catch (Throwable th) {
+        LogUtil.warn(LOG, th, "could not close replaced object");
+      }
+    };
+
+    ScheduledThreadPoolExecutor executor = manager.getScheduledThreadPoolExecutor();
+    if (executor == null) {
+      task.run();
+    } else {
+      executor.schedule(task, CLOSE_GRACE_PERIOD, SECONDS);
+    }
+  } // method closeLater
+
+}
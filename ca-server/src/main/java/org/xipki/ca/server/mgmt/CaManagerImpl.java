@@ -37,6 +37,7 @@ import org.xipki.ca.server.db.CertStore.SystemEvent;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceConf;
 import org.xipki.datasource.DataSourceFactory;
+import org.xipki.datasource.DataSourceStats;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.license.api.CmLicense;
 import org.xipki.password.PasswordResolverException;
@@ -116,6 +117,28 @@ public class CaManagerImpl implements CaManager, Closeable {
 
   } // class UnreferencedRequestCleaner
 
+  private class CertStatisticsReconciler implements Runnable {
+
+    private boolean inProcess;
+
+    @Override
+    public void run() {
+      if (inProcess || !caSystemSetuped) {
+        return;
+      }
+
+      inProcess = true;
+      try {
+        certstore.reconcileCertStatistics(idNameMap);
+      } catch (Throwable th) {
+        LogUtil.error(LOG, th, "could not reconcile certificate statistics");
+      } finally {
+        inProcess = false;
+      }
+    } // method run
+
+  } // class CertStatisticsReconciler
+
   private class CaRestarter implements Runnable {
 
     private boolean inProcess;
@@ -135,8 +158,16 @@ public class CaManagerImpl implements CaManager, Closeable {
             new Date(caChangedTime * 1000L), lastStartTime);
 
         if (caChangedTime > lastStartTime.getTime() / 1000L) {
-          LOG.info("received event to restart CA");
-          restartCaSystem();
+          LOG.info("received event to reload CA configuration");
+          Date reloadStartTime = new Date();
+          if (caSystemSetuped && caConfReloader.reload()) {
+            lastStartTime = reloadStartTime;
+            auditLogPciEvent(true, "CA_CHANGE");
+            LOG.info("reloaded CA configuration");
+          } else {
+            LOG.info("could not reload CA configuration, restart CA system");
+            restartCaSystem();
+          }
         } else {
           LOG.debug("received no event to restart CA");
         }
@@ -240,6 +271,8 @@ public class CaManagerImpl implements CaManager, Closeable {
 
   private final Ca2Manager ca2Manager;
 
+  private final CaConfReloader caConfReloader;
+
   private final CertprofileManager certprofileManager;
 
   private final ConfLoader confLoader;
@@ -296,6 +329,7 @@ public class CaManagerImpl implements CaManager, Closeable {
     this.requestorManager = new RequestorManager(this);
     this.signerManager = new SignerManager(this);
     this.keypairGenManager = new KeypairGenManager(this);
+    this.caConfReloader = new CaConfReloader(this, ca2Manager, certprofileManager, publisherManager);
   } // constructor
 
   public SecurityFactory getSecurityFactory() {
@@ -651,6 +685,16 @@ public class CaManagerImpl implements CaManager, Closeable {
     return noReserved;
   }
 
+  @Override
+  public List<DataSourceStats> getDataSourceStats() {
+    List<DataSourceStats> ret = new ArrayList<>(1);
+    DataSourceStats stats = datasource == null ? null : datasource.getStats(true);
+    if (stats != null) {
+      ret.add(stats);
+    }
+    return ret;
+  } // method getDataSourceStats
+
   private static void checkModificationOfDbSchema(String name) throws CaMgmtException {
     if ("VERSION".equalsIgnoreCase(name) || "VENDOR".equalsIgnoreCase(name)
         || "X500NAME_MAXLEN".equalsIgnoreCase(name)) {
@@ -697,24 +741,22 @@ public class CaManagerImpl implements CaManager, Closeable {
       scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(10);
       scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
 
-      List<String> failedCaNames = new LinkedList<>();
+      try {
+        certstore.reconcileCertStatistics(idNameMap);
+      } catch (OperationException ex) {
+        LogUtil.error(LOG, ex, "could not reconcile certificate statistics");
+      }
 
       // Add the CAs to the store
+      List<String> activeCaNames = new LinkedList<>();
       for (Entry<String, CaInfo> entry : caInfos.entrySet()) {
-        String caName = entry.getKey();
-        CaStatus status = entry.getValue().getStatus();
-        if (CaStatus.ACTIVE != status) {
-          continue;
-        }
-
-        if (ca2Manager.startCa(caName)) {
-          LOG.info("started CA {}", caName);
-        } else {
-          failedCaNames.add(caName);
-          LOG.error("could not start CA {}", caName);
+        if (CaStatus.ACTIVE == entry.getValue().getStatus()) {
+          activeCaNames.add(entry.getKey());
         }
       }
 
+      List<String> failedCaNames = new LinkedList<>(ca2Manager.startCas(activeCaNames));
+
       caSystemSetuped = true;
       StringBuilder sb = new StringBuilder();
       sb.append("started CA system");
@@ -743,6 +785,8 @@ public class CaManagerImpl implements CaManager, Closeable {
             new CertsInQueuePublisher(), 120, 120, SECONDS);
         scheduledThreadPoolExecutor.scheduleAtFixedRate(
             new UnreferencedRequestCleaner(), 60, 24L * 60 * 60, SECONDS); // 1 DAY
+        scheduledThreadPoolExecutor.scheduleAtFixedRate(
+            new CertStatisticsReconciler(), 60L * 60, 60L * 60, SECONDS); // 1 HOUR
       } else {
         sb.append(": no CA is configured");
       }
@@ -764,6 +808,20 @@ public class CaManagerImpl implements CaManager, Closeable {
         sb.delete(len - 2, len);
       }
 
+      if (caServerConf.isLazySignerInit()) {
+        List<String> deferredCaNames = new LinkedList<>();
+        for (Entry<String, X509Ca> entry : x509cas.entrySet()) {
+          if (!entry.getValue().isReady()) {
+            deferredCaNames.add(entry.getKey());
+          }
+        }
+
+        if (!deferredCaNames.isEmpty()) {
+          sb.append(", the signers of following CAs will be initialized on first use: ");
+          sb.append(String.join(", ", deferredCaNames));
+        }
+      }
+
       LOG.info("{}", sb);
     } finally {
       initializing = false;
@@ -829,6 +887,10 @@ public class CaManagerImpl implements CaManager, Closeable {
     return scheduledThreadPoolExecutor;
   }
 
+  public CertStore getCertstore() {
+    return certstore;
+  }
+
   @Override
   public Set<String> getCertprofileNames() {
     return certprofileDbEntries.keySet();
@@ -859,6 +921,16 @@ public class CaManagerImpl implements CaManager, Closeable {
     return caInfos.keySet();
   }
 
+  @Override
+  public CertStatistics getCertStatistics(String caName) throws CaMgmtException {
+    caName = toNonBlankLower(caName, "caName");
+    NameId ident = idNameMap.getCa(caName);
+    if (ident == null) {
+      throw new CaMgmtException("unknown CA " + caName);
+    }
+    return certstore.getCertStatistics(ident);
+  } // method getCertStatistics
+
   @Override
   public Set<String> getSuccessfulCaNames() {
     return ca2Manager.getSuccessfulCaNames();
@@ -1136,6 +1208,13 @@ public class CaManagerImpl implements CaManager, Closeable {
     ca2Manager.revokeCertificate(caName, serialNumber, reason, invalidityTime);
   }
 
+  @Override
+  public int revokeCertificates(String caName, BulkRevocationFilter filter, CrlReason reason,
+      Date invalidityTime, boolean generateCrl)
+      throws CaMgmtException {
+    return ca2Manager.revokeCertificates(caName, filter, reason, invalidityTime, generateCrl);
+  }
+
   @Override
   public void unsuspendCertificate(String caName, BigInteger serialNumber) throws CaMgmtException {
     ca2Manager.unsuspendCertificate(caName, serialNumber);
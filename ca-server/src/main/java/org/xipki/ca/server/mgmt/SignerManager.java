@@ -122,7 +122,10 @@ class SignerManager {
     }
 
     manager.signerDbEntries.remove(name);
-    manager.signers.remove(name);
+    SignerEntryWrapper oldSigner = manager.signers.remove(name);
+    if (oldSigner != null) {
+      CaConfReloader.closeLater(manager, oldSigner::close);
+    }
     LOG.info("removed signer '{}'", name);
   } // method removeSigner
 
@@ -141,10 +144,11 @@ class SignerManager {
 
     SignerEntryWrapper newResponder = manager.queryExecutor.changeSigner(name, type, conf, base64Cert, manager);
 
-    manager.signers.remove(name);
-    manager.signerDbEntries.remove(name);
     manager.signerDbEntries.put(name, newResponder.getDbEntry());
-    manager.signers.put(name, newResponder);
+    SignerEntryWrapper oldSigner = manager.signers.put(name, newResponder);
+    if (oldSigner != null) {
+      CaConfReloader.closeLater(manager, oldSigner::close);
+    }
   } // method changeSigner
 
   SignerEntryWrapper createSigner(SignerEntry entry) throws CaMgmtException {
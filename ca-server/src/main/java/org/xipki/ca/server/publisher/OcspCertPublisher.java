@@ -38,11 +38,14 @@ import org.xipki.security.X509Cert;
 import org.xipki.util.Args;
 import org.xipki.util.ConfPairs;
 import org.xipki.util.FileOrValue;
+import org.xipki.util.LogUtil;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -153,6 +156,19 @@ public class OcspCertPublisher extends CertPublisher {
     }
   } // method certificateRevoked
 
+  @Override
+  public List<CertWithDbId> certificatesRevoked(X509Cert caCert, List<CertWithDbId> certs,
+      String certprofile, CertRevocationInfo revInfo) {
+    try {
+      queryExecutor.revokeCerts(caCert, certs, revInfo);
+      return Collections.emptyList();
+    } catch (Exception ex) {
+      LogUtil.warn(LOG, ex, "could not publish revocation of " + certs.size()
+          + " certificates in batch, publish them one by one");
+      return super.certificatesRevoked(caCert, certs, certprofile, revInfo);
+    }
+  } // method certificatesRevoked
+
   @Override
   public boolean certificateUnrevoked(X509Cert caCert, CertWithDbId cert) {
     try {
@@ -232,6 +248,18 @@ public class OcspCertPublisher extends CertPublisher {
     }
   } // method certificateRemoved
 
+  @Override
+  public List<CertWithDbId> certificatesRemoved(X509Cert issuerCert, List<CertWithDbId> certs) {
+    try {
+      queryExecutor.removeCerts(issuerCert, certs);
+      return Collections.emptyList();
+    } catch (Exception ex) {
+      LogUtil.warn(LOG, ex, "could not publish removal of " + certs.size()
+          + " certificates in batch, publish them one by one");
+      return super.certificatesRemoved(issuerCert, certs);
+    }
+  } // method certificatesRemoved
+
   @Override
   public boolean publishsGoodCert() {
     return publishsGoodCert;
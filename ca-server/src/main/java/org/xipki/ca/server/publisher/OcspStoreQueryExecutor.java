@@ -317,6 +317,57 @@ class OcspStoreQueryExecutor {
     addOrUpdateCert(caCert, cert, revInfo);
   }
 
+  /**
+   * Revokes the certificates with one batched UPDATE, the certificates not contained in the
+   * database are added afterwards.
+   */
+  void revokeCerts(X509Cert caCert, List<CertWithDbId> certs, CertRevocationInfo revInfo)
+      throws DataAccessException, OperationException {
+    notNull(caCert, "caCert");
+    notNull(revInfo, "revInfo");
+    if (certs.isEmpty()) {
+      return;
+    }
+
+    int issuerId = getIssuerId(caCert);
+
+    final String sql = "UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE IID=? AND SN=?";
+    long currentTimeSeconds = System.currentTimeMillis() / 1000;
+    long revTime = revInfo.getRevocationTime().getTime() / 1000;
+
+    int[] counts;
+    PreparedStatement ps = datasource.prepareStatement(sql);
+    try {
+      for (CertWithDbId cert : certs) {
+        int idx = 1;
+        ps.setLong(idx++, currentTimeSeconds);
+        setBoolean(ps, idx++, true);
+        ps.setLong(idx++, revTime);
+        if (revInfo.getInvalidityTime() != null) {
+          ps.setLong(idx++, revInfo.getInvalidityTime().getTime() / 1000);
+        } else {
+          ps.setNull(idx++, Types.INTEGER);
+        }
+        ps.setInt(idx++, revInfo.getReason().getCode());
+        ps.setInt(idx++, issuerId);
+        ps.setString(idx, cert.getCert().getSerialNumber().toString(16));
+        ps.addBatch();
+      }
+      counts = ps.executeBatch();
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, null);
+    }
+
+    for (int i = 0; i < counts.length; i++) {
+      // not contained in the database, or the driver does not report the number of modified rows
+      if (counts[i] == 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+        addOrUpdateCert(caCert, certs.get(i), revInfo);
+      }
+    }
+  } // method revokeCerts
+
   void unrevokeCert(X509Cert issuer, CertWithDbId cert)
       throws DataAccessException {
     notNull(issuer, "issuer");
@@ -393,6 +444,33 @@ class OcspStoreQueryExecutor {
     }
   } // method removeCert
 
+  void removeCerts(X509Cert issuer, List<CertWithDbId> certs)
+      throws DataAccessException {
+    notNull(issuer, "issuer");
+    notNull(certs, "certs");
+
+    Integer issuerId = issuerStore.getIdForCert(issuer.getEncoded());
+    if (issuerId == null || certs.isEmpty()) {
+      return;
+    }
+
+    final String sql = "DELETE FROM CERT WHERE IID=? AND SN=?";
+    PreparedStatement ps = datasource.prepareStatement(sql);
+
+    try {
+      for (CertWithDbId cert : certs) {
+        ps.setInt(1, issuerId);
+        ps.setString(2, cert.getCert().getSerialNumber().toString(16));
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, null);
+    }
+  } // method removeCerts
+
   void revokeCa(X509Cert caCert, CertRevocationInfo revInfo)
       throws DataAccessException {
     notNull(caCert, "caCert");
@@ -0,0 +1,156 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.server.CertSignatureVerifier.Mode;
+
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for {@link CertSignatureVerifier}. The test is in the package of
+ * {@link CertSignatureVerifier}, since the latter is package-private.
+ *
+ * @author Lijun Liao
+ */
+
+public class CertSignatureVerifierTest {
+
+  private static final String CA_NAME = "myca1";
+
+  @Test
+  public void testDefaultPolicy() throws Exception {
+    for (String policy : new String[]{null, "", "  "}) {
+      CertSignatureVerifier verifier = newVerifier(policy, false);
+      Assert.assertEquals(Mode.ALWAYS, verifier.getMode());
+      Assert.assertEquals(1, verifier.getSampleRate());
+      Assert.assertTrue(verifier.isActive());
+    }
+  }
+
+  @Test
+  public void testAlways() throws Exception {
+    for (String policy : new String[]{"always", " ALWAYS "}) {
+      CertSignatureVerifier verifier = newVerifier(policy, false);
+      Assert.assertEquals(Mode.ALWAYS, verifier.getMode());
+      Assert.assertTrue(verifier.isActive());
+      for (int i = 0; i < 5; i++) {
+        Assert.assertTrue(verifier.isSelected());
+      }
+    }
+  }
+
+  @Test
+  public void testNever() throws Exception {
+    CertSignatureVerifier verifier = newVerifier("never", true);
+    Assert.assertEquals(Mode.NEVER, verifier.getMode());
+    Assert.assertFalse(verifier.isActive());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertFalse(verifier.isSelected());
+    }
+  }
+
+  @Test
+  public void testHsm() throws Exception {
+    CertSignatureVerifier verifier = newVerifier("hsm", true);
+    Assert.assertEquals(Mode.HSM, verifier.getMode());
+    Assert.assertTrue(verifier.isActive());
+    Assert.assertTrue(verifier.isSelected());
+
+    verifier = newVerifier("HSM", false);
+    Assert.assertEquals(Mode.HSM, verifier.getMode());
+    Assert.assertFalse(verifier.isActive());
+    Assert.assertFalse(verifier.isSelected());
+  }
+
+  @Test
+  public void testSample() throws Exception {
+    CertSignatureVerifier verifier = newVerifier("sample:3", false);
+    Assert.assertEquals(Mode.SAMPLE, verifier.getMode());
+    Assert.assertEquals(3, verifier.getSampleRate());
+    Assert.assertTrue(verifier.isActive());
+
+    // the first, fourth, seventh, ... certificates are verified
+    for (int i = 0; i < 9; i++) {
+      Assert.assertEquals("certificate " + i, i % 3 == 0, verifier.isSelected());
+    }
+
+    verifier = newVerifier(" Sample: 1 ", false);
+    Assert.assertEquals(1, verifier.getSampleRate());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertTrue(verifier.isSelected());
+    }
+  } // method testSample
+
+  @Test
+  public void testSampleConcurrently() throws Exception {
+    final CertSignatureVerifier verifier = newVerifier("sample:10", false);
+    final AtomicInteger numSelected = new AtomicInteger();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(new Thread(() -> {
+        for (int j = 0; j < 2500; j++) {
+          if (verifier.isSelected()) {
+            numSelected.incrementAndGet();
+          }
+        }
+      }));
+    }
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(1000, numSelected.get());
+  } // method testSampleConcurrently
+
+  @Test
+  public void testInvalidPolicies() throws Exception {
+    String[] policies = {"sample:0", "sample:-1", "sample:", "sample:abc", "sample:1.5",
+        "sample", "sometimes", "hsm2", "always,never"};
+    for (String policy : policies) {
+      try {
+        newVerifier(policy, true);
+        Assert.fail("invalid policy '" + policy + "' is accepted");
+      } catch (IllegalArgumentException ex) {
+        Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("invalid verify-after-sign: "));
+      }
+    }
+  } // method testInvalidPolicies
+
+  private static CertSignatureVerifier newVerifier(String policy, boolean hsmSigner) throws Exception {
+    return new CertSignatureVerifier(CA_NAME, policy, hsmSigner, generatePublicKey());
+  }
+
+  private static PublicKey generatePublicKey() throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(new ECGenParameterSpec("secp256r1"));
+    return kpGen.generateKeyPair().getPublic();
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.StringUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test for {@link KeyBlocklist}. The test is in the package of {@link KeyBlocklist}, since the
+ * latter is package-private.
+ *
+ * @author Lijun Liao
+ */
+
+public class KeyBlocklistTest {
+
+  @Test
+  public void testSpkiDigest()
+      throws Exception {
+    RSAPublicKey blocked = generateRsaKey();
+    RSAPublicKey other = generateRsaKey();
+
+    KeyBlocklist blocklist = load(Arrays.asList(
+        "# SHA-256 of the SubjectPublicKeyInfo",
+        "",
+        Hex.toHexString(HashAlgo.SHA256.hash(blocked.getEncoded()))));
+
+    Assert.assertEquals(1, blocklist.size());
+    Assert.assertTrue(blocklist.isBlocked(blocked.getEncoded(), blocked.getModulus()));
+    Assert.assertFalse(blocklist.isBlocked(other.getEncoded(), other.getModulus()));
+  }
+
+  @Test
+  public void testDebianFingerprint()
+      throws Exception {
+    RSAPublicKey blocked = generateRsaKey();
+    RSAPublicKey other = generateRsaKey();
+
+    // upper-case hex as in the Debian openssl-blacklist
+    KeyBlocklist blocklist = load(Collections.singletonList(
+        debianFingerprint(blocked.getModulus()).toUpperCase()));
+
+    Assert.assertEquals(1, blocklist.size());
+    Assert.assertTrue(blocklist.isBlocked(blocked.getEncoded(), blocked.getModulus()));
+    Assert.assertFalse(blocklist.isBlocked(other.getEncoded(), other.getModulus()));
+    // not an RSA key
+    Assert.assertFalse(blocklist.isBlocked(blocked.getEncoded(), null));
+  }
+
+  @Test
+  public void testManyEntries()
+      throws Exception {
+    Random rnd = new Random(1);
+    List<String> lines = new ArrayList<>();
+    List<byte[]> members = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      byte[] spki = new byte[100];
+      rnd.nextBytes(spki);
+      members.add(spki);
+      lines.add(Hex.toHexString(HashAlgo.SHA256.hash(spki)));
+    }
+    // duplicate entries are counted once
+    lines.add(lines.get(0));
+
+    KeyBlocklist blocklist = load(lines);
+    Assert.assertEquals(2000, blocklist.size());
+
+    for (byte[] spki : members) {
+      Assert.assertTrue(blocklist.isBlocked(spki, null));
+    }
+
+    for (int i = 0; i < 2000; i++) {
+      byte[] spki = new byte[100];
+      rnd.nextBytes(spki);
+      Assert.assertFalse(blocklist.isBlocked(spki, null));
+    }
+  }
+
+  @Test
+  public void testMultipleFiles()
+      throws Exception {
+    RSAPublicKey key1 = generateRsaKey();
+    RSAPublicKey key2 = generateRsaKey();
+
+    File file1 = writeFile(Collections.singletonList(Hex.toHexString(HashAlgo.SHA256.hash(key1.getEncoded()))));
+    File file2 = writeFile(Collections.singletonList(debianFingerprint(key2.getModulus())));
+    try {
+      KeyBlocklist blocklist = KeyBlocklist.load(Arrays.asList(file1.getPath(), file2.getPath()));
+      Assert.assertEquals(2, blocklist.size());
+      Assert.assertTrue(blocklist.isBlocked(key1.getEncoded(), key1.getModulus()));
+      Assert.assertTrue(blocklist.isBlocked(key2.getEncoded(), key2.getModulus()));
+    } finally {
+      file1.delete();
+      file2.delete();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidHex()
+      throws Exception {
+    load(Collections.singletonList("not a hex string"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidLength()
+      throws Exception {
+    load(Collections.singletonList("0102030405"));
+  }
+
+  private static KeyBlocklist load(List<String> lines)
+      throws IOException {
+    File file = writeFile(lines);
+    try {
+      return KeyBlocklist.load(Collections.singletonList(file.getPath()));
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static File writeFile(List<String> lines)
+      throws IOException {
+    File file = File.createTempFile("key-blocklist", ".txt");
+    Files.write(file.toPath(), lines);
+    return file;
+  }
+
+  private static String debianFingerprint(BigInteger modulus) {
+    byte[] sha1 = HashAlgo.SHA1.hash(
+        StringUtil.toUtf8Bytes("Modulus=" + modulus.toString(16).toUpperCase() + "\n"));
+    return Hex.toHexString(Arrays.copyOfRange(sha1, sha1.length - 10, sha1.length));
+  }
+
+  private static RSAPublicKey generateRsaKey()
+      throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA");
+    kpGen.initialize(1024);
+    return (RSAPublicKey) kpGen.generateKeyPair().getPublic();
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.server.SerialNumberFilter.BloomBits;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test for the Bloom filter {@link SerialNumberFilter.BloomBits}. The test is in the package of
+ * {@link SerialNumberFilter}, since the latter is package-private.
+ *
+ * @author Lijun Liao
+ */
+
+public class SerialNumberFilterTest {
+
+  @Test
+  public void testNoFalseNegatives() {
+    BloomBits bits = new BloomBits(1 << 16);
+    Random rnd = new Random(1);
+    List<BigInteger> serials = new ArrayList<>();
+    for (int i = 0; i < bits.getMaxEntries(); i++) {
+      BigInteger serial = new BigInteger(159, rnd);
+      serials.add(serial);
+      bits.add(serial);
+    }
+
+    for (BigInteger serial : serials) {
+      Assert.assertTrue(bits.mightContain(serial));
+    }
+  }
+
+  @Test
+  public void testFalsePositiveRate() {
+    BloomBits bits = new BloomBits(1 << 20);
+    Random rnd = new Random(2);
+    long maxEntries = bits.getMaxEntries();
+    for (long i = 0; i < maxEntries; i++) {
+      bits.add(new BigInteger(159, rnd));
+    }
+
+    int numTests = 100000;
+    int numFalsePositives = 0;
+    for (int i = 0; i < numTests; i++) {
+      // disjoint from the added serial numbers: bit length 160 instead of at most 159
+      if (bits.mightContain(new BigInteger(159, rnd).setBit(159))) {
+        numFalsePositives++;
+      }
+    }
+
+    // about 0.8% at the maximal fill ratio 0.5 with 7 hashes
+    double rate = (double) numFalsePositives / numTests;
+    Assert.assertTrue("false positive rate " + rate, rate < 0.012);
+  }
+
+  @Test
+  public void testEmpty() {
+    BloomBits bits = new BloomBits(1 << 16);
+    Random rnd = new Random(3);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertFalse(bits.mightContain(new BigInteger(64, rnd)));
+    }
+  }
+
+  @Test
+  public void testMaxEntries() {
+    // n = -ln(1 - 0.5) * m / 7
+    Assert.assertEquals(6489, new BloomBits(1 << 16).getMaxEntries());
+    Assert.assertEquals(4 * new BloomBits(1 << 16).getMaxEntries(), new BloomBits(1 << 18).getMaxEntries(), 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new BloomBits(3 * 1024);
+  }
+
+}
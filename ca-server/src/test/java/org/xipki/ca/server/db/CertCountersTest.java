@@ -0,0 +1,165 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.api.mgmt.CertStatistics;
+import org.xipki.security.CrlReason;
+
+/**
+ * Test for {@link CertCounters}. The test is in the package of {@link CertCounters}, since the
+ * latter is package-private.
+ *
+ * @author Lijun Liao
+ */
+
+public class CertCountersTest {
+
+  private static final int CA1 = 1;
+
+  private static final int CA2 = 2;
+
+  @Test
+  public void testAdd() {
+    CertCounters counters = new CertCounters();
+    counters.certAdded(CA1, "tls");
+    counters.certAdded(CA1, "tls");
+    counters.certAdded(CA1, "smime");
+    counters.certAdded(CA2, "tls");
+
+    Assert.assertEquals(4, counters.getNumberOfCerts());
+
+    CertStatistics stats = counters.getStatistics(CA1);
+    assertStatistics(stats, 3, 0, 0, 0);
+    Assert.assertEquals(2, stats.getCertprofiles().size());
+    assertStatistics(stats.getCertprofiles().get("tls"), 2, 0, 0, 0);
+    assertStatistics(stats.getCertprofiles().get("smime"), 1, 0, 0, 0);
+
+    assertStatistics(counters.getStatistics(CA2), 1, 0, 0, 0);
+  }
+
+  @Test
+  public void testUnknownCa() {
+    CertCounters counters = new CertCounters();
+    counters.certAdded(CA1, "tls");
+
+    CertStatistics stats = counters.getStatistics(CA2);
+    assertStatistics(stats, 0, 0, 0, 0);
+    Assert.assertTrue(stats.getCertprofiles().isEmpty());
+  }
+
+  @Test
+  public void testNullCertprofile() {
+    CertCounters counters = new CertCounters();
+    counters.certAdded(CA1, null);
+    assertStatistics(counters.getStatistics(CA1).getCertprofiles().get(""), 1, 0, 0, 0);
+  }
+
+  @Test
+  public void testRevoke() {
+    CertCounters counters = new CertCounters();
+    counters.certAdded(CA1, "tls");
+    counters.certAdded(CA1, "tls");
+
+    counters.certStatusChanged(CA1, "tls", null, CrlReason.KEY_COMPROMISE);
+    assertStatistics(counters.getStatistics(CA1), 2, 1, 0, 0);
+
+    counters.certStatusChanged(CA1, "tls", null, CrlReason.CERTIFICATE_HOLD);
+    assertStatistics(counters.getStatistics(CA1), 2, 1, 1, 0);
+    assertStatistics(counters.getStatistics(CA1).getCertprofiles().get("tls"), 2, 1, 1, 0);
+
+    // the revocation reason of a revoked certificate changes: no effect on the counters
+    counters.certStatusChanged(CA1, "tls", CrlReason.KEY_COMPROMISE, CrlReason.CESSATION_OF_OPERATION);
+    assertStatistics(counters.getStatistics(CA1), 2, 1, 1, 0);
+
+    // suspended certificate is revoked
+    counters.certStatusChanged(CA1, "tls", CrlReason.CERTIFICATE_HOLD, CrlReason.KEY_COMPROMISE);
+    assertStatistics(counters.getStatistics(CA1), 2, 2, 0, 0);
+
+    Assert.assertEquals(2, counters.getNumberOfCerts());
+  }
+
+  @Test
+  public void testUnsuspend() {
+    CertCounters counters = new CertCounters();
+    counters.certAdded(CA1, "tls");
+    counters.certStatusChanged(CA1, "tls", null, CrlReason.CERTIFICATE_HOLD);
+    assertStatistics(counters.getStatistics(CA1), 1, 0, 1, 0);
+
+    counters.certStatusChanged(CA1, "tls", CrlReason.CERTIFICATE_HOLD, null);
+    assertStatistics(counters.getStatistics(CA1), 1, 0, 0, 0);
+    assertStatistics(counters.getStatistics(CA1).getCertprofiles().get("tls"), 1, 0, 0, 0);
+  }
+
+  @Test
+  public void testRemove() {
+    CertCounters counters = new CertCounters();
+    counters.certAdded(CA1, "tls");
+    counters.certAdded(CA1, "tls");
+    counters.certAdded(CA1, "tls");
+    counters.certStatusChanged(CA1, "tls", null, CrlReason.KEY_COMPROMISE);
+    counters.certStatusChanged(CA1, "tls", null, CrlReason.CERTIFICATE_HOLD);
+
+    counters.certRemoved(CA1, "tls", CrlReason.KEY_COMPROMISE, false);
+    assertStatistics(counters.getStatistics(CA1), 2, 0, 1, 0);
+
+    counters.certRemoved(CA1, "tls", CrlReason.CERTIFICATE_HOLD, false);
+    assertStatistics(counters.getStatistics(CA1), 1, 0, 0, 0);
+
+    counters.certRemoved(CA1, "tls", null, false);
+    assertStatistics(counters.getStatistics(CA1), 0, 0, 0, 0);
+    Assert.assertEquals(0, counters.getNumberOfCerts());
+  }
+
+  @Test
+  public void testReconcile() {
+    CertCounters counters = new CertCounters();
+    Assert.assertFalse(counters.isReconciled());
+
+    // the numbers counted in the database, as in CertStore.reconcileCertStatistics()
+    CertCounters reconciled = new CertCounters(true);
+    Assert.assertTrue(reconciled.isReconciled());
+    reconciled.add(CA1, "tls", 10, 3, 0, 0);
+    reconciled.add(CA1, "tls", 5, 0, 5, 0);
+    reconciled.add(CA1, "smime", 2, 0, 0, 0);
+    reconciled.add(CA1, "tls", 0, 0, 0, 4);
+    reconciled.add(CA2, "tls", 7, 0, 0, 0);
+
+    Assert.assertEquals(24, reconciled.getNumberOfCerts());
+    assertStatistics(reconciled.getStatistics(CA1), 17, 3, 5, 4);
+    assertStatistics(reconciled.getStatistics(CA1).getCertprofiles().get("tls"), 15, 3, 5, 4);
+    assertStatistics(reconciled.getStatistics(CA1).getCertprofiles().get("smime"), 2, 0, 0, 0);
+
+    // the expired certificates are removed
+    reconciled.certRemoved(CA1, "tls", null, true);
+    reconciled.certRemoved(CA1, "tls", null, true);
+    assertStatistics(reconciled.getStatistics(CA1), 15, 3, 5, 2);
+    Assert.assertEquals(22, reconciled.getNumberOfCerts());
+  }
+
+  private static void assertStatistics(CertStatistics stats, long issued, long revoked,
+      long suspended, long expired) {
+    Assert.assertNotNull(stats);
+    Assert.assertEquals("issued", issued, stats.getIssued());
+    Assert.assertEquals("revoked", revoked, stats.getRevoked());
+    Assert.assertEquals("suspended", suspended, stats.getSuspended());
+    Assert.assertEquals("expired", expired, stats.getExpired());
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.server.CaUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test for {@link CaUtil#getPartitionUris(List, int)}.
+ *
+ * @author Lijun Liao
+ */
+
+public class CaUtilTest {
+
+  @Test
+  public void testPartitionPlaceholder() {
+    List<String> uris = CaUtil.getPartitionUris(
+        Arrays.asList("http://ca.example.org/crl/{partition}.crl", "ldap://ldap.example.org/cn=crl{partition}"), 3);
+    Assert.assertEquals(Arrays.asList("http://ca.example.org/crl/3.crl", "ldap://ldap.example.org/cn=crl3"), uris);
+  }
+
+  @Test
+  public void testPartitionQuery() {
+    List<String> uris = CaUtil.getPartitionUris(
+        Arrays.asList("http://ca.example.org/crl", "http://ca.example.org/crl?type=crl"), 2);
+    Assert.assertEquals(
+        Arrays.asList("http://ca.example.org/crl?partition=2", "http://ca.example.org/crl?type=crl&partition=2"), uris);
+  }
+
+  @Test
+  public void testNoUris() {
+    Assert.assertNull(CaUtil.getPartitionUris(null, 1));
+    Assert.assertTrue(CaUtil.getPartitionUris(Collections.emptyList(), 1).isEmpty());
+  }
+
+}
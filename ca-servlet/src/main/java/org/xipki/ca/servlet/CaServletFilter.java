@@ -26,6 +26,7 @@ import org.xipki.ca.api.profile.CertprofileFactoryRegister;
 import org.xipki.ca.api.publisher.CertPublisherFactoryRegister;
 import org.xipki.ca.certprofile.xijson.CertprofileFactoryImpl;
 import org.xipki.ca.server.CaServerConf;
+import org.xipki.ca.server.CaServerConf.ChangeFeed;
 import org.xipki.ca.server.CaServerConf.RemoteMgmt;
 import org.xipki.ca.server.SdkResponder;
 import org.xipki.ca.server.mgmt.CaManagerImpl;
@@ -73,6 +74,10 @@ public class CaServletFilter implements Filter {
 
   private HttpMgmtServlet mgmtServlet;
 
+  private HttpChangeFeedServlet changeFeedServlet;
+
+  private MetricsServlet metricsServlet;
+
   @Override
   public void init(FilterConfig filterConfig)
       throws ServletException {
@@ -156,21 +161,7 @@ public class CaServletFilter implements Filter {
       if (CollectionUtil.isEmpty(certFiles)) {
         LOG.error("no client certificate is configured, disable the remote managent");
       } else {
-        Set<X509Cert> certs = new HashSet<>();
-        for (FileOrBinary m : certFiles) {
-          try {
-            X509Cert cert = X509Util.parseCert(m.readContent());
-            certs.add(cert);
-          } catch (CertificateException | IOException ex) {
-            String msg = "could not parse the client certificate";
-            if (m.getFile() != null) {
-              msg += " " + m.getFile();
-            }
-            LogUtil.error(LOG, ex, msg);
-          }
-
-        }
-
+        Set<X509Cert> certs = parseClientCerts(certFiles);
         if (certs.isEmpty()) {
           LOG.error("could not find any valid client certificates, disable the remote management");
         } else {
@@ -180,8 +171,46 @@ public class CaServletFilter implements Filter {
         }
       }
     }
+
+    LOG.info("metrics endpoint is {}", conf.isMetricsEnabled() ? "enabled" : "disabled");
+    if (conf.isMetricsEnabled()) {
+      metricsServlet = new MetricsServlet();
+    }
+
+    ChangeFeed changeFeed = conf.getChangeFeed();
+    boolean changeFeedEnabled = changeFeed != null && changeFeed.isEnabled();
+    LOG.info("change feed is {}", changeFeedEnabled ? "enabled" : "disabled");
+
+    if (changeFeedEnabled) {
+      List<FileOrBinary> certFiles = changeFeed.getCerts();
+      Set<X509Cert> certs = CollectionUtil.isEmpty(certFiles) ? null : parseClientCerts(certFiles);
+      if (CollectionUtil.isEmpty(certs)) {
+        LOG.error("could not find any valid client certificates, disable the change feed");
+      } else {
+        changeFeedServlet = new HttpChangeFeedServlet();
+        changeFeedServlet.setCaManager(caManager);
+        changeFeedServlet.setFeedCerts(certs);
+      }
+    }
   } // method init
 
+  private static Set<X509Cert> parseClientCerts(List<FileOrBinary> certFiles) {
+    Set<X509Cert> certs = new HashSet<>();
+    for (FileOrBinary m : certFiles) {
+      try {
+        X509Cert cert = X509Util.parseCert(m.readContent());
+        certs.add(cert);
+      } catch (CertificateException | IOException ex) {
+        String msg = "could not parse the client certificate";
+        if (m.getFile() != null) {
+          msg += " " + m.getFile();
+        }
+        LogUtil.error(LOG, ex, msg);
+      }
+    }
+    return certs;
+  } // method parseClientCerts
+
   @Override
   public void destroy() {
     if (securities != null) {
@@ -234,6 +263,19 @@ public class CaServletFilter implements Filter {
       } else {
         sendError(res, HttpServletResponse.SC_FORBIDDEN);
       }
+    } else if (path.equals("/metrics")) {
+      if (metricsServlet != null) {
+        metricsServlet.service(req, res);
+      } else {
+        sendError(res, HttpServletResponse.SC_FORBIDDEN);
+      }
+    } else if (path.startsWith("/feed/")) {
+      if (changeFeedServlet != null) {
+        req.setAttribute(HttpConstants.ATTR_XIPKI_PATH, path.substring(5)); // 5 = "/feed".length()
+        changeFeedServlet.service(req, res);
+      } else {
+        sendError(res, HttpServletResponse.SC_FORBIDDEN);
+      }
     } else {
       sendError(res, HttpServletResponse.SC_NOT_FOUND);
     }
@@ -0,0 +1,247 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.mgmt.entry.CaEntry;
+import org.xipki.ca.server.db.CertStore;
+import org.xipki.ca.server.db.CertStore.CertStatusChange;
+import org.xipki.ca.server.mgmt.CaManagerImpl;
+import org.xipki.security.CertRevocationInfo;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Base64;
+import org.xipki.util.HttpConstants;
+import org.xipki.util.exception.OperationException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.xipki.util.Args.notEmpty;
+import static org.xipki.util.Args.notNull;
+
+/**
+ * Servlet of the certificate status change feed. It serves two resources as text, one record
+ * per line, the values separated by comma:
+ * <ul>
+ *   <li>{@code GET /issuers}: one line {@code <CA id>,<CA revocation time>,<Base64 CA cert>}
+ *   per CA, the revocation time is 0 if the CA is not revoked.</li>
+ *   <li>{@code GET /status?from=<seq>.<id>&max=<n>&wait=<seconds>}: the certificates
+ *   changed after the position {@code from}, in the order of the commits, one line
+ *   {@code <seq>,<id>,<CA id>,<serial hex>,<notBefore>,<notAfter>,<revoked>,<reason>,
+ *   <revocation time>,<invalidity time>} per certificate, all times in seconds. The response
+ *   is terminated by the line {@code end,<seq>,<id>} with the position to be used in the
+ *   next request. If there is no change, the request is held for up to {@code wait} seconds
+ *   until a certificate is changed.</li>
+ * </ul>
+ * The sequence number is the column CERT.FSEQ, see {@link CertStore#getCertStatusChanges(long, long, int)}.
+ *
+ * @author Lijun Liao
+ */
+
+public class HttpChangeFeedServlet extends HttpServlet {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HttpChangeFeedServlet.class);
+
+  private static final String CT_RESPONSE = "text/plain";
+
+  private static final int DFLT_MAX_ENTRIES = 10000;
+
+  private static final int MAX_MAX_ENTRIES = 100000;
+
+  private static final int MAX_WAIT_SECONDS = 60;
+
+  // number of records read from the database and written to the client at once.
+  private static final int CHUNK_SIZE = 1000;
+
+  private Set<X509Cert> feedCerts;
+
+  private CaManagerImpl caManager;
+
+  public void setFeedCerts(Set<X509Cert> feedCerts) {
+    this.feedCerts = new HashSet<>(notEmpty(feedCerts, "feedCerts"));
+  }
+
+  public void setCaManager(CaManagerImpl caManager) {
+    this.caManager = notNull(caManager, "caManager");
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    try {
+      X509Cert clientCert = TlsHelper.getTlsClientCert(request);
+      if (clientCert == null || !feedCerts.contains(clientCert)) {
+        sendError(response, HttpServletResponse.SC_UNAUTHORIZED,
+            "change feed is not permitted to the client without valid TLS client certificate");
+        return;
+      }
+
+      String path = (String) request.getAttribute(HttpConstants.ATTR_XIPKI_PATH);
+      if ("/issuers".equals(path)) {
+        sendIssuers(response);
+      } else if ("/status".equals(path)) {
+        sendStatus(request, response);
+      } else {
+        sendError(response, HttpServletResponse.SC_NOT_FOUND, "unknown resource '" + path + "'");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "interrupted");
+    } catch (OperationException ex) {
+      LOG.error("could not read the certificate status changes", ex);
+      sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ex.getErrorMessage());
+    } catch (Throwable th) {
+      LOG.error("Throwable thrown, this should not happen!", th);
+      if (!response.isCommitted()) {
+        response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      }
+    }
+  } // method doGet
+
+  private void sendIssuers(HttpServletResponse response)
+      throws IOException {
+    response.setContentType(CT_RESPONSE);
+    PrintWriter writer = response.getWriter();
+    for (String caName : caManager.getCaNames()) {
+      CaEntry ca = caManager.getCa(caName);
+      if (ca == null) {
+        continue;
+      }
+
+      CertRevocationInfo revInfo = ca.getRevocationInfo();
+      long revTime = revInfo == null ? 0 : revInfo.getRevocationTime().getTime() / 1000;
+      writer.print(ca.getIdent().getId());
+      writer.print(',');
+      writer.print(revTime);
+      writer.print(',');
+      writer.print(Base64.encodeToString(ca.getCert().getEncoded()));
+      writer.print('\n');
+    }
+    writer.flush();
+  } // method sendIssuers
+
+  private void sendStatus(HttpServletRequest request, HttpServletResponse response)
+      throws IOException, OperationException, InterruptedException {
+    long fromFeedSeq = 0;
+    long afterId = 0;
+    int maxEntries = DFLT_MAX_ENTRIES;
+    int waitSeconds = 0;
+    try {
+      String str = request.getParameter("from");
+      if (str != null) {
+        int idx = str.indexOf('.');
+        if (idx == -1) {
+          fromFeedSeq = Long.parseLong(str);
+        } else {
+          fromFeedSeq = Long.parseLong(str.substring(0, idx));
+          afterId = Long.parseLong(str.substring(idx + 1));
+        }
+      }
+
+      str = request.getParameter("max");
+      if (str != null) {
+        maxEntries = Math.min(MAX_MAX_ENTRIES, Integer.parseInt(str));
+      }
+
+      str = request.getParameter("wait");
+      if (str != null) {
+        waitSeconds = Math.min(MAX_WAIT_SECONDS, Integer.parseInt(str));
+      }
+    } catch (NumberFormatException ex) {
+      sendError(response, HttpServletResponse.SC_BAD_REQUEST, "invalid parameter: " + ex.getMessage());
+      return;
+    }
+
+    if (maxEntries < 1) {
+      sendError(response, HttpServletResponse.SC_BAD_REQUEST, "invalid parameter max");
+      return;
+    }
+
+    CertStore certstore = caManager.getCertstore();
+    long changeCount = certstore.getCertStatusChangeCount();
+    List<CertStatusChange> changes =
+        certstore.getCertStatusChanges(fromFeedSeq, afterId, Math.min(CHUNK_SIZE, maxEntries));
+
+    if (changes.isEmpty() && waitSeconds > 0) {
+      certstore.awaitCertStatusChange(changeCount, waitSeconds * 1000L);
+      changes = certstore.getCertStatusChanges(fromFeedSeq, afterId, Math.min(CHUNK_SIZE, maxEntries));
+    }
+
+    response.setContentType(CT_RESPONSE);
+    PrintWriter writer = response.getWriter();
+
+    int num = 0;
+    while (true) {
+      for (CertStatusChange m : changes) {
+        writer.print(m.getFeedSeq());
+        writer.print(',');
+        writer.print(m.getId());
+        writer.print(',');
+        writer.print(m.getCaId());
+        writer.print(',');
+        writer.print(m.getSerialHex());
+        writer.print(',');
+        writer.print(m.getNotBefore());
+        writer.print(',');
+        writer.print(m.getNotAfter());
+        writer.print(',');
+        writer.print(m.isRevoked() ? 1 : 0);
+        writer.print(',');
+        writer.print(m.getReason());
+        writer.print(',');
+        writer.print(m.getRevTime());
+        writer.print(',');
+        writer.print(m.getInvalidityTime());
+        writer.print('\n');
+
+        fromFeedSeq = m.getFeedSeq();
+        afterId = m.getId();
+      }
+      num += changes.size();
+      writer.flush();
+
+      int limit = Math.min(CHUNK_SIZE, maxEntries - num);
+      if (changes.size() < CHUNK_SIZE || limit < 1) {
+        break;
+      }
+      changes = certstore.getCertStatusChanges(fromFeedSeq, afterId, limit);
+    }
+
+    writer.print("end,");
+    writer.print(fromFeedSeq);
+    writer.print(',');
+    writer.print(afterId);
+    writer.print('\n');
+    writer.flush();
+  } // method sendStatus
+
+  private static void sendError(HttpServletResponse response, int status, String message)
+      throws IOException {
+    response.setHeader(HttpConstants.HEADER_XIPKI_ERROR, message);
+    response.sendError(status);
+  }
+
+}
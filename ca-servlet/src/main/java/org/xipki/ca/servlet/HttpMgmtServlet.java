@@ -316,6 +316,12 @@ public class HttpMgmtServlet extends HttpServlet {
           resp = new MgmtResponse.GetCert(new MgmtResponse.CertWithRevocationInfoWrapper(cert));
           break;
         }
+        case getCertStatistics: {
+          String name = getNameFromRequest(in);
+          CertStatistics result = caManager.getCertStatistics(name);
+          resp = new MgmtResponse.GetCertStatistics(result);
+          break;
+        }
         case getCertprofile: {
           String name = getNameFromRequest(in);
           CertprofileEntry result = caManager.getCertprofile(name);
@@ -576,6 +582,13 @@ public class HttpMgmtServlet extends HttpServlet {
           resp = null;
           break;
         }
+        case revokeCertificates: {
+          MgmtRequest.RevokeCertificates req = parse(in, MgmtRequest.RevokeCertificates.class);
+          int result = caManager.revokeCertificates(req.getCaName(), req.getFilter(), req.getReason(),
+              req.getInvalidityTime(), req.isGenerateCrl());
+          resp = new MgmtResponse.IntResponse(result);
+          break;
+        }
         case tokenInfoP11: {
           MgmtRequest.TokenInfoP11 req = parse(in, MgmtRequest.TokenInfoP11.class);
           String info = caManager.getTokenInfoP11(req.getModuleName(), req.getSlotIndex(), req.isVerbose());
@@ -621,6 +634,10 @@ public class HttpMgmtServlet extends HttpServlet {
           resp = new MgmtResponse.GetDbSchemas(caManager.getDbSchemas());
           break;
         }
+        case getDataSourceStats: {
+          resp = new MgmtResponse.GetDataSourceStats(caManager.getDataSourceStats());
+          break;
+        }
         case addKeypairGen: {
           MgmtRequest.AddKeypairGen req = parse(in, MgmtRequest.AddKeypairGen.class);
           caManager.addKeypairGen(req.getEntry());
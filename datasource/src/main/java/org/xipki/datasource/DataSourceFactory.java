@@ -113,6 +113,15 @@ public class DataSourceFactory {
       conf.setProperty("dataSource.password", password);
     }
 
+    // passwords of the read replicas, e.g. replica.1.password
+    if (passwordResolver != null) {
+      for (String key : conf.stringPropertyNames()) {
+        if (key.startsWith("replica.") && key.endsWith(".password")) {
+          conf.setProperty(key, new String(passwordResolver.resolvePassword(conf.getProperty(key))));
+        }
+      }
+    }
+
     /*
      * Expand the file path like
      *   dataSource.url = jdbc:h2:~/xipki/db/h2/ocspcrl
@@ -0,0 +1,246 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.util.metrics.Counter;
+import org.xipki.util.metrics.Histogram;
+import org.xipki.util.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a {@link DataSourceWrapper}: the time to acquire a connection, and per SQL
+ * statement the execution time, the time to fetch the result and the number of returned rows.
+ * The times are recorded in histograms with fixed buckets, after the first execution of a
+ * statement no objects are allocated to record its metrics. The connection metrics and the
+ * execution time of all statements are also published in the {@link MetricsRegistry}.
+ *
+ * <p>Statements taking longer than the configured threshold are logged by the logger
+ * {@code org.xipki.datasource.SlowStatement}, the parameters are logged as configured.
+ *
+ * @author Lijun Liao
+ */
+
+class DataSourceMetrics {
+
+  enum ParameterLogging {
+    // parameters are not logged.
+    none,
+    // only the numbers are logged, for other parameters only the type and length.
+    redacted,
+    // all parameters are logged.
+    plain
+  }
+
+  static class StatementMetrics {
+
+    private final String sql;
+
+    private final Histogram execution = new Histogram();
+
+    private final Histogram fetch = new Histogram();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    StatementMetrics(String sql) {
+      this.sql = sql;
+    }
+
+    String getSql() {
+      return sql;
+    }
+
+    void recordFetch(long nanos, long numRows) {
+      fetch.record(nanos);
+      rows.add(numRows);
+    }
+
+    DataSourceStats.Statement toStats() {
+      DataSourceStats.Statement ret = new DataSourceStats.Statement();
+      ret.setSql(sql);
+      ret.setExecution(DataSourceMetrics.toStats(execution));
+      ret.setFetch(DataSourceMetrics.toStats(fetch));
+      ret.setRows(rows.sum());
+      ret.setErrors(errors.sum());
+      return ret;
+    }
+
+  } // class StatementMetrics
+
+  private static final Logger SLOW_LOG = LoggerFactory.getLogger("org.xipki.datasource.SlowStatement");
+
+  // limits the memory in case the SQL statements are built dynamically
+  private static final int MAX_STATEMENTS = 1000;
+
+  private static final String OTHER_STATEMENTS = "<other>";
+
+  private final String name;
+
+  private final Histogram connectionWait;
+
+  private final Counter connectionErrors;
+
+  private final Counter slowStatements;
+
+  // execution time of all statements, per statement only in DataSourceStats.
+  private final Histogram execution;
+
+  private final ConcurrentHashMap<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+
+  private final long slowThresholdNanos;
+
+  private final ParameterLogging parameterLogging;
+
+  /**
+   * Constructor.
+   * @param name name of the datasource.
+   * @param slowThresholdMs statements taking longer than this time, in milliseconds, are logged.
+   *        0 to disable the log.
+   * @param parameterLogging how to log the parameters of the slow statements.
+   */
+  DataSourceMetrics(String name, long slowThresholdMs, ParameterLogging parameterLogging) {
+    this.name = name;
+    this.slowThresholdNanos = slowThresholdMs * 1_000_000;
+    this.parameterLogging = parameterLogging;
+
+    // shared with the datasources of the same name created before, e.g. before a reload
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    this.connectionWait = registry.histogram("xipki_datasource_connection_wait_seconds",
+        "Time to acquire a database connection", "datasource", name);
+    this.connectionErrors = registry.counter("xipki_datasource_connection_errors_total",
+        "Failures to acquire a database connection", "datasource", name);
+    this.slowStatements = registry.counter("xipki_datasource_slow_statements_total",
+        "SQL statements taking longer than the slow statement threshold", "datasource", name);
+    this.execution = registry.histogram("xipki_datasource_statement_seconds",
+        "Execution time of the SQL statements", "datasource", name);
+  }
+
+  boolean isCaptureParameters() {
+    return slowThresholdNanos > 0 && parameterLogging != ParameterLogging.none;
+  }
+
+  StatementMetrics getStatement(String sql) {
+    StatementMetrics ret = statements.get(sql);
+    if (ret == null) {
+      String key = statements.size() < MAX_STATEMENTS ? sql : OTHER_STATEMENTS;
+      ret = statements.computeIfAbsent(key, StatementMetrics::new);
+    }
+    return ret;
+  } // method getStatement
+
+  void recordConnectionWait(long nanos, boolean successful) {
+    connectionWait.record(nanos);
+    if (!successful) {
+      connectionErrors.increment();
+    }
+  }
+
+  void recordExecution(StatementMetrics statement, String sql, long nanos, boolean successful,
+      Object[] parameters, int numParameters) {
+    statement.execution.record(nanos);
+    execution.record(nanos);
+    if (!successful) {
+      statement.errors.increment();
+    }
+
+    if (slowThresholdNanos > 0 && nanos >= slowThresholdNanos) {
+      slowStatements.increment();
+      if (SLOW_LOG.isWarnEnabled()) {
+        SLOW_LOG.warn("datasource {}: slow statement ({} ms): {}{}", name, nanos / 1_000_000, sql,
+            formatParameters(parameters, numParameters));
+      }
+    }
+  } // method recordExecution
+
+  private String formatParameters(Object[] parameters, int numParameters) {
+    if (parameters == null || parameterLogging == ParameterLogging.none) {
+      return "";
+    }
+
+    StringBuilder sb = new StringBuilder(" with parameters [");
+    for (int i = 1; i <= numParameters; i++) {
+      if (i > 1) {
+        sb.append(", ");
+      }
+
+      Object param = parameters[i];
+      if (param == null || param instanceof Number || param instanceof Boolean
+          || parameterLogging == ParameterLogging.plain) {
+        sb.append(param);
+      } else if (param instanceof String) {
+        sb.append("<string of ").append(((String) param).length()).append(" chars>");
+      } else if (param instanceof byte[]) {
+        sb.append("<").append(((byte[]) param).length).append(" bytes>");
+      } else {
+        sb.append("<").append(param.getClass().getSimpleName()).append(">");
+      }
+    }
+    return sb.append("]").toString();
+  } // method formatParameters
+
+  DataSourceStats toStats(boolean withStatements) {
+    DataSourceStats ret = new DataSourceStats();
+    ret.setName(name);
+    ret.setConnectionWait(toStats(connectionWait));
+    ret.setConnectionErrors(connectionErrors.get());
+    ret.setSlowStatements(slowStatements.get());
+
+    if (withStatements) {
+      List<DataSourceStats.Statement> list = new ArrayList<>(statements.size());
+      for (StatementMetrics m : statements.values()) {
+        list.add(m.toStats());
+      }
+      list.sort((a, b) -> Long.compare(b.getExecution().getSum(), a.getExecution().getSum()));
+      ret.setStatements(list);
+    }
+    return ret;
+  } // method toStats
+
+  private static DataSourceStats.Histogram toStats(Histogram histogram) {
+    long[] counts = histogram.getBucketCounts();
+    long count = 0;
+    for (long m : counts) {
+      count += m;
+    }
+
+    DataSourceStats.Histogram ret = new DataSourceStats.Histogram();
+    ret.setBucketBounds(histogram.getBucketBounds());
+    ret.setBuckets(counts);
+    ret.setCount(count);
+    ret.setSum(histogram.getSum());
+    ret.setMax(histogram.getMax());
+    return ret;
+  } // method toStats
+
+  static ParameterLogging parseParameterLogging(String text) {
+    try {
+      return ParameterLogging.valueOf(text.trim().toLowerCase(Locale.ROOT));
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("invalid slowStatementParameters " + text);
+    }
+  }
+
+}
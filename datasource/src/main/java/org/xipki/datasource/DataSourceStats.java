@@ -0,0 +1,281 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import java.util.List;
+
+/**
+ * Snapshot of the statistics of a {@link DataSourceWrapper}. All times are in microseconds.
+ *
+ * @author Lijun Liao
+ */
+
+public class DataSourceStats {
+
+  /**
+   * Histogram with fixed buckets. The bucket i counts the values not greater than
+   * {@code bucketBounds[i]}, and greater than the previous bound. The last bucket,
+   * without bound, counts all values greater than the last bound.
+   */
+  public static class Histogram {
+
+    private long count;
+
+    private long sum;
+
+    private long max;
+
+    private long[] bucketBounds;
+
+    private long[] buckets;
+
+    public long getCount() {
+      return count;
+    }
+
+    public void setCount(long count) {
+      this.count = count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public void setSum(long sum) {
+      this.sum = sum;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public void setMax(long max) {
+      this.max = max;
+    }
+
+    public long[] getBucketBounds() {
+      return bucketBounds;
+    }
+
+    public void setBucketBounds(long[] bucketBounds) {
+      this.bucketBounds = bucketBounds;
+    }
+
+    public long[] getBuckets() {
+      return buckets;
+    }
+
+    public void setBuckets(long[] buckets) {
+      this.buckets = buckets;
+    }
+
+    public long mean() {
+      return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound of the bucket, or -1 if the percentile is in the last bucket.
+     */
+    public long percentile(double percentile) {
+      if (count == 0 || buckets == null) {
+        return 0;
+      }
+
+      long threshold = (long) Math.ceil(count * percentile / 100);
+      long sofar = 0;
+      for (int i = 0; i < bucketBounds.length; i++) {
+        sofar += buckets[i];
+        if (sofar >= threshold) {
+          return bucketBounds[i];
+        }
+      }
+      return -1;
+    } // method percentile
+
+  } // class Histogram
+
+  public static class Statement {
+
+    private String sql;
+
+    private Histogram execution;
+
+    private Histogram fetch;
+
+    private long rows;
+
+    private long errors;
+
+    public String getSql() {
+      return sql;
+    }
+
+    public void setSql(String sql) {
+      this.sql = sql;
+    }
+
+    public Histogram getExecution() {
+      return execution;
+    }
+
+    public void setExecution(Histogram execution) {
+      this.execution = execution;
+    }
+
+    public Histogram getFetch() {
+      return fetch;
+    }
+
+    public void setFetch(Histogram fetch) {
+      this.fetch = fetch;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public void setRows(long rows) {
+      this.rows = rows;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    public void setErrors(long errors) {
+      this.errors = errors;
+    }
+
+  } // class Statement
+
+  private String name;
+
+  private int activeConnections;
+
+  private int idleConnections;
+
+  private int totalConnections;
+
+  private int threadsAwaitingConnection;
+
+  private Histogram connectionWait;
+
+  private long connectionErrors;
+
+  private long slowStatements;
+
+  private long statementCacheHits;
+
+  private long statementCacheMisses;
+
+  /**
+   * Statistics per SQL statement, {@code null} if not requested.
+   */
+  private List<Statement> statements;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getActiveConnections() {
+    return activeConnections;
+  }
+
+  public void setActiveConnections(int activeConnections) {
+    this.activeConnections = activeConnections;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  public void setIdleConnections(int idleConnections) {
+    this.idleConnections = idleConnections;
+  }
+
+  public int getTotalConnections() {
+    return totalConnections;
+  }
+
+  public void setTotalConnections(int totalConnections) {
+    this.totalConnections = totalConnections;
+  }
+
+  public int getThreadsAwaitingConnection() {
+    return threadsAwaitingConnection;
+  }
+
+  public void setThreadsAwaitingConnection(int threadsAwaitingConnection) {
+    this.threadsAwaitingConnection = threadsAwaitingConnection;
+  }
+
+  public Histogram getConnectionWait() {
+    return connectionWait;
+  }
+
+  public void setConnectionWait(Histogram connectionWait) {
+    this.connectionWait = connectionWait;
+  }
+
+  public long getConnectionErrors() {
+    return connectionErrors;
+  }
+
+  public void setConnectionErrors(long connectionErrors) {
+    this.connectionErrors = connectionErrors;
+  }
+
+  public long getSlowStatements() {
+    return slowStatements;
+  }
+
+  public void setSlowStatements(long slowStatements) {
+    this.slowStatements = slowStatements;
+  }
+
+  public long getStatementCacheHits() {
+    return statementCacheHits;
+  }
+
+  public void setStatementCacheHits(long statementCacheHits) {
+    this.statementCacheHits = statementCacheHits;
+  }
+
+  public long getStatementCacheMisses() {
+    return statementCacheMisses;
+  }
+
+  public void setStatementCacheMisses(long statementCacheMisses) {
+    this.statementCacheMisses = statementCacheMisses;
+  }
+
+  public List<Statement> getStatements() {
+    return statements;
+  }
+
+  public void setStatements(List<Statement> statements) {
+    this.statements = statements;
+  }
+
+}
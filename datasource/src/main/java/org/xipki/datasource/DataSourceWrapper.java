@@ -19,6 +19,7 @@ package org.xipki.datasource;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.datasource.DataAccessException.Reason;
@@ -28,9 +29,15 @@ import org.xipki.util.LruCache;
 import java.io.Closeable;
 import java.io.PrintWriter;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.xipki.util.Args.notBlank;
 import static org.xipki.util.Args.notNull;
@@ -39,6 +46,38 @@ import static org.xipki.util.StringUtil.*;
 /**
  * A wrapper of {@link HikariDataSource}.
  *
+ * <p>Optionally, read replicas of the database can be configured with the properties
+ * {@code replica.<id>.<property>}. Each replica inherits all properties of the primary database
+ * which are not overwritten, and uses its own read-only pool. The statements prepared via
+ * {@link #prepareReadStatement(String)} are distributed round-robin over the replicas. A replica
+ * which could not deliver a connection is skipped for {@code replica.retryInterval} seconds
+ * (default 30), if no replica is available, the primary database is used.
+ *<pre>
+ * replica.1.jdbcUrl = jdbc:postgresql://replica1:5432/ca
+ * replica.2.jdbcUrl = jdbc:postgresql://replica2:5432/ca
+ *</pre>
+ *
+ * <p>The time to acquire a connection, and per SQL statement the execution time, the time to
+ * fetch the result and the number of returned rows are recorded, see {@link #getStats(boolean)}.
+ * The metrics are configured with the following properties:
+ *<pre>
+ * # default to true
+ * metrics.enabled = true
+ * # statements taking longer than this time in milliseconds are logged, 0 to disable the log,
+ * # default to 1000
+ * metrics.slowStatementThreshold = 1000
+ * # none, redacted (only numbers are logged) or plain, default to redacted
+ * metrics.slowStatementParameters = redacted
+ *</pre>
+ *
+ * <p>Optionally, the statements prepared via {@link #prepareStatement(String)} and
+ * {@link #prepareReadStatement(String)} are cached per connection, see {@link StatementCache}.
+ * This saves the parsing of the SQL text for JDBC drivers without own statement cache.
+ *<pre>
+ * # maximal number of cached statements per connection, default to 0 (disabled)
+ * statementCache.size = 50
+ *</pre>
+ *
  * @author Lijun Liao
  * @since 2.0.0
  */
@@ -355,8 +394,33 @@ public abstract class DataSourceWrapper implements Closeable {
 
   } // class HSQL
 
+  private static class ReadReplica {
+
+    private final String id;
+
+    private final HikariDataSource service;
+
+    private volatile long unavailableUntil;
+
+    ReadReplica(String id, HikariDataSource service) {
+      this.id = id;
+      this.service = service;
+    }
+
+  } // class ReadReplica
+
   private static final Logger LOG = LoggerFactory.getLogger(DataSourceWrapper.class);
 
+  private static final String REPLICA_PREFIX = "replica.";
+
+  private static final long DEFAULT_REPLICA_RETRY_INTERVAL = 30;
+
+  private static final String METRICS_PREFIX = "metrics.";
+
+  private static final long DEFAULT_SLOW_STATEMENT_THRESHOLD = 1000;
+
+  private static final String STATEMENT_CACHE_SIZE = "statementCache.size";
+
   /**
    * References the real data source implementation this class acts as pure
    * proxy for. Derived classes must set this field at construction time.
@@ -377,6 +441,18 @@ public abstract class DataSourceWrapper implements Closeable {
 
   private final LruCache<String, String> cacheSeqNameSqls;
 
+  private List<ReadReplica> readReplicas = Collections.emptyList();
+
+  private final AtomicInteger nextReadReplica = new AtomicInteger();
+
+  private long replicaRetryIntervalMs = DEFAULT_REPLICA_RETRY_INTERVAL * 1000;
+
+  // null if the metrics are disabled
+  private DataSourceMetrics metrics;
+
+  // null if the statement cache is disabled
+  private StatementCache statementCache;
+
   private DataSourceWrapper(String name, HikariDataSource service, DatabaseType dbType) {
     this.service = notNull(service, "service");
     this.databaseType = notNull(dbType, "dbType");
@@ -400,9 +476,18 @@ public abstract class DataSourceWrapper implements Closeable {
 
   public final Connection getConnection()
       throws DataAccessException {
+    long start = System.nanoTime();
     try {
-      return service.getConnection();
+      Connection conn = service.getConnection();
+      if (metrics != null) {
+        metrics.recordConnectionWait(System.nanoTime() - start, true);
+      }
+      return conn;
     } catch (Exception ex) {
+      if (metrics != null) {
+        metrics.recordConnectionWait(System.nanoTime() - start, false);
+      }
+
       Throwable cause = ex.getCause();
       if (cause instanceof SQLException) {
         ex = (SQLException) cause;
@@ -416,6 +501,50 @@ public abstract class DataSourceWrapper implements Closeable {
     }
   } // method getConnection
 
+  public final boolean hasReadReplicas() {
+    return !readReplicas.isEmpty();
+  }
+
+  /**
+   * Gets a connection for read-only queries. The connection is taken from the next available
+   * read replica, or from the primary database if no read replica is available.
+   * @return the connection.
+   * @throws DataAccessException if no connection could be created.
+   */
+  public final Connection getReadConnection()
+      throws DataAccessException {
+    int size = readReplicas.size();
+    if (size > 0) {
+      int start = Math.floorMod(nextReadReplica.getAndIncrement(), size);
+      for (int i = 0; i < size; i++) {
+        ReadReplica replica = readReplicas.get((start + i) % size);
+        long now = System.currentTimeMillis();
+        if (replica.unavailableUntil > now) {
+          continue;
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+          Connection conn = replica.service.getConnection();
+          if (metrics != null) {
+            metrics.recordConnectionWait(System.nanoTime() - waitStart, true);
+          }
+          return conn;
+        } catch (Exception ex) {
+          if (metrics != null) {
+            metrics.recordConnectionWait(System.nanoTime() - waitStart, false);
+          }
+          replica.unavailableUntil = now + replicaRetryIntervalMs;
+          LOG.warn("read replica {} of datasource {} is not available, skip it for {} ms: {}",
+              replica.id, name, replicaRetryIntervalMs, ex.getMessage());
+          LOG.debug("read replica " + replica.id + " of datasource " + name + " is not available", ex);
+        }
+      }
+    }
+
+    return getConnection();
+  } // method getReadConnection
+
   public void returnConnection(Connection conn) {
     if (conn == null) {
       return;
@@ -430,16 +559,33 @@ public abstract class DataSourceWrapper implements Closeable {
       }
       LogUtil.error(LOG, ex, "could not close connection to database {}");
     }
+
+    if (statementCache != null) {
+      statementCache.connectionReturned();
+    }
   } // method returnConnection
 
   @Override
   public void close() {
+    if (statementCache != null) {
+      statementCache.close();
+    }
+
     try {
       service.close();
     } catch (RuntimeException ex) {
       LOG.warn("could not close datasource: {}", ex.getMessage());
       LOG.debug("could not close datasource", ex);
     }
+
+    for (ReadReplica replica : readReplicas) {
+      try {
+        replica.service.close();
+      } catch (RuntimeException ex) {
+        LOG.warn("could not close read replica {}: {}", replica.id, ex.getMessage());
+        LOG.debug("could not close read replica " + replica.id, ex);
+      }
+    }
   } // method close
 
   public final PrintWriter getLogWriter()
@@ -478,7 +624,7 @@ public abstract class DataSourceWrapper implements Closeable {
       throws DataAccessException {
     notNull(conn, "conn");
     try {
-      return conn.prepareStatement(sqlQuery);
+      return instrument(conn.prepareStatement(sqlQuery), sqlQuery);
     } catch (SQLException ex) {
       throw translate(sqlQuery, ex);
     }
@@ -490,9 +636,10 @@ public abstract class DataSourceWrapper implements Closeable {
 
     boolean succ = false;
     try {
-      PreparedStatement ps = conn.prepareStatement(sqlQuery);
+      PreparedStatement ps = statementCache == null ? conn.prepareStatement(sqlQuery)
+          : statementCache.prepareStatement(conn, sqlQuery);
       succ = true;
-      return ps;
+      return instrument(ps, sqlQuery);
     } catch (SQLException ex) {
       throw translate(sqlQuery, ex);
     } finally {
@@ -502,6 +649,62 @@ public abstract class DataSourceWrapper implements Closeable {
     }
   } // method prepareStatement
 
+  /**
+   * Prepares a statement for a read-only query, see {@link #getReadConnection()}. The statement
+   * must be released via {@link #releaseResources(Statement, ResultSet)}.
+   * @param sqlQuery the SQL query.
+   * @return the prepared statement.
+   * @throws DataAccessException if database error occurs.
+   */
+  public PreparedStatement prepareReadStatement(String sqlQuery)
+      throws DataAccessException {
+    Connection conn = getReadConnection();
+
+    boolean succ = false;
+    try {
+      PreparedStatement ps = statementCache == null ? conn.prepareStatement(sqlQuery)
+          : statementCache.prepareStatement(conn, sqlQuery);
+      succ = true;
+      return instrument(ps, sqlQuery);
+    } catch (SQLException ex) {
+      throw translate(sqlQuery, ex);
+    } finally {
+      if (!succ) {
+        returnConnection(conn);
+      }
+    }
+  } // method prepareReadStatement
+
+  private PreparedStatement instrument(PreparedStatement ps, String sqlQuery) {
+    return metrics == null ? ps : InstrumentedStatement.wrap(ps, sqlQuery, metrics);
+  }
+
+  /**
+   * Returns the statistics of this datasource.
+   * @param withStatements whether to include the statistics per SQL statement.
+   * @return the statistics, {@code null} if the metrics are disabled.
+   */
+  public DataSourceStats getStats(boolean withStatements) {
+    if (metrics == null) {
+      return null;
+    }
+
+    DataSourceStats stats = metrics.toStats(withStatements);
+    HikariPoolMXBean pool = service.getHikariPoolMXBean();
+    if (pool != null) {
+      stats.setActiveConnections(pool.getActiveConnections());
+      stats.setIdleConnections(pool.getIdleConnections());
+      stats.setTotalConnections(pool.getTotalConnections());
+      stats.setThreadsAwaitingConnection(pool.getThreadsAwaitingConnection());
+    }
+
+    if (statementCache != null) {
+      stats.setStatementCacheHits(statementCache.getHits());
+      stats.setStatementCacheMisses(statementCache.getMisses());
+    }
+    return stats;
+  } // method getStats
+
   public void releaseResources(Statement ps, ResultSet rs) {
     releaseResources(ps, rs, true);
   }
@@ -1152,6 +1355,95 @@ public abstract class DataSourceWrapper implements Closeable {
     notNull(props, "props");
     notNull(databaseType, "databaseType");
 
+    // the properties of the metrics and read replicas are not known to HikariConfig
+    boolean metricsEnabled = true;
+    long slowStatementThreshold = DEFAULT_SLOW_STATEMENT_THRESHOLD;
+    DataSourceMetrics.ParameterLogging parameterLogging = DataSourceMetrics.ParameterLogging.redacted;
+    for (String key : new ArrayList<>(props.stringPropertyNames())) {
+      if (!key.startsWith(METRICS_PREFIX)) {
+        continue;
+      }
+
+      String value = ((String) props.remove(key)).trim();
+      String suffix = key.substring(METRICS_PREFIX.length());
+      if ("enabled".equals(suffix)) {
+        metricsEnabled = Boolean.parseBoolean(value);
+      } else if ("slowStatementThreshold".equals(suffix)) {
+        slowStatementThreshold = Long.parseLong(value);
+      } else if ("slowStatementParameters".equals(suffix)) {
+        parameterLogging = DataSourceMetrics.parseParameterLogging(value);
+      } else {
+        throw new IllegalArgumentException("unknown property " + key);
+      }
+    }
+
+    String str = (String) props.remove(STATEMENT_CACHE_SIZE);
+    int statementCacheSize = str == null ? 0 : Integer.parseInt(str.trim());
+
+    long replicaRetryInterval = DEFAULT_REPLICA_RETRY_INTERVAL;
+    Map<String, Properties> replicaProps = new TreeMap<>();
+    for (String key : new ArrayList<>(props.stringPropertyNames())) {
+      if (!key.startsWith(REPLICA_PREFIX)) {
+        continue;
+      }
+
+      String value = (String) props.remove(key);
+      String suffix = key.substring(REPLICA_PREFIX.length());
+      int idx = suffix.indexOf('.');
+      if (idx == -1) {
+        if (!"retryInterval".equals(suffix)) {
+          throw new IllegalArgumentException("unknown property " + key);
+        }
+        replicaRetryInterval = Long.parseLong(value.trim());
+      } else {
+        replicaProps.computeIfAbsent(suffix.substring(0, idx), k -> new Properties())
+            .setProperty(suffix.substring(idx + 1), value);
+      }
+    }
+
+    DataSourceWrapper dataSource = createDataSource0(name, props, databaseType);
+    if (metricsEnabled) {
+      dataSource.metrics = new DataSourceMetrics(name, slowStatementThreshold, parameterLogging);
+    }
+
+    if (statementCacheSize > 0) {
+      dataSource.statementCache = new StatementCache(statementCacheSize);
+      LOG.info("datasource {}: cache up to {} prepared statements per connection", name, statementCacheSize);
+    }
+
+    if (replicaProps.isEmpty()) {
+      return dataSource;
+    }
+
+    List<ReadReplica> replicas = new ArrayList<>(replicaProps.size());
+    try {
+      for (Map.Entry<String, Properties> entry : replicaProps.entrySet()) {
+        String id = entry.getKey();
+        Properties replicaConf = new Properties();
+        replicaConf.putAll(props);
+        replicaConf.remove("sql.type");
+        replicaConf.putAll(entry.getValue());
+        replicaConf.setProperty("readOnly", "true");
+        replicaConf.setProperty("poolName",
+            props.getProperty("poolName", name == null ? "datasource" : name) + "-replica-" + id);
+
+        replicas.add(new ReadReplica(id, new HikariDataSource(new HikariConfig(replicaConf))));
+        LOG.info("added read replica {} to datasource {}", id, name);
+      }
+    } catch (RuntimeException ex) {
+      for (ReadReplica replica : replicas) {
+        replica.service.close();
+      }
+      dataSource.close();
+      throw ex;
+    }
+
+    dataSource.readReplicas = Collections.unmodifiableList(replicas);
+    dataSource.replicaRetryIntervalMs = replicaRetryInterval * 1000;
+    return dataSource;
+  } // method createDataSource
+
+  private static DataSourceWrapper createDataSource0(String name, Properties props, DatabaseType databaseType) {
     // The DB2 schema name is case-sensitive, and must be specified in uppercase characters
     String datasourceClassName = props.getProperty("dataSourceClassName");
     if (datasourceClassName != null) {
@@ -1241,6 +1533,6 @@ public abstract class DataSourceWrapper implements Closeable {
     } else {
       throw new IllegalArgumentException("unknown datasource type " + databaseType);
     }
-  } // method createDataSource
+  } // method createDataSource0
 
 }
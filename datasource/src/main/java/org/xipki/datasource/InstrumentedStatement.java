@@ -0,0 +1,325 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import org.xipki.datasource.DataSourceMetrics.StatementMetrics;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * Wraps a {@link PreparedStatement} to record the execution time of the statement, and the
+ * time to fetch and the number of rows of its {@link ResultSet} in {@link DataSourceMetrics}.
+ * Only the execute methods and {@link ResultSet#next()} are timed, all other methods are plain
+ * delegations. The parameters set by the common setters are captured for the slow statement log
+ * if configured.
+ *
+ * @author Lijun Liao
+ */
+
+class InstrumentedStatement extends DelegatingPreparedStatement {
+
+  private static class InstrumentedResultSet extends DelegatingResultSet {
+
+    private final StatementMetrics statement;
+
+    private final long start = System.nanoTime();
+
+    private long rows;
+
+    private boolean closed;
+
+    private InstrumentedResultSet(ResultSet target, StatementMetrics statement) {
+      super(target);
+      this.statement = statement;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+      boolean ret = target.next();
+      if (ret) {
+        rows++;
+      }
+      return ret;
+    }
+
+    @Override
+    public void close() throws SQLException {
+      if (!closed) {
+        closed = true;
+        statement.recordFetch(System.nanoTime() - start, rows);
+      }
+      target.close();
+    }
+
+  } // class InstrumentedResultSet
+
+  private final String sql;
+
+  private final DataSourceMetrics metrics;
+
+  private final StatementMetrics statement;
+
+  // parameters indexed by the JDBC parameter index, null if parameters are not captured.
+  private Object[] parameters;
+
+  private int numParameters;
+
+  private long start;
+
+  private InstrumentedStatement(PreparedStatement target, String sql, DataSourceMetrics metrics) {
+    super(target);
+    this.sql = sql;
+    this.metrics = metrics;
+    this.statement = metrics.getStatement(sql);
+    this.parameters = metrics.isCaptureParameters() ? new Object[8] : null;
+  }
+
+  static PreparedStatement wrap(PreparedStatement ps, String sql, DataSourceMetrics metrics) {
+    return new InstrumentedStatement(ps, sql, metrics);
+  }
+
+  private void startExecution() {
+    start = System.nanoTime();
+  }
+
+  private void endExecution(boolean successful) {
+    metrics.recordExecution(statement, sql, System.nanoTime() - start, successful, parameters, numParameters);
+  }
+
+  private void capture(int index, Object value) {
+    if (parameters == null || index < 1) {
+      return;
+    }
+
+    if (index >= parameters.length) {
+      parameters = Arrays.copyOf(parameters, Math.max(index + 1, 2 * parameters.length));
+    }
+    parameters[index] = value;
+    numParameters = Math.max(numParameters, index);
+  } // method capture
+
+  @Override
+  public ResultSet executeQuery() throws SQLException {
+    startExecution();
+    boolean succ = false;
+    try {
+      ResultSet rs = target.executeQuery();
+      succ = true;
+      return new InstrumentedResultSet(rs, statement);
+    } finally {
+      endExecution(succ);
+    }
+  }
+
+  @Override
+  public int executeUpdate() throws SQLException {
+    startExecution();
+    boolean succ = false;
+    try {
+      int ret = target.executeUpdate();
+      succ = true;
+      return ret;
+    } finally {
+      endExecution(succ);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate() throws SQLException {
+    startExecution();
+    boolean succ = false;
+    try {
+      long ret = target.executeLargeUpdate();
+      succ = true;
+      return ret;
+    } finally {
+      endExecution(succ);
+    }
+  }
+
+  @Override
+  public boolean execute() throws SQLException {
+    startExecution();
+    boolean succ = false;
+    try {
+      boolean ret = target.execute();
+      succ = true;
+      return ret;
+    } finally {
+      endExecution(succ);
+    }
+  }
+
+  @Override
+  public int[] executeBatch() throws SQLException {
+    startExecution();
+    boolean succ = false;
+    try {
+      int[] ret = target.executeBatch();
+      succ = true;
+      return ret;
+    } finally {
+      endExecution(succ);
+    }
+  }
+
+  @Override
+  public long[] executeLargeBatch() throws SQLException {
+    startExecution();
+    boolean succ = false;
+    try {
+      long[] ret = target.executeLargeBatch();
+      succ = true;
+      return ret;
+    } finally {
+      endExecution(succ);
+    }
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType) throws SQLException {
+    target.setNull(parameterIndex, sqlType);
+    capture(parameterIndex, null);
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+    target.setNull(parameterIndex, sqlType, typeName);
+    capture(parameterIndex, null);
+  }
+
+  @Override
+  public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+    target.setBoolean(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setByte(int parameterIndex, byte x) throws SQLException {
+    target.setByte(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setShort(int parameterIndex, short x) throws SQLException {
+    target.setShort(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setInt(int parameterIndex, int x) throws SQLException {
+    target.setInt(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setLong(int parameterIndex, long x) throws SQLException {
+    target.setLong(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setFloat(int parameterIndex, float x) throws SQLException {
+    target.setFloat(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setDouble(int parameterIndex, double x) throws SQLException {
+    target.setDouble(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+    target.setBigDecimal(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setString(int parameterIndex, String x) throws SQLException {
+    target.setString(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setNString(int parameterIndex, String x) throws SQLException {
+    target.setNString(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+    target.setBytes(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setDate(int parameterIndex, Date x) throws SQLException {
+    target.setDate(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setTime(int parameterIndex, Time x) throws SQLException {
+    target.setTime(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+    target.setTimestamp(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x) throws SQLException {
+    target.setObject(parameterIndex, x);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+    target.setObject(parameterIndex, x, targetSqlType);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+    target.setObject(parameterIndex, x, targetSqlType);
+    capture(parameterIndex, x);
+  }
+
+  @Override
+  public void clearParameters() throws SQLException {
+    target.clearParameters();
+    if (parameters != null) {
+      Arrays.fill(parameters, null);
+      numParameters = 0;
+    }
+  }
+
+}
@@ -0,0 +1,317 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.util.LruCache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the prepared statements per physical connection, keyed by the SQL text.
+ *
+ * <p>The statements are prepared on the physical connection behind the pooled connection, so that
+ * the pool does not close them when the connection is returned. The returned statement is a
+ * delegating wrapper: its {@code getConnection()} returns the pooled connection, and its
+ * {@code close()} puts the statement back into the cache of the connection instead of closing it.
+ * Each cache holds at most the configured number of statements, the least recently used statement
+ * is closed first. A statement whose execution failed is closed instead of being cached. The cache
+ * of a physical connection is cleared when an execution fails with a connection error, and once
+ * the pool has closed the connection, checked when connections are returned.
+ *
+ * @author Lijun Liao
+ */
+
+class StatementCache {
+
+  private static class ConnectionStatements extends LruCache<String, PreparedStatement> {
+
+    ConnectionStatements(int maxSize) {
+      super(maxSize);
+    }
+
+    @Override
+    protected void entryRemoved(boolean evicted, String key, PreparedStatement oldValue,
+        PreparedStatement newValue) {
+      // remove() takes the statement out of the cache for use, it must not be closed
+      if (evicted || (newValue != null && newValue != oldValue)) {
+        closeStatement(oldValue);
+      }
+    }
+
+  } // class ConnectionStatements
+
+  private class CachedStatement extends DelegatingPreparedStatement {
+
+    private final String sql;
+
+    private final Connection pooledConnection;
+
+    private final Connection physicalConnection;
+
+    private final ConnectionStatements statements;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    private CachedStatement(PreparedStatement target, String sql, Connection pooledConnection,
+        Connection physicalConnection, ConnectionStatements statements) {
+      super(target);
+      this.sql = sql;
+      this.pooledConnection = pooledConnection;
+      this.physicalConnection = physicalConnection;
+      this.statements = statements;
+    }
+
+    @Override
+    protected PreparedStatement delegate() throws SQLException {
+      // the target may already be used by another thread after it has been put back into the cache
+      if (closed) {
+        throw new SQLException("statement is closed");
+      }
+      return target;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release();
+      }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+      return closed || target.isClosed();
+    }
+
+    @Override
+    public Connection getConnection() {
+      return pooledConnection;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+      try {
+        return delegate().executeQuery();
+      } catch (SQLException ex) {
+        throw executionFailed(ex);
+      }
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+      try {
+        return delegate().executeUpdate();
+      } catch (SQLException ex) {
+        throw executionFailed(ex);
+      }
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+      try {
+        return delegate().executeLargeUpdate();
+      } catch (SQLException ex) {
+        throw executionFailed(ex);
+      }
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+      try {
+        return delegate().execute();
+      } catch (SQLException ex) {
+        throw executionFailed(ex);
+      }
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+      try {
+        return delegate().executeBatch();
+      } catch (SQLException ex) {
+        throw executionFailed(ex);
+      }
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+      try {
+        return delegate().executeLargeBatch();
+      } catch (SQLException ex) {
+        throw executionFailed(ex);
+      }
+    }
+
+    private SQLException executionFailed(SQLException ex) {
+      if (!closed) {
+        failed = true;
+        if (isConnectionError(ex)) {
+          // the pool evicts the broken connection, its statements are useless
+          removeConnection(physicalConnection);
+        }
+      }
+      return ex;
+    } // method executionFailed
+
+    private void release() {
+      if (failed) {
+        closeStatement(target);
+        return;
+      }
+
+      try {
+        target.clearParameters();
+        target.clearWarnings();
+      } catch (SQLException ex) {
+        closeStatement(target);
+        return;
+      }
+
+      statements.put(sql, target);
+    } // method release
+
+  } // class CachedStatement
+
+  private static final Logger LOG = LoggerFactory.getLogger(StatementCache.class);
+
+  // interval to check whether the pool has closed physical connections, in milliseconds.
+  private static final long PURGE_INTERVAL = 30_000L;
+
+  private final int maxSize;
+
+  private final ConcurrentHashMap<Connection, ConnectionStatements> caches = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final AtomicLong nextPurge = new AtomicLong();
+
+  StatementCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Prepares a statement on the physical connection behind the pooled connection, or takes it
+   * from the cache.
+   * @param pooledConnection the connection borrowed from the pool.
+   * @param sql the SQL text.
+   * @return the prepared statement.
+   * @throws SQLException if the statement could not be prepared.
+   */
+  PreparedStatement prepareStatement(Connection pooledConnection, String sql)
+      throws SQLException {
+    Connection physicalConnection = pooledConnection.unwrap(Connection.class);
+    ConnectionStatements statements = caches.get(physicalConnection);
+    if (statements == null) {
+      // a new physical connection has been opened, maybe to replace a closed one
+      purgeClosedConnections();
+      statements = caches.computeIfAbsent(physicalConnection, k -> new ConnectionStatements(maxSize));
+    }
+
+    PreparedStatement ps = statements.remove(sql);
+    if (ps == null) {
+      misses.increment();
+      ps = physicalConnection.prepareStatement(sql);
+    } else {
+      hits.increment();
+    }
+
+    return new CachedStatement(ps, sql, pooledConnection, physicalConnection, statements);
+  } // method prepareStatement
+
+  long getHits() {
+    return hits.sum();
+  }
+
+  long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Called after a connection has been returned to the pool. Removes the statements of the
+   * physical connections closed by the pool, e.g. evicted or retired ones, at most once per
+   * {@link #PURGE_INTERVAL}.
+   */
+  void connectionReturned() {
+    long now = System.currentTimeMillis();
+    long next = nextPurge.get();
+    if (now >= next && nextPurge.compareAndSet(next, now + PURGE_INTERVAL)) {
+      purgeClosedConnections();
+    }
+  } // method connectionReturned
+
+  void close() {
+    for (ConnectionStatements statements : caches.values()) {
+      statements.evictAll();
+    }
+    caches.clear();
+  }
+
+  private void removeConnection(Connection physicalConnection) {
+    ConnectionStatements statements = caches.remove(physicalConnection);
+    if (statements != null) {
+      statements.evictAll();
+    }
+  }
+
+  private void purgeClosedConnections() {
+    for (Map.Entry<Connection, ConnectionStatements> entry : new ArrayList<>(caches.entrySet())) {
+      boolean closed;
+      try {
+        closed = entry.getKey().isClosed();
+      } catch (SQLException ex) {
+        closed = true;
+      }
+
+      if (closed) {
+        removeConnection(entry.getKey());
+      }
+    }
+  } // method purgeClosedConnections
+
+  private static boolean isConnectionError(SQLException ex) {
+    // SQLSTATE class 08: connection exception
+    String sqlState = ex.getSQLState();
+    return ex instanceof SQLNonTransientConnectionException || ex instanceof SQLTransientConnectionException
+        || (sqlState != null && sqlState.startsWith("08"));
+  }
+
+  private static void closeStatement(PreparedStatement ps) {
+    try {
+      ps.close();
+    } catch (SQLException ex) {
+      LOG.debug("could not close cached statement: {}", ex.getMessage());
+    }
+  }
+
+}
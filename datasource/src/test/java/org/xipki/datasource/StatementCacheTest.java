@@ -0,0 +1,291 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test for {@link StatementCache}. The test is in the package of {@link StatementCache}, since the
+ * latter is package-private.
+ *
+ * @author Lijun Liao
+ */
+
+public class StatementCacheTest {
+
+  /**
+   * Physical statement, counts the executions and fails them on demand.
+   */
+  private static class FakeStatement implements InvocationHandler {
+
+    private final String sql;
+
+    private boolean closed;
+
+    private int numExecutions;
+
+    private SQLException failure;
+
+    private FakeStatement(String sql) {
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if ("close".equals(name)) {
+        closed = true;
+        return null;
+      } else if ("isClosed".equals(name)) {
+        return closed;
+      } else if (name.startsWith("execute")) {
+        if (closed) {
+          throw new SQLException("physical statement is closed");
+        }
+        numExecutions++;
+        if (failure != null) {
+          throw failure;
+        }
+        return "executeUpdate".equals(name) ? 1 : null;
+      } else if ("hashCode".equals(name)) {
+        return System.identityHashCode(proxy);
+      } else if ("equals".equals(name)) {
+        return proxy == args[0];
+      }
+      // clearParameters(), clearWarnings(), setXxx()
+      return null;
+    } // method invoke
+
+  } // class FakeStatement
+
+  /**
+   * Physical connection, records the prepared statements.
+   */
+  private static class FakeConnection implements InvocationHandler {
+
+    private final List<FakeStatement> statements = new ArrayList<>();
+
+    private boolean closed;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if ("prepareStatement".equals(name)) {
+        FakeStatement statement = new FakeStatement((String) args[0]);
+        statements.add(statement);
+        return newProxy(PreparedStatement.class, statement);
+      } else if ("unwrap".equals(name)) {
+        return proxy;
+      } else if ("close".equals(name)) {
+        closed = true;
+        return null;
+      } else if ("isClosed".equals(name)) {
+        return closed;
+      } else if ("hashCode".equals(name)) {
+        return System.identityHashCode(proxy);
+      } else if ("equals".equals(name)) {
+        return proxy == args[0];
+      }
+      throw new UnsupportedOperationException(name);
+    } // method invoke
+
+  } // class FakeConnection
+
+  private final FakeConnection physical = new FakeConnection();
+
+  private final Connection physicalConnection = newProxy(Connection.class, physical);
+
+  // the pooled connection delegates unwrap() to the physical connection
+  private final Connection pooledConnection = newProxy(Connection.class, (proxy, method, args) -> {
+    String name = method.getName();
+    if ("unwrap".equals(name)) {
+      return physicalConnection;
+    } else if ("hashCode".equals(name)) {
+      return System.identityHashCode(proxy);
+    } else if ("equals".equals(name)) {
+      return proxy == args[0];
+    }
+    throw new UnsupportedOperationException(name);
+  });
+
+  @Test
+  public void testCloseReturnsStatementToCache() throws SQLException {
+    StatementCache cache = new StatementCache(10);
+
+    PreparedStatement ps = cache.prepareStatement(pooledConnection, "SELECT 1");
+    Assert.assertSame(pooledConnection, ps.getConnection());
+    ps.executeQuery();
+    ps.close();
+
+    Assert.assertTrue(ps.isClosed());
+    FakeStatement statement = physical.statements.get(0);
+    Assert.assertFalse("physical statement is closed", statement.closed);
+
+    try {
+      ps.executeQuery();
+      Assert.fail("closed statement is executed");
+    } catch (SQLException ex) {
+      // expected
+    }
+    Assert.assertEquals(1, statement.numExecutions);
+
+    // the same physical statement is used
+    ps = cache.prepareStatement(pooledConnection, "SELECT 1");
+    ps.executeQuery();
+    ps.close();
+    // a second close() does not put the statement into the cache twice
+    ps.close();
+
+    Assert.assertEquals(1, physical.statements.size());
+    Assert.assertEquals(2, statement.numExecutions);
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+  } // method testCloseReturnsStatementToCache
+
+  @Test
+  public void testStatementsInUse() throws SQLException {
+    StatementCache cache = new StatementCache(10);
+
+    // a statement in use is not handed out twice
+    PreparedStatement ps1 = cache.prepareStatement(pooledConnection, "SELECT 1");
+    PreparedStatement ps2 = cache.prepareStatement(pooledConnection, "SELECT 1");
+    Assert.assertEquals(2, physical.statements.size());
+
+    ps1.close();
+    ps2.close();
+    // only one statement per SQL is cached, the other one is closed
+    Assert.assertTrue(physical.statements.get(0).closed);
+    Assert.assertFalse(physical.statements.get(1).closed);
+  }
+
+  @Test
+  public void testEviction() throws SQLException {
+    StatementCache cache = new StatementCache(2);
+
+    for (String sql : new String[]{"SELECT 1", "SELECT 2", "SELECT 3"}) {
+      cache.prepareStatement(pooledConnection, sql).close();
+    }
+
+    // the least recently used statement is evicted and closed
+    Assert.assertTrue(physical.statements.get(0).closed);
+    Assert.assertFalse(physical.statements.get(1).closed);
+    Assert.assertFalse(physical.statements.get(2).closed);
+
+    cache.prepareStatement(pooledConnection, "SELECT 1").close();
+    Assert.assertEquals(4, physical.statements.size());
+    Assert.assertEquals(0, cache.getHits());
+
+    cache.prepareStatement(pooledConnection, "SELECT 3").close();
+    Assert.assertEquals(4, physical.statements.size());
+    Assert.assertEquals(1, cache.getHits());
+  } // method testEviction
+
+  @Test
+  public void testFailedStatementIsDiscarded() throws SQLException {
+    StatementCache cache = new StatementCache(10);
+    cache.prepareStatement(pooledConnection, "SELECT 2").close();
+
+    PreparedStatement ps = cache.prepareStatement(pooledConnection, "SELECT 1");
+    FakeStatement statement = physical.statements.get(1);
+    // syntax error, not a connection error
+    statement.failure = new SQLException("invalid statement", "42000");
+    try {
+      ps.executeQuery();
+      Assert.fail("SQLException expected");
+    } catch (SQLException ex) {
+      Assert.assertSame(statement.failure, ex);
+    }
+    ps.close();
+
+    Assert.assertTrue("failed statement is closed", statement.closed);
+    cache.prepareStatement(pooledConnection, "SELECT 1").close();
+    Assert.assertEquals("failed statement is not reused", 3, physical.statements.size());
+
+    // the other statements of the connection are kept
+    Assert.assertFalse(physical.statements.get(0).closed);
+    cache.prepareStatement(pooledConnection, "SELECT 2").close();
+    Assert.assertEquals(3, physical.statements.size());
+  } // method testFailedStatementIsDiscarded
+
+  @Test
+  public void testConnectionErrorDropsStatements() throws SQLException {
+    StatementCache cache = new StatementCache(10);
+    cache.prepareStatement(pooledConnection, "SELECT 2").close();
+
+    PreparedStatement ps = cache.prepareStatement(pooledConnection, "SELECT 1");
+    FakeStatement statement = physical.statements.get(1);
+    statement.failure = new SQLException("connection failure", "08006");
+    try {
+      ps.executeUpdate();
+      Assert.fail("SQLException expected");
+    } catch (SQLException ex) {
+      // expected
+    }
+    ps.close();
+
+    Assert.assertTrue(statement.closed);
+    Assert.assertTrue("statements of the broken connection are closed", physical.statements.get(0).closed);
+  }
+
+  @Test
+  public void testClosedConnectionDropsStatements() throws SQLException {
+    StatementCache cache = new StatementCache(10);
+    cache.prepareStatement(pooledConnection, "SELECT 1").close();
+    cache.prepareStatement(pooledConnection, "SELECT 2").close();
+
+    // the connection is still open
+    cache.connectionReturned();
+    Assert.assertFalse(physical.statements.get(0).closed);
+
+    // the pool closes the physical connection, and opens a new one
+    physical.closed = true;
+    FakeConnection physical2 = new FakeConnection();
+    Connection physicalConnection2 = newProxy(Connection.class, physical2);
+    Connection pooledConnection2 = newProxy(Connection.class, (proxy, method, args) -> {
+      String name = method.getName();
+      if ("unwrap".equals(name)) {
+        return physicalConnection2;
+      }
+      throw new UnsupportedOperationException(name);
+    });
+
+    cache.prepareStatement(pooledConnection2, "SELECT 1").close();
+    Assert.assertTrue(physical.statements.get(0).closed);
+    Assert.assertTrue(physical.statements.get(1).closed);
+    Assert.assertFalse(physical2.statements.get(0).closed);
+
+    cache.close();
+    Assert.assertTrue(physical2.statements.get(0).closed);
+  } // method testClosedConnectionDropsStatements
+
+  @SuppressWarnings("unchecked")
+  private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(), new Class<?>[]{type}, handler);
+  }
+
+}
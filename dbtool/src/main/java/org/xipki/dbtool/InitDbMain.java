@@ -51,6 +51,7 @@ public class InitDbMain {
     }
 
     boolean force = false;
+    boolean update = false;
     String dbConfFile = null;
     String dbSchemaFile = null;
 
@@ -73,6 +74,9 @@ public class InitDbMain {
         case "-f":
           force = true;
           break;
+        case "--update":
+          update = true;
+          break;
         default:
           break;
       }
@@ -89,14 +93,14 @@ public class InitDbMain {
     }
 
     try {
-      exec(dbConfFile, dbSchemaFile, force);
+      exec(dbConfFile, dbSchemaFile, force, update);
     } catch (Exception ex) {
       System.err.println("Error while initializing database: " + ex.getMessage());
       LOG.error("Error while initializing database", ex);
     }
   } // method main
 
-  private static void exec(String dbConfFile, String dbSchemaFile, boolean force)
+  private static void exec(String dbConfFile, String dbSchemaFile, boolean force, boolean update)
       throws Exception {
     Properties props = new Properties();
     try (InputStream is = Files.newInputStream(Paths.get(IoUtil.expandFilepath(dbConfFile)))) {
@@ -106,13 +110,17 @@ public class InitDbMain {
     LiquibaseMain.DatabaseConf dbConf = LiquibaseMain.DatabaseConf.getInstance(props, null);
     printDatabaseInfo(dbConf, dbSchemaFile);
     if (!force) {
-      if (!confirm("reset and initialize")) {
+      if (!confirm(update ? "update" : "reset and initialize")) {
         System.out.println("cancelled");
         return;
       }
     }
 
-    initDb(dbConf, dbSchemaFile);
+    if (update) {
+      updateDb(dbConf, dbSchemaFile);
+    } else {
+      initDb(dbConf, dbSchemaFile);
+    }
   } // method exec
 
   public static void initDb(LiquibaseMain.DatabaseConf dbConf, String dbSchemaFile)
@@ -127,6 +135,26 @@ public class InitDbMain {
     dropLiquibaseTables(dbConf);
   } // method initDb
 
+  /**
+   * Applies the schema file to the database without dropping the existing tables, e.g. to add
+   * the binary payload columns with sql/ca-binary-payload.xml. The change sets of the schema
+   * file must check their preconditions, since the Liquibase tables are dropped afterwards.
+   *
+   * @param dbConf the database configuration.
+   * @param dbSchemaFile the schema file.
+   * @throws Exception if error occurs.
+   */
+  public static void updateDb(LiquibaseMain.DatabaseConf dbConf, String dbSchemaFile)
+      throws Exception {
+    try (LiquibaseMain liquibase = new LiquibaseMain(dbConf, dbSchemaFile)) {
+      liquibase.init();
+      liquibase.releaseLocks();
+      liquibase.update();
+    }
+
+    dropLiquibaseTables(dbConf);
+  } // method updateDb
+
   private static void printDatabaseInfo(LiquibaseMain.DatabaseConf dbParams, String schemaFile) {
     String msg = StringUtil.concat("\n--------------------------------------------",
         "\n     driver: ", dbParams.getDriver(),  "\n       user: ", dbParams.getUsername(),
@@ -151,7 +179,7 @@ public class InitDbMain {
 
     sb.append("DESCRIPTION\n");
     sb.append("\tinitdb [options]\n");
-    sb.append("\tReset and initialize the database\n");
+    sb.append("\tReset and initialize the database, or update it with --update\n");
     sb.append("OPTIONS\n");
     sb.append("\t--db-schema\n");
     sb.append("\t\tDB schema file\n");
@@ -159,6 +187,8 @@ public class InitDbMain {
     sb.append("\t--db-conf\n");
     sb.append("\t\tDB configuration file\n");
     sb.append("\t\t(required)\n");
+    sb.append("\t--update\n");
+    sb.append("\t\tApply the DB schema file to the existing database instead of resetting it\n");
     sb.append("\t--help\n");
     sb.append("\t\tDisplay this help message\n");
     sb.append("\t--force, -f\n");
@@ -35,6 +35,7 @@ import org.xipki.security.ctlog.CtLogMessages.AddPreChainRequest;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainResponse;
 import org.xipki.util.LogUtil;
 
+import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -44,6 +45,7 @@ import java.io.InputStream;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
+import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
@@ -52,6 +54,13 @@ import java.util.List;
 /**
  * HTTP servlet of CT Log server.
  *
+ * <p>To simulate slow or unreliable CT Log servers in the QA, the following init
+ * parameters can be specified:
+ * <ul>
+ *   <li>delay: delay in milliseconds before the response is sent, default to 0.</li>
+ *   <li>failureRate: percentage (0 - 100) of requests to be answered with error, default to 0.</li>
+ * </ul>
+ *
  * @author Lijun Liao
  */
 @SuppressWarnings("serial")
@@ -67,6 +76,12 @@ public class CtLogServlet extends HttpServlet {
 
   private final SignatureAndHashAlgorithm signatureAndHashAlgorithm;
 
+  private final SecureRandom random = new SecureRandom();
+
+  private long delayMs;
+
+  private int failureRate;
+
   public CtLogServlet(byte[] pkcs8PrivateKeyBytes, byte[] publicKeyInfoBytes) {
     SubjectPublicKeyInfo publicKeyInfo = SubjectPublicKeyInfo.getInstance(publicKeyInfoBytes);
     byte[] canonicalizedBytes;
@@ -109,10 +124,38 @@ public class CtLogServlet extends HttpServlet {
     }
   }
 
+  @Override
+  public void init(ServletConfig config)
+      throws ServletException {
+    super.init(config);
+
+    String str = config.getInitParameter("delay");
+    delayMs = (str == null) ? 0 : Long.parseLong(str.trim());
+
+    str = config.getInitParameter("failureRate");
+    failureRate = (str == null) ? 0 : Integer.parseInt(str.trim());
+    if (failureRate < 0 || failureRate > 100) {
+      throw new ServletException("invalid failureRate " + failureRate);
+    }
+
+    if (delayMs > 0 || failureRate > 0) {
+      LOG.info("{}: delay={} ms, failureRate={}%", config.getServletName(), delayMs, failureRate);
+    }
+  } // method init
+
   @Override
   protected void doPost(HttpServletRequest req, HttpServletResponse resp)
       throws ServletException, IOException {
     try {
+      if (delayMs > 0) {
+        Thread.sleep(delayMs);
+      }
+
+      if (failureRate > 0 && random.nextInt(100) < failureRate) {
+        resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "simulated failure");
+        return;
+      }
+
       AddPreChainRequest req0 = parse(req.getInputStream(), AddPreChainRequest.class);
       List<byte[]> chain = req0.getChain();
       if (chain == null || chain.size() < 2) {
@@ -0,0 +1,217 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ocsp.api;
+
+import org.bouncycastle.asn1.x509.Certificate;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.CompareUtil;
+
+import java.io.IOException;
+import java.security.cert.CertificateEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.xipki.util.Args.notNull;
+
+/**
+ * Immutable hash index from the (hash algorithm, issuerNameHash, issuerKeyHash) of a
+ * {@link RequestIssuer} to a value. The lookup does not allocate any object.
+ *
+ * @author Lijun Liao
+ */
+
+public final class IssuerHashIndex<T> {
+
+  /**
+   * Builder of {@link IssuerHashIndex}. If more than one value is added for the same issuer,
+   * the first one wins.
+   */
+  public static class Builder<T> {
+
+    private final List<HashAlgo> algos = new ArrayList<>();
+
+    private final List<byte[]> hashes = new ArrayList<>();
+
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * Adds the value for an issuer.
+     * @param issuerHashes the DER-encoded issuerNameHash and issuerKeyHash per hash algorithm,
+     *          as returned by {@link IssuerHashIndex#getIssuerHashAndKeys(byte[])}.
+     * @param value the value.
+     * @return this builder.
+     */
+    public Builder<T> add(Map<HashAlgo, byte[]> issuerHashes, T value) {
+      notNull(value, "value");
+      for (Map.Entry<HashAlgo, byte[]> m : notNull(issuerHashes, "issuerHashes").entrySet()) {
+        algos.add(m.getKey());
+        hashes.add(m.getValue());
+        values.add(value);
+      }
+      return this;
+    }
+
+    public IssuerHashIndex<T> build() {
+      return new IssuerHashIndex<>(this);
+    }
+
+  } // class Builder
+
+  private static final IssuerHashIndex<?> EMPTY = new Builder<>().build();
+
+  private final HashAlgo[] algos;
+
+  private final byte[][] hashes;
+
+  private final Object[] values;
+
+  private final int mask;
+
+  private final int size;
+
+  private IssuerHashIndex(Builder<T> builder) {
+    int n = builder.values.size();
+    // open addressing with load factor not greater than 0.5
+    int capacity = Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+    this.algos = new HashAlgo[capacity];
+    this.hashes = new byte[capacity][];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+
+    int num = 0;
+    for (int i = 0; i < n; i++) {
+      HashAlgo algo = builder.algos.get(i);
+      byte[] hash = builder.hashes.get(i);
+      int idx = hashCode(algo, hash, 0) & mask;
+      boolean duplicated = false;
+      while (algos[idx] != null) {
+        if (algos[idx] == algo && CompareUtil.areEqual(hashes[idx], 0, hash, 0, hash.length)) {
+          duplicated = true;
+          break;
+        }
+        idx = (idx + 1) & mask;
+      }
+
+      if (!duplicated) {
+        algos[idx] = algo;
+        hashes[idx] = hash;
+        values[idx] = builder.values.get(i);
+        num++;
+      }
+    }
+    this.size = num;
+  } // constructor
+
+  @SuppressWarnings("unchecked")
+  public static <T> IssuerHashIndex<T> empty() {
+    return (IssuerHashIndex<T>) EMPTY;
+  }
+
+  /**
+   * Returns the number of (hash algorithm, issuer) pairs in the index.
+   * @return the number of indexed pairs.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value of the given issuer.
+   * @param reqIssuer the issuer in the OCSP request.
+   * @return the value of the issuer, or {@code null} if the issuer is unknown.
+   */
+  @SuppressWarnings("unchecked")
+  public T get(RequestIssuer reqIssuer) {
+    HashAlgo algo = reqIssuer.hashAlgorithm();
+    if (algo == null) {
+      return null;
+    }
+
+    byte[] data = reqIssuer.getData();
+    int from = reqIssuer.getNameHashFrom();
+    int hashLen = (2 + algo.getLength()) << 1;
+    if (reqIssuer.getFrom() + reqIssuer.getLength() - from < hashLen) {
+      return null;
+    }
+
+    int idx = hashCode(algo, data, from) & mask;
+    while (algos[idx] != null) {
+      if (algos[idx] == algo && CompareUtil.areEqual(hashes[idx], 0, data, from, hashLen)) {
+        return (T) values[idx];
+      }
+      idx = (idx + 1) & mask;
+    }
+    return null;
+  } // method get
+
+  // Both issuerNameHash and issuerKeyHash are hash values, 4 bytes of each are good enough.
+  private static int hashCode(HashAlgo algo, byte[] data, int offset) {
+    int nameHashOffset = offset + 2;
+    int keyHashOffset = nameHashOffset + algo.getLength() + 2;
+    int h = algo.ordinal();
+    h = 31 * h + readInt(data, nameHashOffset);
+    h = 31 * h + readInt(data, keyHashOffset);
+    return h ^ (h >>> 16);
+  }
+
+  private static int readInt(byte[] data, int offset) {
+    return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16
+        | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+  }
+
+  /**
+   * Computes the DER-encoded issuerNameHash and issuerKeyHash of the certificate for all
+   * hash algorithms.
+   * @param encodedCert the DER-encoded certificate.
+   * @return the map of hash algorithm to the DER-encoded issuerNameHash and issuerKeyHash.
+   * @throws CertificateEncodingException if the certificate cannot be parsed.
+   */
+  public static Map<HashAlgo, byte[]> getIssuerHashAndKeys(byte[] encodedCert)
+      throws CertificateEncodingException {
+    byte[] encodedName;
+    byte[] encodedKey;
+    try {
+      Certificate bcCert = Certificate.getInstance(encodedCert);
+      encodedName = bcCert.getSubject().getEncoded("DER");
+      encodedKey = bcCert.getSubjectPublicKeyInfo().getPublicKeyData().getBytes();
+    } catch (IllegalArgumentException | IOException ex) {
+      throw new CertificateEncodingException(ex.getMessage(), ex);
+    }
+
+    Map<HashAlgo, byte[]> hashes = new HashMap<>();
+    for (HashAlgo ha : HashAlgo.values()) {
+      int hlen = ha.getLength();
+      byte[] nameAndKeyHash = new byte[(2 + hlen) << 1];
+      int offset = 0;
+      nameAndKeyHash[offset++] = 0x04;
+      nameAndKeyHash[offset++] = (byte) hlen;
+      System.arraycopy(ha.hash(encodedName), 0, nameAndKeyHash, offset, hlen);
+      offset += hlen;
+
+      nameAndKeyHash[offset++] = 0x04;
+      nameAndKeyHash[offset++] = (byte) hlen;
+      System.arraycopy(ha.hash(encodedKey), 0, nameAndKeyHash, offset, hlen);
+
+      hashes.put(ha, nameAndKeyHash);
+    }
+    return hashes;
+  } // method getIssuerHashAndKeys
+
+}
@@ -17,7 +17,10 @@
 
 package org.xipki.ocsp.api;
 
+import org.xipki.datasource.DataSourceStats;
+
 import java.io.Closeable;
+import java.util.List;
 
 /**
  * OCSP server interface.
@@ -30,7 +33,29 @@ public interface OcspServer extends Closeable {
 
   ResponderAndPath getResponderForPath(String path);
 
-  OcspRespWithCacheInfo answer(Responder responder, byte[] request, boolean viaGet);
+  default OcspRespWithCacheInfo answer(Responder responder, byte[] request, boolean viaGet) {
+    return answer(responder, request, 0, request.length, viaGet);
+  }
+
+  /**
+   * Answers the OCSP request. The request is only read until this method returns, so the caller
+   * may reuse the buffer afterwards.
+   * @param responder the responder.
+   * @param request buffer containing the DER-encoded OCSP request.
+   * @param offset offset of the OCSP request in the buffer.
+   * @param length length of the OCSP request.
+   * @param viaGet whether the request is sent via HTTP GET.
+   * @return the OCSP response.
+   */
+  OcspRespWithCacheInfo answer(Responder responder, byte[] request, int offset, int length, boolean viaGet);
 
   boolean healthCheck(Responder responder);
+
+  /**
+   * Returns the statistics of the datasources.
+   * @param withStatements whether to include the statistics per SQL statement.
+   * @return the statistics of the datasources with enabled metrics.
+   */
+  List<DataSourceStats> getDataSourceStats(boolean withStatements);
+
 }
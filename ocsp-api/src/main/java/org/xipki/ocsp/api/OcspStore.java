@@ -24,10 +24,13 @@ import org.xipki.util.Validity;
 
 import java.io.Closeable;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.xipki.util.Args.notBlank;
+import static org.xipki.util.Args.notNull;
 
 /**
  * Store of certificate status.
@@ -60,6 +63,8 @@ public abstract class OcspStore implements Closeable {
 
   protected Validity updateInterval;
 
+  private final CopyOnWriteArrayList<Runnable> issuersChangeListeners = new CopyOnWriteArrayList<>();
+
   public OcspStore() {
   }
 
@@ -80,6 +85,36 @@ public abstract class OcspStore implements Closeable {
    */
   public abstract X509Cert getIssuerCert(RequestIssuer reqIssuer);
 
+  /**
+   * Returns the certificates of all issuers known by this store. A store which returns a
+   * non-{@code null} value must call {@link #fireIssuersChanged()} after its issuers are changed.
+   *
+   * @return the certificates of all known issuers, or {@code null} if this store cannot list
+   *         its issuers.
+   */
+  public Collection<X509Cert> getIssuerCerts() {
+    return null;
+  }
+
+  /**
+   * Adds a listener which is called after the issuers of this store are changed.
+   *
+   * @param listener
+   *          Listener to be called.
+   */
+  public void addIssuersChangeListener(Runnable listener) {
+    issuersChangeListeners.add(notNull(listener, "listener"));
+  }
+
+  /**
+   * Notifies the listeners that the issuers of this store are changed.
+   */
+  protected void fireIssuersChanged() {
+    for (Runnable listener : issuersChangeListeners) {
+      listener.run();
+    }
+  }
+
   /**
    * Ignores expired CRLs. Only applied to CRL-based datasource.
    *
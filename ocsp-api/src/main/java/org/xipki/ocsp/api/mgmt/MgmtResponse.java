@@ -17,6 +17,10 @@
 
 package org.xipki.ocsp.api.mgmt;
 
+import org.xipki.datasource.DataSourceStats;
+
+import java.util.List;
+
 /**
  * OCSP server management response.
  *
@@ -25,4 +29,25 @@ package org.xipki.ocsp.api.mgmt;
 
 public abstract class MgmtResponse extends MgmtMessage {
 
+  public static class GetDataSourceStats extends MgmtResponse {
+
+    private List<DataSourceStats> result;
+
+    public GetDataSourceStats() {
+    }
+
+    public GetDataSourceStats(List<DataSourceStats> result) {
+      this.result = result;
+    }
+
+    public List<DataSourceStats> getResult() {
+      return result;
+    }
+
+    public void setResult(List<DataSourceStats> result) {
+      this.result = result;
+    }
+
+  } // class GetDataSourceStats
+
 }
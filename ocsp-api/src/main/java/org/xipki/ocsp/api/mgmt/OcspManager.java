@@ -17,6 +17,10 @@
 
 package org.xipki.ocsp.api.mgmt;
 
+import org.xipki.datasource.DataSourceStats;
+
+import java.util.List;
+
 /**
  * OCSP manager interface.
  *
@@ -31,4 +35,12 @@ public interface OcspManager {
 
   void refreshTokenForSignerType(String signerType)
       throws OcspMgmtException;
+
+  /**
+   * Returns the statistics of the datasources, including the statistics per SQL statement.
+   * @return the statistics of the datasources with enabled metrics.
+   * @throws OcspMgmtException if error occurs.
+   */
+  List<DataSourceStats> getDataSourceStats()
+      throws OcspMgmtException;
 }
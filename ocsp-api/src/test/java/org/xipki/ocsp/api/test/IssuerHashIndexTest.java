@@ -0,0 +1,153 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ocsp.api.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ocsp.api.IssuerHashIndex;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.security.HashAlgo;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test for {@link IssuerHashIndex}.
+ *
+ * @author Lijun Liao
+ */
+
+public class IssuerHashIndexTest {
+
+  @Test
+  public void testIssuerOfCert()
+      throws Exception {
+    byte[] encodedCert = Files.readAllBytes(Paths.get("src/test/resources/ca.crt"));
+    Map<HashAlgo, byte[]> issuerHashes = IssuerHashIndex.getIssuerHashAndKeys(encodedCert);
+    Assert.assertEquals("number of hash algorithms", HashAlgo.values().length, issuerHashes.size());
+
+    for (Map.Entry<HashAlgo, byte[]> m : issuerHashes.entrySet()) {
+      int hlen = m.getKey().getLength();
+      byte[] hashes = m.getValue();
+      Assert.assertEquals((2 + hlen) * 2, hashes.length);
+      // two DER-encoded OCTET STRINGs
+      Assert.assertEquals(0x04, hashes[0]);
+      Assert.assertEquals(hlen, hashes[1]);
+      Assert.assertEquals(0x04, hashes[2 + hlen]);
+      Assert.assertEquals(hlen, hashes[3 + hlen]);
+    }
+
+    IssuerHashIndex<String> index = new IssuerHashIndex.Builder<String>().add(issuerHashes, "ca").build();
+    Assert.assertEquals(HashAlgo.values().length, index.size());
+    for (Map.Entry<HashAlgo, byte[]> m : issuerHashes.entrySet()) {
+      Assert.assertEquals(m.getKey().name(), "ca", index.get(new RequestIssuer(m.getKey(), m.getValue())));
+    }
+  }
+
+  @Test
+  public void testManyIssuers() {
+    IssuerHashIndex.Builder<Integer> builder = new IssuerHashIndex.Builder<>();
+    final int n = 100;
+    for (int i = 0; i < n; i++) {
+      builder.add(issuerHashes(i), i);
+    }
+
+    IssuerHashIndex<Integer> index = builder.build();
+    Assert.assertEquals(n * HashAlgo.values().length, index.size());
+
+    for (int i = 0; i < n; i++) {
+      for (Map.Entry<HashAlgo, byte[]> m : issuerHashes(i).entrySet()) {
+        Assert.assertEquals(Integer.valueOf(i), index.get(new RequestIssuer(m.getKey(), m.getValue())));
+      }
+    }
+
+    for (Map.Entry<HashAlgo, byte[]> m : issuerHashes(n).entrySet()) {
+      Assert.assertNull("unknown issuer", index.get(new RequestIssuer(m.getKey(), m.getValue())));
+    }
+  }
+
+  @Test
+  public void testDuplicatedIssuer() {
+    Map<HashAlgo, byte[]> issuerHashes = issuerHashes(1);
+    IssuerHashIndex<String> index = new IssuerHashIndex.Builder<String>()
+        .add(issuerHashes, "first").add(issuerHashes(2), "other").add(issuerHashes, "second").build();
+    Assert.assertEquals(2 * HashAlgo.values().length, index.size());
+
+    byte[] hashes = issuerHashes.get(HashAlgo.SHA256);
+    Assert.assertEquals("first", index.get(new RequestIssuer(HashAlgo.SHA256, hashes)));
+  }
+
+  @Test
+  public void testOtherHashAlgo() {
+    Map<HashAlgo, byte[]> issuerHashes = new HashMap<>();
+    issuerHashes.put(HashAlgo.SHA1, issuerHashes(1).get(HashAlgo.SHA1));
+    IssuerHashIndex<String> index = new IssuerHashIndex.Builder<String>().add(issuerHashes, "ca").build();
+    Assert.assertEquals(1, index.size());
+
+    Assert.assertEquals("ca", index.get(new RequestIssuer(HashAlgo.SHA1, issuerHashes.get(HashAlgo.SHA1))));
+    Assert.assertNull(index.get(new RequestIssuer(HashAlgo.SHA256, issuerHashes(1).get(HashAlgo.SHA256))));
+  }
+
+  @Test
+  public void testIssuerWithinBuffer()
+      throws Exception {
+    Map<HashAlgo, byte[]> issuerHashes = issuerHashes(7);
+    IssuerHashIndex<String> index = new IssuerHashIndex.Builder<String>().add(issuerHashes, "ca").build();
+
+    // the issuer as parsed from an OCSP request: a slice of a larger buffer
+    byte[] encoded = new RequestIssuer(HashAlgo.SHA256, issuerHashes.get(HashAlgo.SHA256)).getData();
+    final int offset = 5;
+    byte[] buffer = new byte[offset + encoded.length + 3];
+    System.arraycopy(encoded, 0, buffer, offset, encoded.length);
+
+    Assert.assertEquals("ca", index.get(new RequestIssuer(buffer, offset, encoded.length)));
+
+    // truncated issuerKeyHash
+    Assert.assertNull(index.get(new RequestIssuer(buffer, offset, encoded.length - 1)));
+  }
+
+  @Test
+  public void testEmpty() {
+    IssuerHashIndex<String> index = IssuerHashIndex.empty();
+    Assert.assertEquals(0, index.size());
+    Assert.assertNull(index.get(new RequestIssuer(HashAlgo.SHA1, issuerHashes(1).get(HashAlgo.SHA1))));
+  }
+
+  private static Map<HashAlgo, byte[]> issuerHashes(int issuer) {
+    byte[] name = ("name-" + issuer).getBytes(StandardCharsets.UTF_8);
+    byte[] key = ("key-" + issuer).getBytes(StandardCharsets.UTF_8);
+
+    Map<HashAlgo, byte[]> hashes = new HashMap<>();
+    for (HashAlgo ha : HashAlgo.values()) {
+      int hlen = ha.getLength();
+      byte[] nameAndKeyHash = new byte[(2 + hlen) * 2];
+      nameAndKeyHash[0] = 0x04;
+      nameAndKeyHash[1] = (byte) hlen;
+      System.arraycopy(ha.hash(name), 0, nameAndKeyHash, 2, hlen);
+      nameAndKeyHash[2 + hlen] = 0x04;
+      nameAndKeyHash[3 + hlen] = (byte) hlen;
+      System.arraycopy(ha.hash(key), 0, nameAndKeyHash, 4 + hlen, hlen);
+      hashes.put(ha, nameAndKeyHash);
+    }
+    return hashes;
+  }
+
+}
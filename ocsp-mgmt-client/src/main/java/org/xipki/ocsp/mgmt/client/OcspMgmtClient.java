@@ -18,6 +18,7 @@
 package org.xipki.ocsp.mgmt.client;
 
 import com.alibaba.fastjson.JSON;
+import org.xipki.datasource.DataSourceStats;
 import org.xipki.ocsp.api.mgmt.MgmtMessage.MgmtAction;
 import org.xipki.ocsp.api.mgmt.MgmtRequest;
 import org.xipki.ocsp.api.mgmt.MgmtResponse;
@@ -40,6 +41,7 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -119,12 +121,19 @@ public class OcspMgmtClient implements OcspManager {
     voidTransmit(MgmtAction.refreshTokenForSignerType, req);
   }
 
+  @Override
+  public List<DataSourceStats> getDataSourceStats()
+      throws OcspMgmtException {
+    byte[] respBytes = transmit(MgmtAction.getDataSourceStats, null);
+    MgmtResponse.GetDataSourceStats resp = parse(respBytes, MgmtResponse.GetDataSourceStats.class);
+    return resp.getResult();
+  }
+
   private void voidTransmit(MgmtAction action, MgmtRequest req)
       throws OcspMgmtException {
     transmit(action, req, true);
   }
 
-  @SuppressWarnings("unused")
   private byte[] transmit(MgmtAction action, MgmtRequest req)
       throws OcspMgmtException {
     return transmit(action, req, false);
@@ -202,7 +211,6 @@ public class OcspMgmtClient implements OcspManager {
     }
   } // method transmit
 
-  @SuppressWarnings("unused")
   private static <T extends MgmtResponse> T parse(byte[] bytes, Class<?> clazz)
       throws OcspMgmtException {
     try {
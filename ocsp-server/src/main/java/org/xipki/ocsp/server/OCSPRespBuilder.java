@@ -27,10 +27,12 @@ import org.xipki.util.Hex;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 
+import static org.xipki.util.Args.notNull;
+
 /**
  * Generator for OCSP response objects.
  *
@@ -39,10 +41,42 @@ import java.util.List;
  */
 
 public class OCSPRespBuilder {
+
+  /**
+   * Per-signer constant parts of the OCSP response. The encoded signature algorithm identifier
+   * is taken from the first signature and reused for all later responses, except for the MAC
+   * signers whose algorithm identifier may change per signature, e.g. the nonce of AES-GMAC.
+   * The constant response extensions do not depend on the signer and are encoded once in
+   * {@code OcspServerImpl}, the nonce is copied from the request.
+   */
+  public static class SignerSkeleton {
+
+    private final ConcurrentContentSigner signer;
+
+    private final boolean constantSigAlgId;
+
+    private volatile byte[] encodedSigAlgId;
+
+    public SignerSkeleton(ConcurrentContentSigner signer) {
+      this.signer = notNull(signer, "signer");
+      this.constantSigAlgId = !signer.isMac();
+    }
+
+    public ConcurrentContentSigner getSigner() {
+      return signer;
+    }
+
+  } // class SignerSkeleton
+
   private static final byte[] successfulStatus = Hex.decode("0a0100");
   private static final byte[] responseTypeBasic = Hex.decode("06092b0601050507300101");
 
-  private final List<SingleResponse> list = new LinkedList<>();
+  // Buffers larger than this are not kept by the thread.
+  private static final int MAX_KEPT_BUFFER_SIZE = 64 * 1024;
+
+  private static final ThreadLocal<byte[]> TBS_BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+
+  private final List<SingleResponse> list = new ArrayList<>(1);
   private Extensions responseExtensions = null;
   private final ResponderID responderId;
 
@@ -82,28 +116,59 @@ public class OCSPRespBuilder {
   public byte[] buildOCSPResponse(
       ConcurrentContentSigner signer, TaggedCertSequence taggedCertSequence, Date producedAt)
       throws OCSPException, NoIdleSignerException {
+    return buildOCSPResponse(new SignerSkeleton(signer), taggedCertSequence, producedAt);
+  }
+
+  /**
+   * Builds the DER-encoded OCSP response. The tbsResponseData is written into a buffer reused
+   * by the current thread and signed from there, the response is assembled in one array of
+   * exactly the encoded length.
+   *
+   * @param skeleton the signer and its constant parts.
+   * @param taggedCertSequence the certificates to be embedded, may be {@code null}.
+   * @param producedAt the producedAt time.
+   * @return the DER-encoded OCSP response.
+   * @throws OCSPException if signing the response failed.
+   * @throws NoIdleSignerException if no signer is available.
+   */
+  public byte[] buildOCSPResponse(
+      SignerSkeleton skeleton, TaggedCertSequence taggedCertSequence, Date producedAt)
+      throws OCSPException, NoIdleSignerException {
     ResponseData responseData = new ResponseData(0, responderId, producedAt, list, responseExtensions);
 
-    byte[] tbs = new byte[responseData.getEncodedLength()];
+    int tbsLen = responseData.getEncodedLength();
+    byte[] tbs = TBS_BUFFER.get();
+    if (tbs.length < tbsLen) {
+      tbs = new byte[tbsLen];
+      if (tbsLen <= MAX_KEPT_BUFFER_SIZE) {
+        TBS_BUFFER.set(tbs);
+      }
+    }
     responseData.write(tbs, 0);
 
+    ConcurrentContentSigner signer = skeleton.signer;
     ConcurrentBagEntrySigner signer0 = signer.borrowSigner();
 
     byte[] signature;
-    byte[] sigAlgId;
+    byte[] sigAlgId = skeleton.encodedSigAlgId;
 
     try {
       XiContentSigner csigner0 = signer0.value();
       OutputStream sigOut = csigner0.getOutputStream();
       try {
-        sigOut.write(tbs);
+        sigOut.write(tbs, 0, tbsLen);
         sigOut.close();
       } catch (IOException ex) {
         throw new OCSPException("exception signing TBSRequest: " + ex.getMessage(), ex);
       }
 
       signature = csigner0.getSignature();
-      sigAlgId = csigner0.getEncodedAlgorithmIdentifier();
+      if (sigAlgId == null) {
+        sigAlgId = csigner0.getEncodedAlgorithmIdentifier();
+        if (skeleton.constantSigAlgId) {
+          skeleton.encodedSigAlgId = sigAlgId;
+        }
+      }
     } finally {
       signer.requiteSigner(signer0);
     }
@@ -114,7 +179,7 @@ public class OCSPRespBuilder {
     int signatureLen = getLen(signatureBodyLen);
 
     // BasicOCSPResponse
-    int basicResponseBodyLen = tbs.length + sigAlgId.length + signatureLen;
+    int basicResponseBodyLen = tbsLen + sigAlgId.length + signatureLen;
     if (taggedCertSequence != null) {
       basicResponseBodyLen += taggedCertSequence.getEncodedLength();
     }
@@ -154,7 +219,8 @@ public class OCSPRespBuilder {
     // BasicOCSPResponse
     offset += ASN1Type.writeHeader((byte) 0x30, basicResponseBodyLen, out, offset);
     // BasicOCSPResponse.tbsResponseData
-    offset += arraycopy(tbs, out, offset);
+    System.arraycopy(tbs, 0, out, offset, tbsLen);
+    offset += tbsLen;
 
     // BasicOCSPResponse.signatureAlgorithm
     offset += arraycopy(sigAlgId, out, offset);
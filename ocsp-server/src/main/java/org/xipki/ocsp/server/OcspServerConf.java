@@ -814,6 +814,51 @@ public class OcspServerConf extends ValidatableConf {
 
   } // class CaCerts
 
+  public static class SigningQueue extends ValidatableConf {
+
+    /**
+     * Maximal number of requests waiting for a signer, per signer pool. Default is the number of
+     * signers in the pool.
+     */
+    private Integer queueSize;
+
+    /**
+     * Time in milliseconds, counted from the receipt of the request, after which the client is
+     * assumed to have given up. Requests still waiting for a signer are then answered with
+     * tryLater without being signed. Default is 5000.
+     */
+    private int deadline = 5000;
+
+    public Integer getQueueSize() {
+      return queueSize;
+    }
+
+    public void setQueueSize(Integer queueSize) {
+      this.queueSize = queueSize;
+    }
+
+    public int getDeadline() {
+      return deadline;
+    }
+
+    public void setDeadline(int deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void validate()
+        throws InvalidConfException {
+      if (queueSize != null && queueSize < 1) {
+        throw new InvalidConfException("queueSize must not be less than 1: " + queueSize);
+      }
+
+      if (deadline < 1) {
+        throw new InvalidConfException("deadline must not be less than 1: " + deadline);
+      }
+    }
+
+  } // class SigningQueue
+
   private ResponseCache responseCache;
 
   private List<Responder> responders;
@@ -832,6 +877,11 @@ public class OcspServerConf extends ValidatableConf {
 
   private UnknownIssuerBehaviour unknownIssuerBehaviour = UnknownIssuerBehaviour.unknown;
 
+  /**
+   * If set, the responses are signed by dedicated threads, one per signer, fed by a bounded queue.
+   */
+  private SigningQueue signingQueue;
+
   public static OcspServerConf readConfFromFile(String fileName)
       throws IOException, InvalidConfException {
     notBlank(fileName, "fileName");
@@ -933,6 +983,14 @@ public class OcspServerConf extends ValidatableConf {
     this.unknownIssuerBehaviour = unknownIssuerBehaviour;
   }
 
+  public SigningQueue getSigningQueue() {
+    return signingQueue;
+  }
+
+  public void setSigningQueue(SigningQueue signingQueue) {
+    this.signingQueue = signingQueue;
+  }
+
   @Override
   public void validate()
       throws InvalidConfException {
@@ -952,6 +1010,8 @@ public class OcspServerConf extends ValidatableConf {
 
     notEmpty(responseOptions, "responseOptions");
     validate(responseOptions);
+
+    validate(signingQueue);
   } // method validate
 
 }
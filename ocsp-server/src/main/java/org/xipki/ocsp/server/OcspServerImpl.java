@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceConf;
 import org.xipki.datasource.DataSourceFactory;
+import org.xipki.datasource.DataSourceStats;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.license.api.OcspLicense;
 import org.xipki.ocsp.api.*;
@@ -41,6 +42,7 @@ import org.xipki.ocsp.api.CertStatusInfo.UnknownIssuerBehaviour;
 import org.xipki.ocsp.api.OcspRespWithCacheInfo.ResponseCacheInfo;
 import org.xipki.ocsp.server.OcspServerConf.EmbedCertsMode;
 import org.xipki.ocsp.server.OcspServerConf.Source;
+import org.xipki.ocsp.server.ResponderImpl.IssuerStores;
 import org.xipki.ocsp.server.ResponderOption.OcspMode;
 import org.xipki.ocsp.server.store.IssuerEntry;
 import org.xipki.ocsp.server.store.ResponseCacher;
@@ -49,6 +51,9 @@ import org.xipki.password.PasswordResolverException;
 import org.xipki.security.*;
 import org.xipki.util.*;
 import org.xipki.util.exception.InvalidConfException;
+import org.xipki.util.metrics.Counter;
+import org.xipki.util.metrics.Histogram;
+import org.xipki.util.metrics.MetricsRegistry;
 
 import java.io.File;
 import java.io.IOException;
@@ -57,6 +62,7 @@ import java.math.BigInteger;
 import java.security.InvalidKeyException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.xipki.ocsp.server.OcspServerUtil.*;
@@ -119,12 +125,20 @@ public class OcspServerImpl implements OcspServer {
   private static final byte[] bytes_certstatus_rfc6960_unknown =
       Hex.decode("a116180f31393730303130313030303030305aa0030a0106");
 
+  private static final OcspStore[] NO_STORES = new OcspStore[0];
+
   private static final WritableOnlyExtension extension_pkix_ocsp_extendedRevoke;
 
   private static final Logger LOG = LoggerFactory.getLogger(OcspServerImpl.class);
 
   private static final Map<OcspResponseStatus, OcspRespWithCacheInfo> unsuccesfulOCSPRespMap;
 
+  private static final Map<OcspRespWithCacheInfo, OcspResponseStatus> unsuccesfulOCSPRespStatusMap;
+
+  private static final Map<OcspResponseStatus, Histogram> answerDurations;
+
+  private static final Map<CertStatus, Counter> certStatusCounters;
+
   private static final byte[] encodedAcceptableResponses_Basic;
 
   private static final String version;
@@ -141,6 +155,9 @@ public class OcspServerImpl implements OcspServer {
 
   private UnknownIssuerBehaviour unknownIssuerBehaviour = UnknownIssuerBehaviour.unknown;
 
+  // deadline of the requests in the signing queues, in nanoseconds after the receipt.
+  private long signingDeadline;
+
   private ResponseCacher responseCacher;
 
   private final Map<String, ResponderImpl> responders = new HashMap<>();
@@ -153,6 +170,8 @@ public class OcspServerImpl implements OcspServer {
 
   private final Map<String, OcspStore> stores = new HashMap<>();
 
+  private final Map<String, DataSourceWrapper> datasources = new HashMap<>();
+
   private final List<String> servletPaths = new ArrayList<>();
 
   private final Map<String, ResponderImpl> path2responderMap = new HashMap<>();
@@ -177,6 +196,24 @@ public class OcspServerImpl implements OcspServer {
       unsuccesfulOCSPRespMap.put(status, new OcspRespWithCacheInfo(encoded, null));
     }
 
+    unsuccesfulOCSPRespStatusMap = new IdentityHashMap<>(10);
+    for (Entry<OcspResponseStatus, OcspRespWithCacheInfo> entry : unsuccesfulOCSPRespMap.entrySet()) {
+      unsuccesfulOCSPRespStatusMap.put(entry.getValue(), entry.getKey());
+    }
+
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    answerDurations = new EnumMap<>(OcspResponseStatus.class);
+    for (OcspResponseStatus status : OcspResponseStatus.values()) {
+      answerDurations.put(status, registry.histogram("xipki_ocsp_answer_duration_seconds",
+          "Time to answer the OCSP requests, by response status", "status", status.name()));
+    }
+
+    certStatusCounters = new EnumMap<>(CertStatus.class);
+    for (CertStatus status : CertStatus.values()) {
+      certStatusCounters.put(status, registry.counter("xipki_ocsp_cert_status_total",
+          "Certificate status in the OCSP responses", "status", status.name().toLowerCase(Locale.ROOT)));
+    }
+
     ExtendedExtension ext = new ExtendedExtension(OID.ID_PKIX_OCSP_EXTENDEDREVOKE, false, DERNullBytes);
     byte[] encoded = new byte[ext.getEncodedLength()];
     ext.write(encoded, 0);
@@ -263,7 +300,11 @@ public class OcspServerImpl implements OcspServer {
 
     // reset
     responseCacher = null;
+    datasources.clear();
     responders.clear();
+    for (ResponseSigner signer : signers.values()) {
+      signer.closeSigningQueues();
+    }
     signers.clear();
 
     requestOptions.clear();
@@ -411,7 +452,12 @@ public class OcspServerImpl implements OcspServer {
       } finally {
         closeStream(dsStream);
       }
-      responseCacher = new ResponseCacher(datasource, master, cacheType.validity());
+      datasources.put(cacheSourceConf.getName(), datasource);
+      try {
+        responseCacher = new ResponseCacher(datasource, master, cacheType.validity());
+      } catch (DataAccessException ex) {
+        throw new OcspStoreException("could not initialize the response cache", ex);
+      }
       responseCacher.init();
     }
 
@@ -422,6 +468,16 @@ public class OcspServerImpl implements OcspServer {
       signers.put(m.getName(), signer);
     }
 
+    OcspServerConf.SigningQueue signingQueueConf = conf.getSigningQueue();
+    if (signingQueueConf != null) {
+      this.signingDeadline = TimeUnit.MILLISECONDS.toNanos(signingQueueConf.getDeadline());
+      for (Entry<String, ResponseSigner> entry : signers.entrySet()) {
+        entry.getValue().startSigningQueues(entry.getKey(), signingQueueConf.getQueueSize());
+      }
+      LOG.info("sign the responses via signing queues, queueSize={}, deadline={} ms",
+          signingQueueConf.getQueueSize(), signingQueueConf.getDeadline());
+    }
+
     // requests
     for (OcspServerConf.RequestOption m : conf.getRequestOptions()) {
       RequestOption option = new RequestOption(m);
@@ -434,7 +490,6 @@ public class OcspServerImpl implements OcspServer {
     }
 
     // datasources
-    Map<String, DataSourceWrapper> datasources = new HashMap<>();
     if (conf.getDatasources() != null) {
       for (DataSourceConf m : conf.getDatasources()) {
         String name = m.getName();
@@ -537,6 +592,10 @@ public class OcspServerImpl implements OcspServer {
   @Override
   public void close() {
     LOG.info("stopped OCSP Responder");
+    for (ResponseSigner signer : signers.values()) {
+      signer.closeSigningQueues();
+    }
+
     if (responseCacher != null) {
       responseCacher.close();
     }
@@ -551,13 +610,23 @@ public class OcspServerImpl implements OcspServer {
   } // method close
 
   @Override
-  public OcspRespWithCacheInfo answer(Responder responder2, byte[] request, boolean viaGet) {
+  public OcspRespWithCacheInfo answer(
+      Responder responder2, byte[] request, int offset, int length, boolean viaGet) {
+    long start = System.nanoTime();
+    OcspRespWithCacheInfo resp = answer0(responder2, request, offset, length, viaGet, start);
+    OcspResponseStatus status = unsuccesfulOCSPRespStatusMap.get(resp);
+    answerDurations.get(status == null ? OcspResponseStatus.successful : status).record(System.nanoTime() - start);
+    return resp;
+  } // method answer
+
+  private OcspRespWithCacheInfo answer0(
+      Responder responder2, byte[] request, int offset, int length, boolean viaGet, long start) {
     ResponderImpl responder = (ResponderImpl) responder2;
     RequestOption reqOpt = responder.getRequestOption();
 
     int version;
     try {
-      version = OcspRequest.readRequestVersion(request);
+      version = OcspRequest.readRequestVersion(request, offset, length);
     } catch (EncodingException ex) {
       String message = "could not extract version from request";
       LOG.warn(message);
@@ -574,7 +643,7 @@ public class OcspServerImpl implements OcspServer {
     OcspServerConf.ResponseOption repOpt = responder.getResponseOption();
 
     try {
-      Object reqOrRrrorResp = checkSignature(request, reqOpt);
+      Object reqOrRrrorResp = checkSignature(request, offset, length, reqOpt);
       if (reqOrRrrorResp instanceof OcspRespWithCacheInfo) {
         // error
         return (OcspRespWithCacheInfo) reqOrRrrorResp;
@@ -599,18 +668,16 @@ public class OcspServerImpl implements OcspServer {
 
       if (!license.grantAllCAs()) {
         for (CertID cid : requestList) {
-          for (OcspStore store : responder.getStores()) {
-            X509Cert caCert = store.getIssuerCert(cid.getIssuer());
-            if (caCert == null) {
-              continue;
-            }
+          IssuerStores issuerStores = responder.getIssuerStores(cid.getIssuer());
+          if (issuerStores == null || issuerStores.getIssuerCert() == null) {
+            continue;
+          }
 
-            String issuerSubject = caCert.getSubjectText();
-            boolean granted = license.grant(issuerSubject);
-            if (!granted) {
-              LOG.error("Not granted for CA {}, need new license", issuerSubject);
-              return unsuccesfulOCSPRespMap.get(OcspResponseStatus.internalError);
-            }
+          String issuerSubject = issuerStores.getIssuerCert().getSubjectText();
+          boolean granted = license.grant(issuerSubject);
+          if (!granted) {
+            LOG.error("Not granted for CA {}, need new license", issuerSubject);
+            return unsuccesfulOCSPRespMap.get(OcspResponseStatus.internalError);
           }
         }
       }
@@ -621,7 +688,13 @@ public class OcspServerImpl implements OcspServer {
       OcspRespControl repControl = new OcspRespControl();
       repControl.canCacheInfo = true;
 
-      List<ExtendedExtension> reqExtensions = req.getExtensions();
+      List<ExtendedExtension> reqExtensions;
+      try {
+        reqExtensions = req.getExtensions();
+      } catch (EncodingException ex) {
+        LOG.warn("could not parse the request extensions: {}", ex.getMessage());
+        return unsuccesfulOCSPRespMap.get(OcspResponseStatus.malformedRequest);
+      }
       List<Extension> respExtensions = new LinkedList<>();
 
       ExtendedExtension ocspRespExtn = removeExtension(reqExtensions, OID.ID_PKIX_OCSP_RESPONSE);
@@ -764,13 +837,8 @@ public class OcspServerImpl implements OcspServer {
           }
         } else if (master) {
           // store the issuer certificate in cache database.
-          X509Cert issuerCert = null;
-          for (OcspStore store : responder.getStores()) {
-            issuerCert = store.getIssuerCert(certId.getIssuer());
-            if (issuerCert != null) {
-              break;
-            }
-          }
+          IssuerStores issuerStores = responder.getIssuerStores(certId.getIssuer());
+          X509Cert issuerCert = (issuerStores == null) ? null : issuerStores.getIssuerCert();
 
           if (issuerCert != null) {
             cacheDbIssuer = responseCacher.storeIssuer(issuerCert);
@@ -822,8 +890,15 @@ public class OcspServerImpl implements OcspServer {
       Date producedAt = new Date();
       byte[] encodeOcspResponse;
       try {
-        encodeOcspResponse = builder.buildOCSPResponse(concurrentSigner, certsInResp, producedAt);
+        SigningQueue signingQueue = signer.getSigningQueue(concurrentSigner);
+        if (signingQueue == null) {
+          encodeOcspResponse = builder.buildOCSPResponse(
+              signer.getSkeleton(concurrentSigner), certsInResp, producedAt);
+        } else {
+          encodeOcspResponse = signingQueue.sign(builder, certsInResp, producedAt, start + signingDeadline);
+        }
       } catch (NoIdleSignerException ex) {
+        LOG.debug("answer() tryLater: {}", ex.getMessage());
         return unsuccesfulOCSPRespMap.get(OcspResponseStatus.tryLater);
       } catch (OCSPException ex) {
         LogUtil.error(LOG, ex, "answer() basicOcspBuilder.build");
@@ -852,7 +927,7 @@ public class OcspServerImpl implements OcspServer {
       LogUtil.error(LOG, th);
       return unsuccesfulOCSPRespMap.get(OcspResponseStatus.internalError);
     }
-  } // method ask
+  } // method answer0
 
   private OcspRespWithCacheInfo processCertReq(
       AtomicBoolean unknownAsRevoked, CertID certId, OCSPRespBuilder builder, ResponderImpl responder,
@@ -870,11 +945,9 @@ public class OcspServerImpl implements OcspServer {
 
     RequestIssuer reqIssuer = certId.getIssuer();
     Date now = new Date();
-    for (OcspStore store : responder.getStores()) {
-      if (!store.knowsIssuer(reqIssuer)) {
-        continue;
-      }
-
+    IssuerStores issuerStores = responder.getIssuerStores(reqIssuer);
+    OcspStore[] stores = (issuerStores == null) ? NO_STORES : issuerStores.getStores();
+    for (OcspStore store : stores) {
       try {
         certStatusInfo = store.getCertStatus(now, certId.getIssuer(), serial,
             repOpt.isIncludeCerthash(), repOpt.isIncludeInvalidityDate(),
@@ -981,6 +1054,7 @@ public class OcspServerImpl implements OcspServer {
       default:
         throw new IllegalStateException("unknown CertificateStatus:" + certStatusInfo.getCertStatus());
     } // end switch
+    certStatusCounters.get(certStatusInfo.getCertStatus()).increment();
 
     if (responder.getResponderOption().getMode() != OcspMode.RFC2560) {
       repControl.includeExtendedRevokeExtension = true;
@@ -1051,30 +1125,43 @@ public class OcspServerImpl implements OcspServer {
     return true;
   } // method healthCheck
 
+  @Override
+  public List<DataSourceStats> getDataSourceStats(boolean withStatements) {
+    List<DataSourceStats> ret = new ArrayList<>(datasources.size());
+    for (DataSourceWrapper datasource : datasources.values()) {
+      DataSourceStats stats = datasource.getStats(withStatements);
+      if (stats != null) {
+        ret.add(stats);
+      }
+    }
+    return ret;
+  } // method getDataSourceStats
+
   public void refreshTokenForSignerType(String signerType)
       throws XiSecurityException {
     securityFactory.refreshTokenForSignerType(signerType);
   }
 
-  private Object checkSignature(byte[] request, RequestOption requestOption)
+  private Object checkSignature(byte[] request, int offset, int length, RequestOption requestOption)
       throws OCSPException {
     OCSPRequest req;
     try {
       if (!requestOption.isValidateSignature()) {
-        return OcspRequest.getInstance(request);
+        return OcspRequest.getInstance(request, offset, length);
       }
 
-      if (!OcspRequest.containsSignature(request)) {
+      if (!OcspRequest.containsSignature(request, offset, length)) {
         if (requestOption.isSignatureRequired()) {
           LOG.warn("signature in request required");
           return unsuccesfulOCSPRespMap.get(OcspResponseStatus.sigRequired);
         } else {
-          return OcspRequest.getInstance(request);
+          return OcspRequest.getInstance(request, offset, length);
         }
       }
 
       try {
-        req = OCSPRequest.getInstance(request);
+        // signed requests are rare, they are parsed by BouncyCastle from a copy.
+        req = OCSPRequest.getInstance(Arrays.copyOfRange(request, offset, offset + length));
       } catch (IllegalArgumentException ex) {
         throw new EncodingException("could not parse OCSP request", ex);
       }
@@ -25,6 +25,7 @@ import org.xipki.ocsp.api.OcspServer;
 import org.xipki.ocsp.api.OcspStore;
 import org.xipki.ocsp.api.OcspStoreException;
 import org.xipki.ocsp.server.store.CaDbCertStatusStore;
+import org.xipki.ocsp.server.store.CaFeedCertStatusStore;
 import org.xipki.ocsp.server.store.CrlDbCertStatusStore;
 import org.xipki.ocsp.server.store.DbCertStatusStore;
 import org.xipki.ocsp.server.store.ejbca.EjbcaCertStatusStore;
@@ -60,6 +61,8 @@ public class OcspServerUtil {
 
   private static final String STORE_TYPE_XIPKI_CA_DB = "xipki-ca-db";
 
+  private static final String STORE_TYPE_XIPKI_CA_FEED = "xipki-ca-feed";
+
   private static final String STORE_TYPE_CRL = "crl";
 
   private static final String STORE_TYPE_EJBCA_DB = "ejbca-db";
@@ -149,6 +152,8 @@ public class OcspServerUtil {
         store = new CrlDbCertStatusStore();
       } else if (STORE_TYPE_XIPKI_CA_DB.equals(type)) {
         store = new CaDbCertStatusStore();
+      } else if (STORE_TYPE_XIPKI_CA_FEED.equals(type)) {
+        store = new CaFeedCertStatusStore();
       } else if (STORE_TYPE_EJBCA_DB.equals(type)) {
         store = new EjbcaCertStatusStore();
       } else if (type.startsWith("java:")) {
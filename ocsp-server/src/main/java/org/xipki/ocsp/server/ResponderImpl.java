@@ -17,11 +17,20 @@
 
 package org.xipki.ocsp.server;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ocsp.api.IssuerHashIndex;
 import org.xipki.ocsp.api.OcspStore;
+import org.xipki.ocsp.api.RequestIssuer;
 import org.xipki.ocsp.api.Responder;
 import org.xipki.ocsp.server.OcspServerConf.ResponseOption;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Hex;
 
-import java.util.List;
+import java.security.cert.CertificateEncodingException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.xipki.util.Args.notEmpty;
 import static org.xipki.util.Args.notNull;
@@ -35,6 +44,46 @@ import static org.xipki.util.Args.notNull;
 
 public class ResponderImpl implements Responder {
 
+  /**
+   * Certificate of an issuer, and the stores which know the issuer in the configured order.
+   */
+  static class IssuerStores {
+
+    private final X509Cert issuerCert;
+
+    private final OcspStore[] stores;
+
+    private IssuerStores(X509Cert issuerCert, List<OcspStore> stores) {
+      this.issuerCert = issuerCert;
+      this.stores = stores.toArray(new OcspStore[0]);
+    }
+
+    X509Cert getIssuerCert() {
+      return issuerCert;
+    }
+
+    OcspStore[] getStores() {
+      return stores;
+    }
+
+  } // class IssuerStores
+
+  private static class IssuerIndex {
+
+    private final int generation;
+
+    // null if any store cannot list its issuers
+    private final IssuerHashIndex<IssuerStores> hashIndex;
+
+    private IssuerIndex(int generation, IssuerHashIndex<IssuerStores> hashIndex) {
+      this.generation = generation;
+      this.hashIndex = hashIndex;
+    }
+
+  } // class IssuerIndex
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResponderImpl.class);
+
   private final ResponderOption responderOption;
 
   private final RequestOption requestOption;
@@ -45,6 +94,11 @@ public class ResponderImpl implements Responder {
 
   private final List<OcspStore> stores;
 
+  // incremented each time the issuers of any store are changed.
+  private final AtomicInteger issuersGeneration = new AtomicInteger();
+
+  private volatile IssuerIndex issuerIndex;
+
   ResponderImpl(
       ResponderOption responderOption, RequestOption requestOption,
       ResponseOption responseOption, ResponseSigner signer, List<OcspStore> stores) {
@@ -53,6 +107,9 @@ public class ResponderImpl implements Responder {
     this.responseOption = notNull(responseOption, "responseOption");
     this.signer = notNull(signer, "signer");
     this.stores = notEmpty(stores, "stores");
+    for (OcspStore store : stores) {
+      store.addIssuersChangeListener(() -> issuersGeneration.incrementAndGet());
+    }
   }
 
   public ResponderOption getResponderOption() {
@@ -75,6 +132,96 @@ public class ResponderImpl implements Responder {
     return stores;
   }
 
+  /**
+   * Returns the issuer and its stores for the given request issuer. The index over the issuers
+   * of all stores is rebuilt only after the issuers of any store are changed.
+   * @param reqIssuer the issuer in the OCSP request.
+   * @return the issuer and its stores, or {@code null} if no store knows the issuer.
+   */
+  public IssuerStores getIssuerStores(RequestIssuer reqIssuer) {
+    IssuerIndex index = issuerIndex;
+    if (index == null || index.generation != issuersGeneration.get()) {
+      index = buildIssuerIndex();
+    }
+
+    if (index.hashIndex != null) {
+      return index.hashIndex.get(reqIssuer);
+    }
+
+    // at least one store cannot list its issuers
+    X509Cert issuerCert = null;
+    List<OcspStore> knownStores = new ArrayList<>(stores.size());
+    for (OcspStore store : stores) {
+      if (store.knowsIssuer(reqIssuer)) {
+        knownStores.add(store);
+        if (issuerCert == null) {
+          issuerCert = store.getIssuerCert(reqIssuer);
+        }
+      }
+    }
+
+    return knownStores.isEmpty() ? null : new IssuerStores(issuerCert, knownStores);
+  } // method getIssuerStores
+
+  private synchronized IssuerIndex buildIssuerIndex() {
+    int generation = issuersGeneration.get();
+    IssuerIndex index = issuerIndex;
+    if (index != null && index.generation == generation) {
+      return index;
+    }
+
+    // SHA-1 of the issuer name and key to the issuer certificate and its stores, in the configured order
+    Map<String, Map<HashAlgo, byte[]>> hashes = new LinkedHashMap<>();
+    Map<String, X509Cert> certs = new HashMap<>();
+    Map<String, List<OcspStore>> issuerStores = new HashMap<>();
+
+    boolean listable = true;
+    for (OcspStore store : stores) {
+      Collection<X509Cert> storeCerts = store.getIssuerCerts();
+      if (storeCerts == null) {
+        listable = false;
+        break;
+      }
+
+      for (X509Cert cert : storeCerts) {
+        Map<HashAlgo, byte[]> certHashes;
+        try {
+          certHashes = IssuerHashIndex.getIssuerHashAndKeys(cert.getEncoded());
+        } catch (CertificateEncodingException ex) {
+          LOG.warn("could not index the issuer {} of store {}: {}",
+              cert.getSubjectText(), store.getName(), ex.getMessage());
+          continue;
+        }
+
+        String key = Hex.encode(certHashes.get(HashAlgo.SHA1));
+        if (!hashes.containsKey(key)) {
+          hashes.put(key, certHashes);
+          certs.put(key, cert);
+          issuerStores.put(key, new ArrayList<>(stores.size()));
+        }
+
+        List<OcspStore> list = issuerStores.get(key);
+        if (!list.contains(store)) {
+          list.add(store);
+        }
+      }
+    }
+
+    IssuerHashIndex<IssuerStores> hashIndex = null;
+    if (listable) {
+      IssuerHashIndex.Builder<IssuerStores> builder = new IssuerHashIndex.Builder<>();
+      for (Map.Entry<String, Map<HashAlgo, byte[]>> m : hashes.entrySet()) {
+        String key = m.getKey();
+        builder.add(m.getValue(), new IssuerStores(certs.get(key), issuerStores.get(key)));
+      }
+      hashIndex = builder.build();
+    }
+
+    index = new IssuerIndex(generation, hashIndex);
+    issuerIndex = index;
+    return index;
+  } // method buildIssuerIndex
+
   @Override
   public int getMaxRequestSize() {
     return requestOption.getMaxRequestSize();
@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -51,6 +52,8 @@ class ResponseSigner {
 
   private final List<ConcurrentContentSigner> signers;
 
+  private final Map<ConcurrentContentSigner, OCSPRespBuilder.SignerSkeleton> skeletons;
+
   private final TaggedCertSequence sequenceOfCert;
 
   private final X509Cert cert;
@@ -65,6 +68,8 @@ class ResponseSigner {
 
   private final boolean macSigner;
 
+  private volatile Map<ConcurrentContentSigner, SigningQueue> signingQueues;
+
   ResponseSigner(List<ConcurrentContentSigner> signers)
       throws CertificateException, IOException {
     this.signers = notEmpty(signers, "signers");
@@ -114,9 +119,11 @@ class ResponseSigner {
     }
 
     algoSignerMap = new HashMap<>();
+    skeletons = new IdentityHashMap<>();
     for (ConcurrentContentSigner signer : signers) {
       SignAlgo algo = signer.getAlgorithm();
       algoSignerMap.put(algo, signer);
+      skeletons.put(signer, new OCSPRespBuilder.SignerSkeleton(signer));
     }
   } // constructor
 
@@ -162,6 +169,39 @@ class ResponseSigner {
     return null;
   }
 
+  public OCSPRespBuilder.SignerSkeleton getSkeleton(ConcurrentContentSigner signer) {
+    OCSPRespBuilder.SignerSkeleton skeleton = skeletons.get(signer);
+    return skeleton != null ? skeleton : new OCSPRespBuilder.SignerSkeleton(signer);
+  }
+
+  /**
+   * Starts a signing queue for each signer.
+   * @param name name of this signer.
+   * @param queueSize maximal number of requests waiting per signer, {@code null} for the number
+   *          of signers in the pool.
+   */
+  void startSigningQueues(String name, Integer queueSize) {
+    Map<ConcurrentContentSigner, SigningQueue> queues = new IdentityHashMap<>();
+    for (ConcurrentContentSigner signer : signers) {
+      int size = (queueSize != null) ? queueSize : Math.max(1, signer.getParallelism());
+      queues.put(signer, new SigningQueue(name, getSkeleton(signer), size));
+    }
+    this.signingQueues = queues;
+  } // method startSigningQueues
+
+  public SigningQueue getSigningQueue(ConcurrentContentSigner signer) {
+    return (signingQueues == null) ? null : signingQueues.get(signer);
+  }
+
+  void closeSigningQueues() {
+    if (signingQueues != null) {
+      for (SigningQueue queue : signingQueues.values()) {
+        queue.close();
+      }
+      signingQueues = null;
+    }
+  } // method closeSigningQueues
+
   public ResponderID getResponderId(boolean byName) {
     return byName ? responderIdByName :  responderIdByKey;
   }
@@ -0,0 +1,255 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ocsp.server;
+
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ocsp.server.type.TaggedCertSequence;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.NoIdleSignerException;
+import org.xipki.util.LogUtil;
+import org.xipki.util.metrics.Counter;
+import org.xipki.util.metrics.Histogram;
+import org.xipki.util.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.xipki.util.Args.notNull;
+import static org.xipki.util.Args.positive;
+
+/**
+ * Signs the OCSP responses of one signer pool by dedicated threads, one per signer in the pool,
+ * fed by a bounded queue. A request is rejected if the queue is full, and dropped if its deadline
+ * has passed before a signer is free, in both cases without blocking the request thread until
+ * the signer timeout.
+ *
+ * @author Lijun Liao
+ */
+
+class SigningQueue implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SigningQueue.class);
+
+  private static final int QUEUED = 0;
+
+  private static final int SIGNING = 1;
+
+  private static final int ABANDONED = 2;
+
+  private static class Task {
+
+    private final OCSPRespBuilder builder;
+
+    private final TaggedCertSequence taggedCertSequence;
+
+    private final Date producedAt;
+
+    private final long enqueued;
+
+    private final long deadline;
+
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private byte[] response;
+
+    private Exception exception;
+
+    private long waitNanos;
+
+    private Task(OCSPRespBuilder builder, TaggedCertSequence taggedCertSequence, Date producedAt,
+        long enqueued, long deadline) {
+      this.builder = builder;
+      this.taggedCertSequence = taggedCertSequence;
+      this.producedAt = producedAt;
+      this.enqueued = enqueued;
+      this.deadline = deadline;
+    }
+
+  } // class Task
+
+  private final OCSPRespBuilder.SignerSkeleton skeleton;
+
+  private final ArrayBlockingQueue<Task> queue;
+
+  private final List<Thread> workers;
+
+  private final Histogram waitDuration;
+
+  private final Counter rejected;
+
+  private final Counter expired;
+
+  private volatile boolean closed;
+
+  SigningQueue(String name, OCSPRespBuilder.SignerSkeleton skeleton, int queueSize) {
+    this.skeleton = notNull(skeleton, "skeleton");
+    this.queue = new ArrayBlockingQueue<>(positive(queueSize, "queueSize"));
+
+    ConcurrentContentSigner signer = skeleton.getSigner();
+    String algo = signer.getAlgorithm().getJceName();
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    this.waitDuration = registry.histogram("xipki_ocsp_signing_queue_wait_seconds",
+        "Time the OCSP responses waited in the signing queue for a signer", "signer", name, "algorithm", algo);
+    this.rejected = registry.counter("xipki_ocsp_signing_queue_rejected_total",
+        "OCSP responses not signed since the signing queue was full", "signer", name, "algorithm", algo);
+    this.expired = registry.counter("xipki_ocsp_signing_queue_expired_total",
+        "OCSP responses not signed since the deadline passed in the signing queue", "signer", name, "algorithm", algo);
+    registry.gauge("xipki_ocsp_signing_queue_size", "Number of OCSP responses waiting in the signing queue",
+        queue::size, "signer", name, "algorithm", algo);
+
+    int parallelism = Math.max(1, signer.getParallelism());
+    this.workers = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      Thread worker = new Thread(this::run, "ocsp-signing-" + name + "-" + (i + 1));
+      worker.setDaemon(true);
+      workers.add(worker);
+    }
+
+    for (Thread worker : workers) {
+      worker.start();
+    }
+  } // constructor
+
+  /**
+   * Builds and signs the OCSP response by a signing thread, and waits for the result.
+   *
+   * @param builder the builder of the response.
+   * @param taggedCertSequence the certificates to be embedded, may be {@code null}.
+   * @param producedAt the producedAt time.
+   * @param deadline the deadline as {@link System#nanoTime()}.
+   * @return the DER-encoded OCSP response.
+   * @throws OCSPException if signing the response failed.
+   * @throws NoIdleSignerException if the queue is full, or the deadline passed before a signer was free.
+   */
+  byte[] sign(OCSPRespBuilder builder, TaggedCertSequence taggedCertSequence, Date producedAt, long deadline)
+      throws OCSPException, NoIdleSignerException {
+    if (closed) {
+      throw new NoIdleSignerException("signing queue is closed");
+    }
+
+    Task task = new Task(builder, taggedCertSequence, producedAt, System.nanoTime(), deadline);
+    if (!queue.offer(task)) {
+      rejected.increment();
+      throw new NoIdleSignerException("signing queue is full");
+    }
+
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          long timeout = deadline - System.nanoTime();
+          if (timeout > 0 && task.done.await(timeout, TimeUnit.NANOSECONDS)) {
+            break;
+          }
+
+          // The builder may refer to the request buffer of the calling thread, so wait for
+          // the task once it is being signed.
+          if (task.state.compareAndSet(QUEUED, ABANDONED)) {
+            expired.increment();
+            throw new NoIdleSignerException("deadline passed in the signing queue");
+          }
+
+          task.done.await();
+          break;
+        } catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("waited {} us for the signer {}", task.waitNanos / 1000, skeleton.getSigner().getName());
+    }
+
+    if (task.exception instanceof OCSPException) {
+      throw (OCSPException) task.exception;
+    } else if (task.exception instanceof NoIdleSignerException) {
+      throw (NoIdleSignerException) task.exception;
+    } else if (task.exception != null) {
+      throw new OCSPException(task.exception.getMessage(), task.exception);
+    }
+    return task.response;
+  } // method sign
+
+  private void run() {
+    while (!closed) {
+      Task task;
+      try {
+        task = queue.take();
+      } catch (InterruptedException ex) {
+        continue;
+      }
+
+      if (!task.state.compareAndSet(QUEUED, SIGNING)) {
+        // abandoned by the request thread
+        continue;
+      }
+
+      long now = System.nanoTime();
+      task.waitNanos = now - task.enqueued;
+      waitDuration.record(task.waitNanos);
+
+      try {
+        if (now - task.deadline >= 0) {
+          expired.increment();
+          task.exception = new NoIdleSignerException("deadline passed in the signing queue");
+        } else {
+          task.response = task.builder.buildOCSPResponse(skeleton, task.taggedCertSequence, task.producedAt);
+        }
+      } catch (Exception ex) {
+        task.exception = ex;
+      } catch (Throwable th) {
+        LogUtil.error(LOG, th, "could not sign OCSP response");
+        task.exception = new OCSPException("could not sign OCSP response: " + th.getMessage());
+      } finally {
+        task.done.countDown();
+      }
+    }
+  } // method run
+
+  @Override
+  public void close() {
+    closed = true;
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+
+    Task task;
+    while ((task = queue.poll()) != null) {
+      if (task.state.compareAndSet(QUEUED, SIGNING)) {
+        task.exception = new NoIdleSignerException("signing queue is closed");
+        task.done.countDown();
+      }
+    }
+  } // method close
+
+}
@@ -200,6 +200,7 @@ public class CaDbCertStatusStore extends OcspStore {
           } // end while (rs.next())
 
           this.issuerStore.setIssuers(caInfos);
+          fireIssuersChanged();
           if (LOG.isInfoEnabled()) {
             StringBuilder sb = new StringBuilder();
             for (IssuerEntry m : caInfos) {
@@ -262,7 +263,7 @@ public class CaDbCertStatusStore extends OcspStore {
       long revTime = 0;
       long invalTime = 0;
 
-      PreparedStatement ps = datasource.prepareStatement(sql);
+      PreparedStatement ps = datasource.prepareReadStatement(sql);
 
       try {
         ps.setInt(1, issuer.getId());
@@ -389,7 +390,7 @@ public class CaDbCertStatusStore extends OcspStore {
    */
   private PreparedStatement preparedStatement(String sqlQuery)
       throws DataAccessException {
-    return datasource.prepareStatement(sqlQuery);
+    return datasource.prepareReadStatement(sqlQuery);
   }
 
   @Override
@@ -510,6 +511,16 @@ public class CaDbCertStatusStore extends OcspStore {
     return null != issuerStore.getIssuerForFp(reqIssuer);
   }
 
+  @Override
+  public Collection<X509Cert> getIssuerCerts() {
+    List<IssuerEntry> issuers = issuerStore.getIssuers();
+    List<X509Cert> certs = new ArrayList<>(issuers.size());
+    for (IssuerEntry issuer : issuers) {
+      certs.add(issuer.getCert());
+    }
+    return certs;
+  }
+
   @Override
   public X509Cert getIssuerCert(RequestIssuer reqIssuer) {
     IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
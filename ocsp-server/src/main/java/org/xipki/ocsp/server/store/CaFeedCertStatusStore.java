@@ -0,0 +1,708 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ocsp.server.store;
+
+import com.alibaba.fastjson.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.ocsp.api.CertStatusInfo;
+import org.xipki.ocsp.api.CertStatusInfo.CertStatus;
+import org.xipki.ocsp.api.CertStatusInfo.UnknownCertBehaviour;
+import org.xipki.ocsp.api.OcspStore;
+import org.xipki.ocsp.api.OcspStoreException;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.ocsp.server.IssuerFilter;
+import org.xipki.ocsp.server.OcspServerConf;
+import org.xipki.security.CertRevocationInfo;
+import org.xipki.security.CrlReason;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.X509Cert;
+import org.xipki.security.util.X509Util;
+import org.xipki.util.Base64;
+import org.xipki.util.CollectionUtil;
+import org.xipki.util.HttpConstants;
+import org.xipki.util.IoUtil;
+import org.xipki.util.LogUtil;
+import org.xipki.util.StringUtil;
+import org.xipki.util.exception.ObjectCreationException;
+import org.xipki.util.http.SslConf;
+import org.xipki.util.http.SslContextConf;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.cert.CertificateException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OcspStore which follows the certificate status change feed of a XiPKI CA (path /feed/ of the CA),
+ * and answers the requests from an in-memory index. No database is required.
+ *
+ * <p>The index and the position in the feed are saved in a state file periodically and when the
+ * store is closed, after a restart the feed is resumed from the saved position. The store is not
+ * ready before it has caught up with the feed once.
+ *
+ * @author Lijun Liao
+ */
+
+public class CaFeedCertStatusStore extends OcspStore {
+
+  public static class FeedConf {
+
+    /**
+     * URL of the change feed, e.g. https://localhost:8443/ca/feed/.
+     */
+    private String url;
+
+    private SslConf ssl;
+
+    /**
+     * File to save the index and the position in the feed. If not set, the feed is read from
+     * the beginning after each restart.
+     */
+    private String stateFile;
+
+    /**
+     * Maximal time in seconds a request waits for changes.
+     */
+    private int waitSeconds = 30;
+
+    private OcspServerConf.CaCerts caCerts;
+
+    public String getUrl() {
+      return url;
+    }
+
+    public void setUrl(String url) {
+      this.url = url;
+    }
+
+    public SslConf getSsl() {
+      return ssl;
+    }
+
+    public void setSsl(SslConf ssl) {
+      this.ssl = ssl;
+    }
+
+    public String getStateFile() {
+      return stateFile;
+    }
+
+    public void setStateFile(String stateFile) {
+      this.stateFile = stateFile;
+    }
+
+    public int getWaitSeconds() {
+      return waitSeconds;
+    }
+
+    public void setWaitSeconds(int waitSeconds) {
+      this.waitSeconds = waitSeconds;
+    }
+
+    public OcspServerConf.CaCerts getCaCerts() {
+      return caCerts;
+    }
+
+    public void setCaCerts(OcspServerConf.CaCerts caCerts) {
+      this.caCerts = caCerts;
+    }
+
+  } // class FeedConf
+
+  private static class CertStatusEntry {
+
+    private final long notBefore;
+
+    private final long notAfter;
+
+    private final boolean revoked;
+
+    private final int reason;
+
+    private final long revTime;
+
+    private final long invalidityTime;
+
+    private CertStatusEntry(long notBefore, long notAfter, boolean revoked, int reason, long revTime,
+        long invalidityTime) {
+      this.notBefore = notBefore;
+      this.notAfter = notAfter;
+      this.revoked = revoked;
+      this.reason = reason;
+      this.revTime = revTime;
+      this.invalidityTime = invalidityTime;
+    }
+
+  } // class CertStatusEntry
+
+  private class FeedFollower implements Runnable {
+
+    @Override
+    public void run() {
+      long backoffMs = MIN_BACKOFF_MS;
+      long lastIssuerUpdate = 0;
+      long lastSave = System.currentTimeMillis();
+      long lastPurge = 0;
+      boolean caughtUp = false;
+
+      while (!stopped) {
+        try {
+          long now = System.currentTimeMillis();
+          if (lastIssuerUpdate == 0
+              || (issuerUpdateIntervalMs > 0 && now - lastIssuerUpdate > issuerUpdateIntervalMs)) {
+            updateIssuers();
+            lastIssuerUpdate = now;
+          }
+
+          caughtUp = pollStatus(caughtUp ? waitSeconds : 0);
+          lastPoll = System.currentTimeMillis();
+          if (caughtUp && !initialized) {
+            initialized = true;
+            LOG.info("store {} caught up with the change feed at position {}.{}", name, posSeq, posId);
+          }
+
+          if (retentionInterval >= 0 && lastPoll - lastPurge > PURGE_INTERVAL_MS) {
+            purgeExpired();
+            lastPurge = lastPoll;
+          }
+
+          if (stateChanged && stateFile != null && lastPoll - lastSave > SAVE_INTERVAL_MS) {
+            saveState();
+            lastSave = lastPoll;
+          }
+          backoffMs = MIN_BACKOFF_MS;
+        } catch (Throwable th) {
+          if (stopped) {
+            break;
+          }
+
+          LogUtil.error(LOG, th, "store " + name + ": could not read the change feed, retry in "
+              + (backoffMs / 1000) + " seconds");
+          caughtUp = false;
+          try {
+            Thread.sleep(backoffMs);
+          } catch (InterruptedException ex) {
+            break;
+          }
+          backoffMs = Math.min(MAX_BACKOFF_MS, 2 * backoffMs);
+        }
+      }
+    } // method run
+
+  } // class FeedFollower
+
+  private static final Logger LOG = LoggerFactory.getLogger(CaFeedCertStatusStore.class);
+
+  // version 2: the position is (FSEQ, ID) instead of (LUPDATE, ID)
+  private static final String STATE_HEADER = "xipki-ca-feed-state,2";
+
+  private static final int MAX_ENTRIES_PER_REQUEST = 10000;
+
+  private static final long MIN_BACKOFF_MS = 1000;
+
+  private static final long MAX_BACKOFF_MS = 60 * 1000;
+
+  private static final long SAVE_INTERVAL_MS = 60 * 1000;
+
+  private static final long PURGE_INTERVAL_MS = 60 * 60 * 1000;
+
+  private final IssuerStore issuerStore = new IssuerStore();
+
+  private final Map<Integer, Map<BigInteger, CertStatusEntry>> certs = new ConcurrentHashMap<>();
+
+  private URL issuersUrl;
+
+  private String statusUrl;
+
+  private SSLSocketFactory sslSocketFactory;
+
+  private HostnameVerifier hostnameVerifier;
+
+  private File stateFile;
+
+  private int waitSeconds;
+
+  private long issuerUpdateIntervalMs;
+
+  private IssuerFilter issuerFilter;
+
+  // position in the feed, only accessed by the thread following the feed after init().
+  private long posSeq;
+
+  private long posId;
+
+  private boolean stateChanged;
+
+  private volatile long lastPoll;
+
+  private volatile boolean initialized;
+
+  private volatile boolean stopped;
+
+  private Thread followerThread;
+
+  /**
+   * Initialize the store.
+   *
+   * @param sourceConf
+   * the store source configuration, see {@link FeedConf}.
+   * @param datasource DataSource, not used.
+   */
+  @Override
+  public void init(Map<String, ?> sourceConf, DataSourceWrapper datasource)
+      throws OcspStoreException {
+    if (sourceConf == null) {
+      throw new OcspStoreException("sourceConf must not be null");
+    }
+
+    FeedConf conf = JSON.parseObject(JSON.toJSONBytes(sourceConf), FeedConf.class);
+    if (StringUtil.isBlank(conf.getUrl())) {
+      throw new OcspStoreException("url must not be blank");
+    }
+
+    String url = conf.getUrl();
+    if (!url.endsWith("/")) {
+      url += "/";
+    }
+
+    try {
+      this.issuersUrl = new URL(url + "issuers");
+      this.statusUrl = url + "status";
+    } catch (IOException ex) {
+      throw new OcspStoreException("invalid url " + conf.getUrl(), ex);
+    }
+
+    if (conf.getSsl() != null) {
+      SslContextConf sslContextConf = SslContextConf.ofSslConf(conf.getSsl());
+      try {
+        this.sslSocketFactory = sslContextConf.getSslSocketFactory();
+        this.hostnameVerifier = sslContextConf.buildHostnameVerifier();
+      } catch (ObjectCreationException ex) {
+        throw new OcspStoreException("could not initialize the SSL context: " + ex.getMessage(), ex);
+      }
+    }
+
+    this.waitSeconds = Math.max(1, conf.getWaitSeconds());
+    this.issuerUpdateIntervalMs = (updateInterval == null) ? 0 : updateInterval.approxMinutes() * 60 * 1000;
+
+    try {
+      Set<X509Cert> includeIssuers = null;
+      Set<X509Cert> excludeIssuers = null;
+
+      OcspServerConf.CaCerts caCerts = conf.getCaCerts();
+      if (caCerts != null) {
+        if (CollectionUtil.isNotEmpty(caCerts.getIncludes())) {
+          includeIssuers = DbCertStatusStore.parseCerts(caCerts.getIncludes());
+        }
+
+        if (CollectionUtil.isNotEmpty(caCerts.getExcludes())) {
+          excludeIssuers = DbCertStatusStore.parseCerts(caCerts.getExcludes());
+        }
+      }
+
+      this.issuerFilter = new IssuerFilter(includeIssuers, excludeIssuers);
+    } catch (CertificateException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
+
+    if (conf.getStateFile() != null) {
+      this.stateFile = new File(IoUtil.expandFilepath(conf.getStateFile(), true));
+      if (stateFile.exists()) {
+        try {
+          loadState();
+        } catch (IOException | RuntimeException ex) {
+          LogUtil.warn(LOG, ex, "store " + name + ": could not load the state file " + stateFile.getPath()
+              + ", read the change feed from the beginning");
+          certs.clear();
+          posSeq = 0;
+          posId = 0;
+        }
+      }
+    }
+
+    followerThread = new Thread(new FeedFollower(), "ocsp-store-" + name + "-feed");
+    followerThread.setDaemon(true);
+    followerThread.start();
+  } // method init
+
+  @Override
+  public void close() {
+    stopped = true;
+    if (followerThread != null) {
+      followerThread.interrupt();
+      try {
+        followerThread.join(10000);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      followerThread = null;
+    }
+
+    if (stateChanged && stateFile != null) {
+      try {
+        saveState();
+      } catch (IOException ex) {
+        LogUtil.error(LOG, ex, "store " + name + ": could not save the state file " + stateFile.getPath());
+      }
+    }
+  } // method close
+
+  @Override
+  public boolean isHealthy() {
+    return initialized && System.currentTimeMillis() - lastPoll < (waitSeconds + 60) * 1000L;
+  }
+
+  @Override
+  public boolean knowsIssuer(RequestIssuer reqIssuer) {
+    return null != issuerStore.getIssuerForFp(reqIssuer);
+  }
+
+  @Override
+  public Collection<X509Cert> getIssuerCerts() {
+    List<IssuerEntry> issuers = issuerStore.getIssuers();
+    List<X509Cert> certs = new ArrayList<>(issuers.size());
+    for (IssuerEntry issuer : issuers) {
+      certs.add(issuer.getCert());
+    }
+    return certs;
+  }
+
+  @Override
+  public X509Cert getIssuerCert(RequestIssuer reqIssuer) {
+    IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
+    return (issuer == null) ? null : issuer.getCert();
+  }
+
+  @Override
+  protected CertStatusInfo getCertStatus0(
+      Date time, RequestIssuer reqIssuer, BigInteger serialNumber,
+      boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation)
+      throws OcspStoreException {
+    if (serialNumber.signum() != 1) { // non-positive serial number
+      return CertStatusInfo.getUnknownCertStatusInfo(new Date(), null);
+    }
+
+    if (!initialized) {
+      throw new OcspStoreException("initial synchronization with the change feed is still in process");
+    }
+
+    IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
+    if (issuer == null) {
+      return null;
+    }
+
+    Map<BigInteger, CertStatusEntry> caCerts = certs.get(issuer.getId());
+    CertStatusEntry entry = (caCerts == null) ? null : caCerts.get(serialNumber);
+
+    Date thisUpdate = new Date();
+    final Date nextUpdate = null;
+
+    boolean ignore = false;
+    if (entry != null) {
+      long timeInSec = time.getTime() / 1000;
+      if (ignoreNotYetValidCert && entry.notBefore != 0 && timeInSec < entry.notBefore) {
+        ignore = true;
+      } else if (ignoreExpiredCert && entry.notAfter != 0 && timeInSec > entry.notAfter) {
+        ignore = true;
+      }
+    }
+
+    // the feed does not contain the certificate hash
+    CertStatusInfo certStatusInfo;
+    if (entry == null) {
+      certStatusInfo = CertStatusInfo.getUnknownCertStatusInfo(thisUpdate, nextUpdate);
+    } else if (ignore) {
+      certStatusInfo = CertStatusInfo.getIgnoreCertStatusInfo(thisUpdate, nextUpdate);
+    } else if (entry.revoked) {
+      long invalTime = includeRit ? entry.invalidityTime : 0;
+      Date invTime = (invalTime == 0 || invalTime == entry.revTime) ? null : new Date(invalTime * 1000);
+      CertRevocationInfo revInfo = new CertRevocationInfo(entry.reason, new Date(entry.revTime * 1000), invTime);
+      certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(revInfo, thisUpdate, nextUpdate);
+    } else {
+      certStatusInfo = CertStatusInfo.getGoodCertStatusInfo(thisUpdate, nextUpdate);
+    }
+
+    if (includeArchiveCutoff) {
+      if (retentionInterval != 0) {
+        Date date;
+        // expired certificate remains in status store for ever
+        if (retentionInterval < 0) {
+          date = issuer.getNotBefore();
+        } else {
+          long nowInMs = System.currentTimeMillis();
+          long dateInMs = Math.max(issuer.getNotBefore().getTime(), nowInMs - DAY * retentionInterval);
+          date = new Date(dateInMs);
+        }
+
+        certStatusInfo.setArchiveCutOff(date);
+      }
+    }
+
+    if ((!inheritCaRevocation) || issuer.getRevocationInfo() == null) {
+      return certStatusInfo;
+    }
+
+    CertRevocationInfo caRevInfo = issuer.getRevocationInfo();
+    CertStatus certStatus = certStatusInfo.getCertStatus();
+    boolean replaced = false;
+    if (certStatus == CertStatus.GOOD) {
+      replaced = true;
+    } else if (certStatus == CertStatus.UNKNOWN || certStatus == CertStatus.IGNORE) {
+      if (unknownCertBehaviour == UnknownCertBehaviour.good) {
+        replaced = true;
+      }
+    } else if (certStatus == CertStatus.REVOKED) {
+      if (certStatusInfo.getRevocationInfo().getRevocationTime().after(caRevInfo.getRevocationTime())) {
+        replaced = true;
+      }
+    }
+
+    if (replaced) {
+      CertRevocationInfo newRevInfo;
+      if (caRevInfo.getReason() == CrlReason.CA_COMPROMISE) {
+        newRevInfo = caRevInfo;
+      } else {
+        newRevInfo = new CertRevocationInfo(CrlReason.CA_COMPROMISE,
+            caRevInfo.getRevocationTime(), caRevInfo.getInvalidityTime());
+      }
+      certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(newRevInfo,
+          certStatusInfo.getThisUpdate(), certStatusInfo.getNextUpdate());
+    }
+    return certStatusInfo;
+  } // method getCertStatus0
+
+  private void updateIssuers()
+      throws IOException, CertificateException {
+    List<IssuerEntry> issuers = new LinkedList<>();
+    HttpURLConnection conn = openConnection(issuersUrl, 0);
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        String[] tokens = line.split(",");
+        if (tokens.length != 3) {
+          throw new IOException("invalid issuer line in the change feed");
+        }
+
+        byte[] certBytes = Base64.decode(tokens[2]);
+        if (!issuerFilter.includeAll()) {
+          String sha1Fp = HashAlgo.SHA1.base64Hash(certBytes);
+          if (!issuerFilter.includeIssuerWithSha1Fp(sha1Fp)) {
+            continue;
+          }
+        }
+
+        IssuerEntry issuer = new IssuerEntry(Integer.parseInt(tokens[0]), X509Util.parseCert(certBytes));
+        long revTime = Long.parseLong(tokens[1]);
+        if (revTime != 0) {
+          issuer.setRevocationInfo(new Date(revTime * 1000));
+        }
+        issuers.add(issuer);
+      }
+    } finally {
+      conn.disconnect();
+    }
+
+    issuerStore.setIssuers(issuers);
+    fireIssuersChanged();
+  } // method updateIssuers
+
+  /**
+   * Reads the changes after the current position and applies them to the index.
+   * @param wait time in seconds the CA may wait for changes.
+   * @return whether all changes available at the CA have been read.
+   */
+  private boolean pollStatus(int wait)
+      throws IOException {
+    URL url = new URL(statusUrl + "?from=" + posSeq + "." + posId
+        + "&max=" + MAX_ENTRIES_PER_REQUEST + "&wait=" + wait);
+
+    int num = 0;
+    boolean complete = false;
+    HttpURLConnection conn = openConnection(url, wait);
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        if (line.startsWith("end,")) {
+          complete = true;
+          break;
+        }
+
+        String[] tokens = line.split(",");
+        if (tokens.length != 10) {
+          throw new IOException("invalid status line in the change feed");
+        }
+
+        boolean revoked = "1".equals(tokens[6]);
+        CertStatusEntry entry = new CertStatusEntry(Long.parseLong(tokens[4]), Long.parseLong(tokens[5]),
+            revoked, Integer.parseInt(tokens[7]), Long.parseLong(tokens[8]), Long.parseLong(tokens[9]));
+        certs.computeIfAbsent(Integer.parseInt(tokens[2]), k -> new ConcurrentHashMap<>())
+            .put(new BigInteger(tokens[3], 16), entry);
+
+        // the changes are ordered, the position is valid after each change
+        posSeq = Long.parseLong(tokens[0]);
+        posId = Long.parseLong(tokens[1]);
+        stateChanged = true;
+        num++;
+      }
+    } finally {
+      conn.disconnect();
+    }
+
+    if (!complete) {
+      throw new IOException("incomplete response of the change feed");
+    }
+    return num < MAX_ENTRIES_PER_REQUEST;
+  } // method pollStatus
+
+  private HttpURLConnection openConnection(URL url, int waitSeconds)
+      throws IOException {
+    HttpURLConnection conn = IoUtil.openHttpConn(url);
+    if (conn instanceof HttpsURLConnection) {
+      if (sslSocketFactory != null) {
+        ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+      }
+      if (hostnameVerifier != null) {
+        ((HttpsURLConnection) conn).setHostnameVerifier(hostnameVerifier);
+      }
+    }
+
+    conn.setUseCaches(false);
+    conn.setConnectTimeout(10000);
+    // the CA may hold the request up to waitSeconds
+    conn.setReadTimeout((waitSeconds + 30) * 1000);
+
+    int status = conn.getResponseCode();
+    if (status != HttpURLConnection.HTTP_OK) {
+      String errorMessage = conn.getHeaderField(HttpConstants.HEADER_XIPKI_ERROR);
+      conn.disconnect();
+      throw new IOException("change feed returned " + status + (errorMessage == null ? "" : ": " + errorMessage));
+    }
+    return conn;
+  } // method openConnection
+
+  private void loadState()
+      throws IOException {
+    int num = 0;
+    try (BufferedReader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+      String line = reader.readLine();
+      if (line == null || !line.startsWith(STATE_HEADER + ",")) {
+        throw new IOException("invalid header");
+      }
+
+      String[] tokens = line.split(",");
+      posSeq = Long.parseLong(tokens[2]);
+      posId = Long.parseLong(tokens[3]);
+
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        tokens = line.split(",");
+        if (tokens.length != 8) {
+          throw new IOException("invalid line " + line);
+        }
+
+        CertStatusEntry entry = new CertStatusEntry(Long.parseLong(tokens[2]), Long.parseLong(tokens[3]),
+            "1".equals(tokens[4]), Integer.parseInt(tokens[5]), Long.parseLong(tokens[6]), Long.parseLong(tokens[7]));
+        certs.computeIfAbsent(Integer.parseInt(tokens[0]), k -> new ConcurrentHashMap<>())
+            .put(new BigInteger(tokens[1], 16), entry);
+        num++;
+      }
+    }
+
+    LOG.info("store {}: loaded {} certificates from the state file, resume the change feed at position {}.{}",
+        name, num, posSeq, posId);
+  } // method loadState
+
+  /**
+   * Removes the certificates expired for more than the retention interval from the index.
+   */
+  private void purgeExpired() {
+    long minNotAfter = (System.currentTimeMillis() - DAY * retentionInterval) / 1000;
+    int num = 0;
+    for (Map<BigInteger, CertStatusEntry> caCerts : certs.values()) {
+      Iterator<CertStatusEntry> it = caCerts.values().iterator();
+      while (it.hasNext()) {
+        CertStatusEntry entry = it.next();
+        if (entry.notAfter != 0 && entry.notAfter < minNotAfter) {
+          it.remove();
+          num++;
+        }
+      }
+    }
+
+    if (num > 0) {
+      stateChanged = true;
+      LOG.info("store {}: removed {} expired certificates from the index", name, num);
+    }
+  } // method purgeExpired
+
+  /**
+   * Saves the index and the position to the state file.
+   */
+  private synchronized void saveState()
+      throws IOException {
+    Path path = stateFile.toPath();
+    Path tmpPath = new File(stateFile.getPath() + ".tmp").toPath();
+    IoUtil.mkdirsParent(path);
+
+    try (BufferedWriter writer = Files.newBufferedWriter(tmpPath, StandardCharsets.UTF_8)) {
+      writer.write(STATE_HEADER + "," + posSeq + "," + posId + "\n");
+      for (Map.Entry<Integer, Map<BigInteger, CertStatusEntry>> caEntry : certs.entrySet()) {
+        String caId = caEntry.getKey().toString();
+        for (Map.Entry<BigInteger, CertStatusEntry> m : caEntry.getValue().entrySet()) {
+          CertStatusEntry entry = m.getValue();
+          writer.write(caId + "," + m.getKey().toString(16) + "," + entry.notBefore + "," + entry.notAfter
+              + "," + (entry.revoked ? 1 : 0) + "," + entry.reason + "," + entry.revTime
+              + "," + entry.invalidityTime + "\n");
+        }
+      }
+    }
+
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    stateChanged = false;
+  } // method saveState
+
+}
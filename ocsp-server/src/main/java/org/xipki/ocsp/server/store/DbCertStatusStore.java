@@ -233,6 +233,7 @@ public class DbCertStatusStore extends OcspStore {
         } // end while (rs.next())
 
         this.issuerStore.setIssuers(caInfos);
+        fireIssuersChanged();
         if (LOG.isInfoEnabled()) {
           StringBuilder sb = new StringBuilder();
           for (IssuerEntry m : caInfos) {
@@ -331,7 +332,7 @@ public class DbCertStatusStore extends OcspStore {
       long invalTime = 0;
       int crlId = 0;
 
-      PreparedStatement ps = datasource.prepareStatement(sql);
+      PreparedStatement ps = datasource.prepareReadStatement(sql);
 
       try {
         ps.setInt(1, issuer.getId());
@@ -485,7 +486,7 @@ public class DbCertStatusStore extends OcspStore {
    */
   private PreparedStatement preparedStatement(String sqlQuery)
       throws DataAccessException {
-    return datasource.prepareStatement(sqlQuery);
+    return datasource.prepareReadStatement(sqlQuery);
   }
 
   @Override
@@ -612,6 +613,16 @@ public class DbCertStatusStore extends OcspStore {
     return null != issuerStore.getIssuerForFp(reqIssuer);
   }
 
+  @Override
+  public Collection<X509Cert> getIssuerCerts() {
+    List<IssuerEntry> issuers = issuerStore.getIssuers();
+    List<X509Cert> certs = new ArrayList<>(issuers.size());
+    for (IssuerEntry issuer : issuers) {
+      certs.add(issuer.getCert());
+    }
+    return certs;
+  }
+
   @Override
   public X509Cert getIssuerCert(RequestIssuer reqIssuer) {
     IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
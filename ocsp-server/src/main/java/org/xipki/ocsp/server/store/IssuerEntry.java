@@ -17,7 +17,7 @@
 
 package org.xipki.ocsp.server.store;
 
-import org.bouncycastle.asn1.x509.Certificate;
+import org.xipki.ocsp.api.IssuerHashIndex;
 import org.xipki.ocsp.api.RequestIssuer;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.CrlReason;
@@ -25,11 +25,9 @@ import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.util.CompareUtil;
 
-import java.io.IOException;
 import java.security.cert.CertificateEncodingException;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 import static org.xipki.util.Args.notNull;
@@ -60,40 +58,9 @@ public class IssuerEntry {
     this.id = id;
     this.cert = notNull(cert, "cert");
     this.notBefore = cert.getNotBefore();
-    this.issuerHashMap = getIssuerHashAndKeys(cert.getEncoded());
+    this.issuerHashMap = IssuerHashIndex.getIssuerHashAndKeys(cert.getEncoded());
   }
 
-  private static Map<HashAlgo, byte[]> getIssuerHashAndKeys(byte[] encodedCert)
-      throws CertificateEncodingException {
-    byte[] encodedName;
-    byte[] encodedKey;
-    try {
-      Certificate bcCert = Certificate.getInstance(encodedCert);
-      encodedName = bcCert.getSubject().getEncoded("DER");
-      encodedKey = bcCert.getSubjectPublicKeyInfo().getPublicKeyData().getBytes();
-    } catch (IllegalArgumentException | IOException ex) {
-      throw new CertificateEncodingException(ex.getMessage(), ex);
-    }
-
-    Map<HashAlgo, byte[]> hashes = new HashMap<>();
-    for (HashAlgo ha : HashAlgo.values()) {
-      int hlen = ha.getLength();
-      byte[] nameAndKeyHash = new byte[(2 + hlen) << 1];
-      int offset = 0;
-      nameAndKeyHash[offset++] = 0x04;
-      nameAndKeyHash[offset++] = (byte) hlen;
-      System.arraycopy(ha.hash(encodedName), 0, nameAndKeyHash, offset, hlen);
-      offset += hlen;
-
-      nameAndKeyHash[offset++] = 0x04;
-      nameAndKeyHash[offset++] = (byte) hlen;
-      System.arraycopy(ha.hash(encodedKey), 0, nameAndKeyHash, offset, hlen);
-
-      hashes.put(ha, nameAndKeyHash);
-    }
-    return hashes;
-  } // method getIssuerHashAndKeys
-
   public int getId() {
     return id;
   }
@@ -103,6 +70,10 @@ public class IssuerEntry {
     return Arrays.copyOf(data, data.length);
   }
 
+  Map<HashAlgo, byte[]> getIssuerHashMap() {
+    return issuerHashMap;
+  }
+
   public boolean matchHash(RequestIssuer reqIssuer) {
     byte[] issuerHash = issuerHashMap.get(reqIssuer.hashAlgorithm());
     if (issuerHash == null) {
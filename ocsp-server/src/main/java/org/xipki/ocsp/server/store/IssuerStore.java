@@ -17,12 +17,14 @@
 
 package org.xipki.ocsp.server.store;
 
+import org.xipki.ocsp.api.IssuerHashIndex;
 import org.xipki.ocsp.api.RequestIssuer;
 
 import java.util.*;
 
 /**
- * Issuer store.
+ * Issuer store. The issuers are replaced as a whole, together with the hash index used to
+ * find the issuer of a request.
  *
  * @author Lijun Liao
  * @since 2.0.0
@@ -30,16 +32,18 @@ import java.util.*;
 
 class IssuerStore {
 
-  private List<IssuerEntry> issuers = new ArrayList<>();
+  private volatile List<IssuerEntry> issuers = Collections.emptyList();
 
-  private Set<Integer> ids = Collections.emptySet();
+  private volatile IssuerHashIndex<IssuerEntry> hashIndex = IssuerHashIndex.empty();
+
+  private volatile Set<Integer> ids = Collections.emptySet();
 
   private Map<Integer, CrlInfo> crlInfos = new HashMap<>();
 
   public IssuerStore() {
   }
 
-  public void setIssuers(List<IssuerEntry> issuers) {
+  public synchronized void setIssuers(List<IssuerEntry> issuers) {
     Set<Integer> newIds = new HashSet<>();
     for (IssuerEntry issuer : issuers) {
       int id = issuer.getId();
@@ -52,7 +56,9 @@ class IssuerStore {
 
     // to accelerate the switch
     List<IssuerEntry> copy = new ArrayList<>(issuers);
+    IssuerHashIndex<IssuerEntry> newHashIndex = buildHashIndex(copy);
     this.ids = Collections.unmodifiableSet(newIds);
+    this.hashIndex = newHashIndex;
     this.issuers = copy;
   } // method setIssuers
 
@@ -64,6 +70,10 @@ class IssuerStore {
     return ids;
   }
 
+  public List<IssuerEntry> getIssuers() {
+    return Collections.unmodifiableList(issuers);
+  }
+
   public IssuerEntry getIssuerForId(int id) {
     for (IssuerEntry entry : issuers) {
       if (entry.getId() == id) {
@@ -75,21 +85,28 @@ class IssuerStore {
   }
 
   public IssuerEntry getIssuerForFp(RequestIssuer reqIssuer) {
-    for (IssuerEntry entry : issuers) {
-      if (entry.matchHash(reqIssuer)) {
-        return entry;
-      }
-    }
-
-    return null;
+    return hashIndex.get(reqIssuer);
   }
 
-  public void addIssuer(IssuerEntry issuer) {
-    this.issuers.add(issuer);
+  public synchronized void addIssuer(IssuerEntry issuer) {
+    List<IssuerEntry> copy = new ArrayList<>(this.issuers);
+    copy.add(issuer);
 
     Set<Integer> newIds = new HashSet<>(this.ids);
     newIds.add(issuer.getId());
+
+    IssuerHashIndex<IssuerEntry> newHashIndex = buildHashIndex(copy);
     this.ids = Collections.unmodifiableSet(newIds);
+    this.hashIndex = newHashIndex;
+    this.issuers = copy;
+  } // method addIssuer
+
+  private static IssuerHashIndex<IssuerEntry> buildHashIndex(List<IssuerEntry> issuers) {
+    IssuerHashIndex.Builder<IssuerEntry> builder = new IssuerHashIndex.Builder<>();
+    for (IssuerEntry issuer : issuers) {
+      builder.add(issuer.getIssuerHashMap(), issuer);
+    }
+    return builder.build();
   }
 
   public void setCrlInfos(Map<Integer, CrlInfo> crlInfos) {
@@ -73,10 +73,9 @@ public class ResponseCacher implements Closeable {
 
   private static final String SQL_DELETE_EXPIRED_RESP = "DELETE FROM OCSP WHERE GENERATED_AT<? OR NEXT_UPDATE<?";
 
-  private static final String SQL_ADD_RESP =
-      SqlUtil.buildInsertSql("OCSP", "ID,IID,IDENT,GENERATED_AT,NEXT_UPDATE,RESP");
+  private final String sqlAddResp;
 
-  private static final String SQL_UPDATE_RESP = "UPDATE OCSP SET GENERATED_AT=?,NEXT_UPDATE=?,RESP=? WHERE ID=?";
+  private final String sqlUpdateResp;
 
   private final ConcurrentBag<ConcurrentBagEntry<Digest>> idDigesters;
 
@@ -133,6 +132,12 @@ public class ResponseCacher implements Closeable {
 
   private final String sqlSelectOcsp;
 
+  /**
+   * Whether the responses are written in the binary column RESP2 instead of Base64-encoded in
+   * RESP. The column RESP2 is added by sql/ocsp-cache-binary-payload.xml.
+   */
+  private final boolean binaryPayload;
+
   private final boolean master;
 
   // validity in seconds
@@ -152,13 +157,21 @@ public class ResponseCacher implements Closeable {
 
   private final AtomicInteger cachedIssuerId = new AtomicInteger(0);
 
-  public ResponseCacher(DataSourceWrapper datasource, boolean master, Validity validity) {
+  public ResponseCacher(DataSourceWrapper datasource, boolean master, Validity validity)
+      throws DataAccessException {
     this.datasource = notNull(datasource, "datasource");
     this.master = master;
     this.validity = (int) (notNull(validity, "validity").approxMinutes() * 60);
+    this.binaryPayload = datasource.tableHasColumn(null, "OCSP", "RESP2");
+
+    String respColumn = binaryPayload ? "RESP2" : "RESP";
+    this.sqlAddResp = SqlUtil.buildInsertSql("OCSP", "ID,IID,IDENT,GENERATED_AT,NEXT_UPDATE," + respColumn);
+    // the binary response replaces a not yet migrated Base64-encoded one
+    this.sqlUpdateResp = "UPDATE OCSP SET GENERATED_AT=?,NEXT_UPDATE=?,"
+        + (binaryPayload ? "RESP=NULL,RESP2" : "RESP") + "=? WHERE ID=?";
     this.sqlSelectIssuerCert = datasource.buildSelectFirstSql(1, "CERT FROM ISSUER WHERE ID=?");
     this.sqlSelectOcsp = datasource.buildSelectFirstSql(1,
-        "IID,IDENT,GENERATED_AT,NEXT_UPDATE,RESP FROM OCSP WHERE ID=?");
+        "IID,IDENT,GENERATED_AT,NEXT_UPDATE,RESP" + (binaryPayload ? ",RESP2" : "") + " FROM OCSP WHERE ID=?");
     this.onService = new AtomicBoolean(false);
 
     this.idDigesters = new ConcurrentBag<>();
@@ -307,8 +320,11 @@ public class ResponseCacher implements Closeable {
       }
 
       long generatedAt = rs.getLong("GENERATED_AT");
-      String b64Resp = rs.getString("RESP");
-      byte[] resp = Base64.decodeFast(b64Resp);
+      byte[] resp = binaryPayload ? rs.getBytes("RESP2") : null;
+      if (resp == null) {
+        // written before the column RESP2 was added, and not migrated yet
+        resp = Base64.decodeFast(rs.getString("RESP"));
+      }
       ResponseCacheInfo cacheInfo = new ResponseCacheInfo(generatedAt);
       if (nextUpdate != 0) {
         cacheInfo.setNextUpdate(nextUpdate);
@@ -339,10 +355,10 @@ public class ResponseCacher implements Closeable {
 
       Connection conn = datasource.getConnection();
       try {
-        String sql = SQL_ADD_RESP;
+        String sql = sqlAddResp;
         PreparedStatement ps = datasource.prepareStatement(conn, sql);
 
-        String b64Response = Base64.encodeToString(response);
+        String b64Response = binaryPayload ? null : Base64.encodeToString(response);
         Boolean dataIntegrityViolationException = null;
         try {
           int idx = 1;
@@ -351,7 +367,11 @@ public class ResponseCacher implements Closeable {
           ps.setString(idx++, ident);
           ps.setLong(idx++, generatedAt);
           ps.setLong(idx++, nextUpdate);
-          ps.setString(idx, b64Response);
+          if (binaryPayload) {
+            ps.setBytes(idx, response);
+          } else {
+            ps.setString(idx, b64Response);
+          }
           ps.execute();
         } catch (SQLException ex) {
           DataAccessException dex = datasource.translate(sql, ex);
@@ -369,13 +389,17 @@ public class ResponseCacher implements Closeable {
           return;
         }
 
-        sql = SQL_UPDATE_RESP;
+        sql = sqlUpdateResp;
         ps = datasource.prepareStatement(conn, sql);
         try {
           int idx = 1;
           ps.setLong(idx++, generatedAt);
           ps.setLong(idx++, nextUpdate);
-          ps.setString(idx++, b64Response);
+          if (binaryPayload) {
+            ps.setBytes(idx++, response);
+          } else {
+            ps.setString(idx++, b64Response);
+          }
           ps.setLong(idx, id);
           ps.executeUpdate();
         } catch (SQLException ex) {
@@ -184,6 +184,7 @@ public class EjbcaCertStatusStore extends OcspStore {
 
           initialized = false;
           this.issuerStore = new EjbcaIssuerStore(newIssuers.values());
+          fireIssuersChanged();
 
           if (LOG.isInfoEnabled()) {
             StringBuilder sb = new StringBuilder();
@@ -254,7 +255,7 @@ public class EjbcaCertStatusStore extends OcspStore {
       int reason = 0;
       long revTime = 0;
 
-      PreparedStatement ps = datasource.prepareStatement(sql);
+      PreparedStatement ps = datasource.prepareReadStatement(sql);
 
       try {
         ps.setString(1, issuer.getId());
@@ -378,7 +379,7 @@ public class EjbcaCertStatusStore extends OcspStore {
    */
   private PreparedStatement preparedStatement(String sqlQuery)
       throws DataAccessException {
-    return datasource.prepareStatement(sqlQuery);
+    return datasource.prepareReadStatement(sqlQuery);
   }
 
   @Override
@@ -503,6 +504,21 @@ public class EjbcaCertStatusStore extends OcspStore {
     return null != issuerStore.getIssuerForFp(reqIssuer);
   }
 
+  @Override
+  public Collection<X509Cert> getIssuerCerts() {
+    EjbcaIssuerStore store = issuerStore;
+    if (store == null) {
+      return Collections.emptyList();
+    }
+
+    List<EjbcaIssuerEntry> issuers = store.getIssuers();
+    List<X509Cert> certs = new ArrayList<>(issuers.size());
+    for (EjbcaIssuerEntry issuer : issuers) {
+      certs.add(issuer.getCert());
+    }
+    return certs;
+  }
+
   @Override
   public X509Cert getIssuerCert(RequestIssuer reqIssuer) {
     EjbcaIssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
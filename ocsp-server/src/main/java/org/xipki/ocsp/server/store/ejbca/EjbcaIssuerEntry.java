@@ -17,7 +17,7 @@
 
 package org.xipki.ocsp.server.store.ejbca;
 
-import org.bouncycastle.asn1.x509.Certificate;
+import org.xipki.ocsp.api.IssuerHashIndex;
 import org.xipki.ocsp.api.RequestIssuer;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.CrlReason;
@@ -25,11 +25,9 @@ import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.util.CompareUtil;
 
-import java.io.IOException;
 import java.security.cert.CertificateEncodingException;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 import static org.xipki.util.Args.notNull;
@@ -59,40 +57,9 @@ class EjbcaIssuerEntry {
     this.notBefore = cert.getNotBefore();
     byte[] encodedCert = cert.getEncoded();
     this.id = HashAlgo.SHA1.hexHash(encodedCert);
-    this.issuerHashMap = getIssuerHashAndKeys(encodedCert);
+    this.issuerHashMap = IssuerHashIndex.getIssuerHashAndKeys(encodedCert);
   }
 
-  private static Map<HashAlgo, byte[]> getIssuerHashAndKeys(byte[] encodedCert)
-      throws CertificateEncodingException {
-    byte[] encodedName;
-    byte[] encodedKey;
-    try {
-      Certificate bcCert = Certificate.getInstance(encodedCert);
-      encodedName = bcCert.getSubject().getEncoded("DER");
-      encodedKey = bcCert.getSubjectPublicKeyInfo().getPublicKeyData().getBytes();
-    } catch (IllegalArgumentException | IOException ex) {
-      throw new CertificateEncodingException(ex.getMessage(), ex);
-    }
-
-    Map<HashAlgo, byte[]> hashes = new HashMap<>();
-    for (HashAlgo ha : HashAlgo.values()) {
-      int hlen = ha.getLength();
-      byte[] nameAndKeyHash = new byte[(2 + hlen) << 1];
-      int offset = 0;
-      nameAndKeyHash[offset++] = 0x04;
-      nameAndKeyHash[offset++] = (byte) hlen;
-      System.arraycopy(ha.hash(encodedName), 0, nameAndKeyHash, offset, hlen);
-      offset += hlen;
-
-      nameAndKeyHash[offset++] = 0x04;
-      nameAndKeyHash[offset++] = (byte) hlen;
-      System.arraycopy(ha.hash(encodedKey), 0, nameAndKeyHash, offset, hlen);
-
-      hashes.put(ha, nameAndKeyHash);
-    }
-    return hashes;
-  } // method getIssuerHashAndKeys
-
   public String getId() {
     return id;
   }
@@ -102,6 +69,10 @@ class EjbcaIssuerEntry {
     return Arrays.copyOf(data, data.length);
   }
 
+  Map<HashAlgo, byte[]> getIssuerHashMap() {
+    return issuerHashMap;
+  }
+
   public boolean matchHash(RequestIssuer reqIssuer) {
     byte[] issuerHash = issuerHashMap.get(reqIssuer.hashAlgorithm());
     if (issuerHash == null) {
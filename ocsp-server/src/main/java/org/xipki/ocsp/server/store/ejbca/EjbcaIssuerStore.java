@@ -17,6 +17,7 @@
 
 package org.xipki.ocsp.server.store.ejbca;
 
+import org.xipki.ocsp.api.IssuerHashIndex;
 import org.xipki.ocsp.api.RequestIssuer;
 
 import java.util.*;
@@ -34,6 +35,8 @@ class EjbcaIssuerStore {
 
   private final Set<String> ids;
 
+  private final IssuerHashIndex<EjbcaIssuerEntry> hashIndex;
+
   public EjbcaIssuerStore(Collection<EjbcaIssuerEntry> entries) {
     this.entries = new ArrayList<>(entries.size());
     Set<String> idSet = new HashSet<>(entries.size());
@@ -50,6 +53,12 @@ class EjbcaIssuerStore {
     }
 
     this.ids = Collections.unmodifiableSet(idSet);
+
+    IssuerHashIndex.Builder<EjbcaIssuerEntry> builder = new IssuerHashIndex.Builder<>();
+    for (EjbcaIssuerEntry entry : this.entries) {
+      builder.add(entry.getIssuerHashMap(), entry);
+    }
+    this.hashIndex = builder.build();
   }
 
   public int size() {
@@ -70,14 +79,12 @@ class EjbcaIssuerStore {
     return null;
   }
 
-  public EjbcaIssuerEntry getIssuerForFp(RequestIssuer reqIssuer) {
-    for (EjbcaIssuerEntry entry : entries) {
-      if (entry.matchHash(reqIssuer)) {
-        return entry;
-      }
-    }
+  public List<EjbcaIssuerEntry> getIssuers() {
+    return Collections.unmodifiableList(entries);
+  }
 
-    return null;
+  public EjbcaIssuerEntry getIssuerForFp(RequestIssuer reqIssuer) {
+    return hashIndex.get(reqIssuer);
   }
 
 }
@@ -32,7 +32,14 @@ public class CertID extends ASN1Type {
 
   private final RequestIssuer issuer;
 
-  private final BigInteger serialNumber;
+  private BigInteger serialNumber;
+
+  // the content of the encoded serialNumber, or null if the serialNumber is given as BigInteger.
+  private final byte[] encoded;
+
+  private final int serialFrom;
+
+  private final int serialLength;
 
   private final int bodyLength;
 
@@ -41,13 +48,28 @@ public class CertID extends ASN1Type {
   public CertID(RequestIssuer issuer, BigInteger serialNumber) {
     this.issuer = issuer;
     this.serialNumber = serialNumber;
+    this.encoded = null;
+    this.serialFrom = 0;
+    this.serialLength = 1 + serialNumber.bitLength() / 8;
 
-    int len = issuer.getLength();
+    this.bodyLength = issuer.getLength() + getLen(serialLength);
+    this.encodedLength = getLen(bodyLength);
+  }
 
-    int snBytesLen = 1 + serialNumber.bitLength() / 8;
-    len += getLen(snBytesLen);
+  /**
+   * Creates a CertID whose serial number refers to the encoded request.
+   * @param issuer the issuer.
+   * @param encoded the encoded request.
+   * @param serialFrom offset of the content of the serialNumber in {@code encoded}.
+   * @param serialLength length of the content of the serialNumber.
+   */
+  public CertID(RequestIssuer issuer, byte[] encoded, int serialFrom, int serialLength) {
+    this.issuer = issuer;
+    this.encoded = encoded;
+    this.serialFrom = serialFrom;
+    this.serialLength = serialLength;
 
-    this.bodyLength = len;
+    this.bodyLength = issuer.getLength() + getLen(serialLength);
     this.encodedLength = getLen(bodyLength);
   }
 
@@ -56,6 +78,11 @@ public class CertID extends ASN1Type {
   }
 
   public BigInteger getSerialNumber() {
+    if (serialNumber == null) {
+      byte[] bytes = new byte[serialLength];
+      System.arraycopy(encoded, serialFrom, bytes, 0, serialLength);
+      serialNumber = new BigInteger(bytes);
+    }
     return serialNumber;
   }
 
@@ -70,9 +97,13 @@ public class CertID extends ASN1Type {
     idx += issuer.write(out, idx);
 
     // serialNumbers
-    byte[] snBytes = serialNumber.toByteArray();
-    idx += writeHeader((byte) 0x02, snBytes.length, out, idx);
-    idx += arraycopy(snBytes, out, idx);
+    idx += writeHeader((byte) 0x02, serialLength, out, idx);
+    if (encoded != null) {
+      System.arraycopy(encoded, serialFrom, out, idx, serialLength);
+      idx += serialLength;
+    } else {
+      idx += arraycopy(serialNumber.toByteArray(), out, idx);
+    }
 
     return idx - offset;
   }
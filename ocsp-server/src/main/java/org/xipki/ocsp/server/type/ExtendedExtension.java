@@ -26,7 +26,6 @@ import org.xipki.util.Hex;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.util.Arrays;
 
 /**
  * ASN.1 extension that can be read and written.
@@ -56,16 +55,20 @@ public class ExtendedExtension extends Extension {
   private final int extnValueLength;
 
   public ExtendedExtension(OID extnType, boolean critical, byte[] extnValue) {
+    this(extnType, critical, extnValue, 0, extnValue.length);
+  }
+
+  private ExtendedExtension(OID extnType, boolean critical, byte[] value, int valueFrom, int valueLength) {
     int bodyLen = extnType.getEncodedLength();
     if (critical) {
       bodyLen += 3;
     }
-    bodyLen += getLen(extnValue.length);
+    bodyLen += getLen(valueLength);
 
     this.extnType = extnType;
     this.critical = critical;
     encodedLength = getLen(bodyLen);
-    extnValueLength = extnValue.length;
+    extnValueLength = valueLength;
     extnValueFrom = encodedLength - extnValueLength;
     from = 0;
     encoded = new byte[encodedLength];
@@ -75,8 +78,8 @@ public class ExtendedExtension extends Extension {
     if (critical) {
       offset += arraycopy(bytes_critical, encoded, offset);
     }
-    offset += writeHeader((byte) 0x04, extnValue.length, encoded, offset);
-    arraycopy(extnValue, encoded, offset);
+    offset += writeHeader((byte) 0x04, valueLength, encoded, offset);
+    System.arraycopy(value, valueFrom, encoded, offset, valueLength);
   }
 
   private ExtendedExtension(
@@ -94,15 +97,21 @@ public class ExtendedExtension extends Extension {
 
   public static ExtendedExtension getInstance(byte[] encoded, int from, int len)
       throws EncodingException {
-    Header hdrExtn = OcspRequest.readHeader(encoded, from);
-    Header hdrOid = OcspRequest.readHeader(encoded, hdrExtn.readerIndex);
-    Header hdrNext = OcspRequest.readHeader(encoded, hdrOid.readerIndex + hdrOid.len);
+    final int end = from + len;
+    Header hdrExtn = new Header();
+    OcspRequest.readHeader(encoded, from, end, hdrExtn);
+    final int extnEnd = hdrExtn.end();
+    Header hdrOid = new Header();
+    OcspRequest.readHeader(encoded, hdrExtn.readerIndex, extnEnd, hdrOid);
+    Header hdrNext = new Header();
+    OcspRequest.readHeader(encoded, hdrOid.end(), extnEnd, hdrNext);
     Header hdrExtValue;
 
     boolean critical;
     if (hdrNext.tag == 0x01) { // critical
       critical = encoded[hdrNext.readerIndex] == (byte) 0xFF;
-      hdrExtValue = OcspRequest.readHeader(encoded, hdrNext.readerIndex + hdrNext.len);
+      hdrExtValue = new Header();
+      OcspRequest.readHeader(encoded, hdrNext.end(), extnEnd, hdrExtValue);
     } else {
       critical = false;
       hdrExtValue = hdrNext;
@@ -177,8 +186,8 @@ public class ExtendedExtension extends Extension {
   }
 
   public ExtendedExtension revertCritical() {
-    byte[] extnValue = Arrays.copyOfRange(encoded, extnValueFrom, extnValueFrom + extnValueLength);
-    return new ExtendedExtension(extnType, !critical, extnValue);
+    // the value is copied directly from this encoding, e.g. from the request buffer
+    return new ExtendedExtension(extnType, !critical, encoded, extnValueFrom, extnValueLength);
   }
 
 }
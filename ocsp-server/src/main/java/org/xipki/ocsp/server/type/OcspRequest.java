@@ -26,7 +26,6 @@ import org.xipki.ocsp.api.RequestIssuer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -35,6 +34,11 @@ import java.util.List;
 /**
  * OCSP request.
  *
+ * <p>The request decoded by {@link #getInstance(byte[], int, int)} is a view over the encoded
+ * request: the {@link CertID}s refer to the issuer and serial number in the encoded request, and
+ * the extensions are parsed on first access. The encoded request must not be modified while this
+ * object is in use.
+ *
  * @author Lijun Liao
  * @since 2.2.0
  */
@@ -47,6 +51,9 @@ public class OcspRequest {
     int len;
     int readerIndex;
 
+    Header() {
+    }
+
     Header(int tagIndex, byte tag, int len, int readerIndex) {
       this.tagIndex = tagIndex;
       this.tag = tag;
@@ -54,6 +61,10 @@ public class OcspRequest {
       this.readerIndex = readerIndex;
     }
 
+    int end() {
+      return readerIndex + len;
+    }
+
     @Override
     public String toString() {
       return "tag=0x" + Integer.toHexString(0xFF & tag) + ", len=" + len
@@ -63,107 +74,123 @@ public class OcspRequest {
 
   private final int version;
 
-  private final List<ExtendedExtension> extensions;
-
   private final List<CertID> requestList;
 
+  private List<ExtendedExtension> extensions;
+
+  // the encoded Extensions, only used if extensions is not parsed yet.
+  private final byte[] encoded;
+
+  private final int extensionsFrom;
+
+  private final int extensionsEnd;
+
   public OcspRequest(int version, List<CertID> requestList, List<ExtendedExtension> extensions) {
     this.version = version;
     this.requestList = requestList;
     this.extensions = extensions;
+    this.encoded = null;
+    this.extensionsFrom = 0;
+    this.extensionsEnd = 0;
+  }
+
+  private OcspRequest(int version, List<CertID> requestList, byte[] encoded,
+      int extensionsFrom, int extensionsEnd) {
+    this.version = version;
+    this.requestList = requestList;
+    this.encoded = encoded;
+    this.extensionsFrom = extensionsFrom;
+    this.extensionsEnd = extensionsEnd;
   }
 
   public static OcspRequest getInstance(byte[] request)
       throws EncodingException {
+    return getInstance(request, 0, request.length);
+  }
+
+  public static OcspRequest getInstance(byte[] request, int offset, int length)
+      throws EncodingException {
+    final int end = offset + length;
+    Header hdr = new Header();
+    Header child = new Header();
+
     // OCSPRequest
-    Header hdr = readHeader(request, 0);
+    readHeader(request, offset, end, hdr);
     // tbsRequest
-    Header hdrTbs = readHeader(request, hdr.readerIndex);
+    readHeader(request, hdr.readerIndex, hdr.end(), hdr);
+    final int tbsEnd = hdr.end();
 
     int version = 0;
 
-    // First element of the tbsRequest
-    hdr = readHeader(request, hdrTbs.readerIndex);
-    boolean tagged = (hdr.tag & 0x80) != 0;
-    int tag = hdr.tag & 0x1F;
-
-    if (tagged) {
-      if (tag == 0) {
-        Header hdr0 = readHeader(request, hdr.readerIndex);
-        if (hdr0.len == 1) {
-          version = 0xFF & request[hdr0.readerIndex];
+    // First element of the tbsRequest, read till requestList
+    readHeader(request, hdr.readerIndex, tbsEnd, hdr);
+    while ((hdr.tag & 0x80) != 0) {
+      if ((hdr.tag & 0x1F) == 0) {
+        readHeader(request, hdr.readerIndex, hdr.end(), child);
+        if (child.len == 1) {
+          version = 0xFF & request[child.readerIndex];
         } else {
           throw new EncodingException("version too large");
         }
       }
-
-      // read till requestList
-      while ((hdr.tag & 0x80) != 0) {
-        hdr = readHeader(request, hdr.readerIndex + hdr.len);
-      }
+      readHeader(request, hdr.end(), tbsEnd, hdr);
     }
 
-    List<CertID> requestList = new LinkedList<>();
-    Header hdrRequestList = hdr;
+    final int requestListEnd = hdr.end();
 
-    Header hdrSingleReq = readHeader(request, hdr.readerIndex);
     // requestList
-    while (true) {
-      Header hdrCertId = readHeader(request, hdrSingleReq.readerIndex);
-      Header hdrHashAlgo = readHeader(request, hdrCertId.readerIndex);
-      Header hdrNameHash = readHeader(request, hdrHashAlgo.readerIndex + hdrHashAlgo.len);
-      Header hdrKeyHash = readHeader(request, hdrNameHash.readerIndex + hdrNameHash.len);
-      Header hdrSerial = readHeader(request, hdrKeyHash.readerIndex + hdrKeyHash.len);
+    List<CertID> requestList = new ArrayList<>(1);
+    int singleReqIndex = hdr.readerIndex;
+    while (singleReqIndex < requestListEnd) {
+      // Request
+      readHeader(request, singleReqIndex, requestListEnd, hdr);
+      singleReqIndex = hdr.end();
+
+      // CertID
+      readHeader(request, hdr.readerIndex, hdr.end(), hdr);
+      final int certIdFrom = hdr.readerIndex;
+      final int certIdEnd = hdr.end();
+
+      // hashAlgorithm, issuerNameHash, issuerKeyHash
+      readHeader(request, certIdFrom, certIdEnd, child);
+      readHeader(request, child.end(), certIdEnd, child);
+      readHeader(request, child.end(), certIdEnd, child);
+      final int issuerEnd = child.end();
+
+      // serialNumber
+      readHeader(request, issuerEnd, certIdEnd, child);
+      if (child.tag != 0x02 || child.len < 1) {
+        throw new EncodingException("invalid serialNumber at " + issuerEnd);
+      }
+
       RequestIssuer issuer;
       try {
-        issuer = new RequestIssuer(request, hdrCertId.readerIndex,
-            hdrKeyHash.readerIndex + hdrKeyHash.len - hdrCertId.readerIndex);
+        issuer = new RequestIssuer(request, certIdFrom, issuerEnd - certIdFrom);
       } catch (NoSuchAlgorithmException ex) {
         throw new EncodingException(ex);
       }
 
-      BigInteger serialNumber = new BigInteger(readContent(request, hdrSerial));
-      CertID certId = new CertID(issuer, serialNumber);
-      requestList.add(certId);
+      requestList.add(new CertID(issuer, request, child.readerIndex, child.len));
+    }
 
-      int nextIndex = hdrSingleReq.readerIndex + hdrSingleReq.len;
-      if (nextIndex < hdrRequestList.readerIndex + hdrRequestList.len) {
-        hdrSingleReq = readHeader(request, nextIndex);
-      } else {
-        break;
-      }
+    if (requestList.isEmpty()) {
+      throw new EncodingException("empty requestList");
     }
 
     // extensions
-    List<ExtendedExtension> extensions = new LinkedList<>();
-    int extensionsOffset = hdrRequestList.readerIndex + hdrRequestList.len;
-
-    if (extensionsOffset < hdrTbs.readerIndex + hdrTbs.len) {
-      hdr = readHeader(request, extensionsOffset);
-      tag = hdr.tag;
-      if ((tag & 0x80) == 0 || (tag & 0x1F) != 2) {
+    int extensionsFrom = 0;
+    int extensionsEnd = 0;
+    if (requestListEnd < tbsEnd) {
+      readHeader(request, requestListEnd, tbsEnd, hdr);
+      if ((hdr.tag & 0x80) == 0 || (hdr.tag & 0x1F) != 2) {
         throw new EncodingException("invalid element after requestList");
       }
-      Header hdrExtensions = readHeader(request, hdr.readerIndex);
-
-      Header hdrExtension = readHeader(request, hdrExtensions.readerIndex);
-      while (true) {
-        int extensionLen = hdrExtension.readerIndex - hdrExtension.tagIndex + hdrExtension.len;
-        ExtendedExtension extn = ExtendedExtension.getInstance(request, hdrExtension.tagIndex, extensionLen);
-        if (extn != null) {
-          extensions.add(extn);
-        }
-
-        int nextIndex = hdrExtension.readerIndex + hdrExtension.len;
-        if (nextIndex < hdrExtensions.readerIndex + hdrExtensions.len) {
-          hdrExtension = readHeader(request, nextIndex);
-        } else {
-          break;
-        }
-      }
+      readHeader(request, hdr.readerIndex, hdr.end(), hdr);
+      extensionsFrom = hdr.readerIndex;
+      extensionsEnd = hdr.end();
     }
 
-    return new OcspRequest(version, requestList, extensions);
+    return new OcspRequest(version, requestList, request, extensionsFrom, extensionsEnd);
   } // method getInstance
 
   public static OcspRequest getInstance(OCSPRequest req)
@@ -212,17 +239,23 @@ public class OcspRequest {
 
   public static int readRequestVersion(byte[] request)
       throws EncodingException {
+    return readRequestVersion(request, 0, request.length);
+  }
+
+  public static int readRequestVersion(byte[] request, int offset, int length)
+      throws EncodingException {
+    Header hdr = new Header();
     // OCSPRequest
-    Header hdr = readHeader(request, 0);
+    readHeader(request, offset, offset + length, hdr);
     // tbsRequest
-    hdr = readHeader(request, hdr.readerIndex);
+    readHeader(request, hdr.readerIndex, hdr.end(), hdr);
     // First element of the tbsRequest
-    hdr = readHeader(request, hdr.readerIndex);
+    readHeader(request, hdr.readerIndex, hdr.end(), hdr);
     if ((hdr.tag & 0x1F) != 0) {
       // version not present, default to 0
       return 0;
     } else {
-      hdr = readHeader(request, hdr.readerIndex);
+      readHeader(request, hdr.readerIndex, hdr.end(), hdr);
       if (hdr.len == 1) {
         return 0xFF & request[hdr.readerIndex];
       } else {
@@ -233,47 +266,61 @@ public class OcspRequest {
 
   public static boolean containsSignature(byte[] request)
       throws EncodingException {
+    return containsSignature(request, 0, request.length);
+  }
+
+  public static boolean containsSignature(byte[] request, int offset, int length)
+      throws EncodingException {
+    Header hdr = new Header();
     // OCSPRequest
-    Header hdr = readHeader(request, 0);
+    readHeader(request, offset, offset + length, hdr);
+    int end = hdr.end();
     // tbsRequest
-    Header hdrTbs = readHeader(request, hdr.readerIndex);
-    int signatureIndex = hdrTbs.readerIndex + hdrTbs.len;
-    return signatureIndex < request.length;
+    readHeader(request, hdr.readerIndex, end, hdr);
+    return hdr.end() < end;
   }
 
   static Header readHeader(byte[] encoded, int readerIndex)
       throws EncodingException {
+    Header header = new Header();
+    readHeader(encoded, readerIndex, encoded.length, header);
+    return header;
+  }
+
+  /**
+   * Reads the header of the ASN.1 element at {@code readerIndex}, which must end before
+   * {@code end}.
+   */
+  static void readHeader(byte[] encoded, int readerIndex, int end, Header header)
+      throws EncodingException {
+    if (readerIndex < 0 || end > encoded.length || readerIndex + 2 > end) {
+      throw new EncodingException("invalid element at " + readerIndex);
+    }
+
     int off = readerIndex;
     byte tag = encoded[off++];
     int len = 0xFF & encoded[off++];
     if (len >= 0x80) {
       int lenSize = len & 0x7F;
-      if (lenSize == 1) {
-        len = 0xFF & encoded[off++];
-      } else if (lenSize == 2) {
-        len = ((0xFF & encoded[off++]) << 8)
-            | (0xFF & encoded[off++]);
-      } else if (lenSize == 3) {
-        len = ((0xFF & encoded[off++]) << 16)
-            | ((0xFF & encoded[off++]) << 8)
-            | (0xFF & encoded[off++]);
-      } else if (lenSize == 4) {
-        len = ((0xFF & encoded[off++]) << 24)
-            | ((0xFF & encoded[off++]) << 16)
-            | ((0xFF & encoded[off++]) << 8)
-            | (0xFF & encoded[off++]);
-      } else {
+      if (lenSize < 1 || lenSize > 4 || off + lenSize > end) {
         throw new EncodingException("invalid length field at " + readerIndex);
       }
+
+      len = 0;
+      for (int i = 0; i < lenSize; i++) {
+        len = (len << 8) | (0xFF & encoded[off++]);
+      }
     }
-    return new Header(readerIndex, tag, len, off);
-  } // method readHeader
 
-  private static byte[] readContent(byte[] encoded, Header header) {
-    byte[] content = new byte[header.len];
-    System.arraycopy(encoded, header.readerIndex, content, 0, header.len);
-    return content;
-  }
+    if (len < 0 || len > end - off) {
+      throw new EncodingException("invalid length field at " + readerIndex);
+    }
+
+    header.tagIndex = readerIndex;
+    header.tag = tag;
+    header.len = len;
+    header.readerIndex = off;
+  } // method readHeader
 
   public int getVersion() {
     return version;
@@ -283,8 +330,35 @@ public class OcspRequest {
     return requestList;
   }
 
-  public List<ExtendedExtension> getExtensions() {
+  /**
+   * Returns the extensions of the request, which can be modified by the caller.
+   * @return the extensions, never {@code null}.
+   * @throws EncodingException if the extensions are invalid or contain an unknown critical
+   *         extension.
+   */
+  public List<ExtendedExtension> getExtensions()
+      throws EncodingException {
+    if (extensions == null) {
+      extensions = parseExtensions(encoded, extensionsFrom, extensionsEnd);
+    }
     return extensions;
   }
 
+  private static List<ExtendedExtension> parseExtensions(byte[] encoded, int from, int end)
+      throws EncodingException {
+    List<ExtendedExtension> extensions = new LinkedList<>();
+    Header hdr = new Header();
+    int index = from;
+    while (index < end) {
+      readHeader(encoded, index, end, hdr);
+      int extensionLen = hdr.end() - hdr.tagIndex;
+      ExtendedExtension extn = ExtendedExtension.getInstance(encoded, hdr.tagIndex, extensionLen);
+      if (extn != null) {
+        extensions.add(extn);
+      }
+      index = hdr.end();
+    }
+    return extensions;
+  } // method parseExtensions
+
 }
@@ -0,0 +1,236 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ocsp.server.type.test;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.OCSPRequest;
+import org.bouncycastle.asn1.ocsp.Request;
+import org.bouncycastle.asn1.ocsp.TBSRequest;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.ocsp.server.type.CertID;
+import org.xipki.ocsp.server.type.EncodingException;
+import org.xipki.ocsp.server.type.ExtendedExtension;
+import org.xipki.ocsp.server.type.OID;
+import org.xipki.ocsp.server.type.OcspRequest;
+import org.xipki.security.HashAlgo;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test for {@link OcspRequest#getInstance(byte[], int, int)}.
+ *
+ * @author Lijun Liao
+ */
+
+public class OcspRequestTest {
+
+  private static final BigInteger SERIAL1 = BigInteger.valueOf(0x1234);
+
+  private static final BigInteger SERIAL2 = new BigInteger("00ff0102030405060708090a0b0c0d0e0f", 16);
+
+  @Test
+  public void testDecode()
+      throws Exception {
+    byte[] request = createRequest(1, true, SERIAL1, SERIAL2);
+    assertRequest(OcspRequest.getInstance(request, 0, request.length), 1, true);
+  }
+
+  @Test
+  public void testDecodeWithoutExtensions()
+      throws Exception {
+    byte[] request = createRequest(0, false, SERIAL1, SERIAL2);
+    assertRequest(OcspRequest.getInstance(request, 0, request.length), 0, false);
+  }
+
+  @Test
+  public void testSameAsBouncyCastleDecoder()
+      throws Exception {
+    byte[] request = createRequest(0, true, SERIAL1, SERIAL2);
+    OcspRequest flyweight = OcspRequest.getInstance(request, 0, request.length);
+    OcspRequest parsed = OcspRequest.getInstance(OCSPRequest.getInstance(request));
+
+    Assert.assertEquals(parsed.getVersion(), flyweight.getVersion());
+    Assert.assertEquals(parsed.getRequestList().size(), flyweight.getRequestList().size());
+    for (int i = 0; i < parsed.getRequestList().size(); i++) {
+      CertID expected = parsed.getRequestList().get(i);
+      CertID certId = flyweight.getRequestList().get(i);
+      Assert.assertEquals(expected.getIssuer(), certId.getIssuer());
+      Assert.assertEquals(expected.getSerialNumber(), certId.getSerialNumber());
+      Assert.assertEquals(expected.getEncodedLength(), certId.getEncodedLength());
+
+      byte[] expectedEncoded = new byte[expected.getEncodedLength()];
+      expected.write(expectedEncoded, 0);
+      byte[] encoded = new byte[certId.getEncodedLength()];
+      certId.write(encoded, 0);
+      Assert.assertArrayEquals(expectedEncoded, encoded);
+    }
+  }
+
+  @Test
+  public void testDecodeWithinStaleBuffer()
+      throws Exception {
+    byte[] request = createRequest(1, true, SERIAL1, SERIAL2);
+    // the buffer contains an earlier, longer request after the current one
+    byte[] stale = createRequest(1, true, SERIAL2, SERIAL1, SERIAL1.add(BigInteger.ONE));
+    final int offset = 7;
+    byte[] buffer = new byte[offset + Math.max(request.length, stale.length) + 10];
+    System.arraycopy(stale, 0, buffer, offset, stale.length);
+    System.arraycopy(request, 0, buffer, offset, request.length);
+
+    OcspRequest req = OcspRequest.getInstance(buffer, offset, request.length);
+    assertRequest(req, 1, true);
+  }
+
+  @Test
+  public void testTruncated()
+      throws Exception {
+    byte[] request = createRequest(1, true, SERIAL1, SERIAL2);
+    // the rest of the request remains in the buffer, it must not be read
+    for (int len = 0; len < request.length; len++) {
+      try {
+        OcspRequest req = OcspRequest.getInstance(request, 0, len);
+        req.getExtensions();
+        Assert.fail("truncated request with length " + len + " is accepted");
+      } catch (EncodingException ex) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testTruncatedInnerLength()
+      throws Exception {
+    byte[] request = createRequest(0, false, SERIAL1);
+    // increase the length of the serialNumber, it then exceeds the CertID
+    int serialIndex = indexOf(request, new byte[] {0x02, 0x02, 0x12, 0x34});
+    Assert.assertTrue(serialIndex > 0);
+    request[serialIndex + 1] = 0x03;
+
+    try {
+      OcspRequest.getInstance(request, 0, request.length);
+      Assert.fail("invalid serialNumber is accepted");
+    } catch (EncodingException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLazySerialNumber()
+      throws Exception {
+    byte[] request = createRequest(0, false, SERIAL2);
+    OcspRequest req = OcspRequest.getInstance(request, 0, request.length);
+    CertID certId = req.getRequestList().get(0);
+    Assert.assertEquals(SERIAL2, certId.getSerialNumber());
+    // the value is kept once created
+    Arrays.fill(request, (byte) 0);
+    Assert.assertEquals(SERIAL2, certId.getSerialNumber());
+  }
+
+  private static void assertRequest(OcspRequest req, int version, boolean withNonce)
+      throws EncodingException {
+    Assert.assertEquals("version", version, req.getVersion());
+
+    List<CertID> requestList = req.getRequestList();
+    Assert.assertEquals("number of requests", 2, requestList.size());
+    Assert.assertEquals(SERIAL1, requestList.get(0).getSerialNumber());
+    Assert.assertEquals(SERIAL2, requestList.get(1).getSerialNumber());
+
+    RequestIssuer issuer = requestList.get(0).getIssuer();
+    Assert.assertEquals(HashAlgo.SHA1, issuer.hashAlgorithm());
+    Assert.assertEquals(new RequestIssuer(HashAlgo.SHA1, issuerHashes()), issuer);
+
+    List<ExtendedExtension> extensions = req.getExtensions();
+    if (withNonce) {
+      Assert.assertEquals("number of extensions", 1, extensions.size());
+      ExtendedExtension nonce = extensions.get(0);
+      Assert.assertEquals(OID.ID_PKIX_OCSP_NONCE, nonce.getExtnType());
+      Assert.assertFalse(nonce.isCritical());
+      Assert.assertTrue(nonce.equalsExtnValue(new DEROctetString(nonce()).getOctets()));
+    } else {
+      Assert.assertTrue("no extension expected", extensions.isEmpty());
+    }
+  }
+
+  private static byte[] createRequest(int version, boolean withNonce, BigInteger... serials)
+      throws Exception {
+    AlgorithmIdentifier hashAlgId = new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1, DERNull.INSTANCE);
+    ASN1EncodableVector requestList = new ASN1EncodableVector();
+    for (BigInteger serial : serials) {
+      requestList.add(new Request(new org.bouncycastle.asn1.ocsp.CertID(hashAlgId,
+          new DEROctetString(newBytes(20, (byte) 0x11)), new DEROctetString(newBytes(20, (byte) 0x12)),
+          new ASN1Integer(serial)), null));
+    }
+
+    ASN1EncodableVector vec = new ASN1EncodableVector();
+    if (version != 0) {
+      vec.add(new DERTaggedObject(true, 0, new ASN1Integer(version)));
+    }
+    vec.add(new DERSequence(requestList));
+    if (withNonce) {
+      vec.add(new DERTaggedObject(true, 2, new Extensions(
+          new Extension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce, false, nonce()))));
+    }
+
+    return new OCSPRequest(TBSRequest.getInstance(new DERSequence(vec)), null).getEncoded();
+  }
+
+  private static byte[] issuerHashes() {
+    byte[] hashes = new byte[44];
+    hashes[0] = 0x04;
+    hashes[1] = 20;
+    Arrays.fill(hashes, 2, 22, (byte) 0x11);
+    hashes[22] = 0x04;
+    hashes[23] = 20;
+    Arrays.fill(hashes, 24, 44, (byte) 0x12);
+    return hashes;
+  }
+
+  private static byte[] nonce() {
+    return newBytes(16, (byte) 0x44);
+  }
+
+  private static byte[] newBytes(int len, byte fill) {
+    byte[] bytes = new byte[len];
+    Arrays.fill(bytes, fill);
+    return bytes;
+  }
+
+  private static int indexOf(byte[] data, byte[] pattern) {
+    for (int i = 0; i + pattern.length <= data.length; i++) {
+      if (Arrays.equals(Arrays.copyOfRange(data, i, i + pattern.length), pattern)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -17,6 +17,7 @@
 
 package org.xipki.ocsp.servlet;
 
+import com.alibaba.fastjson.JSON;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.ocsp.api.OcspServer;
@@ -30,11 +31,15 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.xipki.util.Args.notNull;
 
 /**
- * HTTP health check servlet of the OCSP server.
+ * HTTP health check servlet of the OCSP server. The response body contains the
+ * health status and the statistics of the datasources, without the statistics per
+ * SQL statement.
  *
  * @author Lijun Liao
  * @since 3.0.1
@@ -46,6 +51,8 @@ public class HealthCheckServlet extends HttpServlet {
 
   private static final long serialVersionUID = 1L;
 
+  private static final String CT_RESPONSE = "application/json";
+
   private OcspServer server;
 
   public void setServer(OcspServer server) {
@@ -70,7 +77,15 @@ public class HealthCheckServlet extends HttpServlet {
       boolean healthy = server.healthCheck(responderAndPath.getResponder());
       int status = healthy ? HttpServletResponse.SC_OK : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 
+      Map<String, Object> body = new LinkedHashMap<>();
+      body.put("healthy", healthy);
+      body.put("datasources", server.getDataSourceStats(false));
+      byte[] respBytes = JSON.toJSONBytes(body);
+
       resp.setStatus(status);
+      resp.setContentType(CT_RESPONSE);
+      resp.setContentLength(respBytes.length);
+      resp.getOutputStream().write(respBytes);
     } catch (Throwable th) {
       if (th instanceof EOFException) {
         LogUtil.warn(LOG, th, "connection reset by peer");
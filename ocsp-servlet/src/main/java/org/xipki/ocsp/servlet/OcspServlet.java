@@ -32,6 +32,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import static org.xipki.util.Args.notNull;
 
@@ -54,6 +56,26 @@ public class OcspServlet extends HttpServlet {
 
   private static final String CT_RESPONSE = "application/ocsp-response";
 
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+
+  // buffer of the encoded request per servlet thread, grown on demand up to the maximal request
+  // size. The OCSP server reads the request only while answering it.
+  private static final ThreadLocal<byte[]> REQUEST_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+  // values of the Base64 and Base64Url characters, -1 for other characters.
+  private static final byte[] BASE64_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(BASE64_VALUES, (byte) -1);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    for (int i = 0; i < alphabet.length(); i++) {
+      BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+    }
+    BASE64_VALUES['+'] = BASE64_VALUES['-'] = 62;
+    BASE64_VALUES['/'] = BASE64_VALUES['_'] = 63;
+  }
+
   private boolean logReqResp;
 
   private OcspServer server;
@@ -85,14 +107,17 @@ public class OcspServlet extends HttpServlet {
       }
 
       Responder responder = responderAndPath.getResponder();
-      byte[] reqContent = IoUtil.read(req.getInputStream());
+      int maxRequestSize = responder.getMaxRequestSize();
+      // read one byte more to detect too long request
+      byte[] buffer = requestBuffer(maxRequestSize + 1);
+      int reqLength = read(req.getInputStream(), buffer, maxRequestSize + 1);
       // request too long
-      if (reqContent.length > responder.getMaxRequestSize()) {
+      if (reqLength > maxRequestSize) {
         sendError(resp, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
         return;
       }
 
-      OcspRespWithCacheInfo ocspRespWithCacheInfo = server.answer(responder, reqContent, false);
+      OcspRespWithCacheInfo ocspRespWithCacheInfo = server.answer(responder, buffer, 0, reqLength, false);
       if (ocspRespWithCacheInfo == null || ocspRespWithCacheInfo.getResponse() == null) {
         LOG.error("processRequest returned null, this should not happen");
         sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -102,7 +127,7 @@ public class OcspServlet extends HttpServlet {
       byte[] encodedOcspResp = ocspRespWithCacheInfo.getResponse();
       if (logReqResp && LOG.isDebugEnabled()) {
         LOG.debug("HTTP POST OCSP path: {}\nRequest:\n{}\nResponse:\n{}", req.getRequestURI(),
-            LogUtil.base64Encode(reqContent), LogUtil.base64Encode(encodedOcspResp));
+            LogUtil.base64Encode(Arrays.copyOf(buffer, reqLength)), LogUtil.base64Encode(encodedOcspResp));
       }
 
       resp.setStatus(HttpServletResponse.SC_OK);
@@ -140,15 +165,12 @@ public class OcspServlet extends HttpServlet {
       return;
     }
 
-    String b64OcspReq;
-
     int offset = servletPath.length();
     // GET URI contains the request and must be much longer than 10.
     if (path.length() - offset > 10) {
       if (path.charAt(offset) == '/') {
         offset++;
       }
-      b64OcspReq = path.substring(offset);
     } else {
       sendError(resp, HttpServletResponse.SC_BAD_REQUEST);
       return;
@@ -161,18 +183,20 @@ public class OcspServlet extends HttpServlet {
       //    this limitation by accepting also OCSP requests:
       //      - Which are Base64Url encoded, and/or
       //      - Which do not containing the Base64 padding char '='.
-      if (b64OcspReq.length() > responder.getMaxRequestSize()) {
+      int b64Length = path.length() - offset;
+      if (b64Length > responder.getMaxRequestSize()) {
         sendError(resp, HttpServletResponse.SC_REQUEST_URI_TOO_LONG);
         return;
       }
 
-      byte[] ocsReqBytes = base64Decode(StringUtil.toUtf8Bytes(b64OcspReq));
-      if (ocsReqBytes == null) {
+      byte[] buffer = requestBuffer((b64Length / 4 + 1) * 3);
+      int reqLength = base64Decode(path, offset, buffer);
+      if (reqLength < 1) {
         sendError(resp, HttpServletResponse.SC_BAD_REQUEST);
         return;
       }
 
-      OcspRespWithCacheInfo ocspRespWithCacheInfo = server.answer(responder, ocsReqBytes, true);
+      OcspRespWithCacheInfo ocspRespWithCacheInfo = server.answer(responder, buffer, 0, reqLength, true);
       if (ocspRespWithCacheInfo == null || ocspRespWithCacheInfo.getResponse() == null) {
         LOG.error("processRequest returned null, this should not happen");
         sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -246,50 +270,78 @@ public class OcspServlet extends HttpServlet {
     resp.setContentLength(0);
   }
 
-  private static byte[] base64Decode(byte[] b64OcspReqBytes) {
-    final int len = b64OcspReqBytes.length;
-    if (Base64.containsOnlyBase64Chars(b64OcspReqBytes, 0, len)) {
-      // Base64 encoded, no URL decoding is required
-      return Base64.decodeFast(b64OcspReqBytes);
-    } else if (Base64Url.containsOnlyBase64UrlChars(b64OcspReqBytes, 0, len)) {
-      // Base64Url encoded, no URL decode is required
-      return Base64Url.decodeFast(b64OcspReqBytes);
-    } else {
-      // Base64-then-URL encoded, URL decode required
-      // count the number of encoded chars
-      int cnt = 0;
-      for (int i = 0; i < len - 2; i++) {
-        if (b64OcspReqBytes[i] == '%') {
-          cnt++;
-          i += 2;
+  private static byte[] requestBuffer(int size) {
+    byte[] buffer = REQUEST_BUFFER.get();
+    if (buffer.length < size) {
+      buffer = new byte[Math.max(size, buffer.length * 2)];
+      REQUEST_BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  private static int read(InputStream in, byte[] buffer, int maxLength)
+      throws IOException {
+    int length = 0;
+    while (length < maxLength) {
+      int read = in.read(buffer, length, maxLength - length);
+      if (read == -1) {
+        break;
+      }
+      length += read;
+    }
+    return length;
+  } // method read
+
+  /**
+   * Decodes the request in the GET URI into the buffer. Since RFC 2560/6960 A.1.1 specifies
+   * the Base64-then-URL encoding, but some clients send Base64Url encoded requests, or omit
+   * the padding char '=', all these variants are accepted.
+   *
+   * @return the length of the decoded request, or -1 if the request is invalid.
+   */
+  static int base64Decode(String str, int offset, byte[] out) {
+    final int len = str.length();
+    int bits = 0;
+    int numBits = 0;
+    int outLen = 0;
+    boolean padding = false;
+
+    for (int i = offset; i < len; i++) {
+      int c = str.charAt(i);
+      if (c == '%') {
+        // URL encoded char
+        if (i + 2 >= len) {
+          return -1;
         }
+
+        int hi = Character.digit(str.charAt(i + 1), 16);
+        int lo = Character.digit(str.charAt(i + 2), 16);
+        if (hi < 0 || lo < 0) {
+          return -1;
+        }
+        c = (hi << 4) | lo;
+        i += 2;
       }
 
-      if (cnt == 0) {
-        return null;
+      if (c == '=') {
+        padding = true;
+        continue;
       }
 
-      byte[] realB64Bytes = new byte[len - cnt * 2];
-      for (int i = 0, j = 0; j < realB64Bytes.length; i++, j++) {
-        if (b64OcspReqBytes[i] == '%') {
-          realB64Bytes[j] = Hex.decodeSingle(b64OcspReqBytes, i + 1);
-          i += 2;
-        } else {
-          realB64Bytes[j] = b64OcspReqBytes[i];
-        }
+      int value = (c < BASE64_VALUES.length) ? BASE64_VALUES[c] : -1;
+      if (padding || value < 0) {
+        return -1;
       }
 
-      if (Base64.containsOnlyBase64Chars(realB64Bytes, 0, len)) {
-        // Base64 encoded
-        return Base64.decodeFast(realB64Bytes);
-      } else if (Base64Url.containsOnlyBase64UrlChars(realB64Bytes, 0, len)) {
-        // Base64Url encoded
-        return Base64Url.decodeFast(realB64Bytes);
-      } else {
-        return null;
+      bits = ((bits << 6) | value) & 0xFFFF;
+      numBits += 6;
+      if (numBits >= 8) {
+        numBits -= 8;
+        out[outLen++] = (byte) (bits >> numBits);
       }
     }
 
+    return outLen;
   } // method base64Decode
 
 }
@@ -59,6 +59,8 @@ public class OcspServletFilter implements Filter {
 
   private HealthCheckServlet healthServlet;
 
+  private MetricsServlet metricsServlet;
+
   private OcspServlet ocspServlet;
 
   private boolean remoteMgmtEnabled;
@@ -114,6 +116,8 @@ public class OcspServletFilter implements Filter {
     this.healthServlet = new HealthCheckServlet();
     this.healthServlet.setServer(this.server);
 
+    this.metricsServlet = new MetricsServlet();
+
     this.ocspServlet = new OcspServlet();
     this.ocspServlet.setServer(this.server);
     this.ocspServlet.setLogReqResp(logReqResp);
@@ -186,6 +190,8 @@ public class OcspServletFilter implements Filter {
       String servletPath = path.substring(7); // 7 = "/health".length()
       req.setAttribute(HttpConstants.ATTR_XIPKI_PATH, servletPath);
       healthServlet.service(req, resp);
+    } else if (path.equals("/metrics")) {
+      metricsServlet.service(req, resp);
     } else if (path.startsWith("/mgmt/")) {
       if (remoteMgmtEnabled) {
         req.setAttribute(HttpConstants.ATTR_XIPKI_PATH, path.substring(5)); // 5 = "/mgmt".length()
@@ -0,0 +1,127 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ocsp.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Test for the decoding of the GET requests in {@link OcspServlet}.
+ *
+ * @author Lijun Liao
+ */
+
+public class OcspServletTest {
+
+  private static final String PREFIX = "/ocsp/";
+
+  @Test
+  public void testBase64() {
+    Random random = new Random(1);
+    for (int len = 1; len < 80; len++) {
+      byte[] data = new byte[len];
+      random.nextBytes(data);
+      assertDecoded(data, Base64.getEncoder().encodeToString(data));
+    }
+  }
+
+  @Test
+  public void testBase64Url() {
+    Random random = new Random(2);
+    for (int len = 1; len < 80; len++) {
+      byte[] data = new byte[len];
+      random.nextBytes(data);
+      assertDecoded(data, Base64.getUrlEncoder().encodeToString(data));
+    }
+  }
+
+  @Test
+  public void testWithoutPadding() {
+    Random random = new Random(3);
+    for (int len = 1; len < 80; len++) {
+      byte[] data = new byte[len];
+      random.nextBytes(data);
+      assertDecoded(data, Base64.getEncoder().withoutPadding().encodeToString(data));
+      assertDecoded(data, Base64.getUrlEncoder().withoutPadding().encodeToString(data));
+    }
+  }
+
+  @Test
+  public void testUrlEncoded() {
+    // contains '+', '/' and the padding
+    byte[] data = {(byte) 0xFB, (byte) 0xFF, (byte) 0xBF, 0x01};
+    String b64 = Base64.getEncoder().encodeToString(data);
+    Assert.assertEquals("+/+/AQ==", b64);
+
+    assertDecoded(data, "%2B%2F%2B%2FAQ%3D%3D");
+    // lower case hex digits
+    assertDecoded(data, "%2b%2f+/AQ%3d=");
+    // URL-encoded alphabet chars
+    assertDecoded(data, "%2B/+%2F%41Q");
+  }
+
+  @Test
+  public void testInvalid() {
+    // invalid char
+    assertInvalid("AAAA*AAA");
+    assertInvalid("AAAA AAA");
+    // char after the padding
+    assertInvalid("AA==AAAA");
+    // incomplete or invalid URL encoding
+    assertInvalid("AAAA%2");
+    assertInvalid("AAAA%");
+    assertInvalid("AAAA%ZZ");
+    // URL-encoded char outside of the alphabet
+    assertInvalid("AAAA%00");
+    assertInvalid("AAAA%C3%A4");
+    // non-ASCII char
+    assertInvalid("AAAA\u00e4AAA");
+  }
+
+  @Test
+  public void testBufferLargerThanRequest() {
+    byte[] data = {1, 2, 3, 4, 5};
+    byte[] out = new byte[100];
+    Arrays.fill(out, (byte) 0x55);
+    String path = PREFIX + Base64.getEncoder().encodeToString(data);
+    int len = OcspServlet.base64Decode(path, PREFIX.length(), out);
+    Assert.assertEquals(data.length, len);
+    Assert.assertArrayEquals(data, Arrays.copyOf(out, len));
+    // the rest of the buffer is not touched
+    Assert.assertEquals(0x55, out[len]);
+  }
+
+  private static void assertDecoded(byte[] expected, String encoded) {
+    String path = PREFIX + encoded;
+    // same size as calculated by doGet()
+    byte[] out = new byte[(encoded.length() / 4 + 1) * 3];
+    int len = OcspServlet.base64Decode(path, PREFIX.length(), out);
+    Assert.assertEquals(encoded, expected.length, len);
+    Assert.assertArrayEquals(encoded, expected, Arrays.copyOf(out, len));
+  }
+
+  private static void assertInvalid(String encoded) {
+    byte[] out = new byte[(encoded.length() / 4 + 1) * 3];
+    Assert.assertEquals(encoded, -1, OcspServlet.base64Decode(PREFIX + encoded, PREFIX.length(), out));
+  }
+
+}
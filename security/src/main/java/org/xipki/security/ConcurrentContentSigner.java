@@ -132,6 +132,15 @@ public interface ConcurrentContentSigner extends Closeable {
 
   void requiteSigner(ConcurrentBagEntrySigner signer);
 
+  /**
+   * Returns the number of signers in the pool, namely the maximal number of concurrent
+   * signing operations. The default implementation returns 1.
+   * @return the number of signers in the pool.
+   */
+  default int getParallelism() {
+    return 1;
+  }
+
   boolean isHealthy();
 
 }
@@ -23,6 +23,9 @@ import org.xipki.password.PasswordResolver;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.concurrent.ConcurrentBag;
+import org.xipki.util.metrics.Counter;
+import org.xipki.util.metrics.Histogram;
+import org.xipki.util.metrics.MetricsRegistry;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -54,6 +57,8 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
 
   private final ConcurrentBag<ConcurrentBagEntrySigner> signers = new ConcurrentBag<>();
 
+  private final int parallelism;
+
   private final String name;
 
   private final SignAlgo algorithm;
@@ -68,6 +73,10 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
 
   private X509Cert[] certificateChain;
 
+  private final Histogram borrowWait;
+
+  private final Counter borrowTimeouts;
+
   static {
     final String propKey = "org.xipki.security.signservice.timeout";
     String str = System.getProperty(propKey);
@@ -99,9 +108,17 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
     for (XiContentSigner signer : signers) {
       this.signers.add(new ConcurrentBagEntrySigner(signer));
     }
+    this.parallelism = signers.size();
 
     this.signingKey = signingKey;
     this.name = "defaultSigner-" + NAME_INDEX.getAndIncrement();
+
+    // per algorithm, the signer names change after each reload
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    this.borrowWait = registry.histogram("xipki_signer_borrow_wait_seconds",
+        "Time to borrow a signer from the signer pool", "algorithm", algorithm.getJceName());
+    this.borrowTimeouts = registry.counter("xipki_signer_borrow_timeouts_total",
+        "Failures to borrow a signer from the signer pool within the timeout", "algorithm", algorithm.getJceName());
   }
 
   @Override
@@ -148,13 +165,16 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
   @Override
   public ConcurrentBagEntrySigner borrowSigner(int soTimeout)
       throws NoIdleSignerException {
+    long start = System.nanoTime();
     ConcurrentBagEntrySigner signer = null;
     try {
       signer = signers.borrow(soTimeout, TimeUnit.MILLISECONDS);
     } catch (InterruptedException ex) {
     }
 
+    borrowWait.record(System.nanoTime() - start);
     if (signer == null) {
+      borrowTimeouts.increment();
       throw new NoIdleSignerException("no idle signer available");
     }
 
@@ -166,6 +186,11 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
     signers.requite(signer);
   }
 
+  @Override
+  public int getParallelism() {
+    return parallelism;
+  }
+
   @Override
   public void initialize(String conf, PasswordResolver passwordResolver)
       throws XiSecurityException {
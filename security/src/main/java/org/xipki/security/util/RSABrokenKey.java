@@ -35,23 +35,13 @@ import java.math.BigInteger;
  */
 public class RSABrokenKey {
 
-  private static final BigInteger ONE = BigInteger.ONE;
-  private static final BigInteger ZERO = BigInteger.ZERO;
-
-  private static final BigInteger[] primes;
+  private static final int[] primes = new int[]{
+    3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83,
+    89, 97, 101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167};
 
   private static final BigInteger[] markers;
 
   static {
-    int[] ints = new int[]{
-      3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83,
-      89, 97, 101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167};
-
-    primes = new BigInteger[ints.length];
-    for (int i = 0; i < ints.length; i++) {
-      primes[i] = BigInteger.valueOf(ints[i]);
-    }
-
     String[] strs = new String[]{
       "6", "1e", "7e", "402", "161a", "1a316", "30af2", "7ffffe", "1ffffffe", "7ffffffe",
       "4000402", "1fffffffffe", "7fffffffffe", "7ffffffffffe", "12dd703303aed2",
@@ -73,13 +63,32 @@ public class RSABrokenKey {
   } // method static
 
   public static boolean isAffected(BigInteger modulus) {
+    return isAffected(modulus.toByteArray());
+  }
+
+  /**
+   * Checks whether the RSA modulus is affected by ROCA.
+   * @param modulus big-endian encoded modulus, with or without leading zero bytes.
+   * @return whether the modulus is affected.
+   */
+  public static boolean isAffected(byte[] modulus) {
+    // The residues are computed with int arithmetic, and most of the unaffected moduli
+    // are detected by the first few primes.
     for (int i = 0; i < primes.length; i++) {
-      BigInteger bi = ONE.shiftLeft(modulus.remainder(primes[i]).intValue());
-      if (bi.and(markers[i]).equals(ZERO)) {
+      if (!markers[i].testBit(remainder(modulus, primes[i]))) {
         return false;
       }
     }
 
     return true;
   }
+
+  private static int remainder(byte[] bytes, int divisor) {
+    int rem = 0;
+    for (byte b : bytes) {
+      rem = ((rem << 8) | (b & 0xFF)) % divisor;
+    }
+    return rem;
+  }
+
 }
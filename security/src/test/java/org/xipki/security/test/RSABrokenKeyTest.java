@@ -0,0 +1,109 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.security.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.security.util.RSABrokenKey;
+
+import java.math.BigInteger;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Random;
+
+/**
+ * Test for {@link RSABrokenKey}.
+ *
+ * @author Lijun Liao
+ */
+
+public class RSABrokenKeyTest {
+
+  private static final int[] PRIMES = {
+    3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83,
+    89, 97, 101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167};
+
+  private static final BigInteger GENERATOR = BigInteger.valueOf(65537);
+
+  private static final BigInteger PRIMORIAL;
+
+  static {
+    BigInteger m = BigInteger.ONE;
+    for (int p : PRIMES) {
+      m = m.multiply(BigInteger.valueOf(p));
+    }
+    PRIMORIAL = m;
+  }
+
+  @Test
+  public void testAffectedModulus() {
+    Random rnd = new Random(1);
+    for (int i = 0; i < 20; i++) {
+      // the moduli of the affected keys are powers of 65537 modulo the primorial.
+      BigInteger modulus = rocaModulus(rnd);
+      Assert.assertTrue("modulus " + i, RSABrokenKey.isAffected(modulus));
+    }
+  }
+
+  @Test
+  public void testUnaffectedModulus()
+      throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA");
+    kpGen.initialize(1024);
+    for (int i = 0; i < 3; i++) {
+      RSAPublicKey key = (RSAPublicKey) kpGen.generateKeyPair().getPublic();
+      Assert.assertFalse("modulus " + i, RSABrokenKey.isAffected(key.getModulus()));
+    }
+  }
+
+  @Test
+  public void testNonResidue() {
+    Random rnd = new Random(2);
+    BigInteger modulus = rocaModulus(rnd);
+
+    // change only the residue modulo 11 to one not generated by 65537 (= 10 mod 11)
+    BigInteger eleven = BigInteger.valueOf(11);
+    BigInteger delta = PRIMORIAL.divide(eleven);
+    BigInteger altered = modulus;
+    int residue;
+    do {
+      altered = altered.add(delta);
+      residue = altered.mod(eleven).intValue();
+    } while (residue == 1 || residue == 10);
+
+    Assert.assertFalse(RSABrokenKey.isAffected(altered));
+  }
+
+  @Test
+  public void testLeadingZeroBytes() {
+    Random rnd = new Random(3);
+    BigInteger modulus = rocaModulus(rnd);
+    byte[] encoded = modulus.toByteArray();
+    byte[] padded = new byte[encoded.length + 2];
+    System.arraycopy(encoded, 0, padded, 2, encoded.length);
+
+    Assert.assertTrue(RSABrokenKey.isAffected(encoded));
+    Assert.assertTrue(RSABrokenKey.isAffected(padded));
+  }
+
+  private static BigInteger rocaModulus(Random rnd) {
+    BigInteger residue = GENERATOR.modPow(BigInteger.valueOf(1 + rnd.nextInt(1 << 20)), PRIMORIAL);
+    return new BigInteger(2048 - PRIMORIAL.bitLength(), rnd).multiply(PRIMORIAL).add(residue);
+  }
+
+}
@@ -34,6 +34,7 @@ import org.bouncycastle.openssl.jcajce.JcaPKCS8Generator;
 import org.bouncycastle.openssl.jcajce.JceOpenSSLPKCS8EncryptorBuilder;
 import org.bouncycastle.operator.OutputEncryptor;
 import org.bouncycastle.util.io.pem.PemObject;
+import org.xipki.ca.api.mgmt.BulkRevocationFilter;
 import org.xipki.ca.api.mgmt.CaMgmtException;
 import org.xipki.ca.api.mgmt.CertListInfo;
 import org.xipki.ca.api.mgmt.CertListOrderBy;
@@ -61,6 +62,7 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -621,6 +623,102 @@ public class CertActions {
 
   } // class RevokeCert
 
+  @Command(scope = "ca", name = "revoke-certs", description = "revoke all certificates matching the criteria")
+  @Service
+  public static class RevokeCerts extends CaAction {
+
+    @Option(name = "--ca", required = true, description = "CA name")
+    @Completion(CaCompleters.CaNameCompleter.class)
+    private String caName;
+
+    @Option(name = "--reason", aliases = "-r", required = true, description = "CRL reason")
+    @Completion(Completers.ClientCrlReasonCompleter.class)
+    private String reason;
+
+    @Option(name = "--inv-date", description = "invalidity date, UTC time of format yyyyMMddHHmmss")
+    private String invalidityDateS;
+
+    @Option(name = "--serial", aliases = "-s", multiValued = true, description = "serial number")
+    private List<String> serialNumberSs;
+
+    @Option(name = "--serial-file", description = "file containing the serial numbers, one per line")
+    @Completion(FileCompleter.class)
+    private String serialNumberFile;
+
+    @Option(name = "--profile", description = "certificate profile name")
+    @Completion(CaCompleters.ProfileNameCompleter.class)
+    private String profile;
+
+    @Option(name = "--requestor", description = "requestor name")
+    @Completion(CaCompleters.RequestorNameCompleter.class)
+    private String requestor;
+
+    @Option(name = "--not-before-from", description = "smallest notBefore, UTC time of format yyyyMMddHHmmss")
+    private String notBeforeFromS;
+
+    @Option(name = "--not-before-to", description = "notBefore before this UTC time of format yyyyMMddHHmmss")
+    private String notBeforeToS;
+
+    @Option(name = "--gen-crl", description = "generate CRL after the revocation")
+    private Boolean genCrl = Boolean.FALSE;
+
+    @Option(name = "--force", aliases = "-f", description = "without prompt")
+    private Boolean force = Boolean.FALSE;
+
+    @Override
+    protected Object execute0()
+        throws Exception {
+      CrlReason crlReason = CrlReason.forNameOrText(reason);
+
+      if (!CrlReason.PERMITTED_CLIENT_CRLREASONS.contains(crlReason)) {
+        throw new InvalidConfException("reason " + reason + " is not permitted");
+      }
+
+      List<BigInteger> serialNumbers = new LinkedList<>();
+      if (serialNumberSs != null) {
+        for (String str : serialNumberSs) {
+          serialNumbers.add(toBigInt(str));
+        }
+      }
+
+      if (serialNumberFile != null) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(IoUtil.expandFilepath(serialNumberFile)))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+              serialNumbers.add(toBigInt(line));
+            }
+          }
+        }
+      }
+
+      BulkRevocationFilter filter = new BulkRevocationFilter();
+      filter.setSerialNumbers(serialNumbers.isEmpty() ? null : serialNumbers);
+      filter.setCertprofile(profile);
+      filter.setRequestor(requestor);
+      filter.setNotBeforeFrom(parseDate(notBeforeFromS));
+      filter.setNotBeforeTo(parseDate(notBeforeToS));
+
+      if (filter.getSerialNumbers() == null && profile == null && requestor == null
+          && filter.getNotBeforeFrom() == null && filter.getNotBeforeTo() == null) {
+        throw new IllegalCmdParamException("no criterion is specified");
+      }
+
+      String msg = "certificates of CA " + caName + " matching [" + filter + "]";
+      if (force || confirm("Do you want to revoke all " + msg, 3)) {
+        try {
+          int num = caManager.revokeCertificates(caName, filter, crlReason, parseDate(invalidityDateS), genCrl);
+          println("revoked " + num + " " + msg);
+        } catch (CaMgmtException ex) {
+          throw new CmdFailure("could not revoke " + msg + ", error: " + ex.getMessage(), ex);
+        }
+      }
+      return null;
+    } // method execute0
+
+  } // class RevokeCerts
+
   @Command(scope = "ca", name = "unsuspend-cert", description = "unsuspend certificate")
   @Service
   public static class UnsuspendCert extends UnsuspendRmCertAction {
@@ -23,6 +23,8 @@ import org.apache.karaf.shell.api.action.Option;
 import org.apache.karaf.shell.api.action.lifecycle.Reference;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.apache.karaf.shell.support.completers.FileCompleter;
+import org.apache.karaf.shell.support.completers.StringsCompleter;
+import org.xipki.ca.mgmt.db.BinaryPayloadMigrator;
 import org.xipki.ca.mgmt.db.DbWorker;
 import org.xipki.ca.mgmt.db.diffdb.DigestDiffWorker;
 import org.xipki.ca.mgmt.db.port.DbPortWorker;
@@ -30,6 +32,7 @@ import org.xipki.datasource.DataSourceFactory;
 import org.xipki.password.PasswordResolver;
 import org.xipki.security.util.X509Util;
 import org.xipki.shell.Completers;
+import org.xipki.shell.IllegalCmdParamException;
 import org.xipki.shell.XiAction;
 import org.xipki.util.Args;
 import org.xipki.util.StringUtil;
@@ -181,6 +184,13 @@ public class DbActions {
     @Option(name = "-k", description = "number of certificates per SELECT")
     private Integer numCertsPerCommit = 100;
 
+    @Option(name = "--threads", description = "number of threads to export the certstore in parallel")
+    private Integer numThreads = 1;
+
+    @Option(name = "--format", description = "format of the bundles (zip or segment)")
+    @Completion(value = StringsCompleter.class, values = {"zip", "segment"})
+    private String format = "zip";
+
     @Option(name = "--resume", description = "resume from the last successful point")
     private Boolean resume = Boolean.FALSE;
 
@@ -188,7 +198,7 @@ public class DbActions {
     protected DbPortWorker getDbWorker()
         throws Exception {
       return new DbPortWorker.ExportCaDb(datasourceFactory, passwordResolver, dbconfFile, outdir,
-          resume, numCertsInBundle, numCertsPerCommit, readPassword());
+          resume, numCertsInBundle, numCertsPerCommit, numThreads, format, readPassword());
     }
 
   } // class ExportCa
@@ -238,6 +248,13 @@ public class DbActions {
     @Option(name = "-k", description = "number of certificates per commit")
     private Integer numCertsPerCommit = 100;
 
+    @Option(name = "--threads", description = "number of threads to import the certstore in parallel")
+    private Integer numThreads = 1;
+
+    @Option(name = "--drop-indexes",
+        description = "drop the indexes and foreign keys during the import and rebuild them afterwards")
+    private Boolean dropIndexes = Boolean.FALSE;
+
     @Option(name = "--resume", description = "resume from the last successful point")
     private Boolean resume = Boolean.FALSE;
 
@@ -245,7 +262,7 @@ public class DbActions {
     protected DbPortWorker getDbWorker()
         throws Exception {
       return new DbPortWorker.ImportCaDb(datasourceFactory, passwordResolver, dbconfFile, resume,
-          indir, numCertsPerCommit, readPassword());
+          indir, numCertsPerCommit, numThreads, dropIndexes, readPassword());
     }
 
   } // class ImportCa
@@ -265,6 +282,13 @@ public class DbActions {
     @Option(name = "-k", description = "number of certificates per commit")
     private Integer numCertsPerCommit = 100;
 
+    @Option(name = "--threads", description = "number of threads to import the certstore in parallel")
+    private Integer numThreads = 1;
+
+    @Option(name = "--drop-indexes",
+        description = "drop the indexes and foreign keys during the import and rebuild them afterwards")
+    private Boolean dropIndexes = Boolean.FALSE;
+
     @Option(name = "--resume", description = "resume from the last successful point")
     private Boolean resume = Boolean.FALSE;
 
@@ -272,7 +296,7 @@ public class DbActions {
     protected DbPortWorker getDbWorker()
         throws Exception {
       return new DbPortWorker.ImportOcspDb(datasourceFactory, passwordResolver, dbconfFile, resume,
-          indir, numCertsPerCommit, readPassword());
+          indir, numCertsPerCommit, numThreads, dropIndexes, readPassword());
     }
 
   } // class ImportOcsp
@@ -298,6 +322,9 @@ public class DbActions {
     @Option(name = "-k", description = "number of certificates per commit")
     private Integer numCertsPerCommit = 100;
 
+    @Option(name = "--threads", description = "number of threads to import the certstore in parallel")
+    private Integer numThreads = 1;
+
     @Option(name = "--resume", description = "resume from the last successful point")
     private Boolean resume = Boolean.FALSE;
 
@@ -305,9 +332,42 @@ public class DbActions {
     protected DbPortWorker getDbWorker()
         throws Exception {
       return new DbPortWorker.ImportOcspFromCaDb(datasourceFactory, passwordResolver, dbconfFile,
-          publisherName, resume, indir, numCertsPerCommit, readPassword());
+          publisherName, resume, indir, numCertsPerCommit, numThreads, readPassword());
     }
 
   } // class ImportOcspfromca
 
+  @Command(scope = "ca", name = "migrate-binary-payload",
+      description = "move the Base64-encoded certificates, CRLs, requests and OCSP responses to the binary columns")
+  @Service
+  public static class MigrateBinaryPayload extends DbAction {
+
+    @Option(name = "--db-conf", required = true, description = "database configuration file")
+    @Completion(FileCompleter.class)
+    private String dbconfFile;
+
+    @Option(name = "--type", description = "type of the database (ca or ocsp-cache)")
+    @Completion(value = StringsCompleter.class, values = {"ca", "ocsp-cache"})
+    private String type = "ca";
+
+    @Option(name = "-k", description = "number of rows per commit")
+    private Integer numRowsPerCommit = 1000;
+
+    @Override
+    protected DbWorker getDbWorker()
+        throws Exception {
+      BinaryPayloadMigrator.DbType dbType;
+      if ("ca".equalsIgnoreCase(type)) {
+        dbType = BinaryPayloadMigrator.DbType.ca;
+      } else if ("ocsp-cache".equalsIgnoreCase(type)) {
+        dbType = BinaryPayloadMigrator.DbType.ocspCache;
+      } else {
+        throw new IllegalCmdParamException("invalid type " + type);
+      }
+
+      return new BinaryPayloadMigrator(datasourceFactory, passwordResolver, dbconfFile, dbType, numRowsPerCommit);
+    }
+
+  } // class MigrateBinaryPayload
+
 }
@@ -0,0 +1,95 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations with fixed buckets. The bucket i counts the values not
+ * greater than {@code getBucketBounds()[i]} and greater than the previous bound, the last bucket
+ * counts all values greater than the last bound. All values are in microseconds.
+ *
+ * @author Lijun Liao
+ */
+
+public class Histogram {
+
+  // upper bounds of the buckets in microseconds, from 100 µs to 5 s.
+  private static final long[] BUCKET_BOUNDS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000,
+      50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000};
+
+  private final LongAdder[] buckets;
+
+  private final LongAdder sum = new LongAdder();
+
+  private final AtomicLong max = new AtomicLong();
+
+  public Histogram() {
+    buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a duration.
+   * @param nanos the duration in nanoseconds.
+   */
+  public void record(long nanos) {
+    long micros = nanos / 1000;
+    int idx = 0;
+    while (idx < BUCKET_BOUNDS.length && micros > BUCKET_BOUNDS[idx]) {
+      idx++;
+    }
+
+    buckets[idx].increment();
+    sum.add(micros);
+
+    long prev = max.get();
+    while (micros > prev && !max.compareAndSet(prev, micros)) {
+      prev = max.get();
+    }
+  } // method record
+
+  public long[] getBucketBounds() {
+    return BUCKET_BOUNDS.clone();
+  }
+
+  /**
+   * Returns the number of values per bucket, the array has one more element than
+   * {@link #getBucketBounds()}.
+   * @return the number of values per bucket.
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+}
@@ -0,0 +1,226 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.util.metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static org.xipki.util.Args.notBlank;
+import static org.xipki.util.Args.notNull;
+
+/**
+ * Registry of the counters, gauges and histograms of the process, written in the Prometheus
+ * text format by {@link #toPrometheusText()}.
+ *
+ * <p>A metric is identified by its name and its labels, given as pairs of label name and
+ * value. Getting a metric which already exists returns the existing one, so the callers may
+ * hold the returned object or look it up on each use. The labels should only take a small
+ * number of values.
+ *
+ * @author Lijun Liao
+ */
+
+public class MetricsRegistry {
+
+  private enum Type {
+    counter,
+    gauge,
+    histogram
+  }
+
+  private static class Family {
+
+    private final String help;
+
+    private final Type type;
+
+    // label text, e.g. a="1",b="2", to the metric
+    private final ConcurrentHashMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+    private Family(String help, Type type) {
+      this.help = help;
+      this.type = type;
+    }
+
+  } // class Family
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+  public static MetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  public Counter counter(String name, String help, String... labels) {
+    return (Counter) family(name, help, Type.counter).metrics.computeIfAbsent(labelText(labels),
+        k -> new Counter());
+  }
+
+  /**
+   * Registers a counter whose value is read from the supplier at each scrape, for the values
+   * counted elsewhere. An existing counter with the same name and labels is replaced.
+   * @param name name of the counter.
+   * @param help description of the counter.
+   * @param supplier supplier of the value.
+   * @param labels pairs of label name and value.
+   */
+  public void counter(String name, String help, LongSupplier supplier, String... labels) {
+    family(name, help, Type.counter).metrics.put(labelText(labels), notNull(supplier, "supplier"));
+  }
+
+  public Histogram histogram(String name, String help, String... labels) {
+    return (Histogram) family(name, help, Type.histogram).metrics.computeIfAbsent(labelText(labels),
+        k -> new Histogram());
+  }
+
+  /**
+   * Registers a gauge whose value is read from the supplier at each scrape. An existing gauge with
+   * the same name and labels is replaced.
+   * @param name name of the gauge.
+   * @param help description of the gauge.
+   * @param supplier supplier of the value.
+   * @param labels pairs of label name and value.
+   */
+  public void gauge(String name, String help, LongSupplier supplier, String... labels) {
+    family(name, help, Type.gauge).metrics.put(labelText(labels), notNull(supplier, "supplier"));
+  }
+
+  private Family family(String name, String help, Type type) {
+    Family family = families.get(name);
+    if (family == null) {
+      family = families.computeIfAbsent(notBlank(name, "name"), k -> new Family(help, type));
+    }
+
+    if (family.type != type) {
+      throw new IllegalArgumentException("metric " + name + " is not a " + type);
+    }
+    return family;
+  } // method family
+
+  /**
+   * Returns all metrics in the Prometheus text format.
+   * @return the metrics in the Prometheus text format.
+   */
+  public String toPrometheusText() {
+    List<String> names = new ArrayList<>(families.keySet());
+    Collections.sort(names);
+
+    StringBuilder sb = new StringBuilder(4096);
+    for (String name : names) {
+      Family family = families.get(name);
+      if (family.metrics.isEmpty()) {
+        continue;
+      }
+
+      if (family.help != null) {
+        sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+      }
+      sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+
+      List<String> labelTexts = new ArrayList<>(family.metrics.keySet());
+      Collections.sort(labelTexts);
+      for (String labels : labelTexts) {
+        Object metric = family.metrics.get(labels);
+        if (metric instanceof Counter) {
+          appendSample(sb, name, labels, null, Long.toString(((Counter) metric).get()));
+        } else if (metric instanceof LongSupplier) {
+          appendSample(sb, name, labels, null, Long.toString(((LongSupplier) metric).getAsLong()));
+        } else if (metric instanceof Histogram) {
+          appendHistogram(sb, name, labels, (Histogram) metric);
+        }
+      }
+    }
+    return sb.toString();
+  } // method toPrometheusText
+
+  private static void appendHistogram(StringBuilder sb, String name, String labels, Histogram histogram) {
+    long[] bounds = histogram.getBucketBounds();
+    long[] counts = histogram.getBucketCounts();
+    String bucketName = name + "_bucket";
+
+    long cumulative = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      cumulative += counts[i];
+      appendSample(sb, bucketName, labels, microsToSeconds(bounds[i]), Long.toString(cumulative));
+    }
+    cumulative += counts[bounds.length];
+    appendSample(sb, bucketName, labels, "+Inf", Long.toString(cumulative));
+    appendSample(sb, name + "_sum", labels, null, microsToSeconds(histogram.getSum()));
+    appendSample(sb, name + "_count", labels, null, Long.toString(cumulative));
+  } // method appendHistogram
+
+  private static void appendSample(StringBuilder sb, String name, String labels, String le, String value) {
+    sb.append(name);
+    if (!labels.isEmpty() || le != null) {
+      sb.append('{').append(labels);
+      if (le != null) {
+        if (!labels.isEmpty()) {
+          sb.append(',');
+        }
+        sb.append("le=\"").append(le).append('"');
+      }
+      sb.append('}');
+    }
+    sb.append(' ').append(value).append('\n');
+  } // method appendSample
+
+  private static String microsToSeconds(long micros) {
+    return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+  }
+
+  private static String labelText(String... labels) {
+    if (labels == null || labels.length == 0) {
+      return "";
+    }
+
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("labels must be pairs of name and value");
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(labels[i]).append("=\"");
+      String value = labels[i + 1];
+      if (value != null) {
+        for (int j = 0; j < value.length(); j++) {
+          char c = value.charAt(j);
+          if (c == '\\' || c == '"') {
+            sb.append('\\').append(c);
+          } else if (c == '\n') {
+            sb.append("\\n");
+          } else {
+            sb.append(c);
+          }
+        }
+      }
+      sb.append('"');
+    }
+    return sb.toString();
+  } // method labelText
+
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.common.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.util.metrics.Histogram;
+
+/**
+ * Test for {@link Histogram}.
+ *
+ * @author Lijun Liao
+ */
+
+public class HistogramTest {
+
+  @Test
+  public void testBuckets() {
+    Histogram histogram = new Histogram();
+    long[] bounds = histogram.getBucketBounds();
+
+    // on the bound of the first bucket
+    histogram.record(bounds[0] * 1000);
+    // just above the bound of the first bucket
+    histogram.record((bounds[0] + 1) * 1000);
+    // above the last bound
+    histogram.record((bounds[bounds.length - 1] + 1) * 1000);
+    // the nanoseconds are truncated to microseconds
+    histogram.record(999);
+
+    long[] counts = histogram.getBucketCounts();
+    Assert.assertEquals("number of buckets", bounds.length + 1, counts.length);
+    Assert.assertEquals("first bucket", 2, counts[0]);
+    Assert.assertEquals("second bucket", 1, counts[1]);
+    Assert.assertEquals("last bucket", 1, counts[bounds.length]);
+
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    Assert.assertEquals("total", 4, total);
+
+    Assert.assertEquals("sum", 2 * bounds[0] + 1 + bounds[bounds.length - 1] + 1, histogram.getSum());
+    Assert.assertEquals("max", bounds[bounds.length - 1] + 1, histogram.getMax());
+  }
+
+  @Test
+  public void testEmpty() {
+    Histogram histogram = new Histogram();
+    for (long count : histogram.getBucketCounts()) {
+      Assert.assertEquals(0, count);
+    }
+    Assert.assertEquals("sum", 0, histogram.getSum());
+    Assert.assertEquals("max", 0, histogram.getMax());
+  }
+
+  @Test
+  public void testBucketBoundsNotModifiable() {
+    Histogram histogram = new Histogram();
+    long[] bounds = histogram.getBucketBounds();
+    long first = bounds[0];
+    bounds[0] = -1;
+    Assert.assertEquals(first, histogram.getBucketBounds()[0]);
+
+    for (int i = 1; i < bounds.length; i++) {
+      Assert.assertTrue("bounds must be increasing", bounds[i] > bounds[i - 1]);
+    }
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.common.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.util.metrics.Counter;
+import org.xipki.util.metrics.Histogram;
+import org.xipki.util.metrics.MetricsRegistry;
+
+/**
+ * Test for {@link MetricsRegistry}.
+ *
+ * @author Lijun Liao
+ */
+
+public class MetricsRegistryTest {
+
+  @Test
+  public void testCounterAndGauge() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("requests_total", "Number of requests", "type", "b").add(2);
+    registry.counter("requests_total", "Number of requests", "type", "a").increment();
+    registry.gauge("connections", null, () -> 7);
+
+    // sorted by name and labels, the gauge has no help
+    String expected = "# TYPE connections gauge\n"
+        + "connections 7\n"
+        + "# HELP requests_total Number of requests\n"
+        + "# TYPE requests_total counter\n"
+        + "requests_total{type=\"a\"} 1\n"
+        + "requests_total{type=\"b\"} 2\n";
+    Assert.assertEquals(expected, registry.toPrometheusText());
+  }
+
+  @Test
+  public void testSameMetric() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter counter = registry.counter("c", "help", "a", "1");
+    Assert.assertSame(counter, registry.counter("c", "help", "a", "1"));
+    Assert.assertNotSame(counter, registry.counter("c", "help", "a", "2"));
+
+    Histogram histogram = registry.histogram("h", "help");
+    Assert.assertSame(histogram, registry.histogram("h", "help"));
+  }
+
+  @Test
+  public void testSupplierReplaced() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("c", "help", () -> 1);
+    registry.counter("c", "help", () -> 2);
+    Assert.assertEquals("# HELP c help\n# TYPE c counter\nc 2\n", registry.toPrometheusText());
+  }
+
+  @Test
+  public void testLabelEscaping() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("c", "help", "name", "a\"b\\c\nd").increment();
+    Assert.assertEquals("# HELP c help\n# TYPE c counter\nc{name=\"a\\\"b\\\\c\\nd\"} 1\n",
+        registry.toPrometheusText());
+  }
+
+  @Test
+  public void testHistogram() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Histogram histogram = registry.histogram("latency_seconds", "Latency", "op", "x");
+    histogram.record(300_000); // 300 µs
+    histogram.record(7_000_000_000L); // 7 s
+
+    String text = registry.toPrometheusText();
+    Assert.assertTrue(text.startsWith("# HELP latency_seconds Latency\n# TYPE latency_seconds histogram\n"));
+    // the buckets are cumulative, the bounds in seconds
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"0.0001\"} 0");
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"0.00025\"} 0");
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"0.0005\"} 1");
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"1\"} 1");
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"2.5\"} 1");
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"5\"} 1");
+    assertContainsLine(text, "latency_seconds_bucket{op=\"x\",le=\"+Inf\"} 2");
+    assertContainsLine(text, "latency_seconds_sum{op=\"x\"} 7.0003");
+    assertContainsLine(text, "latency_seconds_count{op=\"x\"} 2");
+
+    int numBuckets = text.split("latency_seconds_bucket", -1).length - 1;
+    Assert.assertEquals("number of buckets", histogram.getBucketBounds().length + 1, numBuckets);
+  }
+
+  @Test
+  public void testHistogramWithoutLabels() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.histogram("h", "help");
+    String text = registry.toPrometheusText();
+    assertContainsLine(text, "h_bucket{le=\"+Inf\"} 0");
+    assertContainsLine(text, "h_sum 0");
+    assertContainsLine(text, "h_count 0");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeMismatch() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("m", "help");
+    registry.gauge("m", "help", () -> 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOddLabels() {
+    new MetricsRegistry().counter("m", "help", "a");
+  }
+
+  private static void assertContainsLine(String text, String line) {
+    Assert.assertTrue("missing line '" + line + "'", ("\n" + text).contains("\n" + line + "\n"));
+  }
+
+}